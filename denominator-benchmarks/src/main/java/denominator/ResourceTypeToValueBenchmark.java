@@ -0,0 +1,47 @@
+package denominator;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Looks up types in both directions, as providers that identify types by
+ * value do once per record.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class ResourceTypeToValueBenchmark {
+
+    @Param({ "A", "AAAA", "TXT" })
+    String type;
+
+    final ResourceTypeToValue resourceTypeToValue = new ResourceTypeToValue();
+
+    @Benchmark
+    public Integer lookup() {
+        return ResourceTypeToValue.lookup(type);
+    }
+
+    @Benchmark
+    public String apply() {
+        return resourceTypeToValue.apply(type);
+    }
+
+    @Benchmark
+    public String inverse() {
+        return resourceTypeToValue.inverse().get(28);
+    }
+}
@@ -0,0 +1,101 @@
+package denominator.benchmarks;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static denominator.model.ResourceRecordSets.a;
+import static denominator.model.ResourceRecordSets.aaaa;
+import static denominator.model.ResourceRecordSets.txt;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+
+import denominator.model.ResourceRecordSet;
+
+/**
+ * Generates zones for benchmarks, so that results can be reproduced without
+ * access to a provider. The same arguments always generate the same zone.
+ *
+ * <p/>
+ * Record sets are of type {@code A}, {@code AAAA} or {@code TXT}, which all
+ * have a single rdata field. This keeps converting them to each provider's
+ * record format simple.
+ */
+public final class SyntheticZone {
+    public static final String NAME = "denominator.io.";
+
+    private SyntheticZone() {
+    }
+
+    /**
+     * @param count
+     *            count of record sets.
+     * @param rdataPerSet
+     *            count of rdata in each record set.
+     * @param seed
+     *            picks the type of each record set.
+     * @return record sets with distinct names, in a stable order.
+     */
+    public static List<ResourceRecordSet<?>> rrsets(int count, int rdataPerSet, long seed) {
+        checkArgument(count >= 0, "count must not be negative, but was %s", count);
+        checkArgument(rdataPerSet > 0, "rdataPerSet must be positive, but was %s", rdataPerSet);
+        Random random = new Random(seed);
+        ImmutableList.Builder<ResourceRecordSet<?>> rrsets = ImmutableList.builder();
+        for (int i = 0; i < count; i++) {
+            String name = name(i);
+            List<String> values = Lists.newArrayListWithCapacity(rdataPerSet);
+            int type = random.nextInt(10);
+            for (int j = 0; j < rdataPerSet; j++) {
+                if (type < 7) {
+                    values.add(ipv4(i * rdataPerSet + j));
+                } else if (type < 9) {
+                    values.add(ipv6(i * rdataPerSet + j));
+                } else {
+                    values.add("v=spf1 ip4:" + ipv4(i * rdataPerSet + j) + " -all");
+                }
+            }
+            rrsets.add(type < 7 ? a(name, 3600, values) : type < 9 ? aaaa(name, 3600, values) : txt(name, 3600,
+                    values));
+        }
+        return rrsets.build();
+    }
+
+    /**
+     * @return a copy of {@code rrsets} with one record set per rdata, which
+     *         is how most providers return records.
+     */
+    public static List<ResourceRecordSet<?>> split(List<ResourceRecordSet<?>> rrsets) {
+        ImmutableList.Builder<ResourceRecordSet<?>> split = ImmutableList.builder();
+        for (ResourceRecordSet<?> rrset : rrsets) {
+            for (Map<String, Object> rdata : rrset) {
+                split.add(ResourceRecordSet.<Map<String, Object>> builder()
+                                           .name(rrset.getName())
+                                           .type(rrset.getType())
+                                           .ttl(rrset.getTTL().orNull())
+                                           .add(rdata).build());
+            }
+        }
+        return split.build();
+    }
+
+    /**
+     * @return the single value of {@code rdata}, in text format.
+     */
+    public static String value(Map<String, Object> rdata) {
+        return rdata.values().iterator().next().toString();
+    }
+
+    static String name(int index) {
+        return "host" + index + "." + NAME;
+    }
+
+    static String ipv4(int index) {
+        return "10." + (index >>> 16 & 0xff) + "." + (index >>> 8 & 0xff) + "." + (index & 0xff);
+    }
+
+    static String ipv6(int index) {
+        return "2001:db8::" + Integer.toHexString(index >>> 16) + ":" + Integer.toHexString(index & 0xffff);
+    }
+}
@@ -0,0 +1,116 @@
+package denominator.benchmarks;
+
+import static com.google.common.base.Preconditions.checkState;
+import static java.lang.String.format;
+
+import java.util.List;
+import java.util.Map;
+
+import com.google.common.collect.ForwardingMap;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+import denominator.model.ResourceRecordSet;
+import denominator.model.rdata.AAAAData;
+import denominator.model.rdata.AData;
+import denominator.model.rdata.TXTData;
+
+/**
+ * Prints the heap retained by the record sets and rdata of a
+ * {@link SyntheticZone}, per record set. For comparison, it also prints the
+ * heap retained when each rdata holds an {@code ImmutableMap} alongside its
+ * typed field, which is how rdata were represented before they became views
+ * over their fields.
+ *
+ * <p/>
+ * Heap is measured after a full garbage collection, so run this in its own
+ * JVM, without other work.
+ *
+ * <pre>
+ * $ ./gradlew :denominator-benchmarks:footprint -Pargs='1000000 1'
+ * </pre>
+ */
+public final class ZoneFootprint {
+
+    /**
+     * @param args
+     *            count of record sets, default 1000000, and count of rdata in
+     *            each, default 1.
+     */
+    public static void main(String... args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+        int rdataPerSet = args.length > 1 ? Integer.parseInt(args[1]) : 1;
+        List<ResourceRecordSet<?>> zone = SyntheticZone.rrsets(count, rdataPerSet, 0);
+
+        long before = usedHeap();
+        List<ResourceRecordSet<?>> compact = copy(zone, false);
+        long compactBytes = usedHeap() - before;
+
+        before = usedHeap();
+        List<ResourceRecordSet<?>> mapBacked = copy(zone, true);
+        long mapBackedBytes = usedHeap() - before;
+
+        // both copies must be reachable until measured
+        checkState(compact.size() == mapBacked.size());
+        System.out.println(format("%s record sets of %s rdata", count, rdataPerSet));
+        print("compact", compactBytes, count);
+        print("map-backed", mapBackedBytes, count);
+    }
+
+    private static void print(String layout, long bytes, int count) {
+        System.out.println(format("%-12s %,15d bytes %,8d per record set", layout, bytes, bytes / Math.max(count, 1)));
+    }
+
+    /**
+     * copies {@code zone}, sharing names and values, so that only the list,
+     * record sets and rdata are measured.
+     */
+    static List<ResourceRecordSet<?>> copy(List<ResourceRecordSet<?>> zone, boolean mapBacked) {
+        ImmutableList.Builder<ResourceRecordSet<?>> copy = ImmutableList.builder();
+        for (ResourceRecordSet<?> rrset : zone) {
+            ResourceRecordSet.Builder<Map<String, Object>> builder = ResourceRecordSet.builder();
+            builder.name(rrset.getName()).type(rrset.getType()).ttl(rrset.getTTL().orNull());
+            for (Map<String, Object> rdata : rrset) {
+                String value = SyntheticZone.value(rdata);
+                if (mapBacked) {
+                    builder.add(new MapBackedRData(value, ImmutableMap.copyOf(rdata)));
+                } else if ("A".equals(rrset.getType())) {
+                    builder.add(AData.create(value));
+                } else if ("AAAA".equals(rrset.getType())) {
+                    builder.add(AAAAData.create(value));
+                } else {
+                    builder.add(TXTData.create(value));
+                }
+            }
+            copy.add(builder.build());
+        }
+        return copy.build();
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static final class MapBackedRData extends ForwardingMap<String, Object> {
+        @SuppressWarnings("unused")
+        private final String value;
+        private final ImmutableMap<String, Object> delegate;
+
+        private MapBackedRData(String value, ImmutableMap<String, Object> delegate) {
+            this.value = value;
+            this.delegate = delegate;
+        }
+
+        @Override
+        protected Map<String, Object> delegate() {
+            return delegate;
+        }
+    }
+
+    private ZoneFootprint() {
+    }
+}
@@ -0,0 +1,77 @@
+package denominator.clouddns;
+
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.jclouds.rackspace.clouddns.v1.domain.Record;
+import org.jclouds.rackspace.clouddns.v1.domain.RecordDetail;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.google.common.collect.ImmutableList;
+
+import denominator.benchmarks.SyntheticZone;
+import denominator.model.ResourceRecordSet;
+
+/**
+ * Groups a zone listed as one record per rdata into record sets.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class GroupByRecordNameAndTypeIteratorBenchmark {
+
+    @Param({ "1000", "100000" })
+    int rrsets;
+
+    @Param({ "1", "4" })
+    int rdataPerSet;
+
+    List<RecordDetail> records;
+
+    @Setup
+    public void setup() {
+        ImmutableList.Builder<RecordDetail> records = ImmutableList.builder();
+        int id = 0;
+        for (ResourceRecordSet<?> rrset : SyntheticZone.rrsets(rrsets, rdataPerSet, 0)) {
+            // Rackspace names have no trailing dot
+            String name = rrset.getName().substring(0, rrset.getName().length() - 1);
+            for (Map<String, Object> rdata : rrset) {
+                records.add(RecordDetail.builder()
+                                        .id(rrset.getType() + "-" + id++)
+                                        .created(new Date(0))
+                                        .updated(new Date(0))
+                                        .record(Record.builder()
+                                                      .name(name)
+                                                      .type(rrset.getType())
+                                                      .ttl(rrset.getTTL().get())
+                                                      .data(SyntheticZone.value(rdata))).build());
+            }
+        }
+        this.records = records.build();
+    }
+
+    @Benchmark
+    public void groupBy(Blackhole blackhole) {
+        Iterator<ResourceRecordSet<?>> grouped = new GroupByRecordNameAndTypeIterator(records.iterator());
+        while (grouped.hasNext()) {
+            blackhole.consume(grouped.next());
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package denominator.dynect;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.jclouds.dynect.v3.domain.Record;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.google.common.collect.ImmutableList;
+
+import denominator.benchmarks.SyntheticZone;
+import denominator.model.ResourceRecordSet;
+
+/**
+ * Groups a zone listed as one record per rdata into record sets.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class GroupByRecordNameAndTypeIteratorBenchmark {
+
+    @Param({ "1000", "100000" })
+    int rrsets;
+
+    @Param({ "1", "4" })
+    int rdataPerSet;
+
+    List<Record<?>> records;
+
+    @Setup
+    public void setup() {
+        ImmutableList.Builder<Record<?>> records = ImmutableList.builder();
+        long id = 0;
+        for (ResourceRecordSet<?> rrset : SyntheticZone.rrsets(rrsets, rdataPerSet, 0)) {
+            for (Map<String, Object> rdata : rrset) {
+                records.add(Record.<Map<String, Object>> builder()
+                                  .zone(SyntheticZone.NAME)
+                                  .fqdn(rrset.getName())
+                                  .type(rrset.getType())
+                                  .id(id++)
+                                  .ttl(rrset.getTTL().get())
+                                  .rdata(rdata).build());
+            }
+        }
+        this.records = records.build();
+    }
+
+    @Benchmark
+    public void groupBy(Blackhole blackhole) {
+        Iterator<ResourceRecordSet<?>> grouped = new GroupByRecordNameAndTypeIterator(records.iterator());
+        while (grouped.hasNext()) {
+            blackhole.consume(grouped.next());
+        }
+    }
+}
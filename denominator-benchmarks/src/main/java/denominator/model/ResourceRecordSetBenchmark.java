@@ -0,0 +1,70 @@
+package denominator.model;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.common.collect.ImmutableList;
+
+import denominator.model.rdata.AData;
+
+/**
+ * Builds, hashes and compares record sets of increasing size. Equal record
+ * sets are distinct instances, so that {@code equals} compares every rdata.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class ResourceRecordSetBenchmark {
+
+    @Param({ "1", "100", "10000" })
+    int rdata;
+
+    List<AData> values;
+    ResourceRecordSet<AData> rrset;
+    ResourceRecordSet<AData> equalRRSet;
+
+    @Setup
+    public void setup() {
+        ImmutableList.Builder<AData> values = ImmutableList.builder();
+        for (int i = 0; i < rdata; i++) {
+            values.add(AData.create("10." + (i >>> 16 & 0xff) + "." + (i >>> 8 & 0xff) + "." + (i & 0xff)));
+        }
+        this.values = values.build();
+        this.rrset = build();
+        this.equalRRSet = build();
+    }
+
+    @Benchmark
+    public ResourceRecordSet<AData> build() {
+        return ResourceRecordSet.<AData> builder()
+                                .name("www.denominator.io.")
+                                .type("A")
+                                .ttl(3600)
+                                .addAll(values).build();
+    }
+
+    @Benchmark
+    public int hashCodeOfRRSet() {
+        return rrset.hashCode();
+    }
+
+    @Benchmark
+    public boolean equalsOfEqualRRSets() {
+        return rrset.equals(equalRRSet);
+    }
+}
@@ -0,0 +1,78 @@
+package denominator.model.rdata;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.common.collect.ImmutableMap;
+
+/**
+ * Reads rdata as a {@code Map}, next to the same rdata held as
+ * {@code ImmutableMap}, as it was before {@code 1.2.0}. {@code SOAData} mixes
+ * {@code String} and {@code int} fields, the latter of which are boxed when
+ * read.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class RDataBenchmark {
+
+    SOAData soa;
+    SOAData equalSOA;
+    Map<String, Object> soaMap;
+
+    @Setup
+    public void setup() {
+        soa = soa();
+        equalSOA = soa();
+        soaMap = ImmutableMap.copyOf(soa);
+    }
+
+    static SOAData soa() {
+        return SOAData.builder().mname("ns1.denominator.io.").rname("admin.denominator.io.").serial(2013052801)
+                .refresh(3600).retry(600).expire(604800).minimum(86400).build();
+    }
+
+    @Benchmark
+    public Object get() {
+        return soa.get("minimum");
+    }
+
+    @Benchmark
+    public Object getOfImmutableMap() {
+        return soaMap.get("minimum");
+    }
+
+    @Benchmark
+    public int hashCodeOfRData() {
+        return soa.hashCode();
+    }
+
+    @Benchmark
+    public int hashCodeOfImmutableMap() {
+        return soaMap.hashCode();
+    }
+
+    @Benchmark
+    public boolean equalsOfEqualRData() {
+        return soa.equals(equalSOA);
+    }
+
+    @Benchmark
+    public boolean equalsOfImmutableMap() {
+        return soa.equals(soaMap);
+    }
+}
@@ -0,0 +1,54 @@
+package denominator.route53;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import denominator.benchmarks.SyntheticZone;
+import denominator.model.ResourceRecordSet;
+
+/**
+ * Groups a zone listed as one record set per rdata into record sets.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class GroupByRecordNameAndTypeIteratorBenchmark {
+
+    @Param({ "1000", "100000" })
+    int rrsets;
+
+    @Param({ "1", "4" })
+    int rdataPerSet;
+
+    List<ResourceRecordSet<?>> records;
+
+    @Setup
+    public void setup() {
+        records = SyntheticZone.split(SyntheticZone.rrsets(rrsets, rdataPerSet, 0));
+    }
+
+    @Benchmark
+    public void groupBy(Blackhole blackhole) {
+        Iterator<ResourceRecordSet<?>> grouped = new GroupByRecordNameAndTypeIterator(records.iterator());
+        while (grouped.hasNext()) {
+            blackhole.consume(grouped.next());
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package denominator.route53;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.common.collect.ImmutableMap;
+
+/**
+ * Parses one rdata of each type from Route53's text format. Route53 returns
+ * every rdata in this format, so a full listing parses once per record.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class ToDenominatorResourceRecordSetBenchmark {
+    static final Map<String, String> RDATA = ImmutableMap.<String, String> builder()
+            .put("A", "192.0.2.1")
+            .put("AAAA", "2001:db8::1")
+            .put("CNAME", "www1.denominator.io.")
+            .put("MX", "10 mx1.denominator.io.")
+            .put("SOA", "ns1.denominator.io. admin.denominator.io. 1 3600 600 604800 60")
+            .put("SRV", "0 1 80 www.denominator.io.")
+            .put("TXT", "\"v=spf1 ip4:192.0.2.1 -all\"").build();
+
+    @Param({ "A", "AAAA", "CNAME", "MX", "SOA", "SRV", "TXT" })
+    String type;
+
+    String rdata;
+
+    @Setup
+    public void setup() {
+        rdata = RDATA.get(type);
+    }
+
+    @Benchmark
+    public Map<String, Object> parseTextFormat() {
+        return ToDenominatorResourceRecordSet.parseTextFormat(type, rdata);
+    }
+}
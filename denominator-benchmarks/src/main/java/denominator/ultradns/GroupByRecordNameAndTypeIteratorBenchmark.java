@@ -0,0 +1,78 @@
+package denominator.ultradns;
+
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.jclouds.ultradns.ws.domain.ResourceRecord;
+import org.jclouds.ultradns.ws.domain.ResourceRecordDetail;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.google.common.collect.ImmutableList;
+
+import denominator.ResourceTypeToValue;
+import denominator.benchmarks.SyntheticZone;
+import denominator.model.ResourceRecordSet;
+
+/**
+ * Groups a zone listed as one record per rdata into record sets.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class GroupByRecordNameAndTypeIteratorBenchmark {
+
+    @Param({ "1000", "100000" })
+    int rrsets;
+
+    @Param({ "1", "4" })
+    int rdataPerSet;
+
+    List<ResourceRecordDetail> records;
+
+    @Setup
+    public void setup() {
+        ImmutableList.Builder<ResourceRecordDetail> records = ImmutableList.builder();
+        int guid = 0;
+        for (ResourceRecordSet<?> rrset : SyntheticZone.rrsets(rrsets, rdataPerSet, 0)) {
+            for (Map<String, Object> rdata : rrset) {
+                records.add(ResourceRecordDetail.builder()
+                                                .zoneId("0000000000000001")
+                                                .zoneName(SyntheticZone.NAME)
+                                                .guid(Integer.toHexString(guid++))
+                                                .created(new Date(0))
+                                                .modified(new Date(0))
+                                                .record(ResourceRecord.rrBuilder()
+                                                                      .name(rrset.getName())
+                                                                      .type(ResourceTypeToValue.lookup(rrset.getType()))
+                                                                      .ttl(rrset.getTTL().get())
+                                                                      .rdata(SyntheticZone.value(rdata))).build());
+            }
+        }
+        this.records = records.build();
+    }
+
+    @Benchmark
+    public void groupBy(Blackhole blackhole) {
+        Iterator<ResourceRecordSet<?>> grouped = new GroupByRecordNameAndTypeIterator(records.iterator());
+        while (grouped.hasNext()) {
+            blackhole.consume(grouped.next());
+        }
+    }
+}
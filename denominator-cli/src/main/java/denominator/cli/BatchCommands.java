@@ -0,0 +1,230 @@
+package denominator.cli;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.util.concurrent.Futures.immediateFailedFuture;
+import static com.google.common.util.concurrent.MoreExecutors.listeningDecorator;
+import static java.lang.String.format;
+import static java.util.concurrent.Executors.newFixedThreadPool;
+import io.airlift.command.Arguments;
+import io.airlift.command.Cli;
+import io.airlift.command.Command;
+import io.airlift.command.Option;
+import io.airlift.command.OptionType;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.Closeables;
+import com.google.common.io.Files;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+
+import denominator.DNSApiManager;
+import denominator.cli.Denominator.DenominatorCommand;
+import denominator.cli.Denominator.OutputCommand;
+
+class BatchCommands {
+
+    @Command(name = "batch", description = "Runs zone, record and geo commands, one per line, over one connection to the provider")
+    public static class Batch extends OutputCommand {
+        @Arguments(description = "path to a file of commands, such as record -z denominator.io. add -n www.denominator.io. -t A -d 192.0.2.1. reads standard in when absent")
+        public String path;
+
+        @Option(type = OptionType.COMMAND, name = "--writers", description = "count of commands to run concurrently. commands may then apply out of order. ex. 4")
+        public int writers = 1;
+
+        /**
+         * lines accept the same commands and options as the command line.
+         */
+        private final Cli<Runnable> parser = Denominator.cli();
+
+        private int commands;
+        private int failures;
+
+        /**
+         * runs each command, writing its output, or its error. When
+         * {@link #writers} is more than one, output of each command is
+         * buffered, so that it is written in the order the commands were
+         * read.
+         *
+         * @throws IllegalStateException
+         *             after all commands run, if any failed.
+         */
+        @Override
+        protected void write(DNSApiManager mgr, Writer out) throws IOException {
+            checkArgument(!json(), "json format isn't supported by this command");
+            checkArgument(writers > 0, "writers must be positive");
+            BufferedReader in = path != null ? Files.newReader(new File(path), Charsets.UTF_8) : new BufferedReader(
+                    new InputStreamReader(System.in, Charsets.UTF_8));
+            try {
+                if (writers == 1) {
+                    runInOrder(mgr, in, out);
+                } else {
+                    runConcurrently(mgr, in, out);
+                }
+            } finally {
+                if (path != null)
+                    Closeables.close(in, true);
+            }
+            out.flush();
+            if (failures > 0)
+                throw new IllegalStateException(format("%d of %d commands failed", failures, commands));
+        }
+
+        private void runInOrder(DNSApiManager mgr, BufferedReader in, Writer out) throws IOException {
+            int lineNumber = 0;
+            for (String line = in.readLine(); line != null; line = in.readLine()) {
+                lineNumber++;
+                if (!isCommand(line))
+                    continue;
+                commands++;
+                try {
+                    parse(line).write(mgr, out);
+                } catch (RuntimeException e) {
+                    failed(lineNumber, e, out);
+                }
+                out.flush();
+            }
+        }
+
+        /**
+         * reads ahead at most twice {@link #writers} commands, so that a large
+         * file isn't read into memory.
+         */
+        private void runConcurrently(final DNSApiManager mgr, BufferedReader in, Writer out) throws IOException {
+            ListeningExecutorService executor = listeningDecorator(newFixedThreadPool(writers));
+            Deque<Pending> pending = new ArrayDeque<Pending>();
+            try {
+                int lineNumber = 0;
+                for (String line = in.readLine(); line != null; line = in.readLine()) {
+                    lineNumber++;
+                    if (!isCommand(line))
+                        continue;
+                    commands++;
+                    if (pending.size() == writers * 2)
+                        pending.removeFirst().writeTo(out);
+                    ListenableFuture<String> output;
+                    try {
+                        final DenominatorCommand command = parse(line);
+                        output = executor.submit(new Callable<String>() {
+                            public String call() throws IOException {
+                                StringWriter buffer = new StringWriter();
+                                command.write(mgr, buffer);
+                                return buffer.toString();
+                            }
+                        });
+                    } catch (RuntimeException e) {
+                        output = immediateFailedFuture(e);
+                    }
+                    pending.addLast(new Pending(lineNumber, output));
+                }
+                while (!pending.isEmpty())
+                    pending.removeFirst().writeTo(out);
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+
+        private final class Pending {
+            private final int lineNumber;
+            private final Future<String> output;
+
+            private Pending(int lineNumber, Future<String> output) {
+                this.lineNumber = lineNumber;
+                this.output = output;
+            }
+
+            private void writeTo(Writer out) throws IOException {
+                try {
+                    out.write(output.get());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("interrupted running commands", e);
+                } catch (ExecutionException e) {
+                    failed(lineNumber, e.getCause(), out);
+                }
+                out.flush();
+            }
+        }
+
+        private void failed(int lineNumber, Throwable cause, Writer out) throws IOException {
+            failures++;
+            out.write(format(";; error on line %d: %s%n", lineNumber, cause.getMessage()));
+        }
+
+        private DenominatorCommand parse(String line) {
+            return parseCommand(parser, split(line));
+        }
+    }
+
+    /**
+     * parses the arguments after provider options into a zone, record or geo
+     * command, which runs against a manager that is already connected.
+     */
+    static DenominatorCommand parseCommand(Cli<Runnable> parser, List<String> args) {
+        Runnable command = parser.parse(args);
+        checkArgument(command instanceof DenominatorCommand, "only zone, record and geo commands are supported");
+        DenominatorCommand parsed = DenominatorCommand.class.cast(command);
+        checkArgument(parsed.providerName == null && parsed.url == null && parsed.credentialArgs == null
+                && parsed.configPath == null && parsed.name == null,
+                "provider options apply to all commands, not to one");
+        parsed.checkOptions();
+        return parsed;
+    }
+
+    private static boolean isCommand(String line) {
+        String trimmed = line.trim();
+        return !trimmed.isEmpty() && !trimmed.startsWith("#");
+    }
+
+    /**
+     * splits a line into arguments the way a shell would, on whitespace,
+     * except inside single or double quotes. A backslash escapes the next
+     * character, except inside single quotes.
+     */
+    static List<String> split(String line) {
+        ImmutableList.Builder<String> args = ImmutableList.builder();
+        StringBuilder arg = new StringBuilder();
+        boolean inArg = false;
+        char quote = 0;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quote == '\'' && c != '\'') {
+                arg.append(c);
+            } else if (c == '\\' && quote != '\'') {
+                checkArgument(++i < line.length(), "line ends with an escape: %s", line);
+                arg.append(line.charAt(i));
+                inArg = true;
+            } else if (c == quote) {
+                quote = 0;
+            } else if (quote == 0 && (c == '\'' || c == '"')) {
+                quote = c;
+                inArg = true;
+            } else if (quote == 0 && Character.isWhitespace(c)) {
+                if (inArg)
+                    args.add(arg.toString());
+                arg.setLength(0);
+                inArg = false;
+            } else {
+                arg.append(c);
+                inArg = true;
+            }
+        }
+        checkArgument(quote == 0, "unterminated quote: %s", line);
+        if (inArg)
+            args.add(arg.toString());
+        return args.build();
+    }
+}
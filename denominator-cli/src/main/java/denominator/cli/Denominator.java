@@ -1,4 +1,5 @@
 package denominator.cli;
+import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.collect.Lists.newArrayList;
 import static com.google.common.io.Closeables.closeQuietly;
 import static denominator.CredentialsConfiguration.credentials;
@@ -14,8 +15,11 @@ import io.airlift.command.Help;
 import io.airlift.command.Option;
 import io.airlift.command.OptionType;
 
+import java.io.BufferedWriter;
 import java.io.File;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
@@ -29,11 +33,13 @@ import com.google.common.collect.FluentIterable;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableList.Builder;
 import com.google.common.io.Files;
+import com.google.gson.stream.JsonWriter;
 
 import dagger.ObjectGraph;
 import denominator.DNSApiManager;
 import denominator.Denominator.Version;
 import denominator.Provider;
+import denominator.cli.BatchCommands.Batch;
 import denominator.cli.GeoResourceRecordSetCommands.GeoRegionList;
 import denominator.cli.GeoResourceRecordSetCommands.GeoResourceRecordSetApplyTTL;
 import denominator.cli.GeoResourceRecordSetCommands.GeoResourceRecordSetGet;
@@ -42,13 +48,19 @@ import denominator.cli.GeoResourceRecordSetCommands.GeoTypeList;
 import denominator.cli.ResourceRecordSetCommands.ResourceRecordSetAdd;
 import denominator.cli.ResourceRecordSetCommands.ResourceRecordSetApplyTTL;
 import denominator.cli.ResourceRecordSetCommands.ResourceRecordSetDelete;
+import denominator.cli.ResourceRecordSetCommands.ResourceRecordSetExport;
+import denominator.cli.ResourceRecordSetCommands.ResourceRecordSetImport;
 import denominator.cli.ResourceRecordSetCommands.ResourceRecordSetGet;
 import denominator.cli.ResourceRecordSetCommands.ResourceRecordSetList;
 import denominator.cli.ResourceRecordSetCommands.ResourceRecordSetRemove;
 import denominator.cli.ResourceRecordSetCommands.ResourceRecordSetReplace;
+import denominator.cli.ResourceRecordSetCommands.ResourceRecordSetToJson;
+import denominator.cli.ServeCommands.Serve;
 import denominator.clouddns.CloudDNSProvider;
 import denominator.dynect.DynECTProvider;
+import denominator.local.LocalProvider;
 import denominator.mock.MockProvider;
+import denominator.model.ResourceRecordSet;
 import denominator.route53.Route53Provider;
 import denominator.ultradns.UltraDNSProvider;
 
@@ -56,12 +68,24 @@ import org.yaml.snakeyaml.Yaml;
 
 public class Denominator {
     public static void main(String[] args) {
+        try {
+            cli().parse(args).run();
+        } catch (RuntimeException e) {
+            System.err.println(";; error: "+ e.getMessage());
+            System.exit(1);
+        } 
+        System.exit(0);
+    }
+
+    static Cli<Runnable> cli() {
         CliBuilder<Runnable> builder = Cli.<Runnable> builder("denominator")
                                           .withDescription("Denominator: Portable control of DNS clouds")
                                           .withDefaultCommand(Help.class)
                                           .withCommand(Help.class)
                                           .withCommand(PrintVersion.class)
-                                          .withCommand(ListProviders.class);
+                                          .withCommand(ListProviders.class)
+                                          .withCommand(Batch.class)
+                                          .withCommand(Serve.class);
 
         builder.withGroup("zone")
                .withDescription("manage zones")
@@ -77,7 +101,9 @@ public class Denominator {
                .withCommand(ResourceRecordSetApplyTTL.class)
                .withCommand(ResourceRecordSetReplace.class)
                .withCommand(ResourceRecordSetRemove.class)
-               .withCommand(ResourceRecordSetDelete.class);
+               .withCommand(ResourceRecordSetDelete.class)
+               .withCommand(ResourceRecordSetExport.class)
+               .withCommand(ResourceRecordSetImport.class);
 
         builder.withGroup("geo")
                .withDescription("manage geo resource record sets in a zone")
@@ -88,14 +114,7 @@ public class Denominator {
                .withCommand(GeoResourceRecordSetGet.class)
                .withCommand(GeoResourceRecordSetApplyTTL.class);
 
-        Cli<Runnable> denominatorParser = builder.build();
-        try {
-            denominatorParser.parse(args).run();
-        } catch (RuntimeException e) {
-            System.err.println(";; error: "+ e.getMessage());
-            System.exit(1);
-        } 
-        System.exit(0);
+        return builder.build();
     }
 
     @Command(name = "version", description = "output the version of denominator and java runtime in use")
@@ -131,7 +150,11 @@ public class Denominator {
         }
     }
 
-    public static abstract class DenominatorCommand implements Runnable {
+    /**
+     * global options of commands that connect to a provider, and the means to
+     * connect.
+     */
+    public static abstract class ProviderCommand implements Runnable {
         @Option(type = OptionType.GLOBAL, name = { "-p", "--provider" }, description = "provider to affect")
         public String providerName;
 
@@ -149,27 +172,15 @@ public class Denominator {
 
         protected Credentials credentials;
 
-        public void run() {
-            if (providerName != null && credentialArgs != null) {
-                credentials = Credentials.ListCredentials.from(credentialArgs);
-            } else if (configPath != null) {
-                Map<String, ?> configFromFile = getConfigFromFile();
-                if (configFromFile != null) {
-                    credentials = Credentials.MapCredentials.from((Map<String, ?>) configFromFile.get("credentials"));
-                    providerName = (String) configFromFile.get("provider");
-                }
-            }
+        /**
+         * creates a manager for {@link #providerName} at {@link #url}, if set,
+         * with {@link #credentials}, if set.
+         */
+        protected DNSApiManager connect() {
             Builder<Object> modulesForGraph = ImmutableList.builder().add(provider(newProvider())).add(newModule());
             if (credentials != null)
                 modulesForGraph.add(credentials(credentials));
-            DNSApiManager mgr = null;
-            try {
-                mgr = ObjectGraph.create(modulesForGraph.build().toArray()).get(DNSApiManager.class);
-                for (Iterator<String> i = doRun(mgr); i.hasNext();)
-                    System.out.println(i.next());
-            } finally {
-                closeQuietly(mgr);
-            }
+            return ObjectGraph.create(modulesForGraph.build().toArray()).get(DNSApiManager.class);
         }
 
         /**
@@ -206,11 +217,6 @@ public class Denominator {
             return Files.toString(new File(path), Charsets.UTF_8);
         }
 
-        /**
-         * return a lazy iterator where possible to improve the perceived responsiveness of the cli
-         */
-        protected abstract Iterator<String> doRun(DNSApiManager mgr);
-
         /**
          * This avoids service loader lookup which adds runtime and build
          * complexity.
@@ -223,6 +229,8 @@ public class Denominator {
         protected Provider newProvider() {
             if ("mock".equals(providerName)) {
                 return new MockProvider(url);
+            } else if ("local".equals(providerName)) {
+                return new LocalProvider(url);
             } else if ("clouddns".equals(providerName)) {
                 return new CloudDNSProvider(url);
             } else if ("dynect".equals(providerName)) {
@@ -239,6 +247,8 @@ public class Denominator {
         protected Object newModule() {
             if ("mock".equals(providerName)) {
                 return new MockProvider.Module();
+            } else if ("local".equals(providerName)) {
+                return new LocalProvider.Module();
             } else if ("clouddns".equals(providerName)) {
                 return new CloudDNSProvider.Module();
             } else if ("dynect".equals(providerName)) {
@@ -253,6 +263,104 @@ public class Denominator {
         }
     }
 
+    /**
+     * connects to one provider, then {@link #write(DNSApiManager, Writer)
+     * writes} the output of the command to standard out.
+     */
+    public static abstract class OutputCommand extends ProviderCommand {
+        @Option(type = OptionType.COMMAND, name = "--format", description = "format of listed zones and record sets: text or json. json writes an object per line")
+        public String format = "text";
+
+        public void run() {
+            if (providerName != null && credentialArgs != null) {
+                credentials = Credentials.ListCredentials.from(credentialArgs);
+            } else if (configPath != null) {
+                Map<String, ?> configFromFile = getConfigFromFile();
+                if (configFromFile != null) {
+                    credentials = Credentials.MapCredentials.from((Map<String, ?>) configFromFile.get("credentials"));
+                    providerName = (String) configFromFile.get("provider");
+                }
+            }
+            checkOptions();
+            DNSApiManager mgr = null;
+            Writer out = new BufferedWriter(new OutputStreamWriter(System.out, Charsets.UTF_8));
+            try {
+                mgr = connect();
+                write(mgr, out);
+            } catch (IOException e) {
+                throw new IllegalStateException("could not write output: " + e.getMessage(), e);
+            } finally {
+                try {
+                    out.flush();
+                } catch (IOException ignored) {
+                }
+                closeQuietly(mgr);
+            }
+        }
+
+        /**
+         * validates options the parser can't, before connecting to the
+         * provider.
+         *
+         * @throws IllegalArgumentException
+         *             if options are missing or conflict.
+         */
+        protected void checkOptions() {
+        }
+
+        /**
+         * runs the command against {@code mgr}, writing its output to
+         * {@code out}.
+         */
+        protected abstract void write(DNSApiManager mgr, Writer out) throws IOException;
+
+        protected boolean json() {
+            checkArgument("text".equals(format) || "json".equals(format), "format must be text or json, not %s",
+                    format);
+            return "json".equals(format);
+        }
+    }
+
+    /**
+     * a command whose output is {@link #doRun(DNSApiManager) lines} of text.
+     */
+    public static abstract class DenominatorCommand extends OutputCommand {
+        private static final String LINE_SEPARATOR = System.getProperty("line.separator");
+
+        /**
+         * writes each line from {@link #doRun(DNSApiManager)}. Output is
+         * buffered, except the first line, which is flushed so that commands
+         * echo what they are about to do before doing it.
+         */
+        @Override
+        protected void write(DNSApiManager mgr, Writer out) throws IOException {
+            checkArgument(!json(), "json format isn't supported by this command");
+            Iterator<String> lines = doRun(mgr);
+            for (boolean first = true; lines.hasNext(); first = false) {
+                out.write(lines.next());
+                out.write(LINE_SEPARATOR);
+                if (first)
+                    out.flush();
+            }
+        }
+
+        /**
+         * writes each record set as a json object on its own line, without
+         * building a string for it.
+         */
+        protected static void writeJson(Iterator<ResourceRecordSet<?>> rrsets, Writer out) throws IOException {
+            while (rrsets.hasNext()) {
+                ResourceRecordSetToJson.INSTANCE.write(rrsets.next(), out);
+                out.write('\n');
+            }
+        }
+
+        /**
+         * return a lazy iterator where possible to improve the perceived responsiveness of the cli
+         */
+        protected abstract Iterator<String> doRun(DNSApiManager mgr);
+    }
+
     /**
      * Lazy to avoid loading the classes unless they are requested.
      * 
@@ -264,6 +372,7 @@ public class Denominator {
     private static Iterable<Provider> listProviders() {
         return ImmutableList.<Provider> builder()
                             .add(new MockProvider())
+                            .add(new LocalProvider())
                             .add(new CloudDNSProvider())
                             .add(new DynECTProvider())
                             .add(new Route53Provider())
@@ -275,6 +384,19 @@ public class Denominator {
         public Iterator<String> doRun(DNSApiManager mgr) {
             return mgr.getApi().getZoneApi().list();
         }
+
+        @Override
+        protected void write(DNSApiManager mgr, Writer out) throws IOException {
+            if (!json()) {
+                super.write(mgr, out);
+                return;
+            }
+            for (Iterator<String> zones = doRun(mgr); zones.hasNext();) {
+                JsonWriter json = new JsonWriter(out);
+                json.beginObject().name("name").value(zones.next()).endObject();
+                out.write('\n');
+            }
+        }
     }
 
 }
\ No newline at end of file
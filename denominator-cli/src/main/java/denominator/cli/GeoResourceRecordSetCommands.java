@@ -10,6 +10,8 @@ import io.airlift.command.Command;
 import io.airlift.command.Option;
 import io.airlift.command.OptionType;
 
+import java.io.IOException;
+import java.io.Writer;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.Map;
@@ -68,6 +70,19 @@ class GeoResourceRecordSetCommands {
         public String type;
 
         public Iterator<String> doRun(DNSApiManager mgr) {
+            return transform(list(mgr), GeoResourceRecordSetToString.INSTANCE);
+        }
+
+        @Override
+        protected void write(DNSApiManager mgr, Writer out) throws IOException {
+            if (json()) {
+                writeJson(list(mgr), out);
+            } else {
+                super.write(mgr, out);
+            }
+        }
+
+        private Iterator<ResourceRecordSet<?>> list(DNSApiManager mgr) {
             Iterator<ResourceRecordSet<?>> list;
             if (name != null && type != null)
                 list = mgr.getApi().getGeoResourceRecordSetApiForZone(zoneName).get().listByNameAndType(name, type);
@@ -75,7 +90,7 @@ class GeoResourceRecordSetCommands {
                 list = mgr.getApi().getGeoResourceRecordSetApiForZone(zoneName).get().listByName(name);
             else
                 list = mgr.getApi().getGeoResourceRecordSetApiForZone(zoneName).get().list();
-            return transform(list, GeoResourceRecordSetToString.INSTANCE);
+            return list;
         }
     }
 
@@ -91,9 +106,21 @@ class GeoResourceRecordSetCommands {
         public String group;
 
         public Iterator<String> doRun(DNSApiManager mgr) {
+            return forArray(get(mgr).transform(GeoResourceRecordSetToString.INSTANCE).or(""));
+        }
+
+        @Override
+        protected void write(DNSApiManager mgr, Writer out) throws IOException {
+            if (json()) {
+                writeJson(get(mgr).asSet().iterator(), out);
+            } else {
+                super.write(mgr, out);
+            }
+        }
+
+        private Optional<ResourceRecordSet<?>> get(DNSApiManager mgr) {
             GeoResourceRecordSetApi api = mgr.getApi().getGeoResourceRecordSetApiForZone(zoneName).get();
-            Optional<ResourceRecordSet<?>> result = api.getByNameTypeAndGroup(name, type, group);
-            return forArray(result.transform(GeoResourceRecordSetToString.INSTANCE).or(""));
+            return api.getByNameTypeAndGroup(name, type, group);
         }
     }
 
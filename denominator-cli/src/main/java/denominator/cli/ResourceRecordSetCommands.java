@@ -4,25 +4,42 @@ import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.collect.Iterators.concat;
 import static com.google.common.collect.Iterators.forArray;
 import static com.google.common.collect.Iterators.transform;
+import static com.google.common.util.concurrent.MoreExecutors.listeningDecorator;
 import static java.lang.String.format;
+import static java.util.concurrent.Executors.newFixedThreadPool;
 import io.airlift.command.Arguments;
 import io.airlift.command.Command;
 import io.airlift.command.Option;
 import io.airlift.command.OptionType;
 
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
 import java.net.InetAddress;
 import java.net.URI;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
 
+import com.google.common.base.Charsets;
 import com.google.common.base.Function;
 import com.google.common.base.Joiner;
 import com.google.common.base.Optional;
 import com.google.common.base.Splitter;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Multimap;
+import com.google.common.io.Closeables;
+import com.google.common.io.Files;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.gson.stream.JsonWriter;
 
+import denominator.AllZonesLister;
 import denominator.DNSApiManager;
+import denominator.ZoneFileExporter;
+import denominator.ZoneFileImporter;
 import denominator.cli.Denominator.DenominatorCommand;
 import denominator.hook.InstanceMetadataHook;
 import denominator.model.ResourceRecordSet;
@@ -37,12 +54,19 @@ import denominator.model.rdata.SOAData;
 import denominator.model.rdata.SPFData;
 import denominator.model.rdata.SRVData;
 import denominator.model.rdata.TXTData;
+import denominator.profile.GeoResourceRecordSetApi;
 
 class ResourceRecordSetCommands {
 
     private static abstract class ResourceRecordSetCommand extends DenominatorCommand {
-        @Option(type = OptionType.GROUP, required = true, name = { "-z", "--zone" }, description = "zone name to affect. ex. denominator.io.")
+        // not required by the parser, as list --all-zones doesn't need it
+        @Option(type = OptionType.GROUP, name = { "-z", "--zone" }, description = "zone name to affect. ex. denominator.io.")
         public String zoneName;
+
+        @Override
+        protected void checkOptions() {
+            checkArgument(zoneName != null, "Required option '-z' is missing");
+        }
     }
 
     @Command(name = "list", description = "Lists the record record sets present in this zone")
@@ -50,13 +74,56 @@ class ResourceRecordSetCommands {
         @Option(type = OptionType.COMMAND, name = { "-n", "--name" }, description = "name of the record sets. ex. www.denominator.io.")
         public String name;
 
+        @Option(type = OptionType.COMMAND, name = "--all-zones", description = "lists record sets in all zones, instead of the one passed with -z")
+        public boolean allZones;
+
+        @Option(type = OptionType.COMMAND, name = "--concurrency", description = "count of zones to list at a time with --all-zones. ex. 8")
+        public int concurrency = 4;
+
+        @Override
+        protected void checkOptions() {
+            if (!allZones) {
+                super.checkOptions();
+                return;
+            }
+            checkArgument(zoneName == null && name == null,
+                    "--all-zones lists every record set, so -z and -n aren't supported");
+        }
+
         public Iterator<String> doRun(DNSApiManager mgr) {
-            Iterator<ResourceRecordSet<?>> list;
+            if (allZones)
+                return transform(listAllZones(mgr), ZoneAndResourceRecordSetToString.INSTANCE);
+            return transform(list(mgr), ResourceRecordSetToString.INSTANCE);
+        }
+
+        @Override
+        protected void write(DNSApiManager mgr, Writer out) throws IOException {
+            if (json() && allZones) {
+                AllZonesLister.Listing listing = listAllZones(mgr);
+                try {
+                    while (listing.hasNext()) {
+                        Entry<String, ResourceRecordSet<?>> next = listing.next();
+                        ResourceRecordSetToJson.INSTANCE.write(next.getKey(), next.getValue(), out);
+                        out.write('\n');
+                    }
+                } finally {
+                    listing.close();
+                }
+            } else if (json()) {
+                writeJson(list(mgr), out);
+            } else {
+                super.write(mgr, out);
+            }
+        }
+
+        private AllZonesLister.Listing listAllZones(DNSApiManager mgr) {
+            return AllZonesLister.builder().concurrency(concurrency).build().list(mgr.getApi());
+        }
+
+        private Iterator<ResourceRecordSet<?>> list(DNSApiManager mgr) {
             if (name != null)
-                list = mgr.getApi().getResourceRecordSetApiForZone(zoneName).listByName(name);
-            else
-                list = mgr.getApi().getResourceRecordSetApiForZone(zoneName).list();
-            return transform(list, ResourceRecordSetToString.INSTANCE);
+                return mgr.getApi().getResourceRecordSetApiForZone(zoneName).listByName(name);
+            return mgr.getApi().getResourceRecordSetApiForZone(zoneName).list();
         }
     }
 
@@ -69,8 +136,20 @@ class ResourceRecordSetCommands {
         public String type;
 
         public Iterator<String> doRun(DNSApiManager mgr) {
-            return forArray(mgr.getApi().getResourceRecordSetApiForZone(zoneName).getByNameAndType(name, type)
-                    .transform(ResourceRecordSetToString.INSTANCE).or(""));
+            return forArray(get(mgr).transform(ResourceRecordSetToString.INSTANCE).or(""));
+        }
+
+        @Override
+        protected void write(DNSApiManager mgr, Writer out) throws IOException {
+            if (json()) {
+                writeJson(get(mgr).asSet().iterator(), out);
+            } else {
+                super.write(mgr, out);
+            }
+        }
+
+        private Optional<ResourceRecordSet<?>> get(DNSApiManager mgr) {
+            return mgr.getApi().getResourceRecordSetApiForZone(zoneName).getByNameAndType(name, type);
         }
     }
 
@@ -312,6 +391,160 @@ class ResourceRecordSetCommands {
         }
     }
 
+    @Command(name = "export", description = "writes the record sets in this zone in master file format (RFC 1035)")
+    public static class ResourceRecordSetExport extends ResourceRecordSetCommand {
+        @Option(type = OptionType.COMMAND, name = { "-o", "--output" }, description = "file to write the zone to, instead of standard out. ex. denominator.io.zone")
+        public String output;
+
+        @Option(type = OptionType.COMMAND, name = "--geo", description = "also export geo record sets, if the provider supports them")
+        public boolean geo;
+
+        /**
+         * without {@code output}, the zone is written to {@code out}, so that
+         * it is ordered with other output in {@code batch}, or is the response
+         * in {@code serve}.
+         */
+        @Override
+        protected void write(DNSApiManager mgr, Writer out) throws IOException {
+            if (output != null) {
+                super.write(mgr, out);
+                return;
+            }
+            checkArgument(!json(), "json format isn't supported by this command");
+            ZoneFileExporter.export(zoneName, list(mgr), out);
+        }
+
+        /**
+         * writes while listing, so that large zones aren't held in memory.
+         */
+        public Iterator<String> doRun(DNSApiManager mgr) {
+            checkArgument(output != null, "output file is required");
+            try {
+                FileOutputStream out = new FileOutputStream(output);
+                try {
+                    long count = ZoneFileExporter.export(zoneName, list(mgr), out.getChannel());
+                    return forArray(format(";; exported %d records in zone %s to %s", count, zoneName, output));
+                } finally {
+                    out.close();
+                }
+            } catch (IOException e) {
+                throw new IllegalStateException(format("could not export zone %s: %s", zoneName, e.getMessage()), e);
+            }
+        }
+
+        private Iterator<ResourceRecordSet<?>> list(DNSApiManager mgr) {
+            Iterator<ResourceRecordSet<?>> list = mgr.getApi().getResourceRecordSetApiForZone(zoneName).list();
+            if (geo) {
+                Optional<GeoResourceRecordSetApi> geoApi = mgr.getApi().getGeoResourceRecordSetApiForZone(zoneName);
+                if (geoApi.isPresent())
+                    list = concat(list, geoApi.get().list());
+            }
+            return list;
+        }
+    }
+
+    @Command(name = "import", description = "creates or replaces record sets in this zone from a file in master file format (RFC 1035)")
+    public static class ResourceRecordSetImport extends ResourceRecordSetCommand {
+        @Arguments(required = true, description = "path to the zone file. ex. denominator.io.zone")
+        public String path;
+
+        @Option(type = OptionType.COMMAND, name = "--writers", description = "count of batches to apply concurrently. ex. 4")
+        public int writers = 1;
+
+        @Option(type = OptionType.COMMAND, name = "--batch-size", description = "count of record sets to apply in each batch. ex. 100")
+        public int batchSize = 100;
+
+        @Option(type = OptionType.COMMAND, name = "--progress", description = "file recording how many record sets were applied, deleted once the import completes. if present, the import resumes from there")
+        public String progressPath;
+
+        public Iterator<String> doRun(final DNSApiManager mgr) {
+            final long skip = readProgress();
+            String cmd = format(";; in zone %s importing rrsets from %s", zoneName, path);
+            if (skip > 0)
+                cmd = format("%s resuming after %d rrsets", cmd, skip);
+            return concat(forArray(cmd), new Iterator<String>() {
+                boolean done = false;
+
+                @Override
+                public boolean hasNext() {
+                    return !done;
+                }
+
+                @Override
+                public String next() {
+                    long applied = importZone(mgr, skip);
+                    done = true;
+                    deleteProgress();
+                    return format(";; ok, imported %d rrsets", applied);
+                }
+
+                @Override
+                public void remove() {
+                    throw new UnsupportedOperationException();
+                }
+            });
+        }
+
+        private long importZone(DNSApiManager mgr, long skip) {
+            ListeningExecutorService executor = listeningDecorator(newFixedThreadPool(writers));
+            try {
+                Reader zoneFile = Files.newReader(new File(path), Charsets.UTF_8);
+                try {
+                    ZoneFileImporter importer = ZoneFileImporter.builder()
+                                                                .writers(writers)
+                                                                .batchSize(batchSize)
+                                                                .executor(executor)
+                                                                .skip(skip)
+                                                                .progress(new ZoneFileImporter.Progress() {
+                                                                    public void applied(long rrsets) {
+                                                                        writeProgress(rrsets);
+                                                                    }
+                                                                }).build();
+                    return importer.apply(mgr.getApi().getResourceRecordSetApiForZone(zoneName),
+                            ZoneFileImporter.parse(zoneName, zoneFile));
+                } finally {
+                    Closeables.close(zoneFile, true);
+                }
+            } catch (IOException e) {
+                throw new IllegalArgumentException(format("could not read %s: %s", path, e.getMessage()), e);
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+
+        private long readProgress() {
+            if (progressPath == null || !new File(progressPath).exists())
+                return 0;
+            try {
+                return Long.parseLong(Files.toString(new File(progressPath), Charsets.UTF_8).trim());
+            } catch (IOException e) {
+                throw new IllegalArgumentException(format("could not read %s: %s", progressPath, e.getMessage()), e);
+            }
+        }
+
+        private void writeProgress(long rrsets) {
+            if (progressPath == null)
+                return;
+            // write aside and rename, so that a crash can't leave a truncated file
+            File temp = new File(progressPath + ".tmp");
+            try {
+                Files.write(String.valueOf(rrsets), temp, Charsets.UTF_8);
+                Files.move(temp, new File(progressPath));
+            } catch (IOException e) {
+                throw new IllegalStateException(format("could not write %s: %s", progressPath, e.getMessage()), e);
+            }
+        }
+
+        /**
+         * once the import completes, there's nothing to resume, and a rerun
+         * should apply the whole file again.
+         */
+        private void deleteProgress() {
+            if (progressPath != null && new File(progressPath).exists() && !new File(progressPath).delete())
+                throw new IllegalStateException(format("could not delete %s", progressPath));
+        }
+    }
+
     static enum ResourceRecordSetToString implements Function<ResourceRecordSet<?>, String> {
         INSTANCE;
 
@@ -326,6 +559,86 @@ class ResourceRecordSetCommands {
         }
     }
 
+    /**
+     * prefixes each line of {@link ResourceRecordSetToString} with the zone.
+     */
+    static enum ZoneAndResourceRecordSetToString implements Function<Entry<String, ResourceRecordSet<?>>, String> {
+        INSTANCE;
+
+        @Override
+        public String apply(Entry<String, ResourceRecordSet<?>> input) {
+            String zone = format("%-50s", input.getKey());
+            return zone + ResourceRecordSetToString.INSTANCE.apply(input.getValue()).replace("\n", "\n" + zone);
+        }
+    }
+
+    /**
+     * writes a record set as a json object, streaming to the writer. Fields
+     * are {@code zone}, if known, {@code name}, {@code type}, {@code ttl}, if
+     * present, {@code rdata}, and {@code profiles}, if present. Rdata and
+     * profiles are objects keyed the same as their maps.
+     */
+    static enum ResourceRecordSetToJson {
+        INSTANCE;
+
+        void write(ResourceRecordSet<?> rrset, Writer out) throws IOException {
+            write(null, rrset, out);
+        }
+
+        void write(String zone, ResourceRecordSet<?> rrset, Writer out) throws IOException {
+            JsonWriter json = new JsonWriter(out);
+            json.beginObject();
+            if (zone != null)
+                json.name("zone").value(zone);
+            json.name("name").value(rrset.getName());
+            json.name("type").value(rrset.getType());
+            if (rrset.getTTL().isPresent())
+                json.name("ttl").value(rrset.getTTL().get());
+            json.name("rdata").beginArray();
+            for (Map<String, Object> rdata : rrset) {
+                writeValue(rdata, json);
+            }
+            json.endArray();
+            if (!rrset.getProfiles().isEmpty()) {
+                json.name("profiles").beginArray();
+                for (Map<String, Object> profile : rrset.getProfiles()) {
+                    writeValue(profile, json);
+                }
+                json.endArray();
+            }
+            json.endObject();
+        }
+
+        private static void writeValue(Object value, JsonWriter json) throws IOException {
+            if (value == null) {
+                json.nullValue();
+            } else if (value instanceof Number) {
+                json.value(Number.class.cast(value));
+            } else if (value instanceof Boolean) {
+                json.value(Boolean.class.cast(value));
+            } else if (value instanceof Map) {
+                json.beginObject();
+                for (Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                    json.name(entry.getKey().toString());
+                    writeValue(entry.getValue(), json);
+                }
+                json.endObject();
+            } else if (value instanceof Multimap) {
+                writeValue(((Multimap<?, ?>) value).asMap(), json);
+            } else if (value instanceof Iterable) {
+                json.beginArray();
+                for (Object element : (Iterable<?>) value) {
+                    writeValue(element, json);
+                }
+                json.endArray();
+            } else if (value instanceof InetAddress) {
+                json.value(InetAddress.class.cast(value).getHostAddress());
+            } else {
+                json.value(value.toString());
+            }
+        }
+    }
+
     static String flatten(Map<String, Object> input) {
         ImmutableList<Object> orderedRdataValues = ImmutableList.copyOf(input.values());
         if (orderedRdataValues.size() == 1) {
@@ -0,0 +1,429 @@
+package denominator.cli;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static denominator.cli.BatchCommands.parseCommand;
+import static java.lang.String.format;
+import static java.util.concurrent.Executors.newCachedThreadPool;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import io.airlift.command.Cli;
+import io.airlift.command.Command;
+import io.airlift.command.Option;
+import io.airlift.command.OptionType;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+
+import org.yaml.snakeyaml.Yaml;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.io.BaseEncoding;
+import com.google.common.util.concurrent.Uninterruptibles;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import denominator.Credentials;
+import denominator.DNSApiManager;
+import denominator.cli.Denominator.DenominatorCommand;
+import denominator.cli.Denominator.ProviderCommand;
+
+class ServeCommands {
+
+    @Command(name = "serve", description = "Serves zone, record and geo commands over http on the loopback address, connecting once to each provider")
+    public static class Serve extends ProviderCommand {
+        @Option(type = OptionType.COMMAND, name = "--port", description = "port to listen on. ex. 8053")
+        public int port = 8053;
+
+        @Option(type = OptionType.COMMAND, name = "--max-requests", description = "count of requests to run at a time. more are refused with status 503")
+        public int maxRequests = 16;
+
+        @Option(type = OptionType.COMMAND, name = "--shutdown-timeout", description = "seconds to wait for requests in progress when shutting down")
+        public int shutdownTimeout = 10;
+
+        /**
+         * serves until the process is interrupted or terminated, then waits
+         * for requests in progress and closes each provider's manager.
+         */
+        @Override
+        public void run() {
+            Map<String, DNSApiManager> managers = connectAll();
+            String token = newToken();
+            final Server server;
+            try {
+                server = new Server(managers, new InetSocketAddress(InetAddress.getByName(null), port), maxRequests,
+                        token);
+            } catch (IOException e) {
+                closeAll(managers);
+                throw new IllegalStateException(format("could not listen on port %d: %s", port, e.getMessage()), e);
+            }
+            server.start();
+            System.out.println(format(";; serving %s on http://%s:%d/ with token %s", managers.keySet(), server
+                    .getAddress().getHostName(), server.getAddress().getPort(), token));
+            final CountDownLatch stopped = new CountDownLatch(1);
+            Runtime.getRuntime().addShutdownHook(new Thread("denominator serve shutdown") {
+                @Override
+                public void run() {
+                    server.stop(shutdownTimeout);
+                    stopped.countDown();
+                }
+            });
+            Uninterruptibles.awaitUninterruptibly(stopped);
+        }
+
+        /**
+         * a new secret each time the server starts, so that only clients the
+         * user gives it to can run commands.
+         */
+        private static String newToken() {
+            byte[] bytes = new byte[16];
+            new SecureRandom().nextBytes(bytes);
+            return BaseEncoding.base16().lowerCase().encode(bytes);
+        }
+
+        /**
+         * connects to each provider in {@link #configPath}, or only the one
+         * named {@link #name}. Without a configuration file, connects to
+         * {@link #providerName}.
+         */
+        Map<String, DNSApiManager> connectAll() {
+            ImmutableMap.Builder<String, DNSApiManager> managers = ImmutableMap.builder();
+            if (configPath == null) {
+                if (credentialArgs != null)
+                    credentials = Credentials.ListCredentials.from(credentialArgs);
+                managers.put(String.valueOf(providerName), connect());
+                return managers.build();
+            }
+            for (Map<String, ?> config : configs()) {
+                providerName = (String) config.get("provider");
+                Map<String, ?> credentialsFromConfig = asMap(config.get("credentials"));
+                credentials = credentialsFromConfig != null ? Credentials.MapCredentials.from(credentialsFromConfig)
+                        : null;
+                managers.put((String) config.get("name"), connect());
+            }
+            return managers.build();
+        }
+
+        private List<Map<String, ?>> configs() {
+            if (name != null)
+                return ImmutableList.<Map<String, ?>> of(getConfigFromFile());
+            String yaml;
+            try {
+                yaml = getFileContentsFromPath(configPath);
+            } catch (IOException e) {
+                throw new IllegalArgumentException(format("could not read %s: %s", configPath, e.getMessage()), e);
+            }
+            ImmutableList.Builder<Map<String, ?>> configs = ImmutableList.builder();
+            for (Object config : new Yaml().loadAll(yaml))
+                configs.add(asMap(config));
+            return configs.build();
+        }
+
+        /**
+         * yaml mappings are string-keyed.
+         */
+        @SuppressWarnings("unchecked")
+        private static Map<String, ?> asMap(Object yaml) {
+            return (Map<String, ?>) yaml;
+        }
+    }
+
+    /**
+     * runs commands posted to {@code /name}, where {@code name} is the name
+     * of a provider's configuration, or the provider when there's no
+     * configuration file. The request is a json array of the arguments after
+     * provider options, such as
+     * {@code ["record", "-z", "denominator.io.", "list", "--format", "json"]}.
+     * The response is the command's output, streamed as it runs. A
+     * {@code GET} of {@code /} lists the providers, a json object per line.
+     *
+     * <p/>
+     * As any web page the user visits can send requests to the loopback
+     * address, each request must send the server's token as
+     * {@code Authorization: Bearer token}, and commands must be posted as
+     * {@code application/json}, which browsers won't send cross-origin without
+     * asking first. Requests from browsers, which send {@code Origin}, and to
+     * any host but {@code localhost} or {@code 127.0.0.1}, as happens after
+     * dns rebinding, are refused.
+     *
+     * <p/>
+     * Errors are a json object with an {@code error} field, and status 400 for
+     * invalid commands, 401 without the token, 403 for requests from browsers
+     * or other hosts, 404 for unknown providers, 415 for commands that aren't
+     * json, 503 when
+     * {@code maxRequests} are already running or the server is stopping, and
+     * 500 otherwise. An error
+     * after the command's output started closes the connection instead.
+     */
+    static final class Server implements HttpHandler {
+        private final Map<String, DNSApiManager> managers;
+        private final int maxRequests;
+        private final byte[] authorization;
+        /**
+         * held by each request running a command. Released once the command
+         * has written its output, before the response completes, so that a
+         * client may send its next command as soon as it reads a response.
+         */
+        private final Semaphore permits;
+        private final Cli<Runnable> parser = Denominator.cli();
+        private final ExecutorService executor = newCachedThreadPool();
+        private final HttpServer http;
+        private volatile boolean stopping;
+
+        Server(Map<String, DNSApiManager> managers, InetSocketAddress address, int maxRequests, String token)
+                throws IOException {
+            checkArgument(maxRequests > 0, "maxRequests must be positive");
+            this.managers = checkNotNull(managers, "managers");
+            this.maxRequests = maxRequests;
+            this.authorization = ("Bearer " + checkNotNull(token, "token")).getBytes(Charsets.UTF_8);
+            this.permits = new Semaphore(maxRequests);
+            this.http = HttpServer.create(address, 0);
+            http.createContext("/", this);
+            http.setExecutor(executor);
+        }
+
+        void start() {
+            http.start();
+        }
+
+        InetSocketAddress getAddress() {
+            return http.getAddress();
+        }
+
+        /**
+         * true once {@link #stop(int)} starts refusing new commands.
+         */
+        boolean isStopping() {
+            return stopping;
+        }
+
+        /**
+         * refuses new commands, waits up to {@code timeoutSeconds} in total
+         * for those in progress and their responses, then closes each manager.
+         */
+        void stop(int timeoutSeconds) {
+            stopping = true;
+            long deadline = System.nanoTime() + SECONDS.toNanos(timeoutSeconds);
+            try {
+                permits.tryAcquire(maxRequests, deadline - System.nanoTime(), NANOSECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            // commands are done, but their responses may be completing
+            executor.shutdown();
+            try {
+                executor.awaitTermination(deadline - System.nanoTime(), NANOSECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            http.stop(0);
+            closeAll(managers);
+        }
+
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            try {
+                String name = exchange.getRequestURI().getPath().substring(1);
+                String method = exchange.getRequestMethod();
+                if (!isLocalHost(exchange.getRequestHeaders().getFirst("Host"))) {
+                    error(exchange, 403, "host must be localhost or 127.0.0.1");
+                } else if (exchange.getRequestHeaders().containsKey("Origin")) {
+                    error(exchange, 403, "requests from browsers aren't supported");
+                } else if (!isAuthorized(exchange.getRequestHeaders().getFirst("Authorization"))) {
+                    exchange.getResponseHeaders().set("WWW-Authenticate", "Bearer");
+                    error(exchange, 401, "send the token printed at startup as Authorization: Bearer token");
+                } else if (name.isEmpty()) {
+                    if ("GET".equals(method)) {
+                        listProviders(exchange);
+                    } else {
+                        exchange.getResponseHeaders().set("Allow", "GET");
+                        error(exchange, 405, method + " isn't supported on /");
+                    }
+                } else if (!managers.containsKey(name)) {
+                    error(exchange, 404, format("no provider named %s", name));
+                } else if (!"POST".equals(method)) {
+                    exchange.getResponseHeaders().set("Allow", "POST");
+                    error(exchange, 405, format("%s isn't supported on /%s", method, name));
+                } else if (!isJson(exchange.getRequestHeaders().getFirst("Content-Type"))) {
+                    error(exchange, 415, "commands must be posted as application/json");
+                } else if (stopping) {
+                    error(exchange, 503, "shutting down");
+                } else if (!permits.tryAcquire()) {
+                    exchange.getResponseHeaders().set("Retry-After", "1");
+                    error(exchange, 503, "too many requests in progress");
+                } else {
+                    run(managers.get(name), exchange);
+                }
+            } finally {
+                exchange.close();
+            }
+        }
+
+        private static boolean isLocalHost(String host) {
+            if (host == null)
+                return false;
+            int colon = host.lastIndexOf(':');
+            if (colon != -1 && host.indexOf(']') < colon)
+                host = host.substring(0, colon);
+            return "localhost".equalsIgnoreCase(host) || "127.0.0.1".equals(host);
+        }
+
+        private boolean isAuthorized(String header) {
+            // constant time, so the token can't be guessed a byte at a time
+            return header != null && MessageDigest.isEqual(authorization, header.getBytes(Charsets.UTF_8));
+        }
+
+        private static boolean isJson(String contentType) {
+            if (contentType == null)
+                return false;
+            int semicolon = contentType.indexOf(';');
+            String mediaType = semicolon != -1 ? contentType.substring(0, semicolon) : contentType;
+            return "application/json".equalsIgnoreCase(mediaType.trim());
+        }
+
+        private void listProviders(HttpExchange exchange) throws IOException {
+            Writer out = new Response(exchange, "application/x-ndjson");
+            for (Entry<String, DNSApiManager> entry : managers.entrySet()) {
+                new JsonWriter(out).beginObject()
+                                   .name("name").value(entry.getKey())
+                                   .name("provider").value(entry.getValue().getProvider().getName())
+                                   .name("url").value(entry.getValue().getProvider().getUrl())
+                                   .endObject();
+                out.write('\n');
+            }
+            out.close();
+        }
+
+        private void run(DNSApiManager mgr, HttpExchange exchange) throws IOException {
+            DenominatorCommand command;
+            String contentType;
+            try {
+                command = parseCommand(parser, readArgs(exchange.getRequestBody()));
+                contentType = command.json() ? "application/x-ndjson" : "text/plain; charset=utf-8";
+            } catch (RuntimeException e) {
+                permits.release();
+                error(exchange, 400, e.getMessage());
+                return;
+            }
+            Response out = new Response(exchange, contentType);
+            try {
+                try {
+                    command.write(mgr, out);
+                } finally {
+                    permits.release();
+                }
+                out.close();
+            } catch (RuntimeException e) {
+                if (out.isCommitted())
+                    throw e;
+                error(exchange, e instanceof IllegalArgumentException ? 400 : 500, e.getMessage());
+            }
+        }
+
+        private static List<String> readArgs(InputStream body) {
+            JsonReader in = new JsonReader(new InputStreamReader(body, Charsets.UTF_8));
+            ImmutableList.Builder<String> args = ImmutableList.builder();
+            try {
+                in.beginArray();
+                while (in.hasNext())
+                    args.add(in.nextString());
+                in.endArray();
+            } catch (IOException e) {
+                throw new IllegalArgumentException("request must be a json array of arguments", e);
+            } catch (IllegalStateException e) {
+                throw new IllegalArgumentException("request must be a json array of arguments", e);
+            }
+            return args.build();
+        }
+
+        private static void error(HttpExchange exchange, int status, String message) throws IOException {
+            StringWriter json = new StringWriter();
+            new JsonWriter(json).beginObject().name("error").value(message).endObject();
+            byte[] body = json.toString().getBytes(Charsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(status, body.length);
+            exchange.getResponseBody().write(body);
+        }
+    }
+
+    /**
+     * closes each manager, reporting rather than throwing failures, so that
+     * the rest still close.
+     */
+    static void closeAll(Map<String, DNSApiManager> managers) {
+        for (Entry<String, DNSApiManager> entry : managers.entrySet()) {
+            try {
+                entry.getValue().close();
+            } catch (IOException e) {
+                System.err.println(format(";; could not close %s: %s", entry.getKey(), e.getMessage()));
+            }
+        }
+    }
+
+    /**
+     * sends a successful status before the first character written, so that
+     * commands which fail before writing anything can send an error instead.
+     */
+    private static final class Response extends Writer {
+        private final HttpExchange exchange;
+        private final String contentType;
+        private Writer body;
+
+        private Response(HttpExchange exchange, String contentType) {
+            this.exchange = exchange;
+            this.contentType = contentType;
+        }
+
+        boolean isCommitted() {
+            return body != null;
+        }
+
+        @Override
+        public void write(char[] chars, int offset, int length) throws IOException {
+            if (length == 0)
+                return;
+            commit();
+            body.write(chars, offset, length);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (body != null)
+                body.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            commit();
+            body.close();
+        }
+
+        private void commit() throws IOException {
+            if (body != null)
+                return;
+            exchange.getResponseHeaders().set("Content-Type", contentType);
+            exchange.sendResponseHeaders(200, 0);
+            body = new BufferedWriter(new OutputStreamWriter(exchange.getResponseBody(), Charsets.UTF_8));
+        }
+    }
+}
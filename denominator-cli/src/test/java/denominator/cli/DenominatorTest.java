@@ -1,21 +1,31 @@
 package denominator.cli;
 
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
 import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
 
+import java.io.File;
 import java.io.IOException;
+import java.io.StringWriter;
 import java.net.URL;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 
 import denominator.Credentials;
 import org.testng.annotations.Test;
 
+import com.google.common.base.Charsets;
 import com.google.common.base.Joiner;
+import com.google.common.base.Splitter;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Iterators;
+import com.google.common.io.Files;
 
 import denominator.DNSApiManager;
+import denominator.ResourceRecordSetApi;
+import denominator.cli.BatchCommands.Batch;
 import denominator.cli.Denominator.ListProviders;
 import denominator.cli.Denominator.ZoneList;
 import denominator.cli.GeoResourceRecordSetCommands.GeoRegionList;
@@ -26,10 +36,13 @@ import denominator.cli.GeoResourceRecordSetCommands.GeoTypeList;
 import denominator.cli.ResourceRecordSetCommands.ResourceRecordSetAdd;
 import denominator.cli.ResourceRecordSetCommands.ResourceRecordSetApplyTTL;
 import denominator.cli.ResourceRecordSetCommands.ResourceRecordSetDelete;
+import denominator.cli.ResourceRecordSetCommands.ResourceRecordSetExport;
+import denominator.cli.ResourceRecordSetCommands.ResourceRecordSetImport;
 import denominator.cli.ResourceRecordSetCommands.ResourceRecordSetGet;
 import denominator.cli.ResourceRecordSetCommands.ResourceRecordSetList;
 import denominator.cli.ResourceRecordSetCommands.ResourceRecordSetRemove;
 import denominator.cli.ResourceRecordSetCommands.ResourceRecordSetReplace;
+import denominator.local.LocalProvider;
 import denominator.mock.MockProvider;
 import org.yaml.snakeyaml.Yaml;
 
@@ -41,6 +54,7 @@ public class DenominatorTest {
         assertEquals(ListProviders.providerAndCredentialsTable(), Joiner.on('\n').join(
                 "provider   url                                                  credentialType credentialArgs",
                 "mock       mem:mock                                            ",
+                String.format("%-10s %-52s", "local", new LocalProvider().getUrl()),
                 "clouddns   https://identity.api.rackspacecloud.com/v2.0/        apiKey         username apiKey",
                 "dynect     https://api2.dynect.net/REST                         password       customer username password",
                 "route53    https://route53.amazonaws.com                        accessKey      accessKey secretKey",
@@ -55,6 +69,30 @@ public class DenominatorTest {
         assertEquals(Joiner.on('\n').join(new ZoneList().doRun(mgr)), "denominator.io.");
     }
 
+    @Test(description = "denominator -p mock zone list --format json")
+    public void testZoneListJson() throws IOException {
+        ZoneList command = new ZoneList();
+        command.format = "json";
+        StringWriter out = new StringWriter();
+        command.write(mgr, out);
+        assertEquals(out.toString(), "{\"name\":\"denominator.io.\"}\n");
+    }
+
+    @Test(description = "denominator -p mock zone list --format yaml", expectedExceptions = IllegalArgumentException.class, expectedExceptionsMessageRegExp = "format must be text or json, not yaml")
+    public void testUnknownFormat() throws IOException {
+        ZoneList command = new ZoneList();
+        command.format = "yaml";
+        command.write(mgr, new StringWriter());
+    }
+
+    @Test(description = "denominator -p mock geo -z denominator.io. types --format json", expectedExceptions = IllegalArgumentException.class, expectedExceptionsMessageRegExp = "json format isn't supported by this command")
+    public void testJsonFormatUnsupported() throws IOException {
+        GeoTypeList command = new GeoTypeList();
+        command.zoneName = "denominator.io.";
+        command.format = "json";
+        command.write(mgr, new StringWriter());
+    }
+
     @Test(description = "denominator -u mem:mock2 -p mock zone list")
     public void testUrlArg() {
         ZoneList zoneList = new ZoneList() {
@@ -195,6 +233,57 @@ public class DenominatorTest {
                 "www1.denominator.io.                              A      3600  192.0.2.2"));
     }
 
+    @Test(description = "denominator -p mock record list --all-zones")
+    public void testResourceRecordSetListAllZones() {
+        ResourceRecordSetList command = new ResourceRecordSetList();
+        command.allZones = true;
+        command.checkOptions();
+        assertEquals(Joiner.on('\n').join(command.doRun(mgr)), Joiner.on('\n').join(
+                "denominator.io.                                   denominator.io.                                   NS     86400 ns1.denominator.io.",
+                "denominator.io.                                   denominator.io.                                   SOA    3600  ns1.denominator.io. admin.denominator.io. 1 3600 600 604800 60",
+                "denominator.io.                                   www.denominator.io.                               CNAME  3600  www1.denominator.io.",
+                "denominator.io.                                   www1.denominator.io.                              A      3600  192.0.2.1",
+                "denominator.io.                                   www1.denominator.io.                              A      3600  192.0.2.2",
+                "denominator.io.                                   www2.denominator.io.                              A      3600  198.51.100.1"));
+    }
+
+    @Test(description = "denominator -p mock record list --all-zones --format json")
+    public void testResourceRecordSetListAllZonesJson() throws IOException {
+        ResourceRecordSetList command = new ResourceRecordSetList();
+        command.allZones = true;
+        command.concurrency = 2;
+        command.format = "json";
+        StringWriter out = new StringWriter();
+        command.write(mgr, out);
+        assertEquals(out.toString().split("\n")[0],
+                "{\"zone\":\"denominator.io.\",\"name\":\"denominator.io.\",\"type\":\"NS\",\"ttl\":86400,\"rdata\":[{\"nsdname\":\"ns1.denominator.io.\"}]}");
+    }
+
+    @Test(description = "denominator -p mock record -z denominator.io. list --all-zones", expectedExceptions = IllegalArgumentException.class, expectedExceptionsMessageRegExp = "--all-zones lists every record set, so -z and -n aren't supported")
+    public void testResourceRecordSetListAllZonesWithZone() {
+        ResourceRecordSetList command = new ResourceRecordSetList();
+        command.zoneName = "denominator.io.";
+        command.allZones = true;
+        command.checkOptions();
+    }
+
+    @Test(description = "denominator -p mock record list", expectedExceptions = IllegalArgumentException.class, expectedExceptionsMessageRegExp = "Required option '-z' is missing")
+    public void testResourceRecordSetListRequiresZone() {
+        new ResourceRecordSetList().checkOptions();
+    }
+
+    @Test(description = "denominator -p mock record -z denominator.io. list -n www1.denominator.io. --format json")
+    public void testResourceRecordSetListJson() throws IOException {
+        ResourceRecordSetList command = new ResourceRecordSetList();
+        command.zoneName = "denominator.io.";
+        command.name = "www1.denominator.io.";
+        command.format = "json";
+        StringWriter out = new StringWriter();
+        command.write(mgr, out);
+        assertEquals(out.toString(),
+                "{\"name\":\"www1.denominator.io.\",\"type\":\"A\",\"ttl\":3600,\"rdata\":[{\"address\":\"192.0.2.1\"},{\"address\":\"192.0.2.2\"}]}\n");
+    }
+
     @Test(description = "denominator -p mock record -z denominator.io. get -n www1.denominator.io. -t A ")
     public void testResourceRecordSetGetWhenPresent() {
         ResourceRecordSetGet command = new ResourceRecordSetGet();
@@ -215,6 +304,18 @@ public class DenominatorTest {
         assertEquals(Joiner.on('\n').join(command.doRun(mgr)), "");
     }
 
+    @Test(description = "denominator -p mock record -z denominator.io. get -n www3.denominator.io. -t A --format json")
+    public void testResourceRecordSetGetJsonWhenAbsent() throws IOException {
+        ResourceRecordSetGet command = new ResourceRecordSetGet();
+        command.zoneName = "denominator.io.";
+        command.name = "www3.denominator.io.";
+        command.type = "A";
+        command.format = "json";
+        StringWriter out = new StringWriter();
+        command.write(mgr, out);
+        assertEquals(out.toString(), "");
+    }
+
     @Test(description = "denominator -p mock record -z denominator.io. applyttl -n www3.denominator.io. -t A 10000")
     public void testResourceRecordSetApplyTTL() {
         ResourceRecordSetApplyTTL command = new ResourceRecordSetApplyTTL();
@@ -300,6 +401,123 @@ public class DenominatorTest {
                 ";; ok"));
     }
 
+    @Test(description = "denominator -p mock record -z denominator.io. export --geo -o denominator.io.zone")
+    public void testResourceRecordSetExport() throws IOException {
+        File zoneFile = File.createTempFile("denominator", ".zone");
+        zoneFile.deleteOnExit();
+        ResourceRecordSetExport command = new ResourceRecordSetExport();
+        command.zoneName = "denominator.io.";
+        command.output = zoneFile.getPath();
+        command.geo = true;
+        assertEquals(Joiner.on('\n').join(command.doRun(denominator.Denominator.create(new MockProvider()))),
+                ";; exported 10 records in zone denominator.io. to " + zoneFile.getPath());
+        List<String> lines = Files.readLines(zoneFile, Charsets.UTF_8);
+        assertEquals(lines.size(), 11);
+        assertEquals(lines.get(0), "$ORIGIN denominator.io.");
+        assertEquals(lines.get(1), "denominator.io.\t86400\tIN\tNS\tns1.denominator.io.");
+        assertTrue(lines.get(10).startsWith("www2.geo.denominator.io.\t300\tIN\tA\t192.0.2.1 ; {type=geo"));
+    }
+
+    @Test(description = "denominator -p mock record -z denominator.io. import --writers 2 --batch-size 1 --progress denominator.io.progress denominator.io.zone")
+    public void testResourceRecordSetImport() throws IOException {
+        File zoneFile = File.createTempFile("denominator", ".zone");
+        zoneFile.deleteOnExit();
+        Files.write("www3 3600 IN A 192.0.2.3\nwww4 3600 IN A 192.0.2.4\n", zoneFile, Charsets.UTF_8);
+        File progressFile = File.createTempFile("denominator", ".progress");
+        progressFile.deleteOnExit();
+        Files.write("1", progressFile, Charsets.UTF_8);
+        ResourceRecordSetImport command = new ResourceRecordSetImport();
+        command.zoneName = "denominator.io.";
+        command.path = zoneFile.getPath();
+        command.writers = 2;
+        command.batchSize = 1;
+        command.progressPath = progressFile.getPath();
+        DNSApiManager mgr = denominator.Denominator.create(new MockProvider());
+        assertEquals(Joiner.on('\n').join(command.doRun(mgr)), Joiner.on('\n').join(
+                ";; in zone denominator.io. importing rrsets from " + zoneFile.getPath() + " resuming after 1 rrsets",
+                ";; ok, imported 1 rrsets"));
+        // nothing left to resume
+        assertFalse(progressFile.exists());
+        ResourceRecordSetApi api = mgr.getApi().getResourceRecordSetApiForZone("denominator.io.");
+        assertFalse(api.getByNameAndType("www3.denominator.io.", "A").isPresent());
+        assertTrue(api.getByNameAndType("www4.denominator.io.", "A").isPresent());
+    }
+
+    @Test(description = "denominator -p mock batch denominator.batch")
+    public void testBatch() throws IOException {
+        Batch command = new Batch();
+        command.path = batchFile(
+                "# comments and blank lines are skipped",
+                "",
+                "record -z denominator.io. add -n www3.denominator.io. -t A -d 192.0.2.3",
+                "record -z denominator.io. add -n txt.denominator.io. -t TXT -d 'hello world'",
+                "record -z denominator.io. get -n txt.denominator.io. -t TXT");
+        DNSApiManager mgr = denominator.Denominator.create(new MockProvider());
+        StringWriter out = new StringWriter();
+        command.write(mgr, out);
+        assertEquals(out.toString(), Joiner.on('\n').join(
+                ";; in zone denominator.io. adding to rrset www3.denominator.io. A values: [{address=192.0.2.3}]",
+                ";; ok",
+                ";; in zone denominator.io. adding to rrset txt.denominator.io. TXT values: [{txtdata=hello world}]",
+                ";; ok",
+                "txt.denominator.io.                               TXT    3600  hello world\n"));
+        assertTrue(mgr.getApi().getResourceRecordSetApiForZone("denominator.io.")
+                      .getByNameAndType("www3.denominator.io.", "A").isPresent());
+    }
+
+    @Test(description = "denominator -p mock batch --writers 2 denominator.batch")
+    public void testBatchExportsToOutputInOrder() throws IOException {
+        Batch command = new Batch();
+        command.writers = 2;
+        command.path = batchFile(
+                "record -z denominator.io. export",
+                "zone list");
+        StringWriter out = new StringWriter();
+        command.write(denominator.Denominator.create(new MockProvider()), out);
+        List<String> lines = ImmutableList.copyOf(Splitter.on('\n').split(out.toString()));
+        assertEquals(lines.get(0), "$ORIGIN denominator.io.");
+        assertEquals(lines.get(1), "denominator.io.\t86400\tIN\tNS\tns1.denominator.io.");
+        assertEquals(lines.subList(lines.size() - 2, lines.size()), ImmutableList.of("denominator.io.", ""));
+    }
+
+    @Test(description = "denominator -p mock batch --writers 2 denominator.batch")
+    public void testBatchReportsErrorsInOrder() throws IOException {
+        Batch command = new Batch();
+        command.writers = 2;
+        command.path = batchFile(
+                "zone list",
+                "record -z denominator.io. get -n www1.denominator.io. -t A --format json",
+                "providers",
+                "-p route53 zone list",
+                "record -z denominator.io. get -n www1.denominator.io. -t A -d 'oops");
+        StringWriter out = new StringWriter();
+        try {
+            command.write(mgr, out);
+            fail("expected an error");
+        } catch (IllegalStateException e) {
+            assertEquals(e.getMessage(), "3 of 5 commands failed");
+        }
+        assertEquals(out.toString(), Joiner.on('\n').join(
+                "denominator.io.",
+                "{\"name\":\"www1.denominator.io.\",\"type\":\"A\",\"ttl\":3600,\"rdata\":[{\"address\":\"192.0.2.1\"},{\"address\":\"192.0.2.2\"}]}",
+                ";; error on line 3: only zone, record and geo commands are supported",
+                ";; error on line 4: provider options apply to all commands, not to one",
+                ";; error on line 5: unterminated quote: record -z denominator.io. get -n www1.denominator.io. -t A -d 'oops\n"));
+    }
+
+    @Test
+    public void testBatchSplitsLikeAShell() {
+        assertEquals(BatchCommands.split(" add  -n www -d 'a \\b' -d \"c \\\"d\\\"\" e\\ f ''"),
+                ImmutableList.of("add", "-n", "www", "-d", "a \\b", "-d", "c \"d\"", "e f", ""));
+    }
+
+    private static String batchFile(String... lines) throws IOException {
+        File batchFile = File.createTempFile("denominator", ".batch");
+        batchFile.deleteOnExit();
+        Files.write(Joiner.on('\n').join(lines), batchFile, Charsets.UTF_8);
+        return batchFile.getPath();
+    }
+
     @Test(description = "denominator -p mock geo -z denominator.io. types")
     public void testGeoTypeList() {
         GeoTypeList command = new GeoTypeList();
@@ -377,6 +595,21 @@ public class DenominatorTest {
                 "www.geo.denominator.io.                           CNAME  300   a.denominator.io. alazona {United States (US)=[Alaska, Arizona]}");
     }
 
+    @Test(description = "denominator -p mock geo -z denominator.io. get -n www.geo.denominator.io. -t CNAME -g alazona --format json")
+    public void testGeoResourceRecordSetGetJson() throws IOException {
+        GeoResourceRecordSetGet command = new GeoResourceRecordSetGet();
+        command.zoneName = "denominator.io.";
+        command.name = "www.geo.denominator.io.";
+        command.type = "CNAME";
+        command.group = "alazona";
+        command.format = "json";
+        StringWriter out = new StringWriter();
+        command.write(mgr, out);
+        assertEquals(out.toString(), "{\"name\":\"www.geo.denominator.io.\",\"type\":\"CNAME\",\"ttl\":300,"
+                + "\"rdata\":[{\"cname\":\"a.denominator.io.\"}],"
+                + "\"profiles\":[{\"type\":\"geo\",\"group\":\"alazona\",\"regions\":{\"United States (US)\":[\"Alaska\",\"Arizona\"]}}]}\n");
+    }
+
     @Test(description = "denominator -p mock geo -z denominator.io. get -n www.geo.denominator.io. -t A -g alazona")
     public void testGeoResourceRecordSetGetWhenAbsent() {
         GeoResourceRecordSetGet command = new GeoResourceRecordSetGet();
@@ -0,0 +1,280 @@
+package denominator.cli;
+
+import static com.google.common.util.concurrent.Uninterruptibles.awaitUninterruptibly;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URL;
+import java.util.Iterator;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.inject.Singleton;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Iterators;
+import com.google.common.io.ByteStreams;
+
+import dagger.Module;
+import dagger.Provides;
+import denominator.DNSApiManager;
+import denominator.ZoneApi;
+import denominator.cli.ServeCommands.Server;
+import denominator.mock.MockProvider;
+
+@Test(singleThreaded = true)
+public class ServeCommandsTest {
+
+    DNSApiManager mgr;
+    Server server;
+
+    @BeforeMethod
+    public void start() throws IOException {
+        mgr = denominator.Denominator.create(new MockProvider());
+        server = new Server(ImmutableMap.of("mock", mgr), new InetSocketAddress("localhost", 0), 1, "token");
+        server.start();
+    }
+
+    @AfterMethod
+    public void stop() {
+        server.stop(0);
+    }
+
+    public void listsProviders() throws IOException {
+        HttpURLConnection connection = open("/");
+        assertEquals(connection.getResponseCode(), 200);
+        assertEquals(connection.getContentType(), "application/x-ndjson");
+        assertEquals(body(connection), "{\"name\":\"mock\",\"provider\":\"mock\",\"url\":\"mem:mock\"}\n");
+    }
+
+    public void runsCommands() throws IOException {
+        HttpURLConnection connection = post("/mock",
+                "[\"record\",\"-z\",\"denominator.io.\",\"add\",\"-n\",\"www3.denominator.io.\",\"-t\",\"A\",\"-d\",\"192.0.2.3\"]");
+        assertEquals(connection.getResponseCode(), 200);
+        assertEquals(body(connection), String.format(
+                ";; in zone denominator.io. adding to rrset www3.denominator.io. A values: [{address=192.0.2.3}]%n;; ok%n"));
+
+        connection = post("/mock",
+                "[\"record\",\"-z\",\"denominator.io.\",\"get\",\"-n\",\"www3.denominator.io.\",\"-t\",\"A\",\"--format\",\"json\"]");
+        assertEquals(connection.getResponseCode(), 200);
+        assertEquals(connection.getContentType(), "application/x-ndjson");
+        assertEquals(body(connection),
+                "{\"name\":\"www3.denominator.io.\",\"type\":\"A\",\"ttl\":3600,\"rdata\":[{\"address\":\"192.0.2.3\"}]}\n");
+    }
+
+    public void exportsZoneAsResponse() throws IOException {
+        HttpURLConnection connection = post("/mock", "[\"record\",\"-z\",\"denominator.io.\",\"export\"]");
+        assertEquals(connection.getResponseCode(), 200);
+        assertTrue(body(connection).startsWith("$ORIGIN denominator.io.\ndenominator.io.\t86400\tIN\tNS\tns1.denominator.io.\n"));
+    }
+
+    public void commandWithoutOutput() throws IOException {
+        HttpURLConnection connection = post("/mock",
+                "[\"record\",\"-z\",\"denominator.io.\",\"get\",\"-n\",\"www3.denominator.io.\",\"-t\",\"A\",\"--format\",\"json\"]");
+        assertEquals(connection.getResponseCode(), 200);
+        assertEquals(body(connection), "");
+    }
+
+    public void invalidCommands() throws IOException {
+        HttpURLConnection connection = post("/mock", "[\"providers\"]");
+        assertEquals(connection.getResponseCode(), 400);
+        assertEquals(connection.getContentType(), "application/json");
+        assertEquals(body(connection), "{\"error\":\"only zone, record and geo commands are supported\"}");
+
+        connection = post("/mock", "{\"args\":[\"zone\",\"list\"]}");
+        assertEquals(connection.getResponseCode(), 400);
+        assertEquals(body(connection), "{\"error\":\"request must be a json array of arguments\"}");
+
+        connection = post("/mock", "[\"geo\",\"-z\",\"denominator.io.\",\"types\",\"--format\",\"json\"]");
+        assertEquals(connection.getResponseCode(), 400);
+        assertEquals(body(connection), "{\"error\":\"json format isn't supported by this command\"}");
+    }
+
+    public void unknownProvider() throws IOException {
+        HttpURLConnection connection = post("/route53", "[\"zone\",\"list\"]");
+        assertEquals(connection.getResponseCode(), 404);
+        assertEquals(body(connection), "{\"error\":\"no provider named route53\"}");
+    }
+
+    public void requiresToken() throws IOException {
+        HttpURLConnection connection = open("/");
+        connection.setRequestProperty("Authorization", "Bearer guess");
+        assertEquals(connection.getResponseCode(), 401);
+        assertEquals(connection.getHeaderField("WWW-Authenticate"), "Bearer");
+        assertEquals(body(connection),
+                "{\"error\":\"send the token printed at startup as Authorization: Bearer token\"}");
+    }
+
+    public void commandsAreJson() throws IOException {
+        HttpURLConnection connection = open("/mock");
+        connection.setRequestProperty("Content-Type", "text/plain");
+        write(connection, "[\"zone\",\"list\"]");
+        assertEquals(connection.getResponseCode(), 415);
+        assertEquals(body(connection), "{\"error\":\"commands must be posted as application/json\"}");
+    }
+
+    public void refusesRequestsFromBrowsers() throws IOException {
+        assertEquals(statusLine("Host: localhost", "Origin: http://example.com"), "HTTP/1.1 403 Forbidden");
+    }
+
+    public void refusesOtherHosts() throws IOException {
+        // as a page would send after rebinding its name to the loopback address
+        assertEquals(statusLine("Host: example.com"), "HTTP/1.1 403 Forbidden");
+        assertEquals(statusLine("Host: localhost:" + server.getAddress().getPort()), "HTTP/1.1 200 OK");
+        assertEquals(statusLine("Host: 127.0.0.1"), "HTTP/1.1 200 OK");
+    }
+
+    public void commandsArePosted() throws IOException {
+        HttpURLConnection connection = open("/mock");
+        assertEquals(connection.getResponseCode(), 405);
+        assertEquals(connection.getHeaderField("Allow"), "POST");
+    }
+
+    public void refusesRequestsOverLimit() throws Exception {
+        BlockingZoneApi zones = serveBlockingZoneApi();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<String> first = executor.submit(listZones());
+            awaitUninterruptibly(zones.listing);
+
+            HttpURLConnection second = post("/mock", "[\"zone\",\"list\"]");
+            assertEquals(second.getResponseCode(), 503);
+            assertEquals(second.getHeaderField("Retry-After"), "1");
+            assertEquals(body(second), "{\"error\":\"too many requests in progress\"}");
+
+            zones.release.countDown();
+            assertEquals(first.get(), String.format("denominator.io.%n"));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    public void stopWaitsForRequestsInProgress() throws Exception {
+        BlockingZoneApi zones = serveBlockingZoneApi();
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<String> first = executor.submit(listZones());
+            awaitUninterruptibly(zones.listing);
+            Future<?> stopped = executor.submit(new Runnable() {
+                public void run() {
+                    server.stop(10);
+                }
+            });
+            while (!server.isStopping())
+                Thread.yield();
+
+            HttpURLConnection second = post("/mock", "[\"zone\",\"list\"]");
+            assertEquals(second.getResponseCode(), 503);
+            assertEquals(body(second), "{\"error\":\"shutting down\"}");
+            assertFalse(stopped.isDone());
+
+            zones.release.countDown();
+            assertEquals(first.get(), String.format("denominator.io.%n"));
+            stopped.get();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private BlockingZoneApi serveBlockingZoneApi() throws IOException {
+        server.stop(0);
+        BlockingZoneApi zones = new BlockingZoneApi();
+        mgr = denominator.Denominator.create(new MockProvider(), zones);
+        server = new Server(ImmutableMap.of("mock", mgr), new InetSocketAddress("localhost", 0), 1, "token");
+        server.start();
+        return zones;
+    }
+
+    private Callable<String> listZones() {
+        return new Callable<String>() {
+            public String call() throws IOException {
+                return body(post("/mock", "[\"zone\",\"list\"]"));
+            }
+        };
+    }
+
+    @Module(injects = DNSApiManager.class, complete = false, overrides = true)
+    static final class BlockingZoneApi {
+        final CountDownLatch listing = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+
+        @Provides
+        @Singleton
+        ZoneApi provideZoneApi() {
+            return new ZoneApi() {
+                public Iterator<String> list() {
+                    listing.countDown();
+                    awaitUninterruptibly(release);
+                    return Iterators.forArray("denominator.io.");
+                }
+            };
+        }
+    }
+
+    private HttpURLConnection open(String path) throws IOException {
+        URL url = new URL("http", "localhost", server.getAddress().getPort(), path);
+        HttpURLConnection connection = HttpURLConnection.class.cast(url.openConnection());
+        connection.setRequestProperty("Authorization", "Bearer token");
+        return connection;
+    }
+
+    private HttpURLConnection post(String path, String json) throws IOException {
+        HttpURLConnection connection = open(path);
+        connection.setRequestProperty("Content-Type", "application/json");
+        write(connection, json);
+        return connection;
+    }
+
+    private static void write(HttpURLConnection connection, String body) throws IOException {
+        connection.setRequestMethod("POST");
+        connection.setDoOutput(true);
+        OutputStream out = connection.getOutputStream();
+        out.write(body.getBytes(Charsets.UTF_8));
+        out.close();
+    }
+
+    /**
+     * lists providers with the given headers, which {@link HttpURLConnection}
+     * doesn't allow setting.
+     */
+    private String statusLine(String... headers) throws IOException {
+        Socket socket = new Socket("localhost", server.getAddress().getPort());
+        try {
+            StringBuilder request = new StringBuilder("GET / HTTP/1.1\r\n");
+            for (String header : headers)
+                request.append(header).append("\r\n");
+            request.append("Authorization: Bearer token\r\nConnection: close\r\n\r\n");
+            socket.getOutputStream().write(request.toString().getBytes(Charsets.UTF_8));
+            return new BufferedReader(new InputStreamReader(socket.getInputStream(), Charsets.UTF_8)).readLine();
+        } finally {
+            socket.close();
+        }
+    }
+
+    private static String body(HttpURLConnection connection) throws IOException {
+        InputStream in = connection.getResponseCode() < 400 ? connection.getInputStream() : connection
+                .getErrorStream();
+        try {
+            return new String(ByteStreams.toByteArray(in), Charsets.UTF_8);
+        } finally {
+            in.close();
+        }
+    }
+}
@@ -0,0 +1,247 @@
+package denominator;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.util.concurrent.MoreExecutors.listeningDecorator;
+import static java.util.concurrent.Executors.newFixedThreadPool;
+
+import java.io.Closeable;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+
+import com.google.common.annotations.Beta;
+import com.google.common.base.Optional;
+import com.google.common.base.Throwables;
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import denominator.model.ResourceRecordSet;
+
+/**
+ * Lists the record sets of every zone in {@link ZoneApi#list()}, listing
+ * several zones at a time. Listing a zone is mostly waiting on the provider,
+ * so this is much faster than listing zones one after another.
+ *
+ * <p/>
+ * Record sets are returned as they are listed, each paired with the name of
+ * its zone. Record sets of a zone are in the order the provider lists them,
+ * but are interleaved with those of other zones listed at the same time.
+ * Listing threads wait when the consumer falls behind by
+ * {@link Builder#bufferSize(int) bufferSize} record sets, so a slow consumer
+ * doesn't buffer the whole account in memory.
+ *
+ * <h4>Example</h4>
+ *
+ * <pre>
+ * AllZonesLister lister = AllZonesLister.builder().concurrency(8).build();
+ * AllZonesLister.Listing listing = lister.list(manager.getApi());
+ * try {
+ *     while (listing.hasNext()) {
+ *         Entry&lt;String, ResourceRecordSet&lt;?&gt;&gt; zoneAndRRSet = listing.next();
+ *         inventory.add(zoneAndRRSet.getKey(), zoneAndRRSet.getValue());
+ *     }
+ * } finally {
+ *     listing.close();
+ * }
+ * </pre>
+ */
+@Beta
+public final class AllZonesLister {
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public static final class Builder {
+        private int concurrency = 4;
+        private int bufferSize = 1000;
+        private Optional<ListeningExecutorService> executor = Optional.absent();
+
+        /**
+         * count of zones listed at a time, which bounds the requests in
+         * flight to the provider. Defaults to {@code 4}. Set this within the
+         * provider's rate limits.
+         */
+        public Builder concurrency(int concurrency) {
+            checkArgument(concurrency > 0, "concurrency must be positive, but was %s", concurrency);
+            this.concurrency = concurrency;
+            return this;
+        }
+
+        /**
+         * count of record sets listed, but not yet consumed, before listing
+         * threads wait. Defaults to {@code 1000}.
+         */
+        public Builder bufferSize(int bufferSize) {
+            checkArgument(bufferSize > 0, "bufferSize must be positive, but was %s", bufferSize);
+            this.bufferSize = bufferSize;
+            return this;
+        }
+
+        /**
+         * where zones are listed. It must run tasks on other threads than
+         * the caller of {@link AllZonesLister#list(DNSApi)}, and only
+         * {@link #concurrency(int) concurrency} tasks are submitted per
+         * listing. Defaults to a pool of daemon threads per listing, which is
+         * shutdown when the listing ends or is closed.
+         */
+        public Builder executor(ListeningExecutorService executor) {
+            this.executor = Optional.of(checkNotNull(executor, "executor"));
+            return this;
+        }
+
+        public AllZonesLister build() {
+            return new AllZonesLister(this);
+        }
+    }
+
+    private final int concurrency;
+    private final int bufferSize;
+    private final Optional<ListeningExecutorService> executor;
+
+    private AllZonesLister(Builder builder) {
+        this.concurrency = builder.concurrency;
+        this.bufferSize = builder.bufferSize;
+        this.executor = builder.executor;
+    }
+
+    /**
+     * starts listing the zones in {@code api}. Close the listing if you stop
+     * iterating before the end, so that listing threads stop.
+     */
+    public Listing list(DNSApi api) {
+        checkNotNull(api, "api");
+        if (executor.isPresent())
+            return new Listing(api, executor.get(), false);
+        return new Listing(api, listeningDecorator(newFixedThreadPool(concurrency, new ThreadFactoryBuilder()
+                .setNameFormat("denominator-zones-%d").setDaemon(true).build())), true);
+    }
+
+    /**
+     * record sets of all zones, each paired with the name of its zone.
+     *
+     * <p/>
+     * Iteration throws the first exception listing zones, after which
+     * listing stops.
+     */
+    public final class Listing extends AbstractIterator<Entry<String, ResourceRecordSet<?>>> implements Closeable {
+        private final DNSApi api;
+        private final Iterator<String> zones;
+        private final ListeningExecutorService executor;
+        private final boolean shutdownExecutor;
+        private final BlockingQueue<Object> queue = new ArrayBlockingQueue<Object>(bufferSize);
+        private final List<Future<?>> workers = Lists.newArrayList();
+        private int running;
+        private volatile boolean closed;
+
+        private Listing(DNSApi api, ListeningExecutorService executor, boolean shutdownExecutor) {
+            this.api = api;
+            this.zones = api.getZoneApi().list();
+            this.executor = executor;
+            this.shutdownExecutor = shutdownExecutor;
+            for (int i = 0; i < concurrency; i++) {
+                workers.add(executor.submit(new Worker()));
+                running++;
+            }
+        }
+
+        @Override
+        protected Entry<String, ResourceRecordSet<?>> computeNext() {
+            while (running > 0) {
+                Object next;
+                try {
+                    next = queue.take();
+                } catch (InterruptedException e) {
+                    close();
+                    Thread.currentThread().interrupt();
+                    throw Throwables.propagate(e);
+                }
+                if (next == DONE) {
+                    running--;
+                } else if (next instanceof Failure) {
+                    close();
+                    throw Throwables.propagate(Failure.class.cast(next).cause);
+                } else {
+                    @SuppressWarnings("unchecked")
+                    Entry<String, ResourceRecordSet<?>> entry = (Entry<String, ResourceRecordSet<?>>) next;
+                    return entry;
+                }
+            }
+            close();
+            return endOfData();
+        }
+
+        /**
+         * stops listing zones, interrupting threads listing them.
+         */
+        @Override
+        public void close() {
+            if (closed)
+                return;
+            closed = true;
+            for (Future<?> worker : workers)
+                worker.cancel(true);
+            if (shutdownExecutor)
+                executor.shutdownNow();
+        }
+
+        private String nextZone() {
+            synchronized (zones) {
+                return !closed && zones.hasNext() ? zones.next() : null;
+            }
+        }
+
+        /**
+         * lists zones until there are none left, then signals it is done. A
+         * worker always signals, unless the listing is closed, as otherwise
+         * the consumer would wait forever.
+         */
+        private final class Worker implements Callable<Void> {
+            public Void call() {
+                Object last = DONE;
+                try {
+                    for (String zone = nextZone(); zone != null; zone = nextZone()) {
+                        Iterator<ResourceRecordSet<?>> rrsets = api.getResourceRecordSetApiForZone(zone).list();
+                        while (rrsets.hasNext() && !closed) {
+                            queue.put(Maps.<String, ResourceRecordSet<?>> immutableEntry(zone, rrsets.next()));
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    // ex. a shared executor was shut down while not closed
+                    last = new Failure(e);
+                } catch (RuntimeException e) {
+                    last = new Failure(e);
+                } catch (Error e) {
+                    last = new Failure(e);
+                }
+                try {
+                    // the interrupt was cleared when thrown, so this only
+                    // stops waiting if close cancels the worker
+                    if (!closed)
+                        queue.put(last);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return null;
+            }
+        }
+    }
+
+    private static final Object DONE = new Object();
+
+    private static final class Failure {
+        private final Throwable cause;
+
+        private Failure(Throwable cause) {
+            this.cause = cause;
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package denominator;
+
+import com.google.common.annotations.Beta;
+
+import denominator.profile.GeoResourceRecordSetApi;
+
+/**
+ * Wraps apis the provider creates, in order to add behavior such as caching,
+ * without changing the provider. Decorators are contributed to a set in
+ * {@link dagger.Module modules} and applied by {@link DNSApi}.
+ *
+ * ex.
+ *
+ * <pre>
+ * &#064;Provides(type = SET)
+ * ApiDecorator provideDecorator() {
+ *     return new ApiDecorator() {
+ *         &#064;Override
+ *         public ResourceRecordSetApi decorate(String zoneName, ResourceRecordSetApi api) {
+ *             return new LoggingResourceRecordSetApi(zoneName, api);
+ *         }
+ *     };
+ * }
+ * </pre>
+ *
+ * Each method returns its input unless overridden.
+ */
+@Beta
+public abstract class ApiDecorator {
+
+    /**
+     * used when no decorators are configured.
+     */
+    public static final ApiDecorator NONE = new ApiDecorator() {
+        @Override
+        public String toString() {
+            return "NONE";
+        }
+    };
+
+    public ZoneApi decorate(ZoneApi api) {
+        return api;
+    }
+
+    /**
+     * @param zoneName
+     *            zone the {@code api} controls
+     */
+    public ResourceRecordSetApi decorate(String zoneName, ResourceRecordSetApi api) {
+        return api;
+    }
+
+    /**
+     * @param zoneName
+     *            zone the {@code api} controls
+     */
+    public GeoResourceRecordSetApi decorate(String zoneName, GeoResourceRecordSetApi api) {
+        return api;
+    }
+}
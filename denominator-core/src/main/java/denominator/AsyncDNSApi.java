@@ -0,0 +1,74 @@
+package denominator;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import javax.inject.Inject;
+
+import com.google.common.annotations.Beta;
+import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+
+import denominator.profile.GeoResourceRecordSetApi;
+
+/**
+ * Variant of {@link DNSApi} whose operations return futures instead of
+ * blocking the caller. Operations run on the executor configured via
+ * {@link ExecutorConfiguration}, so the count of provider calls in flight is
+ * bounded regardless of how many futures are outstanding.
+ *
+ * <h4>Example</h4>
+ *
+ * <pre>
+ * ListenableFuture&lt;Void&gt; done = manager.getAsyncApi()
+ *                                         .getResourceRecordSetApiForZone(&quot;denominator.io.&quot;)
+ *                                         .replace(a(&quot;www.denominator.io.&quot;, 3600, &quot;192.0.2.1&quot;));
+ * </pre>
+ */
+@Beta
+public class AsyncDNSApi {
+    private final DNSApi api;
+    private final ListeningExecutorService executor;
+
+    @Inject
+    AsyncDNSApi(DNSApi api, ListeningExecutorService executor) {
+        this.api = api;
+        this.executor = executor;
+    }
+
+    /**
+     * @see ZoneApi#list()
+     */
+    public ListenableFuture<List<String>> listZones() {
+        return executor.submit(new Callable<List<String>>() {
+            public List<String> call() {
+                return ImmutableList.copyOf(api.getZoneApi().list());
+            }
+        });
+    }
+
+    /**
+     * @see DNSApi#getResourceRecordSetApiForZone(String)
+     */
+    public AsyncResourceRecordSetApi getResourceRecordSetApiForZone(String zoneName) {
+        checkNotNull(zoneName, "zoneName was null");
+        return new AsyncResourceRecordSetApi(api, zoneName, executor);
+    }
+
+    /**
+     * Unlike other methods, this blocks when the provider needs to look up
+     * geo configuration for the first time.
+     *
+     * @see DNSApi#getGeoResourceRecordSetApiForZone(String)
+     */
+    public Optional<AsyncGeoResourceRecordSetApi> getGeoResourceRecordSetApiForZone(String zoneName) {
+        Optional<GeoResourceRecordSetApi> geoApi = api.getGeoResourceRecordSetApiForZone(zoneName);
+        if (!geoApi.isPresent())
+            return Optional.absent();
+        return Optional.of(new AsyncGeoResourceRecordSetApi(geoApi.get(), executor));
+    }
+}
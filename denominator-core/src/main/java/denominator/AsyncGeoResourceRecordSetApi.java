@@ -0,0 +1,103 @@
+package denominator;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import com.google.common.annotations.Beta;
+import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Multimap;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+
+import denominator.model.ResourceRecordSet;
+import denominator.profile.GeoResourceRecordSetApi;
+
+/**
+ * Variant of {@link GeoResourceRecordSetApi} whose operations return futures.
+ * Listings are fully consumed before the future completes.
+ */
+@Beta
+public class AsyncGeoResourceRecordSetApi {
+    private final GeoResourceRecordSetApi api;
+    private final ListeningExecutorService executor;
+
+    AsyncGeoResourceRecordSetApi(GeoResourceRecordSetApi api, ListeningExecutorService executor) {
+        this.api = api;
+        this.executor = executor;
+    }
+
+    /**
+     * @see GeoResourceRecordSetApi#list()
+     */
+    public ListenableFuture<List<ResourceRecordSet<?>>> list() {
+        return executor.submit(new Callable<List<ResourceRecordSet<?>>>() {
+            public List<ResourceRecordSet<?>> call() {
+                return ImmutableList.copyOf(api.list());
+            }
+        });
+    }
+
+    /**
+     * @see GeoResourceRecordSetApi#listByName(String)
+     */
+    public ListenableFuture<List<ResourceRecordSet<?>>> listByName(final String name) {
+        return executor.submit(new Callable<List<ResourceRecordSet<?>>>() {
+            public List<ResourceRecordSet<?>> call() {
+                return ImmutableList.copyOf(api.listByName(name));
+            }
+        });
+    }
+
+    /**
+     * @see GeoResourceRecordSetApi#listByNameAndType(String, String)
+     */
+    public ListenableFuture<List<ResourceRecordSet<?>>> listByNameAndType(final String name, final String type) {
+        return executor.submit(new Callable<List<ResourceRecordSet<?>>>() {
+            public List<ResourceRecordSet<?>> call() {
+                return ImmutableList.copyOf(api.listByNameAndType(name, type));
+            }
+        });
+    }
+
+    /**
+     * @see GeoResourceRecordSetApi#getByNameTypeAndGroup(String, String,
+     *      String)
+     */
+    public ListenableFuture<Optional<ResourceRecordSet<?>>> getByNameTypeAndGroup(final String name,
+            final String type, final String group) {
+        return executor.submit(new Callable<Optional<ResourceRecordSet<?>>>() {
+            public Optional<ResourceRecordSet<?>> call() {
+                return api.getByNameTypeAndGroup(name, type, group);
+            }
+        });
+    }
+
+    /**
+     * @see GeoResourceRecordSetApi#applyRegionsToNameTypeAndGroup(Multimap,
+     *      String, String, String)
+     */
+    public ListenableFuture<Void> applyRegionsToNameTypeAndGroup(final Multimap<String, String> regions,
+            final String name, final String type, final String group) {
+        return executor.submit(new Callable<Void>() {
+            public Void call() {
+                api.applyRegionsToNameTypeAndGroup(regions, name, type, group);
+                return null;
+            }
+        });
+    }
+
+    /**
+     * @see GeoResourceRecordSetApi#applyTTLToNameTypeAndGroup(int, String,
+     *      String, String)
+     */
+    public ListenableFuture<Void> applyTTLToNameTypeAndGroup(final int ttl, final String name, final String type,
+            final String group) {
+        return executor.submit(new Callable<Void>() {
+            public Void call() {
+                api.applyTTLToNameTypeAndGroup(ttl, name, type, group);
+                return null;
+            }
+        });
+    }
+}
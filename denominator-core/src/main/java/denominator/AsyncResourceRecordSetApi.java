@@ -0,0 +1,154 @@
+package denominator;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import com.google.common.annotations.Beta;
+import com.google.common.base.Optional;
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+
+import denominator.model.ResourceRecordSet;
+
+/**
+ * Variant of {@link ResourceRecordSetApi} whose operations return futures.
+ * Listings are fully consumed before the future completes.
+ *
+ * The underlying api is created on first use, as some providers look up the
+ * zone remotely. If the zone doesn't exist, futures fail with
+ * {@link IllegalArgumentException}.
+ */
+@Beta
+public class AsyncResourceRecordSetApi {
+    private final Supplier<ResourceRecordSetApi> api;
+    private final ListeningExecutorService executor;
+
+    AsyncResourceRecordSetApi(final DNSApi dnsApi, final String zoneName, ListeningExecutorService executor) {
+        this.api = Suppliers.memoize(new Supplier<ResourceRecordSetApi>() {
+            public ResourceRecordSetApi get() {
+                return dnsApi.getResourceRecordSetApiForZone(zoneName);
+            }
+        });
+        this.executor = executor;
+    }
+
+    /**
+     * @see ResourceRecordSetApi#list()
+     */
+    public ListenableFuture<List<ResourceRecordSet<?>>> list() {
+        return executor.submit(new Callable<List<ResourceRecordSet<?>>>() {
+            public List<ResourceRecordSet<?>> call() {
+                return ImmutableList.copyOf(api.get().list());
+            }
+        });
+    }
+
+    /**
+     * @see ResourceRecordSetApi#listByName(String)
+     */
+    public ListenableFuture<List<ResourceRecordSet<?>>> listByName(final String name) {
+        return executor.submit(new Callable<List<ResourceRecordSet<?>>>() {
+            public List<ResourceRecordSet<?>> call() {
+                return ImmutableList.copyOf(api.get().listByName(name));
+            }
+        });
+    }
+
+    /**
+     * @see ResourceRecordSetApi#getByNameAndType(String, String)
+     */
+    public ListenableFuture<Optional<ResourceRecordSet<?>>> getByNameAndType(final String name, final String type) {
+        return executor.submit(new Callable<Optional<ResourceRecordSet<?>>>() {
+            public Optional<ResourceRecordSet<?>> call() {
+                return api.get().getByNameAndType(name, type);
+            }
+        });
+    }
+
+    /**
+     * @see ResourceRecordSetApi#add(ResourceRecordSet)
+     */
+    public ListenableFuture<Void> add(final ResourceRecordSet<?> rrset) {
+        return executor.submit(new Callable<Void>() {
+            public Void call() {
+                api.get().add(rrset);
+                return null;
+            }
+        });
+    }
+
+    /**
+     * @see ResourceRecordSetApi#applyTTLToNameAndType(int, String, String)
+     */
+    public ListenableFuture<Void> applyTTLToNameAndType(final int ttl, final String name, final String type) {
+        return executor.submit(new Callable<Void>() {
+            public Void call() {
+                api.get().applyTTLToNameAndType(ttl, name, type);
+                return null;
+            }
+        });
+    }
+
+    /**
+     * @see ResourceRecordSetApi#replace(ResourceRecordSet)
+     */
+    public ListenableFuture<Void> replace(final ResourceRecordSet<?> rrset) {
+        return executor.submit(new Callable<Void>() {
+            public Void call() {
+                api.get().replace(rrset);
+                return null;
+            }
+        });
+    }
+
+    /**
+     * @see ResourceRecordSetApi#replace(ResourceRecordSet, ResourceRecordSet)
+     */
+    public ListenableFuture<Void> replace(final ResourceRecordSet<?> expected, final ResourceRecordSet<?> desired) {
+        return executor.submit(new Callable<Void>() {
+            public Void call() {
+                api.get().replace(expected, desired);
+                return null;
+            }
+        });
+    }
+
+    /**
+     * @see ResourceRecordSetApi#remove(ResourceRecordSet)
+     */
+    public ListenableFuture<Void> remove(final ResourceRecordSet<?> rrset) {
+        return executor.submit(new Callable<Void>() {
+            public Void call() {
+                api.get().remove(rrset);
+                return null;
+            }
+        });
+    }
+
+    /**
+     * @see ResourceRecordSetApi#deleteByNameAndType(String, String)
+     */
+    public ListenableFuture<Void> deleteByNameAndType(final String name, final String type) {
+        return executor.submit(new Callable<Void>() {
+            public Void call() {
+                api.get().deleteByNameAndType(name, type);
+                return null;
+            }
+        });
+    }
+
+    /**
+     * @see ResourceRecordSetApi#apply(ResourceRecordSetBatch)
+     */
+    public ListenableFuture<Void> apply(final ResourceRecordSetBatch batch) {
+        return executor.submit(new Callable<Void>() {
+            public Void call() {
+                api.get().apply(batch);
+                return null;
+            }
+        });
+    }
+}
@@ -1,5 +1,7 @@
 package denominator;
 
+import java.util.Set;
+
 import javax.inject.Inject;
 
 import com.google.common.base.Optional;
@@ -14,11 +16,16 @@ public class DNSApi {
     private final ResourceRecordSetApi.Factory rrsetApiFactory;
     private final AllProfileResourceRecordSetApi.Factory allRRSetApiFactory;
     private final GeoResourceRecordSetApi.Factory geoApiFactory;
+    private final Set<ApiDecorator> decorators;
 
     @Inject
     DNSApi(ZoneApi zoneApi, ResourceRecordSetApi.Factory rrsetApiFactory,
             AllProfileResourceRecordSetApi.Factory allRRSetApiFactory,
-            GeoResourceRecordSetApi.Factory geoApiFactory) {
+            GeoResourceRecordSetApi.Factory geoApiFactory, Set<ApiDecorator> decorators) {
+        this.decorators = decorators;
+        for (ApiDecorator decorator : decorators) {
+            zoneApi = decorator.decorate(zoneApi);
+        }
         this.zoneApi = zoneApi;
         this.rrsetApiFactory = rrsetApiFactory;
         this.allRRSetApiFactory = allRRSetApiFactory;
@@ -37,7 +44,11 @@ public class DNSApi {
      * controls DNS records as a set,
      */
     public ResourceRecordSetApi getResourceRecordSetApiForZone(String zoneName) {
-        return rrsetApiFactory.create(zoneName);
+        ResourceRecordSetApi api = rrsetApiFactory.create(zoneName);
+        for (ApiDecorator decorator : decorators) {
+            api = decorator.decorate(zoneName, api);
+        }
+        return api;
     }
 
     /**
@@ -52,6 +63,13 @@ public class DNSApi {
      * caller. These are otherwise known as Directional records.
      */
     public Optional<GeoResourceRecordSetApi> getGeoResourceRecordSetApiForZone(String zoneName) {
-        return geoApiFactory.create(zoneName);
+        Optional<GeoResourceRecordSetApi> api = geoApiFactory.create(zoneName);
+        if (!api.isPresent())
+            return api;
+        GeoResourceRecordSetApi geoApi = api.get();
+        for (ApiDecorator decorator : decorators) {
+            geoApi = decorator.decorate(zoneName, geoApi);
+        }
+        return Optional.of(geoApi);
     }
 }
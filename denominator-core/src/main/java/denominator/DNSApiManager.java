@@ -14,12 +14,14 @@ import javax.inject.Inject;
 public class DNSApiManager implements Closeable {
     private final Provider provider;
     private final DNSApi api;
+    private final AsyncDNSApi asyncApi;
     private final Closeable closer;
 
     @Inject
-    DNSApiManager(Provider provider, DNSApi api, Closeable closer) {
+    DNSApiManager(Provider provider, DNSApi api, AsyncDNSApi asyncApi, Closeable closer) {
         this.provider = provider;
         this.api = api;
+        this.asyncApi = asyncApi;
         this.closer = closer;
     }
 
@@ -30,6 +32,15 @@ public class DNSApiManager implements Closeable {
         return api;
     }
 
+    /**
+     * variant of {@link #getApi()} whose operations return futures.
+     * 
+     * @see ExecutorConfiguration
+     */
+    public AsyncDNSApi getAsyncApi() {
+        return asyncApi;
+    }
+
     /**
      * Get the provider associated with this instance
      */
@@ -17,6 +17,7 @@ import com.google.common.collect.ImmutableList;
 import dagger.Module;
 import dagger.ObjectGraph;
 import dagger.Provides;
+import denominator.config.NothingToDecorate;
 
 /**
  * Entry-point to create instances of {@link DNSApiManager}
@@ -203,7 +204,10 @@ public final class Denominator {
         return new ProvideProvider(provider);
     }
 
-    @Module(injects = DNSApiManager.class, complete = false)
+    @Module(injects = DNSApiManager.class, complete = false,
+            // defaults for async operations, listing order, api decoration and request rate
+            includes = { ExecutorConfiguration.DefaultExecutor.class, ListingConfiguration.DefaultListing.class,
+                    NothingToDecorate.class, RequestLimiter.Unlimited.class })
     static final class ProvideProvider implements javax.inject.Provider<Provider> {
         private final denominator.Provider provider;
 
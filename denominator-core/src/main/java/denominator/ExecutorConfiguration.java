@@ -0,0 +1,126 @@
+package denominator;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.util.concurrent.MoreExecutors.listeningDecorator;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+
+import javax.inject.Singleton;
+
+import com.google.common.annotations.Beta;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import dagger.Module;
+import dagger.Provides;
+
+/**
+ * use this to control the executor that runs {@link AsyncDNSApi} operations.
+ *
+ * ex. to keep up to 500 operations in flight on 20 threads
+ *
+ * <pre>
+ * route53 = Denominator.create(new Route53Provider(), credentials(accesskey, secretkey), threads(20, 500));
+ * </pre>
+ *
+ * ex. to share an executor you manage
+ *
+ * <pre>
+ * route53 = Denominator.create(new Route53Provider(), credentials(accesskey, secretkey), executor(yourExecutor));
+ * </pre>
+ *
+ * When unconfigured, {@value #DEFAULT_THREADS} threads service up to
+ * {@value #DEFAULT_MAX_QUEUED} queued operations.
+ */
+@Beta
+public class ExecutorConfiguration {
+    public static final int DEFAULT_THREADS = 10;
+    public static final int DEFAULT_MAX_QUEUED = 1000;
+
+    private ExecutorConfiguration() {
+    }
+
+    /**
+     * creates a bounded thread pool per {@link DNSApiManager}. Threads are
+     * daemons which exit when idle, so they don't need to be shutdown.
+     *
+     * @param threads
+     *            maximum count of operations executing concurrently.
+     * @param maxQueued
+     *            maximum count of operations waiting for a thread. Once
+     *            exceeded, async operations throw
+     *            {@link java.util.concurrent.RejectedExecutionException}.
+     */
+    public static Object threads(int threads, int maxQueued) {
+        return new BoundedThreadPool(threads, maxQueued);
+    }
+
+    /**
+     * @param executor
+     *            runs all async operations. The caller is responsible for
+     *            shutting it down.
+     */
+    public static Object executor(ExecutorService executor) {
+        return new ConstantExecutor(executor);
+    }
+
+    @Module(injects = DNSApiManager.class, complete = false, library = true)
+    static final class DefaultExecutor {
+        @Provides
+        @Singleton
+        ListeningExecutorService provideExecutor() {
+            return new BoundedThreadPool(DEFAULT_THREADS, DEFAULT_MAX_QUEUED).provideExecutor();
+        }
+    }
+
+    @Module(injects = DNSApiManager.class, complete = false, library = true, overrides = true)
+    static final class BoundedThreadPool {
+        private final int threads;
+        private final int maxQueued;
+
+        private BoundedThreadPool(int threads, int maxQueued) {
+            checkArgument(threads > 0, "threads must be positive, but was %s", threads);
+            checkArgument(maxQueued > 0, "maxQueued must be positive, but was %s", maxQueued);
+            this.threads = threads;
+            this.maxQueued = maxQueued;
+        }
+
+        @Provides
+        @Singleton
+        ListeningExecutorService provideExecutor() {
+            ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 60, SECONDS,
+                    new LinkedBlockingQueue<Runnable>(maxQueued),
+                    new ThreadFactoryBuilder().setNameFormat("denominator-async-%d").setDaemon(true).build());
+            pool.allowCoreThreadTimeOut(true);
+            return listeningDecorator(pool);
+        }
+
+        @Override
+        public String toString() {
+            return "BoundedThreadPool(threads=" + threads + ", maxQueued=" + maxQueued + ")";
+        }
+    }
+
+    @Module(injects = DNSApiManager.class, complete = false, library = true, overrides = true)
+    static final class ConstantExecutor {
+        private final ListeningExecutorService executor;
+
+        private ConstantExecutor(ExecutorService executor) {
+            this.executor = listeningDecorator(checkNotNull(executor, "executor"));
+        }
+
+        @Provides
+        ListeningExecutorService provideExecutor() {
+            return executor;
+        }
+
+        @Override
+        public String toString() {
+            return "ConstantExecutor(" + executor + ")";
+        }
+    }
+}
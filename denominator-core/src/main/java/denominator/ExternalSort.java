@@ -0,0 +1,322 @@
+package denominator;
+
+import static com.google.common.base.Charsets.UTF_8;
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import com.google.common.annotations.Beta;
+import com.google.common.base.Throwables;
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.Lists;
+import com.google.common.io.Closeables;
+
+/**
+ * Sorts more records than fit in memory. Records are sorted in memory until
+ * {@code maxInMemory} are buffered. Each full buffer is sorted and written to
+ * a temporary file as a run. The runs are then merged lazily as the result
+ * is iterated. At most {@code maxInMemory} records, plus one per run, are held
+ * at a time.
+ *
+ * <p/>
+ * Each run file is deleted once the merge has read all of it. When there are
+ * runs, the result is also {@link Closeable}. Closing it deletes the runs
+ * not yet read, so callers that may abandon the result before it is
+ * exhausted should close it. Otherwise, its files are left in the temporary
+ * directory. Files aren't registered for deletion on exit, as each
+ * registration is held until then, which adds up in a long running process.
+ *
+ * <h4>Example</h4>
+ *
+ * <pre>
+ * Iterator&lt;Record&gt; sorted = ExternalSort.sort(records, byNameAndType, recordCodec, 100000);
+ * </pre>
+ */
+@Beta
+public final class ExternalSort {
+
+    /**
+     * writes and reads records of a run. {@link #read(DataInput)} must return
+     * a record equivalent to the one written, as far as the comparator and
+     * the consumer of the sorted records are concerned.
+     */
+    public interface Codec<T> {
+        void write(T record, DataOutput out) throws IOException;
+
+        T read(DataInput in) throws IOException;
+    }
+
+    private ExternalSort() {
+    }
+
+    /**
+     * writes a string, which may be null, for {@link #readString(DataInput)}.
+     * Unlike {@link DataOutput#writeUTF(String)}, there's no limit on length.
+     */
+    public static void writeString(DataOutput out, String string) throws IOException {
+        if (string == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = string.getBytes(UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * reads a string written by {@link #writeString(DataOutput, String)}.
+     */
+    public static String readString(DataInput in) throws IOException {
+        int length = in.readInt();
+        if (length == -1)
+            return null;
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, UTF_8);
+    }
+
+    /**
+     * @param records
+     *            records to sort, which are consumed before this method
+     *            returns.
+     * @param comparator
+     *            order of the result.
+     * @param codec
+     *            used to write and read runs, when there are more than
+     *            {@code maxInMemory} records.
+     * @param maxInMemory
+     *            count of records to sort in memory before spilling them to
+     *            a temporary file.
+     * @return records in order of {@code comparator}. Records that compare
+     *         equal are not guaranteed to keep their relative order. When runs
+     *         were written, this is {@link Closeable}.
+     */
+    public static <T> Iterator<T> sort(Iterator<? extends T> records, Comparator<? super T> comparator,
+            Codec<T> codec, int maxInMemory) {
+        return sort(records, comparator, codec, maxInMemory, null);
+    }
+
+    /**
+     * Like {@link #sort(Iterator, Comparator, Codec, int)}, except runs are
+     * written to {@code directory}.
+     *
+     * @param directory
+     *            where to write runs, or null for the default temporary
+     *            directory.
+     */
+    public static <T> Iterator<T> sort(Iterator<? extends T> records, Comparator<? super T> comparator,
+            Codec<T> codec, int maxInMemory, File directory) {
+        checkNotNull(records, "records");
+        checkNotNull(comparator, "comparator");
+        checkNotNull(codec, "codec");
+        checkArgument(maxInMemory > 0, "maxInMemory must be positive, but was %s", maxInMemory);
+
+        List<T> buffer = Lists.newArrayList();
+        List<File> runs = Lists.newArrayList();
+        try {
+            while (records.hasNext()) {
+                buffer.add(records.next());
+                if (buffer.size() == maxInMemory && records.hasNext()) {
+                    Collections.sort(buffer, comparator);
+                    runs.add(spill(buffer, codec, directory));
+                    buffer.clear();
+                }
+            }
+        } catch (RuntimeException e) {
+            for (File run : runs) {
+                run.delete();
+            }
+            throw e;
+        }
+        Collections.sort(buffer, comparator);
+        if (runs.isEmpty())
+            return buffer.iterator();
+        return new MergingIterator<T>(runs, buffer.iterator(), comparator, codec);
+    }
+
+    private static <T> File spill(List<T> sorted, Codec<T> codec, File directory) {
+        File file = null;
+        DataOutputStream out = null;
+        boolean threw = true;
+        try {
+            file = File.createTempFile("denominator-sort", ".run", directory);
+            out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+            for (T record : sorted) {
+                out.writeBoolean(true);
+                codec.write(record, out);
+            }
+            out.writeBoolean(false);
+            threw = false;
+            return file;
+        } catch (IOException e) {
+            throw Throwables.propagate(e);
+        } finally {
+            try {
+                Closeables.close(out, threw);
+            } catch (IOException e) {
+                threw = true;
+                throw Throwables.propagate(e);
+            } finally {
+                if (threw && file != null)
+                    file.delete();
+            }
+        }
+    }
+
+    /**
+     * A run from a file or memory, whose next record is {@link #head}.
+     */
+    private static abstract class Run<T> {
+        T head;
+
+        /**
+         * @return false, and releases resources, if there are no more
+         *         records.
+         */
+        abstract boolean advance() throws IOException;
+
+        abstract void close();
+    }
+
+    private static final class FileRun<T> extends Run<T> {
+        private final File file;
+        private final DataInputStream in;
+        private final Codec<T> codec;
+
+        private FileRun(File file, Codec<T> codec) throws IOException {
+            this.file = file;
+            this.in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+            this.codec = codec;
+        }
+
+        @Override
+        boolean advance() throws IOException {
+            if (in.readBoolean()) {
+                head = codec.read(in);
+                return true;
+            }
+            close();
+            return false;
+        }
+
+        @Override
+        void close() {
+            try {
+                Closeables.close(in, true);
+            } catch (IOException impossible) {
+                throw new AssertionError(impossible);
+            } finally {
+                file.delete();
+            }
+        }
+    }
+
+    private static final class MemoryRun<T> extends Run<T> {
+        private final Iterator<T> records;
+
+        private MemoryRun(Iterator<T> records) {
+            this.records = records;
+        }
+
+        @Override
+        boolean advance() {
+            if (records.hasNext()) {
+                head = records.next();
+                return true;
+            }
+            return false;
+        }
+
+        @Override
+        void close() {
+        }
+    }
+
+    private static final class MergingIterator<T> extends AbstractIterator<T> implements Closeable {
+        private final PriorityQueue<Run<T>> runs;
+        private final List<Run<T>> opened = Lists.newArrayList();
+
+        private MergingIterator(List<File> files, Iterator<T> inMemory, final Comparator<? super T> comparator,
+                Codec<T> codec) {
+            this.runs = new PriorityQueue<Run<T>>(files.size() + 1, new Comparator<Run<T>>() {
+                @Override
+                public int compare(Run<T> left, Run<T> right) {
+                    return comparator.compare(left.head, right.head);
+                }
+            });
+            try {
+                for (File file : files) {
+                    open(new FileRun<T>(file, codec));
+                }
+                open(new MemoryRun<T>(inMemory));
+            } catch (IOException e) {
+                closeAll(files);
+                throw Throwables.propagate(e);
+            } catch (RuntimeException e) {
+                closeAll(files);
+                throw e;
+            }
+        }
+
+        private void open(Run<T> run) throws IOException {
+            opened.add(run);
+            if (run.advance())
+                runs.add(run);
+        }
+
+        private void closeAll(List<File> files) {
+            for (Run<T> run : opened) {
+                run.close();
+            }
+            for (File file : files) {
+                file.delete();
+            }
+        }
+
+        /**
+         * deletes the runs not yet read. There are no more records after.
+         */
+        @Override
+        public void close() {
+            for (Run<T> run : opened) {
+                run.close();
+            }
+            runs.clear();
+        }
+
+        @Override
+        protected T computeNext() {
+            Run<T> run = runs.poll();
+            if (run == null)
+                return endOfData();
+            T next = run.head;
+            try {
+                if (run.advance())
+                    runs.add(run);
+            } catch (IOException e) {
+                run.close();
+                for (Run<T> remaining : runs) {
+                    remaining.close();
+                }
+                throw Throwables.propagate(e);
+            }
+            return next;
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package denominator;
+
+import java.util.Iterator;
+
+import com.google.common.annotations.Beta;
+import com.google.common.base.Optional;
+
+import denominator.model.ResourceRecordSet;
+
+/**
+ * A {@link ResourceRecordSetApi} which forwards all its method calls to
+ * another. Subclasses override methods to add behavior, such as in an
+ * {@link ApiDecorator}.
+ */
+@Beta
+public abstract class ForwardingResourceRecordSetApi implements ResourceRecordSetApi {
+
+    protected abstract ResourceRecordSetApi delegate();
+
+    @Override
+    public Iterator<ResourceRecordSet<?>> list() {
+        return delegate().list();
+    }
+
+    @Override
+    public Iterator<ResourceRecordSet<?>> listByName(String name) {
+        return delegate().listByName(name);
+    }
+
+    @Override
+    public Optional<ResourceRecordSet<?>> getByNameAndType(String name, String type) {
+        return delegate().getByNameAndType(name, type);
+    }
+
+    @Override
+    public void add(ResourceRecordSet<?> rrset) {
+        delegate().add(rrset);
+    }
+
+    @Override
+    public void applyTTLToNameAndType(int ttl, String name, String type) {
+        delegate().applyTTLToNameAndType(ttl, name, type);
+    }
+
+    @Override
+    public void replace(ResourceRecordSet<?> rrset) {
+        delegate().replace(rrset);
+    }
+
+    @Override
+    public void replace(ResourceRecordSet<?> expected, ResourceRecordSet<?> desired) {
+        delegate().replace(expected, desired);
+    }
+
+    @Override
+    public void remove(ResourceRecordSet<?> rrset) {
+        delegate().remove(rrset);
+    }
+
+    @Override
+    public void deleteByNameAndType(String name, String type) {
+        delegate().deleteByNameAndType(name, type);
+    }
+
+    @Override
+    public void apply(ResourceRecordSetBatch batch) {
+        delegate().apply(batch);
+    }
+
+    @Override
+    public String toString() {
+        return delegate().toString();
+    }
+}
@@ -0,0 +1,201 @@
+package denominator;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import com.google.common.annotations.Beta;
+
+import dagger.Module;
+import dagger.Provides;
+
+/**
+ * use this to control the order of record sets returned by
+ * {@link ResourceRecordSetApi#list()} and
+ * {@link ResourceRecordSetApi#listByName(String)}.
+ *
+ * ex. to export a zone without sorting it first
+ *
+ * <pre>
+ * ultradns = Denominator.create(new UltraDNSProvider(), credentials(username, password), unsorted());
+ * ZoneFileExporter.export(&quot;denominator.io.&quot;, ultradns.getApi().getResourceRecordSetApiForZone(&quot;denominator.io.&quot;).list(), out);
+ * </pre>
+ *
+ * When unconfigured, record sets are {@link Order#SORTED sorted} in memory.
+ * To sort zones too large to hold in memory, use
+ * {@link #spillAfter(int) spillAfter(maxRecordsInMemory)}.
+ *
+ * <p/>
+ * ex. to request the next page of a listing while the current one is
+ * processed
+ *
+ * <pre>
+ * route53 = Denominator.create(new Route53Provider(), credentials(accesskey, secretkey), prefetch(2));
+ * </pre>
+ */
+@Beta
+public class ListingConfiguration {
+
+    public static enum Order {
+        /**
+         * Record sets are listed in order of name and type. Providers whose
+         * servers don't return records in this order sort every record
+         * before returning the first record set.
+         */
+        SORTED,
+        /**
+         * Record sets are listed in the order their first record was
+         * returned by the server. Providers whose servers don't return
+         * records in order group them by name and type into a hash table,
+         * which avoids the cost of sorting. Use this when the caller doesn't
+         * depend on order, such as when exporting or reconciling a zone.
+         */
+        UNSORTED;
+    }
+
+    /**
+     * count of records a provider sorts in memory before spilling sorted runs
+     * to temporary files, which are then merged. See {@link ExternalSort}.
+     */
+    public static final class SortBuffer {
+        private final int maxRecords;
+
+        public SortBuffer(int maxRecords) {
+            checkArgument(maxRecords > 0, "maxRecords must be positive, but was %s", maxRecords);
+            this.maxRecords = maxRecords;
+        }
+
+        public int maxRecords() {
+            return maxRecords;
+        }
+
+        @Override
+        public String toString() {
+            return "SortBuffer(" + maxRecords + ")";
+        }
+    }
+
+    /**
+     * count of pages a provider requests ahead of the caller, on the
+     * {@link DNSApiManager}'s executor. See {@link PrefetchingIterator}.
+     */
+    public static final class Prefetch {
+        private final int pages;
+
+        public Prefetch(int pages) {
+            checkArgument(pages >= 0, "pages must not be negative, but was %s", pages);
+            this.pages = pages;
+        }
+
+        public int pages() {
+            return pages;
+        }
+
+        @Override
+        public String toString() {
+            return "Prefetch(" + pages + ")";
+        }
+    }
+
+    private ListingConfiguration() {
+    }
+
+    /**
+     * lists record sets in any order, skipping sorts providers would
+     * otherwise do.
+     */
+    public static Object unsorted() {
+        return new Unsorted();
+    }
+
+    /**
+     * sorts record sets, holding up to {@code maxRecordsInMemory} records in
+     * memory at a time. Records past that are sorted in runs on disk, which
+     * is slower, but allows listing zones larger than the heap.
+     *
+     * <p/>
+     * This only affects providers whose servers don't return records in
+     * order.
+     */
+    public static Object spillAfter(int maxRecordsInMemory) {
+        return new SpillAfter(new SortBuffer(maxRecordsInMemory));
+    }
+
+    /**
+     * requests up to {@code pages} pages of listings ahead of the caller,
+     * overlapping the wait for each page with processing the one before. This
+     * only affects providers whose servers list in pages, Route53 and
+     * CloudDNS. Defaults to {@code 0}, which requests each page when the
+     * caller reaches it.
+     */
+    public static Object prefetch(int pages) {
+        return new PrefetchPages(new Prefetch(pages));
+    }
+
+    @Module(injects = DNSApiManager.class, complete = false, library = true)
+    static final class DefaultListing {
+        @Provides
+        Order provideOrder() {
+            return Order.SORTED;
+        }
+
+        @Provides
+        SortBuffer provideSortBuffer() {
+            return new SortBuffer(Integer.MAX_VALUE);
+        }
+
+        @Provides
+        Prefetch providePrefetch() {
+            return new Prefetch(0);
+        }
+    }
+
+    @Module(injects = DNSApiManager.class, complete = false, library = true, overrides = true)
+    static final class Unsorted {
+        @Provides
+        Order provideOrder() {
+            return Order.UNSORTED;
+        }
+
+        @Override
+        public String toString() {
+            return "Unsorted()";
+        }
+    }
+
+    @Module(injects = DNSApiManager.class, complete = false, library = true, overrides = true)
+    static final class SpillAfter {
+        private final SortBuffer sortBuffer;
+
+        private SpillAfter(SortBuffer sortBuffer) {
+            this.sortBuffer = sortBuffer;
+        }
+
+        @Provides
+        SortBuffer provideSortBuffer() {
+            return sortBuffer;
+        }
+
+        @Override
+        public String toString() {
+            return "SpillAfter(" + sortBuffer.maxRecords() + ")";
+        }
+    }
+
+    @Module(injects = DNSApiManager.class, complete = false, library = true, overrides = true)
+    static final class PrefetchPages {
+        private final Prefetch prefetch;
+
+        private PrefetchPages(Prefetch prefetch) {
+            this.prefetch = prefetch;
+        }
+
+        @Provides
+        Prefetch providePrefetch() {
+            return prefetch;
+        }
+
+        @Override
+        public String toString() {
+            return "PrefetchPages(" + prefetch.pages() + ")";
+        }
+    }
+}
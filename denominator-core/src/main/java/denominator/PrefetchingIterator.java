@@ -0,0 +1,185 @@
+package denominator;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+
+import com.google.common.annotations.Beta;
+import com.google.common.base.Function;
+import com.google.common.base.Throwables;
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.Iterators;
+
+import denominator.ListingConfiguration.Prefetch;
+
+/**
+ * Reads ahead of the caller, on another thread. Providers that list records
+ * in pages usually request the next page only once the caller finishes the
+ * current one, so the caller waits for the network between each page. When
+ * pages are prefetched, the next page is requested while the caller works
+ * through the current one.
+ *
+ * <p/>
+ * Elements of the source are read one at a time, in order, as each page
+ * depends on the one before it. Reading stops when {@link Prefetch#pages()}
+ * elements are waiting for the caller, so an abandoned iterator holds at
+ * most that many. If the executor hasn't started a read by the time the
+ * caller needs it, such as when all its threads are busy, the caller reads
+ * the element itself.
+ *
+ * <p/>
+ * Exceptions reading the source are thrown to the caller, in the position
+ * they occurred.
+ */
+@Beta
+public final class PrefetchingIterator<T> extends AbstractIterator<T> {
+
+    /**
+     * @return {@code source}, reading up to {@link Prefetch#pages()}
+     *         elements ahead on {@code executor}, or {@code source} itself
+     *         when there's nothing to prefetch.
+     */
+    public static <T> Iterator<T> prefetch(Iterator<T> source, Prefetch prefetch, Executor executor) {
+        checkNotNull(source, "source");
+        checkNotNull(prefetch, "prefetch");
+        checkNotNull(executor, "executor");
+        if (prefetch.pages() == 0)
+            return source;
+        return new PrefetchingIterator<T>(source, prefetch.pages(), executor);
+    }
+
+    /**
+     * flattens {@code pages}, reading up to {@link Prefetch#pages()} pages
+     * ahead on {@code executor}. ex. to list a jclouds {@code PagedIterable}
+     *
+     * <pre>
+     * return PrefetchingIterator.concat(api.list().iterator(), prefetch, executor);
+     * </pre>
+     */
+    public static <T> Iterator<T> concat(Iterator<? extends Iterable<? extends T>> pages, Prefetch prefetch,
+            Executor executor) {
+        return Iterators.concat(Iterators.transform(prefetch(pages, prefetch, executor),
+                new Function<Iterable<? extends T>, Iterator<? extends T>>() {
+                    @Override
+                    public Iterator<? extends T> apply(Iterable<? extends T> page) {
+                        return page.iterator();
+                    }
+                }));
+    }
+
+    private final Iterator<T> source;
+    private final int ahead;
+    private final Executor executor;
+    // guarded by this
+    private final Deque<Object> fetched = new ArrayDeque<Object>();
+    private FutureTask<Void> inFlight;
+    private boolean sourceDone;
+
+    private PrefetchingIterator(Iterator<T> source, int ahead, Executor executor) {
+        checkArgument(ahead > 0, "ahead must be positive, but was %s", ahead);
+        this.source = source;
+        this.ahead = ahead;
+        this.executor = executor;
+    }
+
+    @Override
+    protected T computeNext() {
+        while (true) {
+            FutureTask<Void> pending;
+            synchronized (this) {
+                Object next = fetched.poll();
+                if (next != null) {
+                    if (inFlight == null && !sourceDone && fetched.size() < ahead)
+                        startFetch();
+                    return unwrap(next);
+                }
+                if (inFlight == null) {
+                    startFetch();
+                    // the executor ran it inline
+                    if (!fetched.isEmpty())
+                        continue;
+                }
+                pending = inFlight;
+            }
+            // no-op if the executor already started it
+            pending.run();
+            synchronized (this) {
+                while (inFlight == pending && fetched.isEmpty()) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw Throwables.propagate(e);
+                    }
+                }
+            }
+        }
+    }
+
+    private T unwrap(Object next) {
+        if (next == END)
+            return endOfData();
+        if (next instanceof Failure)
+            throw Throwables.propagate(Failure.class.cast(next).cause);
+        if (next == NULL)
+            return null;
+        @SuppressWarnings("unchecked")
+        T element = (T) next;
+        return element;
+    }
+
+    // guarded by this
+    private void startFetch() {
+        inFlight = new FutureTask<Void>(new Fetch(), null);
+        try {
+            executor.execute(inFlight);
+        } catch (RejectedExecutionException e) {
+            // the caller will run it when it needs the element
+        }
+    }
+
+    /**
+     * reads an element, then the next, as long as the caller isn't more than
+     * {@code ahead} elements behind.
+     */
+    private final class Fetch implements Runnable {
+        @Override
+        public void run() {
+            Object next;
+            try {
+                next = source.hasNext() ? source.next() : END;
+                if (next == null)
+                    next = NULL;
+            } catch (RuntimeException e) {
+                next = new Failure(e);
+            } catch (Error e) {
+                next = new Failure(e);
+            }
+            synchronized (PrefetchingIterator.this) {
+                fetched.add(next);
+                sourceDone = next == END || next instanceof Failure;
+                inFlight = null;
+                if (!sourceDone && fetched.size() < ahead)
+                    startFetch();
+                PrefetchingIterator.this.notifyAll();
+            }
+        }
+    }
+
+    private static final Object END = new Object();
+    private static final Object NULL = new Object();
+
+    private static final class Failure {
+        private final Throwable cause;
+
+        private Failure(Throwable cause) {
+            this.cause = cause;
+        }
+    }
+}
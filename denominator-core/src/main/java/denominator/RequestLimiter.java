@@ -0,0 +1,65 @@
+package denominator;
+
+import com.google.common.annotations.Beta;
+
+import dagger.Module;
+import dagger.Provides;
+
+/**
+ * Limits the rate of requests a provider sends. Providers call
+ * {@link #acquire()} before each http request, and
+ * {@link #failed(RuntimeException)} when one fails, so that a limit, such as
+ * {@link denominator.config.RateLimitOperations}, holds per request. A single
+ * api call, such as a listing of many pages, may send many requests.
+ *
+ * ex.
+ *
+ * <pre>
+ * limiter.acquire();
+ * try {
+ *     return http.invoke(request);
+ * } catch (RuntimeException e) {
+ *     throw limiter.failed(e);
+ * }
+ * </pre>
+ */
+@Beta
+public abstract class RequestLimiter {
+
+    /**
+     * used when requests aren't limited.
+     */
+    public static final RequestLimiter NONE = new RequestLimiter() {
+        @Override
+        public void acquire() {
+        }
+
+        @Override
+        public String toString() {
+            return "NONE";
+        }
+    };
+
+    /**
+     * waits until another request may be sent.
+     */
+    public abstract void acquire();
+
+    /**
+     * called with the failure of a request, which slows down requests if the
+     * provider refused it for being sent too fast.
+     *
+     * @return {@code failure}, for the caller to throw.
+     */
+    public RuntimeException failed(RuntimeException failure) {
+        return failure;
+    }
+
+    @Module(injects = DNSApiManager.class, complete = false, library = true)
+    static final class Unlimited {
+        @Provides
+        RequestLimiter provideRequestLimiter() {
+            return NONE;
+        }
+    }
+}
@@ -101,6 +101,41 @@ public interface ResourceRecordSetApi {
      */
     void replace(ResourceRecordSet<?> rrset);
 
+    /**
+     * Replaces the record set {@code expected} with {@code desired}, only if
+     * {@code expected} is still what's in the zone. Unlike
+     * {@link #replace(ResourceRecordSet)}, this needn't read the zone first:
+     * Route53, for example, sends the delete of {@code expected} and create of
+     * {@code desired} as one change, which fails if {@code expected} is stale.
+     * Providers that can't compare on the server read the current record set
+     * and compare it, which isn't atomic.
+     *
+     * Example of changing the address of {@code www.denominator.io.}, which
+     * fails if another client changed it since it was read.
+     *
+     * <pre>
+     * import static denominator.model.ResourceRecordSets.a;
+     * ...
+     * ResourceRecordSet&lt;?&gt; current = rrsApi.getByNameAndType("www.denominator.io.", "A").get();
+     * rrsApi.replace(current, a("www.denominator.io.", 3600, "192.0.2.2"));
+     * </pre>
+     *
+     * @param expected
+     *            record set as last read from this api. Its
+     *            {@link ResourceRecordSet#getTTL() ttl} is compared, if
+     *            present, and Route53 requires it.
+     * @param desired
+     *            record set to replace it with, of the same
+     *            {@link ResourceRecordSet#getName() name} and
+     *            {@link ResourceRecordSet#getType() type}.
+     * @throws ResourceRecordSetConflictException
+     *             if the record set in the zone isn't {@code expected}, or
+     *             there is none.
+     * @throws IllegalArgumentException
+     *             if the {@code zoneName} is not found.
+     */
+    void replace(ResourceRecordSet<?> expected, ResourceRecordSet<?> desired);
+
     /**
      * If a {@link ResourceRecordSet} exists with
      * {@link ResourceRecordSet#getName() name} and
@@ -137,6 +172,31 @@ public interface ResourceRecordSetApi {
      */
     void deleteByNameAndType(String name, String type);
 
+    /**
+     * Applies all changes in the {@code batch}, using as few round trips to
+     * the provider as it allows. For example, Route53 sends a single change
+     * batch per 100 changes, and DynECT publishes the zone once. Providers
+     * without a means to group changes apply them
+     * {@link ResourceRecordSetBatch#applySequentially(ResourceRecordSetApi)
+     * sequentially}.
+     * 
+     * Example of replacing one record set and deleting another.
+     * 
+     * <pre>
+     * import static denominator.model.ResourceRecordSets.a;
+     * ...
+     * rrsApi.apply(ResourceRecordSetBatch.builder()
+     *                                    .replace(a("www1.denominator.io.", 3600, "192.0.2.1"))
+     *                                    .deleteByNameAndType("www2.denominator.io.", "A").build());
+     * </pre>
+     * 
+     * @param batch
+     *            changes to apply, at most one per name and type.
+     * @throws IllegalArgumentException
+     *             if the {@code zoneName} is not found.
+     */
+    void apply(ResourceRecordSetBatch batch);
+
     static interface Factory {
         ResourceRecordSetApi create(String zoneName);
     }
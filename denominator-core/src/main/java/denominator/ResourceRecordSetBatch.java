@@ -0,0 +1,222 @@
+package denominator;
+
+import static com.google.common.base.Objects.equal;
+import static com.google.common.base.Objects.toStringHelper;
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.List;
+import java.util.Set;
+
+import com.google.common.annotations.Beta;
+import com.google.common.base.Objects;
+import com.google.common.base.Optional;
+import com.google.common.collect.ForwardingList;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Sets;
+
+import denominator.model.ResourceRecordSet;
+
+/**
+ * An ordered group of changes to record sets in the same zone, which are
+ * {@link ResourceRecordSetApi#apply(ResourceRecordSetBatch) applied} together.
+ * Each change has the same semantics as the corresponding method on
+ * {@link ResourceRecordSetApi}.
+ *
+ * <h4>Example</h4>
+ *
+ * <pre>
+ * import static denominator.model.ResourceRecordSets.a;
+ * ...
+ * rrsApi.apply(ResourceRecordSetBatch.builder()
+ *                                    .replace(a("www1.denominator.io.", 3600, "192.0.2.1"))
+ *                                    .add(a("www2.denominator.io.", 3600, "198.51.100.1"))
+ *                                    .deleteByNameAndType("www3.denominator.io.", "A").build());
+ * </pre>
+ *
+ * <h4>Note</h4>
+ *
+ * Only one change is permitted per {@link ResourceRecordSet#getName() name}
+ * and {@link ResourceRecordSet#getType() type}, as providers evaluate each
+ * change against the state of the zone before the batch.
+ */
+@Beta
+public final class ResourceRecordSetBatch extends ForwardingList<ResourceRecordSetBatch.Change> {
+
+    public static enum Action {
+        /**
+         * @see ResourceRecordSetApi#add(ResourceRecordSet)
+         */
+        ADD,
+        /**
+         * @see ResourceRecordSetApi#replace(ResourceRecordSet)
+         */
+        REPLACE,
+        /**
+         * @see ResourceRecordSetApi#remove(ResourceRecordSet)
+         */
+        REMOVE,
+        /**
+         * @see ResourceRecordSetApi#deleteByNameAndType(String, String)
+         */
+        DELETE;
+    }
+
+    public static final class Change {
+        private final Action action;
+        private final String name;
+        private final String type;
+        private final Optional<ResourceRecordSet<?>> rrset;
+
+        private Change(Action action, String name, String type, Optional<ResourceRecordSet<?>> rrset) {
+            this.action = checkNotNull(action, "action");
+            this.name = checkNotNull(name, "name");
+            this.type = checkNotNull(type, "type of %s", name);
+            this.rrset = checkNotNull(rrset, "rrset of %s", name);
+        }
+
+        public Action getAction() {
+            return action;
+        }
+
+        /**
+         * {@link ResourceRecordSet#getName() name} of the rrset this change
+         * affects.
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * {@link ResourceRecordSet#getType() type} of the rrset this change
+         * affects.
+         */
+        public String getType() {
+            return type;
+        }
+
+        /**
+         * the input to the change, absent when the action is
+         * {@link Action#DELETE}.
+         */
+        public Optional<ResourceRecordSet<?>> getRRSet() {
+            return rrset;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hashCode(action, name, type, rrset);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj)
+                return true;
+            if (obj == null || !(obj instanceof Change))
+                return false;
+            Change that = Change.class.cast(obj);
+            return equal(this.action, that.action) && equal(this.name, that.name) && equal(this.type, that.type)
+                    && equal(this.rrset, that.rrset);
+        }
+
+        @Override
+        public String toString() {
+            return toStringHelper(this).omitNullValues()
+                                       .add("action", action)
+                                       .add("name", name)
+                                       .add("type", type)
+                                       .add("rrset", rrset.orNull()).toString();
+        }
+    }
+
+    private final ImmutableList<Change> changes;
+
+    private ResourceRecordSetBatch(ImmutableList<Change> changes) {
+        this.changes = changes;
+    }
+
+    /**
+     * Applies each change in order, using the corresponding method on
+     * {@code api}. This is the fallback for providers that have no native
+     * means to group changes.
+     */
+    public void applySequentially(ResourceRecordSetApi api) {
+        checkNotNull(api, "api");
+        for (Change change : changes) {
+            switch (change.getAction()) {
+            case ADD:
+                api.add(change.getRRSet().get());
+                break;
+            case REPLACE:
+                api.replace(change.getRRSet().get());
+                break;
+            case REMOVE:
+                api.remove(change.getRRSet().get());
+                break;
+            case DELETE:
+                api.deleteByNameAndType(change.getName(), change.getType());
+                break;
+            }
+        }
+    }
+
+    @Override
+    protected List<Change> delegate() {
+        return changes;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public static final class Builder {
+        private final ImmutableList.Builder<Change> changes = ImmutableList.builder();
+        private final Set<List<String>> namesAndTypes = Sets.newHashSet();
+
+        /**
+         * @see ResourceRecordSetApi#add(ResourceRecordSet)
+         */
+        public Builder add(ResourceRecordSet<?> rrset) {
+            return change(Action.ADD, rrset);
+        }
+
+        /**
+         * @see ResourceRecordSetApi#replace(ResourceRecordSet)
+         */
+        public Builder replace(ResourceRecordSet<?> rrset) {
+            return change(Action.REPLACE, rrset);
+        }
+
+        /**
+         * @see ResourceRecordSetApi#remove(ResourceRecordSet)
+         */
+        public Builder remove(ResourceRecordSet<?> rrset) {
+            return change(Action.REMOVE, rrset);
+        }
+
+        /**
+         * @see ResourceRecordSetApi#deleteByNameAndType(String, String)
+         */
+        public Builder deleteByNameAndType(String name, String type) {
+            return addChange(new Change(Action.DELETE, name, type, Optional.<ResourceRecordSet<?>> absent()));
+        }
+
+        private Builder change(Action action, ResourceRecordSet<?> rrset) {
+            checkNotNull(rrset, "rrset was null");
+            checkArgument(!rrset.isEmpty(), "rrset was empty %s", rrset);
+            return addChange(new Change(action, rrset.getName(), rrset.getType(),
+                    Optional.<ResourceRecordSet<?>> of(rrset)));
+        }
+
+        Builder addChange(Change change) {
+            checkArgument(namesAndTypes.add(ImmutableList.of(change.getName(), change.getType())),
+                    "only one change is permitted for rrset %s %s", change.getName(), change.getType());
+            changes.add(change);
+            return this;
+        }
+
+        public ResourceRecordSetBatch build() {
+            return new ResourceRecordSetBatch(changes.build());
+        }
+    }
+}
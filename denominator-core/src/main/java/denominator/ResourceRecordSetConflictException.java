@@ -0,0 +1,77 @@
+package denominator;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.google.common.annotations.Beta;
+import com.google.common.base.Optional;
+
+import denominator.model.ResourceRecordSet;
+
+/**
+ * Thrown by {@link ResourceRecordSetApi#replace(ResourceRecordSet, ResourceRecordSet)}
+ * when the record set in the zone isn't the one the caller expected, usually
+ * as another client changed it since it was read. Callers typically read the
+ * record set again and retry their change against it.
+ */
+@Beta
+public class ResourceRecordSetConflictException extends IllegalStateException {
+
+    private final ResourceRecordSet<?> expected;
+    private final Optional<ResourceRecordSet<?>> current;
+
+    /**
+     * @param expected
+     *            record set the caller expected
+     * @param current
+     *            record set in the zone, if known. Providers which detect the
+     *            conflict server-side may not return it.
+     */
+    public ResourceRecordSetConflictException(ResourceRecordSet<?> expected, Optional<ResourceRecordSet<?>> current) {
+        super(String.format("expected %s, but found %s", expected, current.isPresent() ? current.get()
+                : "no record set"));
+        this.expected = expected;
+        this.current = current;
+    }
+
+    /**
+     * record set the caller expected
+     */
+    public ResourceRecordSet<?> getExpected() {
+        return expected;
+    }
+
+    /**
+     * record set in the zone, or absent if there was none or the provider
+     * doesn't say.
+     */
+    public Optional<ResourceRecordSet<?>> getCurrent() {
+        return current;
+    }
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * checks the arguments of
+     * {@link ResourceRecordSetApi#replace(ResourceRecordSet, ResourceRecordSet)}
+     * refer to the same record set.
+     */
+    public static void checkSameNameAndType(ResourceRecordSet<?> expected, ResourceRecordSet<?> desired) {
+        checkNotNull(expected, "expected was null");
+        checkNotNull(desired, "desired was null");
+        checkArgument(expected.getName().equals(desired.getName()) && expected.getType().equals(desired.getType()),
+                "expected %s and desired %s must have the same name and type", expected, desired);
+    }
+
+    /**
+     * For providers that can't compare on the server, this throws a conflict
+     * unless {@code current} has the rdata and profiles of {@code expected},
+     * and its ttl, if {@code expected} specifies one.
+     */
+    public static void checkCurrent(ResourceRecordSet<?> expected, Optional<ResourceRecordSet<?>> current) {
+        if (!current.isPresent() || !current.get().equals(expected))
+            throw new ResourceRecordSetConflictException(expected, current);
+        if (expected.getTTL().isPresent() && !expected.getTTL().equals(current.get().getTTL()))
+            throw new ResourceRecordSetConflictException(expected, current);
+    }
+}
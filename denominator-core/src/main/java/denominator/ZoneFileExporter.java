@@ -0,0 +1,262 @@
+package denominator;
+
+import static com.google.common.base.Charsets.UTF_8;
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.google.common.annotations.Beta;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+
+import denominator.model.ResourceRecordSet;
+
+/**
+ * Writes record sets to a channel or writer in the master file format described in
+ * section 5 of <a href="http://www.rfc-editor.org/rfc/rfc1035.txt">RFC
+ * 1035</a>. Record sets are written as they are read from the iterator, one
+ * line per rdata, through a fixed size buffer. This means a zone of any size
+ * can be exported without holding it in memory.
+ *
+ * <p/>
+ * Names are written fully qualified, ending in a dot, even when the provider
+ * names record sets without one, as DynECT and CloudDNS do. Otherwise, readers
+ * would treat them as relative to the origin. Profiles such as
+ * {@link denominator.model.profile.Geo geo} have no master file syntax, so
+ * they are written as a comment at the end of each line.
+ *
+ * <h4>Example</h4>
+ *
+ * <pre>
+ * FileChannel out = new FileOutputStream(&quot;denominator.io.zone&quot;).getChannel();
+ * try {
+ *     ZoneFileExporter.export(&quot;denominator.io.&quot;, api.list(), out);
+ * } finally {
+ *     out.close();
+ * }
+ * </pre>
+ */
+@Beta
+public final class ZoneFileExporter {
+    static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * field names in presentation order, for types whose rdata isn't a single
+     * value.
+     */
+    private static final Map<String, List<String>> FIELDS = ImmutableMap.<String, List<String>> builder()
+            .put("MX", ImmutableList.of("preference", "exchange"))
+            .put("SOA", ImmutableList.of("mname", "rname", "serial", "refresh", "retry", "expire", "minimum"))
+            .put("SRV", ImmutableList.of("priority", "weight", "port", "target"))
+            .put("SSHFP", ImmutableList.of("algorithm", "fptype", "fingerprint")).build();
+
+    /**
+     * rdata fields whose values are domain names.
+     */
+    private static final Set<String> NAME_FIELDS = ImmutableSet.of("cname", "nsdname", "ptrdname", "exchange",
+            "target", "mname", "rname");
+
+    /**
+     * character-strings longer than this many octets must be split.
+     */
+    private static final int MAX_CHARACTER_STRING = 255;
+
+    // either out or writer is present
+    private final WritableByteChannel out;
+    private final CharsetEncoder encoder;
+    private final ByteBuffer buffer;
+    private final Writer writer;
+    private final StringBuilder line = new StringBuilder(256);
+
+    private ZoneFileExporter(WritableByteChannel out, int bufferSize) {
+        this.out = out;
+        this.encoder = UTF_8.newEncoder();
+        this.buffer = ByteBuffer.allocate(bufferSize);
+        this.writer = null;
+    }
+
+    private ZoneFileExporter(Writer writer) {
+        this.out = null;
+        this.encoder = null;
+        this.buffer = null;
+        this.writer = writer;
+    }
+
+    /**
+     * writes an {@code $ORIGIN} directive, followed by each record set in
+     * {@code rrsets}. The channel is not closed.
+     *
+     * @param zoneName
+     *            name of the zone, written as the {@code $ORIGIN}. ex.
+     *            {@code denominator.io.}
+     * @param rrsets
+     *            record sets to write, ex. from
+     *            {@link ResourceRecordSetApi#list()} or
+     *            {@link AllProfileResourceRecordSetApi#list()}.
+     * @param out
+     *            where to write the zone.
+     * @return count of resource records written, which is one per rdata.
+     * @throws IOException
+     *             if the channel could not be written to.
+     */
+    public static long export(String zoneName, Iterator<? extends ResourceRecordSet<?>> rrsets,
+            WritableByteChannel out) throws IOException {
+        return export(zoneName, rrsets, out, DEFAULT_BUFFER_SIZE);
+    }
+
+    static long export(String zoneName, Iterator<? extends ResourceRecordSet<?>> rrsets, WritableByteChannel out,
+            int bufferSize) throws IOException {
+        checkNotNull(zoneName, "zoneName");
+        checkNotNull(rrsets, "rrsets");
+        checkNotNull(out, "out");
+        checkArgument(bufferSize >= 16, "bufferSize must be at least 16, but was %s", bufferSize);
+
+        return new ZoneFileExporter(out, bufferSize).export(zoneName, rrsets);
+    }
+
+    /**
+     * Like {@link #export(String, Iterator, WritableByteChannel)}, except
+     * lines are written to {@code out}, which is neither flushed nor closed.
+     * Use this when the zone is part of other text output.
+     */
+    public static long export(String zoneName, Iterator<? extends ResourceRecordSet<?>> rrsets, Writer out)
+            throws IOException {
+        checkNotNull(zoneName, "zoneName");
+        checkNotNull(rrsets, "rrsets");
+        checkNotNull(out, "out");
+        return new ZoneFileExporter(out).export(zoneName, rrsets);
+    }
+
+    private long export(String zoneName, Iterator<? extends ResourceRecordSet<?>> rrsets) throws IOException {
+        line.append("$ORIGIN ").append(absolute(zoneName));
+        writeLine();
+        long count = 0;
+        while (rrsets.hasNext()) {
+            count += write(rrsets.next());
+        }
+        flush();
+        return count;
+    }
+
+    private int write(ResourceRecordSet<?> rrset) throws IOException {
+        for (Map<String, Object> rdata : rrset) {
+            line.append(absolute(rrset.getName())).append('\t');
+            if (rrset.getTTL().isPresent())
+                line.append(rrset.getTTL().get()).append('\t');
+            line.append("IN\t").append(rrset.getType()).append('\t');
+            appendRData(rrset.getType(), rdata);
+            for (Map<String, Object> profile : rrset.getProfiles()) {
+                line.append(" ; ").append(profile);
+            }
+            writeLine();
+        }
+        return rrset.size();
+    }
+
+    private void appendRData(String type, Map<String, Object> rdata) {
+        if ("TXT".equals(type) || "SPF".equals(type)) {
+            appendCharacterStrings(String.valueOf(rdata.get("txtdata")));
+            return;
+        }
+        List<String> fields = FIELDS.get(type);
+        Iterable<String> keys = fields != null && rdata.keySet().containsAll(fields) ? fields : rdata.keySet();
+        boolean first = true;
+        for (String key : keys) {
+            if (!first)
+                line.append(' ');
+            Object value = rdata.get(key);
+            if (value instanceof InetAddress) {
+                line.append(InetAddress.class.cast(value).getHostAddress());
+            } else if (NAME_FIELDS.contains(key)) {
+                line.append(absolute(String.valueOf(value)));
+            } else {
+                line.append(value);
+            }
+            first = false;
+        }
+    }
+
+    private static String absolute(String name) {
+        return name.endsWith(".") ? name : name + ".";
+    }
+
+    /**
+     * splits on the UTF-8 encoded length, as the limit is in octets, without
+     * splitting a character.
+     */
+    private void appendCharacterStrings(String txtdata) {
+        int i = 0;
+        do {
+            if (i > 0)
+                line.append(' ');
+            line.append('"');
+            int octets = 0;
+            while (i < txtdata.length()) {
+                int codePoint = txtdata.codePointAt(i);
+                octets += utf8Length(codePoint);
+                if (octets > MAX_CHARACTER_STRING)
+                    break;
+                if (codePoint == '"' || codePoint == '\\')
+                    line.append('\\');
+                line.appendCodePoint(codePoint);
+                i += Character.charCount(codePoint);
+            }
+            line.append('"');
+        } while (i < txtdata.length());
+    }
+
+    private static int utf8Length(int codePoint) {
+        if (codePoint < 0x80)
+            return 1;
+        if (codePoint < 0x800)
+            return 2;
+        if (codePoint < 0x10000)
+            return 3;
+        return 4;
+    }
+
+    private void writeLine() throws IOException {
+        line.append('\n');
+        if (writer != null) {
+            writer.append(line);
+            line.setLength(0);
+            return;
+        }
+        CharBuffer chars = CharBuffer.wrap(line);
+        while (true) {
+            CoderResult result = encoder.encode(chars, buffer, true);
+            if (result.isUnderflow())
+                break;
+            if (result.isOverflow()) {
+                flush();
+            } else {
+                result.throwException();
+            }
+        }
+        encoder.reset();
+        line.setLength(0);
+    }
+
+    private void flush() throws IOException {
+        if (writer != null)
+            return;
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            out.write(buffer);
+        }
+        buffer.clear();
+    }
+}
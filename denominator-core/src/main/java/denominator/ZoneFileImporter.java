@@ -0,0 +1,664 @@
+package denominator;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.util.concurrent.MoreExecutors.sameThreadExecutor;
+import static denominator.model.ResourceRecordSets.a;
+import static denominator.model.ResourceRecordSets.aaaa;
+import static denominator.model.ResourceRecordSets.cname;
+import static denominator.model.ResourceRecordSets.ns;
+import static denominator.model.ResourceRecordSets.ptr;
+import static denominator.model.ResourceRecordSets.spf;
+import static denominator.model.ResourceRecordSets.txt;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Semaphore;
+
+import com.google.common.annotations.Beta;
+import com.google.common.base.Joiner;
+import com.google.common.base.Throwables;
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+
+import denominator.model.ResourceRecordSet;
+import denominator.model.rdata.MXData;
+import denominator.model.rdata.SOAData;
+import denominator.model.rdata.SRVData;
+import denominator.model.rdata.SSHFPData;
+
+/**
+ * Reads zones in the master file format described in section 5 of <a
+ * href="http://www.rfc-editor.org/rfc/rfc1035.txt">RFC 1035</a>, and
+ * {@link ResourceRecordSetApi#replace(ResourceRecordSet) replaces} the record
+ * sets they contain. The file is parsed as it is applied, so only the record
+ * sets in flight are held in memory, along with the name and type of each
+ * record set read, which are kept to check that record sets are contiguous.
+ * That costs roughly 100 to 200 bytes per record set, depending on name length.
+ *
+ * <p/>
+ * Record sets are applied in {@link ResourceRecordSetBatch batches}, several
+ * of which may be in flight at a time. As replacing a record set is
+ * idempotent, an import that fails part way can be resumed by
+ * {@link Builder#skip(long) skipping} the record sets last reported to
+ * {@link Progress}.
+ *
+ * <h4>Example</h4>
+ *
+ * <pre>
+ * ZoneFileImporter importer = ZoneFileImporter.builder().writers(4).executor(executor).build();
+ * Reader zoneFile = Files.newReader(new File(&quot;denominator.io.zone&quot;), UTF_8);
+ * try {
+ *     importer.apply(api, ZoneFileImporter.parse(&quot;denominator.io.&quot;, zoneFile));
+ * } finally {
+ *     zoneFile.close();
+ * }
+ * </pre>
+ */
+@Beta
+public final class ZoneFileImporter {
+
+    /**
+     * notified as record sets are applied.
+     */
+    public static interface Progress {
+        /**
+         * @param rrsets
+         *            count of record sets from the start of the file, including
+         *            those skipped, which have all been applied. Record sets
+         *            after this point may have also been applied.
+         */
+        void applied(long rrsets);
+    }
+
+    /**
+     * parses {@code zoneFile} lazily, grouping its resource records into
+     * record sets. Records of the same name and type must be contiguous, as
+     * they are in files written by {@link ZoneFileExporter} or name servers.
+     * To check this, the iterator holds the name and type of each record set
+     * it returned, so its memory grows with the count of record sets.
+     *
+     * <p/>
+     * Names are qualified against {@code $ORIGIN}, or {@code origin} until a
+     * {@code $ORIGIN} directive is read. Owner and rdata names follow the
+     * convention of {@code origin}: they end in a dot only if it does, as
+     * providers such as DynECT and CloudDNS name record sets without one. Records without a ttl take the one
+     * from {@code $TTL}, if present. Comments, including the profiles written
+     * by {@link ZoneFileExporter}, are ignored.
+     *
+     * @param origin
+     *            name of the zone, as the target provider names it. ex.
+     *            {@code denominator.io.} or {@code denominator.io}
+     * @param zoneFile
+     *            read until the end, but not closed.
+     * @throws IllegalArgumentException
+     *             from the iterator, if a line could not be parsed or a record
+     *             set isn't contiguous.
+     */
+    public static Iterator<ResourceRecordSet<?>> parse(String origin, Reader zoneFile) {
+        checkNotNull(origin, "origin");
+        checkNotNull(zoneFile, "zoneFile");
+        return new ZoneFileIterator(origin, zoneFile);
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public static final class Builder {
+        private int batchSize = 100;
+        private int writers = 1;
+        private ListeningExecutorService executor = sameThreadExecutor();
+        private long skip = 0;
+        private Progress progress = new Progress() {
+            public void applied(long rrsets) {
+            }
+        };
+
+        /**
+         * count of record sets per {@link ResourceRecordSetBatch}. Defaults to
+         * {@code 100}, which is the most Route53 accepts in one change batch.
+         */
+        public Builder batchSize(int batchSize) {
+            checkArgument(batchSize > 0, "batchSize must be positive, but was %s", batchSize);
+            this.batchSize = batchSize;
+            return this;
+        }
+
+        /**
+         * count of batches which may be applied concurrently. Defaults to
+         * {@code 1}.
+         */
+        public Builder writers(int writers) {
+            checkArgument(writers > 0, "writers must be positive, but was %s", writers);
+            this.writers = writers;
+            return this;
+        }
+
+        /**
+         * where batches are applied. Defaults to the calling thread, which
+         * means only one batch is applied at a time.
+         */
+        public Builder executor(ListeningExecutorService executor) {
+            this.executor = checkNotNull(executor, "executor");
+            return this;
+        }
+
+        /**
+         * count of record sets at the start of the file to skip, ex. the last
+         * value passed to {@link Progress#applied(long)} by an import that
+         * failed.
+         */
+        public Builder skip(long skip) {
+            checkArgument(skip >= 0, "skip must not be negative, but was %s", skip);
+            this.skip = skip;
+            return this;
+        }
+
+        public Builder progress(Progress progress) {
+            this.progress = checkNotNull(progress, "progress");
+            return this;
+        }
+
+        public ZoneFileImporter build() {
+            return new ZoneFileImporter(this);
+        }
+    }
+
+    private final int batchSize;
+    private final int writers;
+    private final ListeningExecutorService executor;
+    private final long skip;
+    private final Progress progress;
+
+    private ZoneFileImporter(Builder builder) {
+        this.batchSize = builder.batchSize;
+        this.writers = builder.writers;
+        this.executor = builder.executor;
+        this.skip = builder.skip;
+        this.progress = builder.progress;
+    }
+
+    /**
+     * replaces each record set in {@code rrsets}, after those skipped.
+     *
+     * @return count of record sets applied, not including those skipped.
+     * @throws RuntimeException
+     *             the first failure applying a batch. Batches in flight
+     *             complete, but no more are started.
+     */
+    public long apply(final ResourceRecordSetApi api, Iterator<? extends ResourceRecordSet<?>> rrsets) {
+        checkNotNull(api, "api");
+        checkNotNull(rrsets, "rrsets");
+        for (long i = 0; i < skip && rrsets.hasNext(); i++) {
+            rrsets.next();
+        }
+
+        Watermark watermark = new Watermark();
+        Semaphore inFlight = new Semaphore(writers);
+        long submitted = 0;
+        try {
+            while (rrsets.hasNext() && watermark.failure == null) {
+                ResourceRecordSetBatch.Builder builder = ResourceRecordSetBatch.builder();
+                int size = 0;
+                for (; size < batchSize && rrsets.hasNext(); size++) {
+                    builder.replace(rrsets.next());
+                }
+                final ResourceRecordSetBatch batch = builder.build();
+                inFlight.acquire();
+                ListenableFuture<Void> future;
+                try {
+                    future = executor.submit(new Callable<Void>() {
+                        public Void call() {
+                            api.apply(batch);
+                            return null;
+                        }
+                    });
+                } catch (RuntimeException e) {
+                    inFlight.release();
+                    throw e;
+                }
+                Futures.addCallback(future, watermark.callback(submitted, size, inFlight));
+                submitted += size;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw Throwables.propagate(e);
+        } finally {
+            // wait for batches in flight, so that progress is current
+            inFlight.acquireUninterruptibly(writers);
+        }
+        if (watermark.failure != null)
+            throw Throwables.propagate(watermark.failure);
+        return submitted;
+    }
+
+    /**
+     * batches complete in any order, so progress only advances past those
+     * which have completed with all before them.
+     */
+    private final class Watermark {
+        private final SortedMap<Long, Integer> completed = Maps.newTreeMap();
+        private long applied = 0;
+        private volatile Throwable failure;
+
+        FutureCallback<Void> callback(final long offset, final int size, final Semaphore inFlight) {
+            return new FutureCallback<Void>() {
+                public void onSuccess(Void result) {
+                    try {
+                        completed(offset, size);
+                    } finally {
+                        inFlight.release();
+                    }
+                }
+
+                public void onFailure(Throwable t) {
+                    synchronized (Watermark.this) {
+                        if (failure == null)
+                            failure = t;
+                    }
+                    inFlight.release();
+                }
+            };
+        }
+
+        private synchronized void completed(long offset, int size) {
+            completed.put(offset, size);
+            boolean advanced = false;
+            while (!completed.isEmpty() && completed.firstKey() == applied) {
+                applied += completed.remove(applied);
+                advanced = true;
+            }
+            if (advanced)
+                progress.applied(skip + applied);
+        }
+    }
+
+    private static final class ZoneFileIterator extends AbstractIterator<ResourceRecordSet<?>> {
+        private final BufferedReader reader;
+        // owner and type of each rrset returned, as a repeat would silently
+        // replace the first
+        private final Set<String> seen = Sets.newHashSet();
+        // absolute, regardless of the convention of names returned
+        private String origin;
+        private final boolean trailingDot;
+        private Integer defaultTTL;
+        private String lastOwner;
+        private int lineNumber;
+
+        // the record set being grouped
+        private String name;
+        private String type;
+        private Integer ttl;
+        private int firstLine;
+        private List<List<String>> rdata = Lists.newArrayList();
+
+        private ZoneFileIterator(String origin, Reader zoneFile) {
+            this.origin = absolute(origin);
+            this.trailingDot = origin.endsWith(".");
+            this.reader = zoneFile instanceof BufferedReader ? (BufferedReader) zoneFile : new BufferedReader(
+                    zoneFile);
+        }
+
+        @Override
+        protected ResourceRecordSet<?> computeNext() {
+            try {
+                List<String> tokens;
+                while ((tokens = nextRecord()) != null) {
+                    ResourceRecordSet<?> complete = add(tokens);
+                    if (complete != null)
+                        return complete;
+                }
+            } catch (IOException e) {
+                throw Throwables.propagate(e);
+            }
+            return name != null ? flush() : endOfData();
+        }
+
+        /**
+         * @return the previous record set, if this record starts a new one.
+         */
+        private ResourceRecordSet<?> add(List<String> tokens) {
+            int i = 0;
+            String owner;
+            if (tokens.get(0).isEmpty()) {
+                checkLine(lastOwner != null, "no previous owner name");
+                owner = lastOwner;
+                i++;
+            } else if (tokens.get(0).startsWith("$")) {
+                directive(tokens);
+                return null;
+            } else {
+                owner = named(qualify(tokens.get(i++)));
+            }
+            lastOwner = owner;
+
+            Integer recordTTL = null;
+            for (int fields = 0; fields < 2 && i < tokens.size(); fields++) {
+                String token = tokens.get(i);
+                if (Character.isDigit(token.charAt(0))) {
+                    recordTTL = parseTTL(token);
+                    i++;
+                } else if (token.equalsIgnoreCase("IN")) {
+                    i++;
+                } else if (token.equalsIgnoreCase("CH") || token.equalsIgnoreCase("HS")
+                        || token.equalsIgnoreCase("CS")) {
+                    throw new IllegalArgumentException(format("unsupported class %s", token));
+                } else {
+                    break;
+                }
+            }
+            checkLine(i < tokens.size(), "missing type");
+            String recordType = tokens.get(i++).toUpperCase();
+            checkLine(i < tokens.size(), "missing rdata");
+            if (recordTTL == null)
+                recordTTL = defaultTTL;
+
+            ResourceRecordSet<?> complete = null;
+            if (!owner.equals(name) || !recordType.equals(type)) {
+                if (name != null)
+                    complete = flush();
+                checkLine(seen.add(owner + ' ' + recordType), "rrset %s %s is not contiguous", owner, recordType);
+                name = owner;
+                type = recordType;
+                ttl = recordTTL;
+                firstLine = lineNumber;
+            } else if (ttl == null ? recordTTL != null : !ttl.equals(recordTTL)) {
+                throw new IllegalArgumentException(format("ttl %s differs from ttl %s of rrset %s %s", recordTTL,
+                        ttl, name, type));
+            }
+            rdata.add(qualifyNames(recordType, tokens.subList(i, tokens.size())));
+            return complete;
+        }
+
+        private void directive(List<String> tokens) {
+            String directive = tokens.get(0).toUpperCase();
+            checkLine(tokens.size() > 1, "%s requires an argument", directive);
+            if ("$ORIGIN".equals(directive)) {
+                origin = qualify(tokens.get(1));
+            } else if ("$TTL".equals(directive)) {
+                defaultTTL = parseTTL(tokens.get(1));
+            } else {
+                throw new IllegalArgumentException(format("unsupported directive %s", directive));
+            }
+        }
+
+        private ResourceRecordSet<?> flush() {
+            try {
+                return toRRSet();
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException(String.format("invalid rrset %s %s on line %s: %s", name, type,
+                        firstLine, e.getMessage()), e);
+            } finally {
+                name = null;
+                type = null;
+                ttl = null;
+                rdata = Lists.newArrayList();
+            }
+        }
+
+        private ResourceRecordSet<?> toRRSet() {
+            if ("A".equals(type)) {
+                return ttl != null ? a(name, ttl, single()) : a(name, single());
+            } else if ("AAAA".equals(type)) {
+                return ttl != null ? aaaa(name, ttl, single()) : aaaa(name, single());
+            } else if ("CNAME".equals(type)) {
+                return ttl != null ? cname(name, ttl, single()) : cname(name, single());
+            } else if ("NS".equals(type)) {
+                return ttl != null ? ns(name, ttl, single()) : ns(name, single());
+            } else if ("PTR".equals(type)) {
+                return ttl != null ? ptr(name, ttl, single()) : ptr(name, single());
+            } else if ("SPF".equals(type)) {
+                return ttl != null ? spf(name, ttl, characterStrings()) : spf(name, characterStrings());
+            } else if ("TXT".equals(type)) {
+                return ttl != null ? txt(name, ttl, characterStrings()) : txt(name, characterStrings());
+            }
+            ResourceRecordSet.Builder<Map<String, Object>> builder = ResourceRecordSet.builder();
+            builder.name(name).type(type).ttl(ttl);
+            for (List<String> fields : rdata) {
+                builder.add(toMap(fields));
+            }
+            return builder.build();
+        }
+
+        private Map<String, Object> toMap(List<String> fields) {
+            if ("MX".equals(type)) {
+                checkArgument(fields.size() == 2, "expected preference and exchange");
+                return MXData.create(Integer.parseInt(fields.get(0)), fields.get(1));
+            } else if ("SRV".equals(type)) {
+                checkArgument(fields.size() == 4, "expected priority, weight, port and target");
+                return SRVData.builder().priority(Integer.parseInt(fields.get(0)))
+                        .weight(Integer.parseInt(fields.get(1))).port(Integer.parseInt(fields.get(2)))
+                        .target(fields.get(3)).build();
+            } else if ("SOA".equals(type)) {
+                checkArgument(fields.size() == 7, "expected mname, rname, serial, refresh, retry, expire and minimum");
+                return SOAData.builder().mname(fields.get(0)).rname(fields.get(1))
+                        .serial((int) Long.parseLong(fields.get(2))).refresh(parseTTL(fields.get(3)))
+                        .retry(parseTTL(fields.get(4))).expire(parseTTL(fields.get(5)))
+                        .minimum(parseTTL(fields.get(6))).build();
+            } else if ("SSHFP".equals(type)) {
+                checkArgument(fields.size() >= 3, "expected algorithm, fptype and fingerprint");
+                return SSHFPData.builder().algorithm(Integer.parseInt(fields.get(0)))
+                        .fptype(Integer.parseInt(fields.get(1)))
+                        .fingerprint(Joiner.on("").join(fields.subList(2, fields.size()))).build();
+            }
+            throw new IllegalArgumentException("unsupported type: " + type);
+        }
+
+        private List<String> single() {
+            ImmutableList.Builder<String> values = ImmutableList.builder();
+            for (List<String> fields : rdata) {
+                checkArgument(fields.size() == 1, "expected one value, but was %s", fields);
+                values.add(unquote(fields.get(0)));
+            }
+            return values.build();
+        }
+
+        /**
+         * names in rdata are qualified as they are read, as {@code $ORIGIN}
+         * may change before the record set is complete.
+         */
+        private List<String> qualifyNames(String type, List<String> fields) {
+            int[] names = NAME_FIELDS.get(type);
+            if (names == null)
+                return fields;
+            List<String> qualified = Lists.newArrayList(fields);
+            for (int i : names) {
+                if (i < qualified.size())
+                    qualified.set(i, named(qualify(qualified.get(i))));
+            }
+            return qualified;
+        }
+
+        /**
+         * long text is split into several character-strings, so join them.
+         */
+        private List<String> characterStrings() {
+            ImmutableList.Builder<String> values = ImmutableList.builder();
+            for (List<String> fields : rdata) {
+                StringBuilder value = new StringBuilder();
+                for (String field : fields) {
+                    value.append(unquote(field));
+                }
+                values.add(value.toString());
+            }
+            return values.build();
+        }
+
+        /**
+         * @return {@code absolute}, without its trailing dot if the zone is
+         *         named without one.
+         */
+        private String named(String absolute) {
+            if (trailingDot || ".".equals(absolute))
+                return absolute;
+            return absolute.substring(0, absolute.length() - 1);
+        }
+
+        private String qualify(String name) {
+            name = unquote(name);
+            if ("@".equals(name))
+                return origin;
+            if (name.endsWith("."))
+                return name;
+            return ".".equals(origin) ? name + "." : name + "." + origin;
+        }
+
+        /**
+         * reads a record, joining lines in parentheses.
+         *
+         * @return tokens, the first of which is empty when the owner is
+         *         omitted, or null at the end of the file.
+         */
+        private List<String> nextRecord() throws IOException {
+            List<String> tokens = Lists.newArrayList();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                int depth = tokenize(line, tokens, 0);
+                while (depth > 0) {
+                    String next = reader.readLine();
+                    checkLine(next != null, "unbalanced parentheses");
+                    lineNumber++;
+                    depth = tokenize(next, tokens, depth);
+                }
+                if (tokens.isEmpty())
+                    continue;
+                if (Character.isWhitespace(line.charAt(0)))
+                    tokens.add(0, "");
+                return tokens;
+            }
+            return null;
+        }
+
+        /**
+         * quoted tokens keep their opening quote, so that they can be told
+         * apart from names.
+         *
+         * @return depth of parentheses at the end of the line.
+         */
+        private int tokenize(String line, List<String> tokens, int depth) {
+            StringBuilder token = null;
+            boolean quoted = false;
+            for (int i = 0; i < line.length(); i++) {
+                char c = line.charAt(i);
+                if (quoted) {
+                    if (c == '\\' && i + 1 < line.length()) {
+                        token.append(line.charAt(++i));
+                    } else if (c == '"') {
+                        tokens.add(token.toString());
+                        token = null;
+                        quoted = false;
+                    } else {
+                        token.append(c);
+                    }
+                } else if (c == ';') {
+                    break;
+                } else if (c == '"' || c == '(' || c == ')' || Character.isWhitespace(c)) {
+                    if (token != null)
+                        tokens.add(token.toString());
+                    token = null;
+                    if (c == '"') {
+                        token = new StringBuilder().append('"');
+                        quoted = true;
+                    } else if (c == '(') {
+                        depth++;
+                    } else if (c == ')') {
+                        checkLine(depth > 0, "unbalanced parentheses");
+                        depth--;
+                    }
+                } else {
+                    if (token == null)
+                        token = new StringBuilder();
+                    token.append(c);
+                }
+            }
+            checkLine(!quoted, "unterminated quote");
+            if (token != null)
+                tokens.add(token.toString());
+            return depth;
+        }
+
+        private void checkLine(boolean expression, String message, Object... args) {
+            if (!expression)
+                throw new IllegalArgumentException(format(message, args));
+        }
+
+        private String format(String message, Object... args) {
+            return String.format(message, args) + " on line " + lineNumber;
+        }
+    }
+
+    /**
+     * positions of fields which are domain names, by type.
+     */
+    private static final Map<String, int[]> NAME_FIELDS = ImmutableMap.<String, int[]> builder()
+            .put("CNAME", new int[] { 0 })
+            .put("NS", new int[] { 0 })
+            .put("PTR", new int[] { 0 })
+            .put("MX", new int[] { 1 })
+            .put("SRV", new int[] { 3 })
+            .put("SOA", new int[] { 0, 1 }).build();
+
+    private static String unquote(String token) {
+        return token.startsWith("\"") ? token.substring(1) : token;
+    }
+
+    private static String absolute(String name) {
+        return name.endsWith(".") ? name : name + ".";
+    }
+
+    /**
+     * parses seconds, or a duration such as {@code 1h30m}.
+     */
+    static int parseTTL(String ttl) {
+        long seconds = 0;
+        long value = -1;
+        for (int i = 0; i < ttl.length(); i++) {
+            char c = Character.toLowerCase(ttl.charAt(i));
+            if (Character.isDigit(c)) {
+                value = (value == -1 ? 0 : value * 10) + (c - '0');
+            } else {
+                checkArgument(value != -1, "invalid ttl %s", ttl);
+                seconds += value * unitSeconds(c, ttl);
+                value = -1;
+            }
+        }
+        if (value != -1)
+            seconds += value;
+        checkArgument(seconds <= Integer.MAX_VALUE, "invalid ttl %s", ttl);
+        return (int) seconds;
+    }
+
+    private static int unitSeconds(char unit, String ttl) {
+        switch (unit) {
+        case 's':
+            return 1;
+        case 'm':
+            return 60;
+        case 'h':
+            return 60 * 60;
+        case 'd':
+            return 24 * 60 * 60;
+        case 'w':
+            return 7 * 24 * 60 * 60;
+        default:
+            throw new IllegalArgumentException(String.format("invalid ttl %s", ttl));
+        }
+    }
+}
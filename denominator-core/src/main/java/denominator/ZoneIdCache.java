@@ -0,0 +1,125 @@
+package denominator;
+
+import static com.google.common.base.Objects.toStringHelper;
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static java.util.concurrent.TimeUnit.MINUTES;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.common.annotations.Beta;
+import com.google.common.base.Optional;
+import com.google.common.base.Supplier;
+import com.google.common.base.Ticker;
+import com.google.common.collect.ImmutableMap;
+
+/**
+ * Caches the mapping of zone names to ids, for providers who address zones by
+ * id, such as Route53 and CloudDNS. Resolving an id otherwise requires paging
+ * through every zone in the account.
+ *
+ * The whole mapping is reloaded in one listing when it is older than the ttl,
+ * or when a zone name is missing, as the zone may have been created since.
+ * Providers {@link #invalidate() invalidate} it when a cached id's zone no
+ * longer exists, as Route53 does when a request fails with
+ * {@code NoSuchHostedZone}.
+ *
+ * <h4>Example</h4>
+ *
+ * <pre>
+ * ZoneIdCache zoneIds = ObjectGraph.create(provider(new Route53Provider()),
+ *                                          new Route53Provider.Module(),
+ *                                          credentials(accesskey, secretkey)).get(ZoneIdCache.class);
+ * </pre>
+ */
+@Beta
+public final class ZoneIdCache {
+    /**
+     * how long a listing of zones is used before it is reloaded.
+     */
+    public static final long DEFAULT_TTL_MINUTES = 5;
+
+    private final Supplier<Map<String, String>> zoneNameToId;
+    private final long ttlNanos;
+    private final Ticker ticker;
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    // null until loaded, or after invalidate
+    private volatile Map<String, String> cache;
+    private volatile long expiresAtNanos;
+
+    /**
+     * @param zoneNameToId
+     *            lists all zones in the account, keyed on name.
+     */
+    public ZoneIdCache(Supplier<Map<String, String>> zoneNameToId) {
+        this(zoneNameToId, DEFAULT_TTL_MINUTES, MINUTES);
+    }
+
+    public ZoneIdCache(Supplier<Map<String, String>> zoneNameToId, long ttl, TimeUnit unit) {
+        this(zoneNameToId, ttl, unit, Ticker.systemTicker());
+    }
+
+    ZoneIdCache(Supplier<Map<String, String>> zoneNameToId, long ttl, TimeUnit unit, Ticker ticker) {
+        this.zoneNameToId = checkNotNull(zoneNameToId, "zoneNameToId");
+        checkArgument(ttl >= 0, "ttl must not be negative, but was %s", ttl);
+        this.ttlNanos = checkNotNull(unit, "unit").toNanos(ttl);
+        this.ticker = checkNotNull(ticker, "ticker");
+    }
+
+    /**
+     * returns the id of the zone named {@code zoneName}, or absent if the
+     * zone doesn't exist in a fresh listing.
+     */
+    public Optional<String> getId(String zoneName) {
+        checkNotNull(zoneName, "zoneName");
+        Map<String, String> current = cache;
+        if (current != null && ticker.read() - expiresAtNanos < 0) {
+            String id = current.get(zoneName);
+            if (id != null) {
+                hitCount.incrementAndGet();
+                return Optional.of(id);
+            }
+        }
+        missCount.incrementAndGet();
+        return Optional.fromNullable(reload(current).get(zoneName));
+    }
+
+    private synchronized Map<String, String> reload(Map<String, String> stale) {
+        // another thread reloaded while we were waiting
+        if (cache != null && cache != stale)
+            return cache;
+        Map<String, String> fresh = ImmutableMap.copyOf(zoneNameToId.get());
+        expiresAtNanos = ticker.read() + ttlNanos;
+        cache = fresh;
+        return fresh;
+    }
+
+    /**
+     * discards the cached listing, for example when a zone was deleted.
+     */
+    public void invalidate() {
+        cache = null;
+    }
+
+    /**
+     * count of lookups answered without listing zones.
+     */
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    /**
+     * count of lookups that listed zones.
+     */
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    @Override
+    public String toString() {
+        return toStringHelper(this).add("hitCount", hitCount).add("missCount", missCount).toString();
+    }
+}
@@ -0,0 +1,196 @@
+package denominator;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+
+import com.google.common.annotations.Beta;
+import com.google.common.base.Predicate;
+import com.google.common.base.Throwables;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+
+import denominator.ResourceRecordSetBatch.Change;
+import denominator.model.ResourceRecordSet;
+
+/**
+ * Brings a zone to a desired state with the fewest changes. Record sets are
+ * keyed on {@link ResourceRecordSet#getName() name} and
+ * {@link ResourceRecordSet#getType() type}, and compared on their ttl and
+ * rdata, irrespective of rdata order. The actual state is streamed from
+ * {@link ResourceRecordSetApi#list()}, so only the desired state, and the
+ * name and type of each record set to delete, are held in memory.
+ *
+ * <p/>
+ * A name and type may be listed as several record sets, such as Route53
+ * weighted sets. A desired record set is replaced if any of them differ, and
+ * a name and type not desired is deleted once.
+ *
+ * <h4>Example</h4>
+ *
+ * <pre>
+ * ResourceRecordSetBatch applied = ZoneReconciler.reconcile(api, desired, ownedByUs, executor, 10);
+ * </pre>
+ */
+@Beta
+public final class ZoneReconciler {
+
+    private ZoneReconciler() {
+    }
+
+    /**
+     * computes the changes needed to turn {@code actual} into
+     * {@code desired}.
+     *
+     * @param desired
+     *            record sets which should exist, at most one per name and
+     *            type. If a desired record set has no ttl, the ttl of the
+     *            actual one is not compared.
+     * @param actual
+     *            record sets which exist, ex. from
+     *            {@link ResourceRecordSetApi#list()}.
+     * @param deletable
+     *            actual record sets which may be deleted when not desired. ex.
+     *            {@code Predicates.alwaysFalse()} to only add and replace.
+     * @return a {@link ResourceRecordSetBatch#replace(ResourceRecordSet)
+     *         replace} for each desired record set that is absent or differs,
+     *         followed by a
+     *         {@link ResourceRecordSetBatch#deleteByNameAndType(String, String)
+     *         delete} for each name and type of deletable record sets that
+     *         isn't desired.
+     */
+    public static ResourceRecordSetBatch diff(Iterable<? extends ResourceRecordSet<?>> desired,
+            Iterator<? extends ResourceRecordSet<?>> actual, Predicate<? super ResourceRecordSet<?>> deletable) {
+        checkNotNull(desired, "desired");
+        checkNotNull(actual, "actual");
+        checkNotNull(deletable, "deletable");
+
+        Map<List<String>, Desired> byNameAndType = Maps.newLinkedHashMap();
+        for (ResourceRecordSet<?> rrset : desired) {
+            List<String> key = ImmutableList.of(rrset.getName(), rrset.getType());
+            checkArgument(byNameAndType.put(key, new Desired(rrset)) == null,
+                    "only one desired rrset is permitted for %s %s", rrset.getName(), rrset.getType());
+        }
+
+        Set<List<String>> deletes = Sets.newLinkedHashSet();
+        while (actual.hasNext()) {
+            ResourceRecordSet<?> rrset = actual.next();
+            List<String> key = ImmutableList.of(rrset.getName(), rrset.getType());
+            Desired match = byNameAndType.get(key);
+            if (match != null) {
+                match.found = true;
+                match.changed |= !match.sameContent(rrset);
+            } else if (deletable.apply(rrset)) {
+                deletes.add(key);
+            }
+        }
+
+        ResourceRecordSetBatch.Builder batch = ResourceRecordSetBatch.builder();
+        for (Desired rrset : byNameAndType.values()) {
+            if (!rrset.found || rrset.changed)
+                batch.replace(rrset.rrset);
+        }
+        for (List<String> delete : deletes) {
+            batch.deleteByNameAndType(delete.get(0), delete.get(1));
+        }
+        return batch.build();
+    }
+
+    /**
+     * lists the zone, {@link #diff(Iterable, Iterator, Predicate) computes}
+     * the changes needed, and applies them. Changes are split into up to
+     * {@code parallelism} batches, which are
+     * {@link ResourceRecordSetApi#apply(ResourceRecordSetBatch) applied}
+     * concurrently on {@code executor}.
+     *
+     * @return the changes applied, empty when the zone was already in the
+     *         desired state.
+     * @throws RuntimeException
+     *             the first failure applying changes, after all batches
+     *             complete.
+     */
+    public static ResourceRecordSetBatch reconcile(final ResourceRecordSetApi api,
+            Iterable<? extends ResourceRecordSet<?>> desired, Predicate<? super ResourceRecordSet<?>> deletable,
+            ListeningExecutorService executor, int parallelism) {
+        checkNotNull(api, "api");
+        checkNotNull(executor, "executor");
+        checkArgument(parallelism > 0, "parallelism must be positive, but was %s", parallelism);
+
+        ResourceRecordSetBatch changes = diff(desired, api.list(), deletable);
+        if (changes.isEmpty())
+            return changes;
+
+        int batchSize = (changes.size() + parallelism - 1) / parallelism;
+        List<ListenableFuture<Void>> applied = Lists.newArrayList();
+        for (List<Change> partition : Lists.partition(changes, batchSize)) {
+            ResourceRecordSetBatch.Builder builder = ResourceRecordSetBatch.builder();
+            for (Change change : partition) {
+                builder.addChange(change);
+            }
+            final ResourceRecordSetBatch batch = builder.build();
+            applied.add(executor.submit(new Callable<Void>() {
+                public Void call() {
+                    api.apply(batch);
+                    return null;
+                }
+            }));
+        }
+        try {
+            Futures.successfulAsList(applied).get();
+            for (ListenableFuture<Void> future : applied) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw Throwables.propagate(e);
+        } catch (ExecutionException e) {
+            throw Throwables.propagate(e.getCause());
+        }
+        return changes;
+    }
+
+    private static final class Desired {
+        private final ResourceRecordSet<?> rrset;
+        private final int rdataHash;
+        private boolean found;
+        private boolean changed;
+
+        private Desired(ResourceRecordSet<?> rrset) {
+            this.rrset = rrset;
+            this.rdataHash = rdataHash(rrset);
+        }
+
+        private boolean sameContent(ResourceRecordSet<?> actual) {
+            if (rrset.getTTL().isPresent() && !rrset.getTTL().equals(actual.getTTL()))
+                return false;
+            if (rdataHash != rdataHash(actual) || rrset.size() != actual.size())
+                return false;
+            return ImmutableSet.copyOf(rrset).equals(ImmutableSet.copyOf(actual))
+                    && rrset.getProfiles().equals(actual.getProfiles());
+        }
+    }
+
+    /**
+     * same as {@link java.util.Set#hashCode()}, so that rdata order doesn't
+     * matter.
+     */
+    private static int rdataHash(ResourceRecordSet<?> rrset) {
+        int hash = 0;
+        for (Map<String, Object> rdata : rrset) {
+            hash += rdata.hashCode();
+        }
+        return hash;
+    }
+}
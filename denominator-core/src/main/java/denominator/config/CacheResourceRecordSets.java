@@ -0,0 +1,254 @@
+package denominator.config;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static dagger.Provides.Type.SET;
+import static java.util.concurrent.TimeUnit.MINUTES;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import javax.inject.Singleton;
+
+import com.google.common.annotations.Beta;
+import com.google.common.base.Optional;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableList;
+
+import dagger.Module;
+import dagger.Provides;
+import denominator.ApiDecorator;
+import denominator.DNSApiManager;
+import denominator.ForwardingResourceRecordSetApi;
+import denominator.ResourceRecordSetApi;
+import denominator.ResourceRecordSetBatch;
+import denominator.model.ResourceRecordSet;
+
+/**
+ * Caches the results of {@link ResourceRecordSetApi#getByNameAndType} and
+ * {@link ResourceRecordSetApi#listByName}, per zone. Writes through the same
+ * {@link DNSApiManager} invalidate the names and types they affect. Changes
+ * made elsewhere, such as in a provider's console, are visible once entries
+ * expire. A read that was in flight during a write isn't cached.
+ *
+ * ex.
+ *
+ * <pre>
+ * route53 = Denominator.create(new Route53Provider(), credentials(accesskey, secretkey),
+ *         new CacheResourceRecordSets(10000, 30, SECONDS));
+ * </pre>
+ */
+@Beta
+@Module(injects = DNSApiManager.class, complete = false, library = true)
+public class CacheResourceRecordSets {
+    private final long maxSize;
+    private final long ttl;
+    private final TimeUnit unit;
+
+    /**
+     * caches up to 10000 entries for one minute.
+     */
+    public CacheResourceRecordSets() {
+        this(10000, 1, MINUTES);
+    }
+
+    /**
+     * @param maxSize
+     *            maximum count of lookups cached, across all zones.
+     * @param ttl
+     *            how long after a lookup its result may be used.
+     */
+    public CacheResourceRecordSets(long maxSize, long ttl, TimeUnit unit) {
+        checkArgument(maxSize >= 0, "maxSize must not be negative, but was %s", maxSize);
+        checkArgument(ttl >= 0, "ttl must not be negative, but was %s", ttl);
+        this.maxSize = maxSize;
+        this.ttl = ttl;
+        this.unit = checkNotNull(unit, "unit");
+    }
+
+    @Provides(type = SET)
+    @Singleton
+    ApiDecorator provideDecorator() {
+        return new CachingDecorator(CacheBuilder.newBuilder()
+                                                .maximumSize(maxSize)
+                                                .expireAfterWrite(ttl, unit)
+                                                .<List<String>, Object> build());
+    }
+
+    @Override
+    public String toString() {
+        return "CacheResourceRecordSets(maxSize=" + maxSize + ", ttl=" + ttl + " " + unit + ")";
+    }
+
+    private static final class CachingDecorator extends ApiDecorator {
+        // keys are zone, name and optionally type; values are Optional or List
+        private final Cache<List<String>, Object> cache;
+        // incremented by writes to names that hash to each index
+        private final AtomicLongArray generations = new AtomicLongArray(64);
+
+        private CachingDecorator(Cache<List<String>, Object> cache) {
+            this.cache = cache;
+        }
+
+        @Override
+        public ResourceRecordSetApi decorate(String zoneName, ResourceRecordSetApi api) {
+            return new CachingResourceRecordSetApi(cache, generations, zoneName, api);
+        }
+
+        @Override
+        public String toString() {
+            return "CachingDecorator(size=" + cache.size() + ")";
+        }
+    }
+
+    private static final class CachingResourceRecordSetApi extends ForwardingResourceRecordSetApi {
+        private final Cache<List<String>, Object> cache;
+        private final AtomicLongArray generations;
+        private final String zoneName;
+        private final ResourceRecordSetApi delegate;
+
+        private CachingResourceRecordSetApi(Cache<List<String>, Object> cache, AtomicLongArray generations,
+                String zoneName, ResourceRecordSetApi delegate) {
+            this.cache = cache;
+            this.generations = generations;
+            this.zoneName = zoneName;
+            this.delegate = delegate;
+        }
+
+        @Override
+        protected ResourceRecordSetApi delegate() {
+            return delegate;
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public Iterator<ResourceRecordSet<?>> listByName(String name) {
+            checkNotNull(name, "name was null");
+            List<String> key = ImmutableList.of(zoneName, name);
+            List<ResourceRecordSet<?>> rrsets = (List<ResourceRecordSet<?>>) cache.getIfPresent(key);
+            if (rrsets == null) {
+                long generation = generations.get(index(name));
+                rrsets = ImmutableList.copyOf(delegate.listByName(name));
+                put(key, rrsets, name, generation);
+            }
+            return rrsets.iterator();
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public Optional<ResourceRecordSet<?>> getByNameAndType(String name, String type) {
+            checkNotNull(name, "name was null");
+            checkNotNull(type, "type was null");
+            List<String> key = ImmutableList.of(zoneName, name, type);
+            Optional<ResourceRecordSet<?>> rrset = (Optional<ResourceRecordSet<?>>) cache.getIfPresent(key);
+            if (rrset == null) {
+                long generation = generations.get(index(name));
+                rrset = delegate.getByNameAndType(name, type);
+                put(key, rrset, name, generation);
+            }
+            return rrset;
+        }
+
+        @Override
+        public void add(ResourceRecordSet<?> rrset) {
+            checkNotNull(rrset, "rrset was null");
+            try {
+                delegate.add(rrset);
+            } finally {
+                invalidate(rrset.getName(), rrset.getType());
+            }
+        }
+
+        @Override
+        public void applyTTLToNameAndType(int ttl, String name, String type) {
+            checkNotNull(name, "name was null");
+            checkNotNull(type, "type was null");
+            try {
+                delegate.applyTTLToNameAndType(ttl, name, type);
+            } finally {
+                invalidate(name, type);
+            }
+        }
+
+        @Override
+        public void replace(ResourceRecordSet<?> rrset) {
+            checkNotNull(rrset, "rrset was null");
+            try {
+                delegate.replace(rrset);
+            } finally {
+                invalidate(rrset.getName(), rrset.getType());
+            }
+        }
+
+        @Override
+        public void replace(ResourceRecordSet<?> expected, ResourceRecordSet<?> desired) {
+            checkNotNull(desired, "desired was null");
+            try {
+                delegate.replace(expected, desired);
+            } finally {
+                invalidate(desired.getName(), desired.getType());
+            }
+        }
+
+        @Override
+        public void remove(ResourceRecordSet<?> rrset) {
+            checkNotNull(rrset, "rrset was null");
+            try {
+                delegate.remove(rrset);
+            } finally {
+                invalidate(rrset.getName(), rrset.getType());
+            }
+        }
+
+        @Override
+        public void deleteByNameAndType(String name, String type) {
+            checkNotNull(name, "name was null");
+            checkNotNull(type, "type was null");
+            try {
+                delegate.deleteByNameAndType(name, type);
+            } finally {
+                invalidate(name, type);
+            }
+        }
+
+        @Override
+        public void apply(ResourceRecordSetBatch batch) {
+            checkNotNull(batch, "batch was null");
+            try {
+                delegate.apply(batch);
+            } finally {
+                for (ResourceRecordSetBatch.Change change : batch) {
+                    invalidate(change.getName(), change.getType());
+                }
+            }
+        }
+
+        /**
+         * caches a value read when the generation of {@code name} was
+         * {@code generation}. If a write completed since, the value may be
+         * stale, and the write's invalidation may have preceded this put, so
+         * it is undone. Checking after the put closes the race where the
+         * write invalidates between the check and the put.
+         */
+        private void put(List<String> key, Object value, String name, long generation) {
+            cache.put(key, value);
+            if (generations.get(index(name)) != generation)
+                cache.invalidate(key);
+        }
+
+        // a failed write may have partially applied, so invalidate regardless
+        private void invalidate(String name, String type) {
+            generations.incrementAndGet(index(name));
+            cache.invalidate(ImmutableList.of(zoneName, name, type));
+            cache.invalidate(ImmutableList.of(zoneName, name));
+        }
+
+        // names that collide only cost each other cached reads during writes
+        private int index(String name) {
+            return (31 * zoneName.hashCode() + name.hashCode()) & (generations.length() - 1);
+        }
+    }
+}
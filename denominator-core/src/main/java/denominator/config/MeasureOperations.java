@@ -0,0 +1,221 @@
+package denominator.config;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static dagger.Provides.Type.SET;
+
+import java.lang.reflect.Method;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import javax.inject.Singleton;
+
+import com.google.common.annotations.Beta;
+import com.google.common.collect.ImmutableMap;
+
+import dagger.Module;
+import dagger.Provides;
+import denominator.ApiDecorator;
+import denominator.DNSApiManager;
+import denominator.Provider;
+import denominator.ResourceRecordSetApi;
+import denominator.ZoneApi;
+import denominator.metrics.Metrics;
+import denominator.metrics.Metrics.Timer;
+import denominator.model.ResourceRecordSet;
+import denominator.profile.GeoResourceRecordSetApi;
+
+/**
+ * Times every call to the {@link ZoneApi zone}, {@link ResourceRecordSetApi
+ * record set} and {@link GeoResourceRecordSetApi geo} apis, and records the
+ * samples in {@link Metrics}, tagged with the provider name, zone and
+ * operation. Operations are named by api and method, ex.
+ * {@code ResourceRecordSetApi.listByName}. The overload of
+ * {@link ResourceRecordSetApi#replace(ResourceRecordSet, ResourceRecordSet)
+ * replace} that compares first is {@code ResourceRecordSetApi.compareAndReplace}.
+ * The supported types and regions of the geo api are constant, so aren't
+ * timed.
+ *
+ * ex.
+ *
+ * <pre>
+ * InMemoryMetrics metrics = new InMemoryMetrics();
+ * route53 = Denominator.create(new Route53Provider(), credentials(accesskey, secretkey),
+ *         new MeasureOperations(metrics));
+ * </pre>
+ *
+ * When this module isn't configured, or configured with {@link Metrics#NONE},
+ * apis are not decorated and nothing is timed.
+ */
+@Beta
+@Module(injects = DNSApiManager.class, complete = false, library = true)
+public class MeasureOperations {
+    private final Metrics metrics;
+
+    /**
+     * @param metrics
+     *            receives a sample for every operation.
+     */
+    public MeasureOperations(Metrics metrics) {
+        this.metrics = checkNotNull(metrics, "metrics");
+    }
+
+    @Provides(type = SET)
+    @Singleton
+    ApiDecorator provideDecorator(Provider provider) {
+        if (metrics == Metrics.NONE)
+            return ApiDecorator.NONE;
+        return new MeasuringDecorator(metrics, provider.getName());
+    }
+
+    @Override
+    public String toString() {
+        return "MeasureOperations(" + metrics + ")";
+    }
+
+    private static final class MeasuringDecorator extends ApiDecorator {
+        private final Metrics metrics;
+        private final String provider;
+
+        private MeasuringDecorator(Metrics metrics, String provider) {
+            this.metrics = metrics;
+            this.provider = provider;
+        }
+
+        @Override
+        public ZoneApi decorate(ZoneApi api) {
+            return measure(ZoneApi.class, api, metrics, provider, null);
+        }
+
+        @Override
+        public ResourceRecordSetApi decorate(String zoneName, ResourceRecordSetApi api) {
+            return measure(ResourceRecordSetApi.class, api, metrics, provider, zoneName);
+        }
+
+        @Override
+        public GeoResourceRecordSetApi decorate(String zoneName, GeoResourceRecordSetApi api) {
+            return measure(GeoResourceRecordSetApi.class, api, metrics, provider, zoneName);
+        }
+
+        @Override
+        public String toString() {
+            return "MeasuringDecorator(" + metrics + ")";
+        }
+    }
+
+    /**
+     * returns a proxy of {@code delegate}, which times each method of
+     * {@code api} in the same way, with timers looked up once, when the proxy
+     * is created.
+     */
+    private static <T> T measure(Class<T> api, T delegate, Metrics metrics, String provider, String zoneName) {
+        ImmutableMap.Builder<Method, Timer> timers = ImmutableMap.builder();
+        for (Method method : api.getMethods()) {
+            String operation = Operations.name(api, method);
+            if (operation != null)
+                timers.put(method, metrics.timer(provider, zoneName, operation));
+        }
+        return Operations.proxy(api, new MeasuringHandler(api, delegate, timers.build()));
+    }
+
+    private static final class MeasuringHandler extends Operations.Handler {
+        private final Map<Method, Timer> timers;
+
+        private MeasuringHandler(Class<?> api, Object delegate, Map<Method, Timer> timers) {
+            super(api, delegate);
+            this.timers = timers;
+        }
+
+        @Override
+        Object handle(Method method, Object[] args) throws Throwable {
+            Timer timer = timers.get(method);
+            if (timer == null)
+                return proceed(method, args);
+            long start = System.nanoTime();
+            boolean failed = true;
+            try {
+                Object result = proceed(method, args);
+                failed = false;
+                // recorded once iterated
+                if (result instanceof Iterator)
+                    return new MeasuredIterator<Object>(timer, (Iterator<?>) result, start);
+                timer.record(System.nanoTime() - start, false);
+                return result;
+            } finally {
+                if (failed)
+                    timer.record(System.nanoTime() - start, true);
+            }
+        }
+    }
+
+    /**
+     * Most providers make requests as results are iterated, so the time spent
+     * in {@link #hasNext()} and {@link #next()} is added to the time of the
+     * call that returned the iterator. The sample is recorded once the
+     * iterator is exhausted or throws. Iterators abandoned early aren't
+     * recorded, as their time doesn't represent the whole operation.
+     */
+    private static final class MeasuredIterator<T> implements Iterator<T> {
+        private final Timer timer;
+        private final Iterator<? extends T> delegate;
+        private long nanos;
+        private boolean recorded;
+
+        private MeasuredIterator(Timer timer, Iterator<? extends T> delegate, long start) {
+            this.timer = timer;
+            this.delegate = delegate;
+            this.nanos = System.nanoTime() - start;
+        }
+
+        @Override
+        public boolean hasNext() {
+            long start = System.nanoTime();
+            boolean failed = true;
+            try {
+                boolean hasNext = delegate.hasNext();
+                failed = false;
+                nanos += System.nanoTime() - start;
+                if (!hasNext)
+                    record(false);
+                return hasNext;
+            } finally {
+                if (failed) {
+                    nanos += System.nanoTime() - start;
+                    record(true);
+                }
+            }
+        }
+
+        @Override
+        public T next() {
+            long start = System.nanoTime();
+            boolean failed = true;
+            try {
+                T next = delegate.next();
+                failed = false;
+                return next;
+            } catch (NoSuchElementException e) {
+                // calling next past the end is misuse, not a failed operation
+                failed = false;
+                record(false);
+                throw e;
+            } finally {
+                nanos += System.nanoTime() - start;
+                if (failed)
+                    record(true);
+            }
+        }
+
+        @Override
+        public void remove() {
+            delegate.remove();
+        }
+
+        private void record(boolean failed) {
+            if (recorded)
+                return;
+            recorded = true;
+            timer.record(nanos, failed);
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package denominator.config;
+
+import static dagger.Provides.Type.SET;
+
+import dagger.Module;
+import dagger.Provides;
+import denominator.ApiDecorator;
+import denominator.DNSApiManager;
+
+/**
+ * Contributes {@link ApiDecorator#NONE}, so that the set of decorators is
+ * never empty. Other modules contribute decorators to the same set.
+ */
+@Module(injects = DNSApiManager.class, complete = false, library = true)
+public class NothingToDecorate {
+    @Provides(type = SET)
+    ApiDecorator provideDecorator() {
+        return ApiDecorator.NONE;
+    }
+}
@@ -0,0 +1,108 @@
+package denominator.config;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Map;
+import java.util.Set;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+
+import denominator.ResourceRecordSetApi;
+import denominator.model.ResourceRecordSet;
+
+/**
+ * Names the operations of the apis decorated by modules such as
+ * {@link MeasureOperations} and {@link RetryOperations}, so that they agree.
+ * Operations are named by api and method, ex.
+ * {@code ResourceRecordSetApi.listByName}. The overload of
+ * {@link ResourceRecordSetApi#replace(ResourceRecordSet, ResourceRecordSet)
+ * replace} that compares first is {@code ResourceRecordSetApi.compareAndReplace}.
+ */
+final class Operations {
+    static final String ADD = "ResourceRecordSetApi.add";
+    static final String COMPARE_AND_REPLACE = "ResourceRecordSetApi.compareAndReplace";
+    static final String APPLY = "ResourceRecordSetApi.apply";
+
+    /**
+     * methods whose results are constant, such as the supported types and
+     * regions of the geo api, so aren't operations.
+     */
+    private static final Set<String> CONSTANT = ImmutableSet.of("getSupportedTypes", "getSupportedRegions");
+
+    /**
+     * returns the name of the operation {@code method} of {@code api}
+     * performs, or null if it is constant.
+     */
+    static String name(Class<?> api, Method method) {
+        if (CONSTANT.contains(method.getName()))
+            return null;
+        if (method.getName().equals("replace") && method.getParameterTypes().length == 2)
+            return api.getSimpleName() + ".compareAndReplace";
+        return api.getSimpleName() + "." + method.getName();
+    }
+
+    /**
+     * returns a proxy of {@code api}, whose calls are passed to
+     * {@code handler}.
+     */
+    static <T> T proxy(Class<T> api, Handler handler) {
+        return api.cast(Proxy.newProxyInstance(api.getClassLoader(), new Class<?>[] { api }, handler));
+    }
+
+    /**
+     * Handles each method of an api in the same way. Proxies are equal only
+     * to themselves, and are described by their delegate.
+     */
+    static abstract class Handler implements InvocationHandler {
+        private final Object delegate;
+        private final Map<Method, Method> methods;
+
+        Handler(Class<?> api, Object delegate) {
+            this.delegate = delegate;
+            ImmutableMap.Builder<Method, Method> methods = ImmutableMap.builder();
+            for (Method method : api.getMethods()) {
+                // some are inherited from package private interfaces, so can
+                // only be invoked from this copy, which equals the one the
+                // proxy passes
+                method.setAccessible(true);
+                methods.put(method, method);
+            }
+            this.methods = methods.build();
+        }
+
+        @Override
+        public final Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if (method.getDeclaringClass() == Object.class) {
+                if (method.getName().equals("equals"))
+                    return proxy == args[0];
+                if (method.getName().equals("hashCode"))
+                    return System.identityHashCode(proxy);
+                return delegate.toString();
+            }
+            return handle(method, args);
+        }
+
+        /**
+         * called for each method of the api, which usually
+         * {@link #proceed(Method, Object[]) proceeds} to the delegate.
+         */
+        abstract Object handle(Method method, Object[] args) throws Throwable;
+
+        /**
+         * invokes {@code method} on the delegate, throwing what it throws.
+         */
+        final Object proceed(Method method, Object[] args) throws Throwable {
+            try {
+                return methods.get(method).invoke(delegate, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+
+    private Operations() {
+    }
+}
@@ -0,0 +1,218 @@
+package denominator.config;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.Map;
+import java.util.regex.Pattern;
+
+import javax.inject.Singleton;
+
+import com.google.common.annotations.Beta;
+import com.google.common.base.Optional;
+import com.google.common.base.Predicate;
+import com.google.common.base.Throwables;
+import com.google.common.base.Ticker;
+import com.google.common.collect.ImmutableMap;
+
+import dagger.Module;
+import dagger.Provides;
+import denominator.DNSApiManager;
+import denominator.Provider;
+import denominator.RequestLimiter;
+import denominator.metrics.Metrics;
+import denominator.metrics.Metrics.Gauge;
+
+/**
+ * Limits the rate of requests a {@link DNSApiManager} sends to the provider,
+ * so that bulk jobs run as fast as the provider allows, instead of failing
+ * part way through when the provider throttles them. All apis of the manager
+ * share one token bucket, so the limit holds regardless of how many zones or
+ * threads are in use.
+ *
+ * <p/>
+ * Each http request takes a permit, waiting when none are available, so
+ * listings take a permit per page, and batches per request they send.
+ * Retries the provider's http client makes of a request don't take another.
+ * When a request fails with a throttling error, the rate halves, and then
+ * recovers by a tenth each second.
+ *
+ * ex.
+ *
+ * <pre>
+ * route53 = Denominator.create(new Route53Provider(), credentials(accesskey, secretkey),
+ *         RateLimitOperations.builder().metrics(metrics).build());
+ * </pre>
+ *
+ * Unless {@link Builder#permitsPerSecond(double) set}, the rate depends on
+ * the provider. See {@link #DEFAULT_PERMITS_PER_SECOND}. Other providers
+ * aren't limited. Providers take permits from the {@link RequestLimiter} this
+ * binds, so {@code mock} and {@code local}, which send no requests, never
+ * wait.
+ */
+@Beta
+@Module(injects = DNSApiManager.class, complete = false, library = true, overrides = true)
+public class RateLimitOperations {
+
+    /**
+     * permits per second by {@link Provider#getName() provider name}. These
+     * are below the documented or observed limits of a single account, which
+     * is shared by all clients of the account.
+     */
+    public static final Map<String, Double> DEFAULT_PERMITS_PER_SECOND = ImmutableMap.of(
+            "route53", 5.0,
+            "dynect", 5.0,
+            "ultradns", 10.0,
+            "clouddns", 1.5);
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public static final class Builder {
+        private Optional<Double> permitsPerSecond = Optional.absent();
+        private Predicate<Throwable> throttled = ThrottlingResponse.INSTANCE;
+        private Metrics metrics = Metrics.NONE;
+        private Ticker ticker = Ticker.systemTicker();
+
+        /**
+         * rate to start at, and return to after throttling. Defaults to the
+         * provider's entry in {@link RateLimitOperations#DEFAULT_PERMITS_PER_SECOND}.
+         */
+        public Builder permitsPerSecond(double permitsPerSecond) {
+            checkArgument(permitsPerSecond > 0, "permitsPerSecond must be positive, but was %s", permitsPerSecond);
+            this.permitsPerSecond = Optional.of(permitsPerSecond);
+            return this;
+        }
+
+        /**
+         * identifies failures caused by the provider throttling requests.
+         * Defaults to http status {@code 429}, and the error codes Route53
+         * ({@code Throttling}) and CloudDNS ({@code overLimit}) use instead.
+         */
+        public Builder throttledWhen(Predicate<Throwable> throttled) {
+            this.throttled = checkNotNull(throttled, "throttled");
+            return this;
+        }
+
+        /**
+         * receives gauges {@code RateLimit.permitsPerSecond}, the current
+         * rate, and {@code RateLimit.queueDepth}, the count of requests
+         * waiting for a permit.
+         */
+        public Builder metrics(Metrics metrics) {
+            this.metrics = checkNotNull(metrics, "metrics");
+            return this;
+        }
+
+        /**
+         * for tests.
+         */
+        Builder ticker(Ticker ticker) {
+            this.ticker = checkNotNull(ticker, "ticker");
+            return this;
+        }
+
+        public RateLimitOperations build() {
+            return new RateLimitOperations(this);
+        }
+    }
+
+    private final Optional<Double> permitsPerSecond;
+    private final Predicate<Throwable> throttled;
+    private final Metrics metrics;
+    private final Ticker ticker;
+
+    private RateLimitOperations(Builder builder) {
+        this.permitsPerSecond = builder.permitsPerSecond;
+        this.throttled = builder.throttled;
+        this.metrics = builder.metrics;
+        this.ticker = builder.ticker;
+    }
+
+    @Provides
+    @Singleton
+    RequestLimiter provideRequestLimiter(Provider provider) {
+        Double rate = permitsPerSecond.or(Optional.fromNullable(DEFAULT_PERMITS_PER_SECOND.get(provider.getName())))
+                .orNull();
+        if (rate == null)
+            return RequestLimiter.NONE;
+        final TokenBucket bucket = new TokenBucket(rate, ticker);
+        metrics.gauge(provider.getName(), "RateLimit.permitsPerSecond", new Gauge() {
+            @Override
+            public double value() {
+                return bucket.permitsPerSecond();
+            }
+        });
+        metrics.gauge(provider.getName(), "RateLimit.queueDepth", new Gauge() {
+            @Override
+            public double value() {
+                return bucket.waiting();
+            }
+        });
+        return new TokenBucketLimiter(bucket, throttled);
+    }
+
+    @Override
+    public String toString() {
+        return "RateLimitOperations(permitsPerSecond=" + permitsPerSecond + ")";
+    }
+
+    /**
+     * takes permits before requests, and slows down when they are throttled.
+     */
+    private static final class TokenBucketLimiter extends RequestLimiter {
+        private final TokenBucket bucket;
+        private final Predicate<Throwable> throttled;
+
+        private TokenBucketLimiter(TokenBucket bucket, Predicate<Throwable> throttled) {
+            this.bucket = bucket;
+            this.throttled = throttled;
+        }
+
+        @Override
+        public void acquire() {
+            bucket.acquire();
+        }
+
+        @Override
+        public RuntimeException failed(RuntimeException failure) {
+            if (throttled.apply(failure))
+                bucket.throttled();
+            return failure;
+        }
+
+        @Override
+        public String toString() {
+            return bucket.toString();
+        }
+    }
+
+    /**
+     * Providers report throttling through exceptions of their http client,
+     * which include the http status and the provider's error code in their
+     * message, so this matches those instead of exception types.
+     */
+    static enum ThrottlingResponse implements Predicate<Throwable> {
+        INSTANCE;
+
+        private static final Pattern CODES = Pattern.compile(
+                "HTTP/1\\.[01] 429 "                             // too many requests, as used by dynect
+                + "|code='(Throttling|PriorRequestNotComplete)'" // route53, with status 400
+                + "|\"overLimit\"");                             // clouddns, with status 413
+
+        @Override
+        public boolean apply(Throwable input) {
+            for (Throwable t : Throwables.getCausalChain(input)) {
+                if (t.getMessage() != null && CODES.matcher(t.getMessage()).find())
+                    return true;
+            }
+            return false;
+        }
+
+        @Override
+        public String toString() {
+            return "ThrottlingResponse";
+        }
+    }
+}
@@ -0,0 +1,377 @@
+package denominator.config;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static dagger.Provides.Type.SET;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import javax.inject.Singleton;
+
+import com.google.common.annotations.Beta;
+import com.google.common.base.Predicate;
+import com.google.common.base.Throwables;
+import com.google.common.base.Ticker;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.ImmutableSetMultimap;
+
+import dagger.Module;
+import dagger.Provides;
+import denominator.ApiDecorator;
+import denominator.DNSApiManager;
+import denominator.Provider;
+import denominator.ResourceRecordSetApi;
+import denominator.ResourceRecordSetBatch;
+import denominator.ZoneApi;
+import denominator.config.RateLimitOperations.ThrottlingResponse;
+import denominator.model.ResourceRecordSet;
+import denominator.profile.GeoResourceRecordSetApi;
+
+/**
+ * Retries calls to the {@link ZoneApi zone}, {@link ResourceRecordSetApi
+ * record set} and {@link GeoResourceRecordSetApi geo} apis that fail for
+ * reasons likely to pass, such as a connection reset or a {@code 503} from
+ * the provider. This keeps a long job, such as an import, from failing on
+ * the first transient error.
+ *
+ * <p/>
+ * Only operations that are safe to repeat are retried. Reads, as well as
+ * writes that converge on the same state however often they run, such as
+ * {@link ResourceRecordSetApi#replace replace},
+ * {@link ResourceRecordSetApi#deleteByNameAndType deleteByNameAndType} and
+ * {@link ResourceRecordSetApi#applyTTLToNameAndType applyTTLToNameAndType},
+ * are retried. Operations in {@link #NOT_IDEMPOTENT} or, for the provider in
+ * use, {@link #NOT_IDEMPOTENT_BY_PROVIDER} are not.
+ *
+ * <p/>
+ * Attempts are spaced by exponential backoff with full jitter: the wait
+ * before attempt {@code n + 1} is random, up to
+ * {@code initialBackoff * 2^(n - 1)}, capped at {@code maxBackoff}. An
+ * operation isn't retried once the next attempt, were it to take as long as
+ * the slowest so far, would end after its deadline.
+ *
+ * <p/>
+ * Providers built on jclouds already retry requests that fail with an
+ * {@code IOException} or a {@code 500} or {@code 503} response, several
+ * times with their own backoff, before the call fails. That time is part of
+ * the attempt, so counts against the deadline, which keeps attempts from
+ * multiplying with jclouds' own retries past it. However, an attempt already
+ * started isn't interrupted, so the deadline is approximate when a single
+ * attempt is slow.
+ *
+ * <p/>
+ * Iterators returned by list calls are retried when the call that returns
+ * them fails, but not when a later page fails mid iteration, as the
+ * iterator can't resume where it left off.
+ *
+ * ex.
+ *
+ * <pre>
+ * ultra = Denominator.create(new UltraDNSProvider(), credentials(username, password),
+ *         RetryOperations.builder().maxAttempts(5).deadline(2, MINUTES).build());
+ * </pre>
+ */
+@Beta
+@Module(injects = DNSApiManager.class, complete = false, library = true)
+public class RetryOperations {
+
+    /**
+     * operations never retried. A {@link ResourceRecordSetBatch batch} can
+     * hold any change, including adds, so isn't safe to repeat. A
+     * {@link ResourceRecordSetApi#replace(ResourceRecordSet, ResourceRecordSet)
+     * compare and replace} that succeeded before failing would conflict with
+     * itself when repeated.
+     */
+    public static final Set<String> NOT_IDEMPOTENT = ImmutableSet.of(Operations.APPLY,
+            Operations.COMPARE_AND_REPLACE);
+
+    /**
+     * operations not retried for the {@link Provider#getName() provider}.
+     * UltraDNS creates a record per rdata, so an add that failed after
+     * creating some of them isn't safe to repeat.
+     */
+    public static final ImmutableSetMultimap<String, String> NOT_IDEMPOTENT_BY_PROVIDER = ImmutableSetMultimap.of(
+            "ultradns", Operations.ADD);
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public static final class Builder {
+        private int maxAttempts = 5;
+        private long initialBackoffNanos = MILLISECONDS.toNanos(100);
+        private long maxBackoffNanos = SECONDS.toNanos(10);
+        private long deadlineNanos = SECONDS.toNanos(60);
+        private Predicate<Throwable> retryable = TransientFailure.INSTANCE;
+        private final ImmutableSet.Builder<String> notIdempotent = ImmutableSet.builder();
+        private Ticker ticker = Ticker.systemTicker();
+        private Random random = new Random();
+
+        /**
+         * attempts per operation, including the first. Defaults to {@code 5}.
+         */
+        public Builder maxAttempts(int maxAttempts) {
+            checkArgument(maxAttempts > 0, "maxAttempts must be positive, but was %s", maxAttempts);
+            this.maxAttempts = maxAttempts;
+            return this;
+        }
+
+        /**
+         * upper bound of the wait before the first retry, doubling for each
+         * retry after. Defaults to 100 milliseconds.
+         */
+        public Builder initialBackoff(long initialBackoff, TimeUnit unit) {
+            checkArgument(initialBackoff >= 0, "initialBackoff must not be negative, but was %s", initialBackoff);
+            this.initialBackoffNanos = checkNotNull(unit, "unit").toNanos(initialBackoff);
+            return this;
+        }
+
+        /**
+         * upper bound of the wait between any two attempts. Defaults to 10
+         * seconds.
+         */
+        public Builder maxBackoff(long maxBackoff, TimeUnit unit) {
+            checkArgument(maxBackoff >= 0, "maxBackoff must not be negative, but was %s", maxBackoff);
+            this.maxBackoffNanos = checkNotNull(unit, "unit").toNanos(maxBackoff);
+            return this;
+        }
+
+        /**
+         * time after the first attempt of an operation by which the last
+         * should end. Defaults to 60 seconds.
+         */
+        public Builder deadline(long deadline, TimeUnit unit) {
+            checkArgument(deadline >= 0, "deadline must not be negative, but was %s", deadline);
+            this.deadlineNanos = checkNotNull(unit, "unit").toNanos(deadline);
+            return this;
+        }
+
+        /**
+         * identifies failures worth retrying. Defaults to exceptions caused
+         * by an {@link IOException}, or whose message, or that of a cause,
+         * reports a {@code 500}, {@code 502}, {@code 503} or {@code 504}
+         * status, a reset connection, a timeout, or throttling.
+         */
+        public Builder retryWhen(Predicate<Throwable> retryable) {
+            this.retryable = checkNotNull(retryable, "retryable");
+            return this;
+        }
+
+        /**
+         * never retries the operations, in addition to the defaults.
+         *
+         * @param operations
+         *            type and method of the api. ex.
+         *            {@code ResourceRecordSetApi.remove}
+         */
+        public Builder notIdempotent(String... operations) {
+            this.notIdempotent.add(operations);
+            return this;
+        }
+
+        /**
+         * for tests.
+         */
+        Builder ticker(Ticker ticker) {
+            this.ticker = checkNotNull(ticker, "ticker");
+            return this;
+        }
+
+        /**
+         * for tests.
+         */
+        Builder random(Random random) {
+            this.random = checkNotNull(random, "random");
+            return this;
+        }
+
+        public RetryOperations build() {
+            return new RetryOperations(this);
+        }
+    }
+
+    private final int maxAttempts;
+    private final long initialBackoffNanos;
+    private final long maxBackoffNanos;
+    private final long deadlineNanos;
+    private final Predicate<Throwable> retryable;
+    private final Set<String> notIdempotent;
+    private final Ticker ticker;
+    private final Random random;
+
+    private RetryOperations(Builder builder) {
+        this.maxAttempts = builder.maxAttempts;
+        this.initialBackoffNanos = builder.initialBackoffNanos;
+        this.maxBackoffNanos = builder.maxBackoffNanos;
+        this.deadlineNanos = builder.deadlineNanos;
+        this.retryable = builder.retryable;
+        this.notIdempotent = builder.notIdempotent.build();
+        this.ticker = builder.ticker;
+        this.random = builder.random;
+    }
+
+    @Provides(type = SET)
+    @Singleton
+    ApiDecorator provideDecorator(Provider provider) {
+        if (maxAttempts == 1)
+            return ApiDecorator.NONE;
+        Set<String> notIdempotent = ImmutableSet.<String> builder()
+                                                .addAll(NOT_IDEMPOTENT)
+                                                .addAll(NOT_IDEMPOTENT_BY_PROVIDER.get(provider.getName()))
+                                                .addAll(this.notIdempotent).build();
+        return new RetryingDecorator(this, notIdempotent);
+    }
+
+    @Override
+    public String toString() {
+        return "RetryOperations(maxAttempts=" + maxAttempts + ", deadline=" + NANOSECONDS.toMillis(deadlineNanos)
+                + "ms)";
+    }
+
+    private static final class RetryingDecorator extends ApiDecorator {
+        private final RetryOperations config;
+        private final Set<String> notIdempotent;
+
+        private RetryingDecorator(RetryOperations config, Set<String> notIdempotent) {
+            this.config = config;
+            this.notIdempotent = notIdempotent;
+        }
+
+        @Override
+        public ZoneApi decorate(ZoneApi api) {
+            return retry(ZoneApi.class, api);
+        }
+
+        @Override
+        public ResourceRecordSetApi decorate(String zoneName, ResourceRecordSetApi api) {
+            return retry(ResourceRecordSetApi.class, api);
+        }
+
+        @Override
+        public GeoResourceRecordSetApi decorate(String zoneName, GeoResourceRecordSetApi api) {
+            return retry(GeoResourceRecordSetApi.class, api);
+        }
+
+        /**
+         * returns a proxy of {@code delegate}, which retries the idempotent
+         * operations of {@code api}.
+         */
+        private <T> T retry(Class<T> api, T delegate) {
+            ImmutableSet.Builder<Method> retried = ImmutableSet.builder();
+            for (Method method : api.getMethods()) {
+                String operation = Operations.name(api, method);
+                if (operation != null && !notIdempotent.contains(operation))
+                    retried.add(method);
+            }
+            return Operations.proxy(api, new RetryingHandler(config, api, delegate, retried.build()));
+        }
+
+        @Override
+        public String toString() {
+            return "RetryingDecorator(" + config + ", notIdempotent=" + notIdempotent + ")";
+        }
+    }
+
+    private static final class RetryingHandler extends Operations.Handler {
+        private final RetryOperations config;
+        private final Set<Method> retried;
+
+        private RetryingHandler(RetryOperations config, Class<?> api, Object delegate, Set<Method> retried) {
+            super(api, delegate);
+            this.config = config;
+            this.retried = retried;
+        }
+
+        @Override
+        Object handle(Method method, Object[] args) throws Throwable {
+            if (!retried.contains(method))
+                return proceed(method, args);
+            long start = config.ticker.read();
+            long slowest = 0;
+            for (int attempts = 1;; attempts++) {
+                long attemptStart = config.ticker.read();
+                try {
+                    return proceed(method, args);
+                } catch (RuntimeException e) {
+                    long now = config.ticker.read();
+                    slowest = Math.max(slowest, now - attemptStart);
+                    if (attempts == config.maxAttempts || !config.retryable.apply(e))
+                        throw e;
+                    long backoff = backoffNanos(attempts);
+                    // the next attempt may take as long as the slowest so far
+                    if (now - start + backoff + slowest > config.deadlineNanos)
+                        throw e;
+                    try {
+                        NANOSECONDS.sleep(backoff);
+                    } catch (InterruptedException interrupted) {
+                        Thread.currentThread().interrupt();
+                        throw e;
+                    }
+                }
+            }
+        }
+
+        /**
+         * @param attempts
+         *            count of attempts that failed so far.
+         */
+        private long backoffNanos(int attempts) {
+            long ceiling = config.maxBackoffNanos;
+            // past 62 doublings, the result overflows a long
+            if (attempts < 63 && config.initialBackoffNanos < ceiling >>> (attempts - 1))
+                ceiling = config.initialBackoffNanos << (attempts - 1);
+            synchronized (config.random) {
+                return (long) (config.random.nextDouble() * ceiling);
+            }
+        }
+    }
+
+    /**
+     * Like throttling, providers report server errors through exceptions of
+     * their http client, so this matches causes and messages.
+     */
+    private static enum TransientFailure implements Predicate<Throwable> {
+        INSTANCE;
+
+        // lower case
+        private static final ImmutableList<String> PHRASES = ImmutableList.of(
+                "500 internal server error",
+                "502 bad gateway",
+                "503 service unavailable",
+                "504 gateway time",
+                "connection reset",
+                "timed out");
+
+        @Override
+        public boolean apply(Throwable input) {
+            if (ThrottlingResponse.INSTANCE.apply(input))
+                return true;
+            for (Throwable t : Throwables.getCausalChain(input)) {
+                if (t instanceof IOException)
+                    return true;
+                String message = t.getMessage();
+                if (message == null)
+                    continue;
+                message = message.toLowerCase();
+                for (String phrase : PHRASES) {
+                    if (message.contains(phrase))
+                        return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public String toString() {
+            return "TransientFailure";
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package denominator.config;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.google.common.base.Throwables;
+import com.google.common.base.Ticker;
+
+/**
+ * Hands out permits at {@link #permitsPerSecond()}, allowing bursts of up to
+ * one second of permits after a quiet period. Callers that arrive when the
+ * bucket is empty reserve a future permit and sleep until it is due, so
+ * waiting callers are served in the order they arrived.
+ *
+ * <p/>
+ * The rate halves each time {@link #throttled()} is called, down to a tenth
+ * of the initial rate, and climbs back by a tenth of the initial rate each
+ * second.
+ */
+final class TokenBucket {
+    private static final long SECOND = SECONDS.toNanos(1);
+
+    private final double maxPermitsPerSecond;
+    private final double minPermitsPerSecond;
+    private final Ticker ticker;
+    private final AtomicInteger waiting = new AtomicInteger();
+    // guarded by this
+    private double permitsPerSecond;
+    // negative when callers reserved permits not yet due
+    private double permits;
+    private long lastRefillNanos;
+    private long lastThrottledNanos;
+
+    TokenBucket(double permitsPerSecond, Ticker ticker) {
+        checkArgument(permitsPerSecond > 0, "permitsPerSecond must be positive, but was %s", permitsPerSecond);
+        this.maxPermitsPerSecond = permitsPerSecond;
+        this.minPermitsPerSecond = permitsPerSecond / 10;
+        this.ticker = checkNotNull(ticker, "ticker");
+        this.permitsPerSecond = permitsPerSecond;
+        this.permits = capacity();
+        this.lastRefillNanos = ticker.read();
+        this.lastThrottledNanos = lastRefillNanos - SECOND;
+    }
+
+    /**
+     * takes a permit, sleeping until one is available.
+     */
+    void acquire() {
+        long nanos = reserve();
+        if (nanos <= 0)
+            return;
+        waiting.incrementAndGet();
+        try {
+            NANOSECONDS.sleep(nanos);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw Throwables.propagate(e);
+        } finally {
+            waiting.decrementAndGet();
+        }
+    }
+
+    /**
+     * takes a permit, which may not be due yet.
+     *
+     * @return nanoseconds until the permit is due, or 0 if it is now.
+     */
+    synchronized long reserve() {
+        refill();
+        permits--;
+        if (permits >= 0)
+            return 0;
+        return (long) Math.ceil(-permits / permitsPerSecond * SECOND);
+    }
+
+    /**
+     * halves the rate and drops permits saved up for bursts. Calls in flight
+     * when the provider starts throttling tend to fail together, so the rate
+     * only halves once a second.
+     */
+    synchronized void throttled() {
+        refill();
+        if (lastRefillNanos - lastThrottledNanos < SECOND)
+            return;
+        lastThrottledNanos = lastRefillNanos;
+        permitsPerSecond = Math.max(minPermitsPerSecond, permitsPerSecond / 2);
+        permits = Math.min(permits, 0);
+    }
+
+    synchronized double permitsPerSecond() {
+        refill();
+        return permitsPerSecond;
+    }
+
+    /**
+     * @return count of callers sleeping in {@link #acquire()}.
+     */
+    int waiting() {
+        return waiting.get();
+    }
+
+    private void refill() {
+        long now = ticker.read();
+        double seconds = (double) (now - lastRefillNanos) / SECOND;
+        lastRefillNanos = now;
+        if (seconds <= 0)
+            return;
+        if (permitsPerSecond < maxPermitsPerSecond)
+            permitsPerSecond = Math.min(maxPermitsPerSecond, permitsPerSecond + maxPermitsPerSecond / 10 * seconds);
+        permits = Math.min(capacity(), permits + seconds * permitsPerSecond);
+    }
+
+    private double capacity() {
+        return Math.max(1, permitsPerSecond);
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "TokenBucket(permitsPerSecond=" + permitsPerSecond + ", waiting=" + waiting + ")";
+    }
+}
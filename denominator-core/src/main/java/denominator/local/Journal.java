@@ -0,0 +1,178 @@
+package denominator.local;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.Closeables;
+
+import denominator.model.ResourceRecordSet;
+import denominator.model.binary.RecordSetInput;
+import denominator.model.binary.RecordSetOutput;
+
+/**
+ * append-only log of the record sets of a zone changed since its last
+ * {@link Snapshot}. Each entry holds the state of a name and type after a
+ * change, so replaying an entry twice is harmless. The name and type are
+ * written as by {@link java.io.DataOutput#writeUTF(String)}, and record sets as
+ * single-record streams in the format of {@link denominator.model.binary}.
+ *
+ * <p/>
+ * Entries are written with a length and checksum. An entry cut short by a
+ * crash is dropped, along with anything after it, when the journal is
+ * replayed. Entries are written to the operating system as they are
+ * appended, so they survive the JVM exiting, but aren't synced to disk.
+ */
+final class Journal implements Closeable {
+    private static final byte PUT = 1;
+    private static final byte DELETE = 2;
+
+    private final File file;
+    private final FileOutputStream out;
+    private int entries;
+
+    /**
+     * opens {@code file} for append.
+     *
+     * @param entries
+     *            count of entries already in the file, as returned by
+     *            {@link #replay(File, Map)}.
+     */
+    Journal(File file, int entries) throws IOException {
+        this.file = file;
+        this.out = new FileOutputStream(file, true);
+        this.entries = entries;
+    }
+
+    /**
+     * records the record set of {@code name} and {@code type} after a change,
+     * or that there is none.
+     */
+    void put(String name, String type, Optional<ResourceRecordSet<?>> rrset) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream body = new DataOutputStream(bytes);
+        body.writeByte(rrset.isPresent() ? PUT : DELETE);
+        // names are at most 255 octets, well within the limit of writeUTF
+        body.writeUTF(name);
+        body.writeUTF(type);
+        body.flush();
+        if (rrset.isPresent())
+            new RecordSetOutput(bytes).write(rrset.get()).close();
+
+        CRC32 crc = new CRC32();
+        crc.update(bytes.toByteArray());
+        ByteArrayOutputStream entry = new ByteArrayOutputStream(bytes.size() + 8);
+        DataOutputStream header = new DataOutputStream(entry);
+        header.writeInt(bytes.size());
+        header.writeInt((int) crc.getValue());
+        bytes.writeTo(header);
+        header.flush();
+        // a single write, so that a crash doesn't interleave a partial header
+        out.write(entry.toByteArray());
+        entries++;
+    }
+
+    /**
+     * count of entries since the journal was last truncated.
+     */
+    int entries() {
+        return entries;
+    }
+
+    /**
+     * drops all entries, after a snapshot has made them redundant.
+     */
+    void truncate() throws IOException {
+        out.getChannel().truncate(0);
+        entries = 0;
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+
+    /**
+     * applies entries in {@code file} to {@code rrsets}, which is keyed by
+     * {@link #key(String, String)}. Truncates anything after the last
+     * complete entry.
+     *
+     * @return count of entries applied.
+     */
+    static int replay(File file, Map<List<String>, ResourceRecordSet<?>> rrsets) throws IOException {
+        if (!file.exists())
+            return 0;
+        DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+        int entries = 0;
+        long valid = 0;
+        try {
+            while (true) {
+                byte[] body;
+                try {
+                    int length = in.readInt();
+                    int checksum = in.readInt();
+                    if (length < 0 || length > file.length())
+                        break;
+                    body = new byte[length];
+                    in.readFully(body);
+                    CRC32 crc = new CRC32();
+                    crc.update(body);
+                    if ((int) crc.getValue() != checksum)
+                        break;
+                } catch (EOFException e) {
+                    break;
+                }
+                apply(body, rrsets);
+                entries++;
+                valid += 8 + body.length;
+            }
+        } finally {
+            Closeables.close(in, true);
+        }
+        if (valid < file.length()) {
+            RandomAccessFile raf = new RandomAccessFile(file, "rw");
+            try {
+                raf.setLength(valid);
+            } finally {
+                raf.close();
+            }
+        }
+        return entries;
+    }
+
+    private static void apply(byte[] body, Map<List<String>, ResourceRecordSet<?>> rrsets) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(body));
+        byte op = in.readByte();
+        List<String> key = key(in.readUTF(), in.readUTF());
+        if (op == PUT) {
+            rrsets.put(key, new RecordSetInput(in).read());
+        } else if (op == DELETE) {
+            rrsets.remove(key);
+        } else {
+            throw new IOException("unknown journal entry " + op);
+        }
+    }
+
+    static List<String> key(String name, String type) {
+        return ImmutableList.of(name, type);
+    }
+
+    @Override
+    public String toString() {
+        return "Journal(" + file + ")";
+    }
+}
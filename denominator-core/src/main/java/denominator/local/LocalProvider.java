@@ -0,0 +1,117 @@
+package denominator.local;
+
+import static com.google.common.base.Strings.emptyToNull;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+
+import javax.inject.Singleton;
+
+import com.google.common.base.Throwables;
+import com.google.common.collect.Multimap;
+
+import dagger.Provides;
+import denominator.BasicProvider;
+import denominator.DNSApiManager;
+import denominator.Provider;
+import denominator.ResourceRecordSetApi;
+import denominator.ZoneApi;
+import denominator.config.GeoUnsupported;
+import denominator.config.OnlyNormalResourceRecordSets;
+import denominator.mock.MockResourceRecordSetApi;
+import denominator.mock.MockZoneApi;
+import denominator.model.ResourceRecordSet;
+
+/**
+ * {@code Provider} that keeps zones in memory, like
+ * {@link denominator.mock.MockProvider}, and persists them to a directory, so
+ * that they survive restarts. Use this as an offline stand-in for a provider
+ * in integration or performance tests.
+ *
+ * <p/>
+ * The url is {@code file:} followed by the directory. Each zone is a
+ * subdirectory named after the zone, ex. {@code denominator.io.}. Create an
+ * empty subdirectory to add a zone, which starts with {@code SOA} and
+ * {@code NS} records. Changes are appended to a journal in the zone's
+ * directory, which is compacted into a snapshot after
+ * {@value LocalZones#DEFAULT_COMPACT_AFTER} changes, or when the provider
+ * starts after that many.
+ *
+ * <p/>
+ * Zones are read when the first api is used, and the journals closed when
+ * the {@link DNSApiManager} is. Only one process may use a directory at a
+ * time.
+ */
+public class LocalProvider extends BasicProvider {
+    private final String url;
+
+    public LocalProvider() {
+        this(null);
+    }
+
+    /**
+     * @param url
+     *            if empty or null use default, which is
+     *            {@code ~/.denominator/local}
+     */
+    public LocalProvider(String url) {
+        url = emptyToNull(url);
+        this.url = url != null ? url : "file:"
+                + new File(new File(System.getProperty("user.home"), ".denominator"), "local").getPath();
+    }
+
+    @Override
+    public String getUrl() {
+        return url;
+    }
+
+    static File directory(String url) {
+        return new File(url.startsWith("file:") ? url.substring("file:".length()) : url);
+    }
+
+    @dagger.Module(injects = DNSApiManager.class,
+                   complete = false, // denominator.Provider
+                   includes = { GeoUnsupported.class, OnlyNormalResourceRecordSets.class })
+    public static final class Module {
+
+        @Provides
+        @Singleton
+        LocalZones provideZones(Provider provider) {
+            return new LocalZones(directory(provider.getUrl()), LocalZones.DEFAULT_COMPACT_AFTER);
+        }
+
+        /**
+         * initial record sets for {@code MockStorage}, which the mock apis
+         * read and write.
+         */
+        // wildcard types are not currently injectable in dagger
+        @SuppressWarnings({ "rawtypes", "unchecked" })
+        @Provides
+        Multimap<String, ResourceRecordSet> provideRecords(LocalZones zones) {
+            try {
+                return Multimap.class.cast(zones.load());
+            } catch (IOException e) {
+                throw Throwables.propagate(e);
+            }
+        }
+
+        @Provides
+        ZoneApi provideZoneApi(MockZoneApi in) {
+            return in;
+        }
+
+        @Provides
+        @Singleton
+        ResourceRecordSetApi.Factory provideResourceRecordSetApiFactory(MockResourceRecordSetApi.Factory mock,
+                LocalZones zones) {
+            return new LocalResourceRecordSetApi.Factory(mock, zones);
+        }
+
+        @Provides
+        @Singleton
+        Closeable provideCloser(LocalZones zones) {
+            return zones;
+        }
+    }
+}
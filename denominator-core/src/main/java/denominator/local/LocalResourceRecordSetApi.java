@@ -0,0 +1,118 @@
+package denominator.local;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.io.IOException;
+
+import com.google.common.base.Throwables;
+
+import denominator.ForwardingResourceRecordSetApi;
+import denominator.ResourceRecordSetApi;
+import denominator.ResourceRecordSetBatch;
+import denominator.local.LocalZones.Zone;
+import denominator.mock.MockResourceRecordSetApi;
+import denominator.model.ResourceRecordSet;
+
+/**
+ * reads from the mock provider's storage, and journals each change after
+ * applying it there.
+ */
+final class LocalResourceRecordSetApi extends ForwardingResourceRecordSetApi {
+    private final ResourceRecordSetApi delegate;
+    private final Zone zone;
+
+    LocalResourceRecordSetApi(ResourceRecordSetApi delegate, Zone zone) {
+        this.delegate = delegate;
+        this.zone = zone;
+    }
+
+    @Override
+    protected ResourceRecordSetApi delegate() {
+        return delegate;
+    }
+
+    @Override
+    public void add(ResourceRecordSet<?> rrset) {
+        checkNotNull(rrset, "rrset was null");
+        synchronized (zone) {
+            delegate.add(rrset);
+            journal(rrset.getName(), rrset.getType());
+        }
+    }
+
+    @Override
+    public void applyTTLToNameAndType(int ttl, String name, String type) {
+        synchronized (zone) {
+            delegate.applyTTLToNameAndType(ttl, name, type);
+            journal(name, type);
+        }
+    }
+
+    @Override
+    public void replace(ResourceRecordSet<?> rrset) {
+        checkNotNull(rrset, "rrset was null");
+        synchronized (zone) {
+            delegate.replace(rrset);
+            journal(rrset.getName(), rrset.getType());
+        }
+    }
+
+    @Override
+    public void replace(ResourceRecordSet<?> expected, ResourceRecordSet<?> desired) {
+        checkNotNull(desired, "desired was null");
+        synchronized (zone) {
+            delegate.replace(expected, desired);
+            journal(desired.getName(), desired.getType());
+        }
+    }
+
+    @Override
+    public void remove(ResourceRecordSet<?> rrset) {
+        checkNotNull(rrset, "rrset was null");
+        synchronized (zone) {
+            delegate.remove(rrset);
+            journal(rrset.getName(), rrset.getType());
+        }
+    }
+
+    @Override
+    public void deleteByNameAndType(String name, String type) {
+        synchronized (zone) {
+            delegate.deleteByNameAndType(name, type);
+            journal(name, type);
+        }
+    }
+
+    /**
+     * no native batching, so changes apply and are journaled sequentially.
+     */
+    @Override
+    public void apply(ResourceRecordSetBatch batch) {
+        checkNotNull(batch, "batch was null");
+        batch.applySequentially(this);
+    }
+
+    private void journal(String name, String type) {
+        try {
+            zone.journal(name, type, delegate);
+        } catch (IOException e) {
+            throw Throwables.propagate(e);
+        }
+    }
+
+    static final class Factory implements denominator.ResourceRecordSetApi.Factory {
+        private final MockResourceRecordSetApi.Factory mock;
+        private final LocalZones zones;
+
+        Factory(MockResourceRecordSetApi.Factory mock, LocalZones zones) {
+            this.mock = mock;
+            this.zones = zones;
+        }
+
+        @Override
+        public ResourceRecordSetApi create(String zoneName) {
+            ResourceRecordSetApi delegate = mock.create(zoneName);
+            return new LocalResourceRecordSetApi(delegate, zones.get(zoneName));
+        }
+    }
+}
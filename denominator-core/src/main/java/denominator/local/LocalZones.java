@@ -0,0 +1,165 @@
+package denominator.local;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+import static denominator.model.ResourceRecordSets.ns;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import com.google.common.collect.ImmutableListMultimap;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Maps;
+import com.google.common.io.Closeables;
+
+import denominator.ResourceRecordSetApi;
+import denominator.model.ResourceRecordSet;
+import denominator.model.rdata.SOAData;
+
+/**
+ * zones of a {@link LocalProvider}. Each zone is a directory named after the
+ * zone, holding its {@link Snapshot} and {@link Journal}. A directory without
+ * either is a new zone, which starts with {@code SOA} and {@code NS} records,
+ * as zones created by a provider would.
+ */
+final class LocalZones implements Closeable {
+    static final int DEFAULT_COMPACT_AFTER = 100000;
+
+    private final File directory;
+    private final int compactAfter;
+    private Map<String, Zone> zones;
+
+    /**
+     * @param compactAfter
+     *            count of journal entries after which the zone is written to
+     *            a new snapshot, and the journal truncated.
+     */
+    LocalZones(File directory, int compactAfter) {
+        this.directory = checkNotNull(directory, "directory");
+        checkArgument(compactAfter > 0, "compactAfter must be positive, but was %s", compactAfter);
+        this.compactAfter = compactAfter;
+    }
+
+    /**
+     * reads each zone's snapshot and replays its journal, then opens the
+     * journal for writes.
+     *
+     * @return record sets by zone name, in the order they were read.
+     */
+    synchronized ImmutableListMultimap<String, ResourceRecordSet<?>> load() throws IOException {
+        checkState(zones == null, "%s already loaded", directory);
+        if (!directory.isDirectory() && !directory.mkdirs())
+            throw new IOException("couldn't create " + directory);
+        File[] children = directory.listFiles();
+        Arrays.sort(children);
+        ImmutableMap.Builder<String, Zone> zones = ImmutableMap.builder();
+        ImmutableListMultimap.Builder<String, ResourceRecordSet<?>> records = ImmutableListMultimap.builder();
+        try {
+            for (File child : children) {
+                if (!child.isDirectory())
+                    continue;
+                String zoneName = child.getName();
+                File snapshot = new File(child, "snapshot");
+                File journal = new File(child, "journal");
+
+                Map<List<String>, ResourceRecordSet<?>> rrsets = Maps.newLinkedHashMap();
+                if (snapshot.exists()) {
+                    for (ResourceRecordSet<?> rrset : Snapshot.read(snapshot)) {
+                        rrsets.put(Journal.key(rrset.getName(), rrset.getType()), rrset);
+                    }
+                } else if (!journal.exists()) {
+                    for (ResourceRecordSet<?> rrset : newZone(zoneName)) {
+                        rrsets.put(Journal.key(rrset.getName(), rrset.getType()), rrset);
+                    }
+                    Snapshot.write(snapshot, rrsets.values().iterator());
+                }
+                int entries = Journal.replay(journal, rrsets);
+                if (entries >= compactAfter) {
+                    Snapshot.write(snapshot, rrsets.values().iterator());
+                    entries = 0;
+                    journal.delete();
+                }
+                zones.put(zoneName, new Zone(snapshot, new Journal(journal, entries)));
+                records.putAll(zoneName, rrsets.values());
+            }
+            this.zones = zones.build();
+        } catch (IOException e) {
+            for (Zone zone : zones.build().values()) {
+                Closeables.close(zone.journal, true);
+            }
+            throw e;
+        }
+        return records.build();
+    }
+
+    private static List<ResourceRecordSet<?>> newZone(String zoneName) {
+        ResourceRecordSet<SOAData> soa = ResourceRecordSet.<SOAData> builder()
+                                                          .type("SOA")
+                                                          .name(zoneName)
+                                                          .ttl(3600)
+                                                          .add(SOAData.builder()
+                                                                      .mname("ns1." + zoneName)
+                                                                      .rname("admin." + zoneName)
+                                                                      .serial(1)
+                                                                      .refresh(3600)
+                                                                      .retry(600)
+                                                                      .expire(604800)
+                                                                      .minimum(60).build()).build();
+        return Arrays.<ResourceRecordSet<?>> asList(soa, ns(zoneName, 86400, "ns1." + zoneName));
+    }
+
+    Zone get(String zoneName) {
+        checkState(zones != null, "%s not loaded", directory);
+        Zone zone = zones.get(checkNotNull(zoneName, "zoneName"));
+        checkArgument(zone != null, "zone %s not found", zoneName);
+        return zone;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (zones == null)
+            return;
+        for (Zone zone : zones.values()) {
+            synchronized (zone) {
+                zone.journal.close();
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "LocalZones(" + directory + ")";
+    }
+
+    /**
+     * Writes to a zone synchronize on it, so that its journal records
+     * changes in the order they were made.
+     */
+    final class Zone {
+        private final File snapshot;
+        private final Journal journal;
+
+        private Zone(File snapshot, Journal journal) {
+            this.snapshot = snapshot;
+            this.journal = journal;
+        }
+
+        /**
+         * journals the record set of {@code name} and {@code type} in
+         * {@code api}, after a change. Compacts the zone if the journal is
+         * long enough. Callers must hold this zone's lock.
+         */
+        void journal(String name, String type, ResourceRecordSetApi api) throws IOException {
+            journal.put(name, type, api.getByNameAndType(name, type));
+            if (journal.entries() >= compactAfter) {
+                Snapshot.write(snapshot, api.list());
+                journal.truncate();
+            }
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package denominator.local;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel.MapMode;
+import java.util.Iterator;
+import java.util.List;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.Closeables;
+
+import denominator.model.ResourceRecordSet;
+import denominator.model.binary.RecordSetBuffer;
+import denominator.model.binary.RecordSetOutput;
+
+/**
+ * all record sets of a zone at the time it was compacted, in the format of
+ * {@link denominator.model.binary}. Snapshots are written to a temporary file,
+ * synced, then renamed over the last snapshot, so a crash leaves either the
+ * old or the new snapshot intact. They are memory-mapped when read, which
+ * avoids copying the file through stream buffers.
+ */
+final class Snapshot {
+
+    private Snapshot() {
+    }
+
+    static void write(File file, Iterator<ResourceRecordSet<?>> rrsets) throws IOException {
+        File tmp = new File(file.getPath() + ".tmp");
+        RecordSetOutput out = new RecordSetOutput(new BufferedOutputStream(new SyncOnClose(tmp)));
+        boolean threw = true;
+        try {
+            while (rrsets.hasNext()) {
+                out.write(rrsets.next());
+            }
+            threw = false;
+        } finally {
+            Closeables.close(out, threw);
+        }
+        // renameTo doesn't replace an existing file on all platforms
+        if (!tmp.renameTo(file) && !(file.delete() && tmp.renameTo(file)))
+            throw new IOException("couldn't rename " + tmp + " to " + file);
+    }
+
+    static List<ResourceRecordSet<?>> read(File file) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            return ImmutableList.copyOf(RecordSetBuffer.wrap(raf.getChannel().map(MapMode.READ_ONLY, 0,
+                    raf.length())));
+        } catch (IllegalArgumentException e) {
+            throw new IOException(file + " is not a valid snapshot", e);
+        } finally {
+            Closeables.close(raf, true);
+        }
+    }
+
+    /**
+     * syncs the file to disk before closing it, as {@link RecordSetOutput}
+     * closes the stream it writes to.
+     */
+    private static final class SyncOnClose extends FilterOutputStream {
+        private final FileOutputStream file;
+
+        private SyncOnClose(File file) throws IOException {
+            this(new FileOutputStream(file));
+        }
+
+        private SyncOnClose(FileOutputStream file) {
+            super(file);
+            this.file = file;
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            file.write(bytes, offset, length);
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                file.getFD().sync();
+            } finally {
+                file.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,224 @@
+package denominator.metrics;
+
+import static com.google.common.base.Objects.equal;
+import static com.google.common.base.Objects.toStringHelper;
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import com.google.common.annotations.Beta;
+import com.google.common.base.Objects;
+import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Maps;
+
+/**
+ * Keeps a {@link Histogram} per provider, zone and operation in memory. This
+ * is useful in tests, or to periodically copy into a system that doesn't
+ * support histograms.
+ *
+ * ex.
+ *
+ * <pre>
+ * InMemoryMetrics metrics = new InMemoryMetrics();
+ * DNSApiManager mgr = Denominator.create(&quot;mock&quot;, new MeasureOperations(metrics));
+ * mgr.getApi().getResourceRecordSetApiForZone(&quot;denominator.io.&quot;).getByNameAndType(&quot;www.denominator.io.&quot;, &quot;A&quot;);
+ *
+ * Histogram getByNameAndType = metrics.get(&quot;mock&quot;, &quot;denominator.io.&quot;, &quot;ResourceRecordSetApi.getByNameAndType&quot;).get();
+ * assert getByNameAndType.getCount() == 1;
+ * </pre>
+ */
+@Beta
+public final class InMemoryMetrics extends Metrics {
+    private final ConcurrentMap<Tags, Histogram> histograms = Maps.newConcurrentMap();
+    private final ConcurrentMap<Tags, Gauge> gauges = Maps.newConcurrentMap();
+
+    @Override
+    public Histogram timer(String provider, String zone, String operation) {
+        Tags tags = new Tags(provider, zone, operation);
+        Histogram histogram = histograms.get(tags);
+        if (histogram == null) {
+            Histogram newHistogram = new Histogram();
+            histogram = histograms.putIfAbsent(tags, newHistogram);
+            if (histogram == null)
+                histogram = newHistogram;
+        }
+        return histogram;
+    }
+
+    /**
+     * @param zone
+     *            null for {@link denominator.ZoneApi} operations.
+     * @return histogram of the operation, if it was ever timed.
+     */
+    public Optional<Histogram> get(String provider, String zone, String operation) {
+        return Optional.fromNullable(histograms.get(new Tags(provider, zone, operation)));
+    }
+
+    /**
+     * keeps the gauge, tagged with the provider and {@code name} as the
+     * operation.
+     */
+    @Override
+    public void gauge(String provider, String name, Gauge gauge) {
+        gauges.put(new Tags(provider, null, name), checkNotNull(gauge, "gauge"));
+    }
+
+    /**
+     * @return gauge registered with the provider and name, if any.
+     */
+    public Optional<Gauge> getGauge(String provider, String name) {
+        return Optional.fromNullable(gauges.get(new Tags(provider, null, name)));
+    }
+
+    /**
+     * @return histograms timed so far, by their tags.
+     */
+    public Map<Tags, Histogram> asMap() {
+        return ImmutableMap.copyOf(histograms);
+    }
+
+    @Override
+    public String toString() {
+        return "InMemoryMetrics(" + histograms.keySet() + ")";
+    }
+
+    /**
+     * identifies which provider, zone and operation a histogram is for.
+     */
+    public static final class Tags {
+        private final String provider;
+        private final String zone;
+        private final String operation;
+
+        Tags(String provider, String zone, String operation) {
+            this.provider = checkNotNull(provider, "provider");
+            this.zone = zone;
+            this.operation = checkNotNull(operation, "operation");
+        }
+
+        public String getProvider() {
+            return provider;
+        }
+
+        /**
+         * @return zone the operation affects, or absent for
+         *         {@link denominator.ZoneApi} operations.
+         */
+        public Optional<String> getZone() {
+            return Optional.fromNullable(zone);
+        }
+
+        public String getOperation() {
+            return operation;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hashCode(provider, zone, operation);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj)
+                return true;
+            if (obj == null || getClass() != obj.getClass())
+                return false;
+            Tags that = Tags.class.cast(obj);
+            return equal(this.provider, that.provider) && equal(this.zone, that.zone)
+                    && equal(this.operation, that.operation);
+        }
+
+        @Override
+        public String toString() {
+            return toStringHelper("").omitNullValues().add("provider", provider).add("zone", zone)
+                    .add("operation", operation).toString();
+        }
+    }
+
+    /**
+     * Counts samples into buckets whose bounds are powers of two nanoseconds.
+     * Memory is fixed regardless of how many samples are recorded, and
+     * recording a sample doesn't allocate or lock. Percentiles are accurate to
+     * within a factor of two.
+     */
+    public static final class Histogram extends Timer {
+        // bucket i holds samples less than 2^i nanos, and at least 2^(i-1)
+        private final AtomicLongArray buckets = new AtomicLongArray(64);
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong failures = new AtomicLong();
+        private final AtomicLong totalNanos = new AtomicLong();
+        private final AtomicLong maxNanos = new AtomicLong();
+
+        Histogram() {
+        }
+
+        @Override
+        public void record(long nanos, boolean failed) {
+            if (nanos < 0)
+                nanos = 0;
+            buckets.incrementAndGet(64 - Long.numberOfLeadingZeros(nanos));
+            count.incrementAndGet();
+            if (failed)
+                failures.incrementAndGet();
+            totalNanos.addAndGet(nanos);
+            long max;
+            while (nanos > (max = maxNanos.get()) && !maxNanos.compareAndSet(max, nanos))
+                ;
+        }
+
+        /**
+         * @return count of operations, including those that failed.
+         */
+        public long getCount() {
+            return count.get();
+        }
+
+        /**
+         * @return count of operations that threw an exception.
+         */
+        public long getFailureCount() {
+            return failures.get();
+        }
+
+        public long getTotalNanos() {
+            return totalNanos.get();
+        }
+
+        public long getMaxNanos() {
+            return maxNanos.get();
+        }
+
+        /**
+         * @param quantile
+         *            between 0 and 1. ex. {@code 0.99}
+         * @return upper bound, in nanoseconds, of the bucket that holds the
+         *         sample at {@code quantile}, or 0 if there are no samples.
+         */
+        public long getQuantileNanos(double quantile) {
+            checkArgument(quantile >= 0 && quantile <= 1, "quantile must be between 0 and 1, but was %s", quantile);
+            long count = getCount();
+            if (count == 0)
+                return 0;
+            long rank = Math.max(1, (long) Math.ceil(quantile * count));
+            long seen = 0;
+            for (int i = 0; i < buckets.length(); i++) {
+                seen += buckets.get(i);
+                if (seen >= rank)
+                    return Math.min((1L << i) - 1, getMaxNanos());
+            }
+            return getMaxNanos();
+        }
+
+        @Override
+        public String toString() {
+            return toStringHelper("").add("count", getCount()).add("failures", getFailureCount())
+                    .add("p50", getQuantileNanos(0.5)).add("p99", getQuantileNanos(0.99)).add("max", getMaxNanos())
+                    .toString();
+        }
+    }
+}
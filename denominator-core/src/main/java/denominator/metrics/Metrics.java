@@ -0,0 +1,105 @@
+package denominator.metrics;
+
+import com.google.common.annotations.Beta;
+
+/**
+ * Receives the outcome and latency of calls to the
+ * {@link denominator.ZoneApi zone}, {@link denominator.ResourceRecordSetApi
+ * record set} and {@link denominator.profile.GeoResourceRecordSetApi geo}
+ * apis. Implement this to forward samples to your monitoring system, and
+ * configure it with {@link denominator.config.MeasureOperations}.
+ *
+ * <p/>
+ * {@link #timer(String, String, String)} is called once per operation each
+ * time an api is created, not once per call. Implementations should do the
+ * expensive work, such as looking up a metric by its tags, there. This keeps
+ * {@link Timer#record(long, boolean)} cheap, as it is called on every
+ * operation.
+ */
+@Beta
+public abstract class Metrics {
+
+    /**
+     * discards all samples.
+     */
+    public static final Metrics NONE = new Metrics() {
+        @Override
+        public Timer timer(String provider, String zone, String operation) {
+            return Timer.NONE;
+        }
+
+        @Override
+        public String toString() {
+            return "NONE";
+        }
+    };
+
+    /**
+     * @param provider
+     *            {@link denominator.Provider#getName() name} of the provider.
+     *            ex. {@code route53}
+     * @param zone
+     *            zone the operation affects, or null for
+     *            {@link denominator.ZoneApi} operations. ex.
+     *            {@code denominator.io.}
+     * @param operation
+     *            type and method of the api. ex.
+     *            {@code ResourceRecordSetApi.getByNameAndType}
+     * @return where to record samples for the operation. Never null.
+     */
+    public abstract Timer timer(String provider, String zone, String operation);
+
+    /**
+     * registers a value that is read when reported, rather than recorded per
+     * call, such as the rate of {@link denominator.config.RateLimitOperations}.
+     * This is called once, when the api that owns the value is created.
+     * Registering the same name again replaces the prior gauge. Gauges are
+     * ignored unless overridden.
+     *
+     * @param provider
+     *            {@link denominator.Provider#getName() name} of the provider.
+     *            ex. {@code route53}
+     * @param name
+     *            type and property the gauge reads. ex.
+     *            {@code RateLimit.permitsPerSecond}
+     */
+    public void gauge(String provider, String name, Gauge gauge) {
+    }
+
+    /**
+     * records samples for one operation of one provider and zone.
+     */
+    public static abstract class Timer {
+
+        /**
+         * discards all samples.
+         */
+        public static final Timer NONE = new Timer() {
+            @Override
+            public void record(long nanos, boolean failed) {
+            }
+        };
+
+        /**
+         * @param nanos
+         *            time spent in the operation. For operations that return
+         *            an iterator, this includes time spent iterating, which
+         *            is where most providers make requests.
+         * @param failed
+         *            true if the operation threw an exception.
+         */
+        public abstract void record(long nanos, boolean failed);
+    }
+
+    /**
+     * reads the current value of something, such as a rate or the count of
+     * waiting callers.
+     */
+    public static abstract class Gauge {
+
+        /**
+         * @return the current value. Must be cheap, and must not block.
+         */
+        public abstract double value();
+    }
+}
@@ -2,30 +2,28 @@ package denominator.mock;
 
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
-import static com.google.common.base.Predicates.and;
-import static com.google.common.collect.FluentIterable.from;
-import static com.google.common.collect.Ordering.usingToString;
-import static denominator.model.ResourceRecordSets.nameEqualTo;
-import static denominator.model.ResourceRecordSets.typeEqualTo;
+import static com.google.common.collect.Iterators.filter;
 
 import java.util.Iterator;
 
 import javax.inject.Inject;
 
 import com.google.common.base.Predicate;
-import com.google.common.collect.Multimap;
+import com.google.common.base.Predicates;
 
 import denominator.AllProfileResourceRecordSetApi;
 import denominator.model.ResourceRecordSet;
 
 public class MockAllProfileResourceRecordSetApi implements denominator.AllProfileResourceRecordSetApi {
 
-    protected final Multimap<String, ResourceRecordSet<?>> records;
+    protected final MockStorage storage;
     protected final String zoneName;
+    private final Predicate<ResourceRecordSet<?>> filter;
 
-    MockAllProfileResourceRecordSetApi(Multimap<String, ResourceRecordSet<?>> records, String zoneName) {
-        this.records = records;
+    MockAllProfileResourceRecordSetApi(MockStorage storage, String zoneName, Predicate<ResourceRecordSet<?>> filter) {
+        this.storage = storage;
         this.zoneName = zoneName;
+        this.filter = filter;
     }
 
     /**
@@ -33,49 +31,36 @@ public class MockAllProfileResourceRecordSetApi implements denominator.AllProfil
      */
     @Override
     public Iterator<ResourceRecordSet<?>> list() {
-        return from(records.get(zoneName))
-                .toSortedList(usingToString())
-                .iterator();
+        return filter(storage.list(zoneName), filter);
     }
 
     @Override
     public Iterator<ResourceRecordSet<?>> listByName(String name) {
         checkNotNull(name, "name");
-        return from(records.get(zoneName))
-                .filter(nameEqualTo(name))
-                .toSortedList(usingToString())
-                .iterator();
+        return filter(storage.listByName(zoneName, name), filter);
     }
 
     @Override
     public Iterator<ResourceRecordSet<?>> listByNameAndType(String name, String type) {
         checkNotNull(name, "name");
         checkNotNull(type, "type");
-        return from(records.get(zoneName))
-                .filter(nameAndTypeEqualTo(name, type))
-                .toSortedList(usingToString())
-                .iterator();
-    }
-
-    static Predicate<ResourceRecordSet<?>> nameAndTypeEqualTo(String name, String type) {
-        return and(nameEqualTo(name), typeEqualTo(type));
+        return filter(storage.getByNameAndType(zoneName, name, type).iterator(), filter);
     }
 
     static class Factory implements denominator.AllProfileResourceRecordSetApi.Factory {
 
-        private final Multimap<String, ResourceRecordSet<?>> records;
+        private final MockStorage storage;
 
-        // wildcard types are not currently injectable in dagger
-        @SuppressWarnings({ "rawtypes", "unchecked" })
         @Inject
-        Factory(Multimap<String, ResourceRecordSet> records) {
-            this.records = Multimap.class.cast(records);
+        Factory(MockStorage storage) {
+            this.storage = storage;
         }
 
         @Override
         public AllProfileResourceRecordSetApi create(String zoneName) {
-            checkArgument(records.keySet().contains(zoneName), "zone %s not found", zoneName);
-            return new MockAllProfileResourceRecordSetApi(records, zoneName);
+            checkArgument(storage.hasZone(zoneName), "zone %s not found", zoneName);
+            return new MockAllProfileResourceRecordSetApi(storage, zoneName,
+                    Predicates.<ResourceRecordSet<?>> alwaysTrue());
         }
     }
 }
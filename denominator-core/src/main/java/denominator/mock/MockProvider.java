@@ -1,7 +1,6 @@
 package denominator.mock;
 
 import static com.google.common.base.Strings.emptyToNull;
-import static com.google.common.collect.Multimaps.synchronizedListMultimap;
 import static denominator.model.ResourceRecordSets.a;
 import static denominator.model.ResourceRecordSets.cname;
 import static denominator.model.ResourceRecordSets.ns;
@@ -84,6 +83,9 @@ public class MockProvider extends BasicProvider {
             return in;
         }
     
+        /**
+         * initial record sets by zone, which {@link MockStorage} indexes.
+         */
         // wildcard types are not currently injectable in dagger
         @SuppressWarnings({ "rawtypes", "unchecked" })
         @Provides
@@ -91,7 +93,6 @@ public class MockProvider extends BasicProvider {
         Multimap<String, ResourceRecordSet> provideRecords() {
             String zoneName = "denominator.io.";
             ListMultimap<String, ResourceRecordSet<?>> records = LinkedListMultimap.create();
-            records = synchronizedListMultimap(records);
             records.put(zoneName, ResourceRecordSet.builder()
                                                 .type("SOA")
                                                 .name(zoneName)
@@ -2,15 +2,12 @@ package denominator.mock;
 
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
-import static com.google.common.base.Predicates.and;
 import static com.google.common.base.Predicates.in;
 import static com.google.common.base.Predicates.not;
 import static com.google.common.collect.FluentIterable.from;
-import static com.google.common.collect.Iterables.filter;
-import static com.google.common.collect.Multimaps.filterValues;
-import static com.google.common.collect.Ordering.usingToString;
-import static denominator.model.ResourceRecordSets.nameEqualTo;
-import static denominator.model.ResourceRecordSets.typeEqualTo;
+import static com.google.common.collect.Iterators.filter;
+import static denominator.ResourceRecordSetConflictException.checkCurrent;
+import static denominator.ResourceRecordSetConflictException.checkSameNameAndType;
 import static denominator.model.ResourceRecordSets.withoutProfile;
 
 import java.util.Iterator;
@@ -19,21 +16,22 @@ import java.util.Map;
 import javax.inject.Inject;
 
 import com.google.common.base.Optional;
-import com.google.common.collect.FluentIterable;
-import com.google.common.collect.Multimap;
+import com.google.common.collect.Iterables;
 
 import denominator.ResourceRecordSetApi;
+import denominator.ResourceRecordSetBatch;
+import denominator.mock.MockStorage.Change;
 import denominator.model.ResourceRecordSet;
 import denominator.model.ResourceRecordSet.Builder;
 
 
 public final class MockResourceRecordSetApi implements denominator.ResourceRecordSetApi {
 
-    private final Multimap<String, ResourceRecordSet<?>> records;
+    private final MockStorage storage;
     private final String zoneName;
 
-    MockResourceRecordSetApi(Multimap<String, ResourceRecordSet<?>> records, String zoneName) {
-        this.records = records;
+    MockResourceRecordSetApi(MockStorage storage, String zoneName) {
+        this.storage = storage;
         this.zoneName = zoneName;
     }
 
@@ -42,107 +40,145 @@ public final class MockResourceRecordSetApi implements denominator.ResourceRecor
      */
     @Override
     public Iterator<ResourceRecordSet<?>> list() {
-        return FluentIterable.from(records.get(zoneName)).toSortedList(usingToString()).iterator();
+        return filter(storage.list(zoneName), withoutProfile());
     }
 
     @Override
     public Optional<ResourceRecordSet<?>> getByNameAndType(String name, String type) {
         checkNotNull(name, "name");
         checkNotNull(type, "type");
-        return from(records.get(zoneName)).firstMatch(and(nameEqualTo(name), typeEqualTo(type)));
+        return from(storage.getByNameAndType(zoneName, name, type)).firstMatch(withoutProfile());
     }
 
     @Override
     public Iterator<ResourceRecordSet<?>> listByName(String name) {
         checkNotNull(name, "name");
-        return from(records.get(zoneName)).filter(nameEqualTo(name)).iterator();
+        return filter(storage.listByName(zoneName, name), withoutProfile());
     }
 
     @Override
-    public void applyTTLToNameAndType(int ttl, String name, String type) {
+    public void applyTTLToNameAndType(final int ttl, String name, String type) {
         checkNotNull(ttl, "ttl");
-        Optional<ResourceRecordSet<?>> existing = getByNameAndType(name, type);
-        if (!existing.isPresent())
-            return;
-        ResourceRecordSet<?> rrset = existing.get();
-        if (rrset.getTTL().isPresent() && rrset.getTTL().get().equals(ttl))
-            return;
-        ResourceRecordSet<Map<String, Object>> rrs  = ResourceRecordSet.<Map<String, Object>> builder()
-                                                                       .name(rrset.getName())
-                                                                       .type(rrset.getType())
-                                                                       .ttl(ttl)
-                                                                       .addAll(rrset).build();
-        replace(rrs);
+        update(name, type, new Change() {
+            @Override
+            public Optional<ResourceRecordSet<?>> apply(Optional<ResourceRecordSet<?>> existing) {
+                if (!existing.isPresent())
+                    return existing;
+                ResourceRecordSet<?> rrset = existing.get();
+                if (rrset.getTTL().isPresent() && rrset.getTTL().get().equals(ttl))
+                    return existing;
+                ResourceRecordSet<Map<String, Object>> rrs  = ResourceRecordSet.<Map<String, Object>> builder()
+                                                                               .name(rrset.getName())
+                                                                               .type(rrset.getType())
+                                                                               .ttl(ttl)
+                                                                               .addAll(rrset).build();
+                return Optional.<ResourceRecordSet<?>> of(rrs);
+            }
+        });
     }
 
     @Override
-    public void add(ResourceRecordSet<?> rrset) {
+    public void add(final ResourceRecordSet<?> rrset) {
         checkNotNull(rrset, "rrset was null");
-        Optional<ResourceRecordSet<?>> rrsMatch = getByNameAndType(rrset.getName(), rrset.getType());
-        Builder<Map<String, Object>> rrs  = ResourceRecordSet.<Map<String, Object>>builder()
-                                                             .name(rrset.getName())
-                                                             .type(rrset.getType())
-                                                             .ttl(rrset.getTTL().or(3600));
-        if (rrsMatch.isPresent()) {
-            rrs.addAll(rrsMatch.get());
-            rrs.addAll(filter(rrset, not(in(rrsMatch.get()))));
-            records.remove(zoneName, rrsMatch.get());
-        } else {
-            rrs.addAll(rrset);
-        }
-        records.put(zoneName, rrs.build());
+        update(rrset.getName(), rrset.getType(), new Change() {
+            @Override
+            public Optional<ResourceRecordSet<?>> apply(Optional<ResourceRecordSet<?>> rrsMatch) {
+                Builder<Map<String, Object>> rrs  = ResourceRecordSet.<Map<String, Object>>builder()
+                                                                     .name(rrset.getName())
+                                                                     .type(rrset.getType())
+                                                                     .ttl(rrset.getTTL().or(3600));
+                if (rrsMatch.isPresent()) {
+                    rrs.addAll(rrsMatch.get());
+                    rrs.addAll(Iterables.filter(rrset, not(in(rrsMatch.get()))));
+                } else {
+                    rrs.addAll(rrset);
+                }
+                return Optional.<ResourceRecordSet<?>> of(rrs.build());
+            }
+        });
     }
 
     @Override
-    public void replace(ResourceRecordSet<?> rrset) {
+    public void replace(final ResourceRecordSet<?> rrset) {
         checkNotNull(rrset, "rrset was null");
-        Optional<ResourceRecordSet<?>> rrsMatch = getByNameAndType(rrset.getName(), rrset.getType());
-        if (rrsMatch.isPresent()) {
-            records.remove(zoneName, rrsMatch.get());
-        }
-        records.put(zoneName, rrset);
+        update(rrset.getName(), rrset.getType(), new Change() {
+            @Override
+            public Optional<ResourceRecordSet<?>> apply(Optional<ResourceRecordSet<?>> rrsMatch) {
+                return Optional.<ResourceRecordSet<?>> of(rrset);
+            }
+        });
+    }
+
+    /**
+     * compared while holding the name, so this is atomic.
+     */
+    @Override
+    public void replace(final ResourceRecordSet<?> expected, final ResourceRecordSet<?> desired) {
+        checkSameNameAndType(expected, desired);
+        update(desired.getName(), desired.getType(), new Change() {
+            @Override
+            public Optional<ResourceRecordSet<?>> apply(Optional<ResourceRecordSet<?>> rrsMatch) {
+                checkCurrent(expected, rrsMatch);
+                return Optional.<ResourceRecordSet<?>> of(desired);
+            }
+        });
     }
 
     @Override
-    public void remove(ResourceRecordSet<?> rrset) {
+    public void remove(final ResourceRecordSet<?> rrset) {
         checkNotNull(rrset, "rrset was null");
-        Optional<ResourceRecordSet<?>> rrsMatch = getByNameAndType(rrset.getName(), rrset.getType());
-        if (rrsMatch.isPresent()) {
-            records.remove(zoneName, rrsMatch.get());
-            if (rrsMatch.get().size() > 1) {
-                records.put(zoneName, ResourceRecordSet.<Map<String, Object>> builder()
+        update(rrset.getName(), rrset.getType(), new Change() {
+            @Override
+            public Optional<ResourceRecordSet<?>> apply(Optional<ResourceRecordSet<?>> rrsMatch) {
+                if (rrsMatch.isPresent() && rrsMatch.get().size() > 1) {
+                    return Optional.<ResourceRecordSet<?>> of(ResourceRecordSet.<Map<String, Object>> builder()
                                                     .name(rrset.getName())
                                                     .type(rrset.getType())
                                                     .ttl(rrsMatch.get().getTTL().get())
-                                                    .addAll(filter(rrsMatch.get(), not(in(rrset))))
+                                                    .addAll(Iterables.filter(rrsMatch.get(), not(in(rrset))))
                                                     .build());
+                }
+                return Optional.absent();
             }
-        }
+        });
     }
 
     @Override
     public void deleteByNameAndType(String name, String type) {
-        Optional<ResourceRecordSet<?>> rrsMatch = getByNameAndType(name, type);
-        if (rrsMatch.isPresent()) {
-            records.remove(zoneName, rrsMatch.get());
-        }
+        update(name, type, new Change() {
+            @Override
+            public Optional<ResourceRecordSet<?>> apply(Optional<ResourceRecordSet<?>> rrsMatch) {
+                return Optional.absent();
+            }
+        });
+    }
+
+    private void update(String name, String type, Change change) {
+        storage.update(zoneName, name, type, withoutProfile(), change);
+    }
+
+    /**
+     * no native batching, so changes apply sequentially.
+     */
+    @Override
+    public void apply(ResourceRecordSetBatch batch) {
+        checkNotNull(batch, "batch was null");
+        batch.applySequentially(this);
     }
 
     public static final class Factory implements denominator.ResourceRecordSetApi.Factory {
 
-        private final Multimap<String, ResourceRecordSet<?>> records;
+        private final MockStorage storage;
 
-        // wildcard types are not currently injectable in dagger
-        @SuppressWarnings({ "rawtypes", "unchecked" })
         @Inject
-        Factory(Multimap<String, ResourceRecordSet> records) {
-            this.records = Multimap.class.cast(filterValues(Multimap.class.cast(records), withoutProfile()));
+        Factory(MockStorage storage) {
+            this.storage = storage;
         }
 
         @Override
         public ResourceRecordSetApi create(String zoneName) {
-            checkArgument(records.keySet().contains(zoneName), "zone %s not found", zoneName);
-            return new MockResourceRecordSetApi(records, zoneName);
+            checkArgument(storage.hasZone(zoneName), "zone %s not found", zoneName);
+            return new MockResourceRecordSetApi(storage, zoneName);
         }
     }
-}
\ No newline at end of file
+}
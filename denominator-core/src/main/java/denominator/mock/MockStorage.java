@@ -0,0 +1,199 @@
+package denominator.mock;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.collect.Ordering.usingToString;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.locks.Lock;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import com.google.common.base.Function;
+import com.google.common.base.Optional;
+import com.google.common.base.Predicate;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSortedMap;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Iterators;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Multimap;
+import com.google.common.util.concurrent.Striped;
+
+import denominator.model.ResourceRecordSet;
+
+/**
+ * record sets of the mock provider, indexed by zone, then name, then type.
+ * Names are kept sorted, so record sets list in order of name and type
+ * without sorting the zone each time. Record sets of the same name and type,
+ * such as geo groups, are ordered by {@code toString}.
+ *
+ * <p/>
+ * Reads don't lock. Each name maps to an immutable snapshot of its record
+ * sets by type, which writes replace. Writes to a name hold one of a zone's
+ * striped locks, so writes to different names seldom contend.
+ */
+@Singleton
+final class MockStorage {
+    private static final int STRIPES_PER_ZONE = 64;
+
+    private final Map<String, Zone> zones;
+
+    /**
+     * @param records
+     *            initial record sets by zone name. Zones can't be added
+     *            later.
+     */
+    // wildcard types are not currently injectable in dagger
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    @Inject
+    MockStorage(Multimap<String, ResourceRecordSet> records) {
+        Multimap<String, ResourceRecordSet<?>> initial = Multimap.class.cast(records);
+        ImmutableMap.Builder<String, Zone> zones = ImmutableMap.builder();
+        for (Entry<String, Collection<ResourceRecordSet<?>>> entry : initial.asMap().entrySet()) {
+            Zone zone = new Zone();
+            for (final ResourceRecordSet<?> rrset : entry.getValue()) {
+                zone.update(rrset.getName(), rrset.getType(), new RRSetsChange() {
+                    @Override
+                    public List<ResourceRecordSet<?>> apply(List<ResourceRecordSet<?>> rrsets) {
+                        return ImmutableList.<ResourceRecordSet<?>> builder().addAll(rrsets).add(rrset).build();
+                    }
+                });
+            }
+            zones.put(entry.getKey(), zone);
+        }
+        this.zones = zones.build();
+    }
+
+    Set<String> zones() {
+        return zones.keySet();
+    }
+
+    boolean hasZone(String zoneName) {
+        return zones.containsKey(zoneName);
+    }
+
+    /**
+     * @return record sets in order of name and type, reflecting writes that
+     *         happen while iterating.
+     */
+    Iterator<ResourceRecordSet<?>> list(String zoneName) {
+        return Iterators.concat(Iterators.transform(zone(zoneName).names.values().iterator(), flatten));
+    }
+
+    Iterator<ResourceRecordSet<?>> listByName(String zoneName, String name) {
+        checkNotNull(name, "name");
+        Map<String, ImmutableList<ResourceRecordSet<?>>> types = zone(zoneName).names.get(name);
+        if (types == null)
+            return Iterators.emptyIterator();
+        return flatten.apply(types);
+    }
+
+    List<ResourceRecordSet<?>> getByNameAndType(String zoneName, String name, String type) {
+        checkNotNull(name, "name");
+        checkNotNull(type, "type");
+        Map<String, ImmutableList<ResourceRecordSet<?>>> types = zone(zoneName).names.get(name);
+        if (types == null || !types.containsKey(type))
+            return ImmutableList.of();
+        return types.get(type);
+    }
+
+    /**
+     * atomically changes the first record set of {@code name} and
+     * {@code type} that matches {@code existing}. Until this returns, other
+     * writes to the same name wait.
+     *
+     */
+    void update(String zoneName, String name, String type, final Predicate<ResourceRecordSet<?>> existing,
+            final Change change) {
+        checkNotNull(name, "name");
+        checkNotNull(type, "type");
+        checkNotNull(existing, "existing");
+        checkNotNull(change, "change");
+        zone(zoneName).update(name, type, new RRSetsChange() {
+            @Override
+            public List<ResourceRecordSet<?>> apply(List<ResourceRecordSet<?>> rrsets) {
+                List<ResourceRecordSet<?>> updated = Lists.newArrayList(rrsets);
+                int index = Iterables.indexOf(updated, existing);
+                Optional<ResourceRecordSet<?>> replacement = change.apply(index == -1 ? Optional
+                        .<ResourceRecordSet<?>> absent() : Optional.<ResourceRecordSet<?>> of(updated.get(index)));
+                if (index != -1)
+                    updated.remove(index);
+                if (replacement.isPresent())
+                    updated.add(replacement.get());
+                return updated;
+            }
+        });
+    }
+
+    private Zone zone(String zoneName) {
+        Zone zone = zones.get(checkNotNull(zoneName, "zoneName"));
+        checkArgument(zone != null, "zone %s not found", zoneName);
+        return zone;
+    }
+
+    /**
+     * receives the existing record set, if any, and returns its replacement,
+     * or absent to remove it.
+     */
+    static interface Change extends Function<Optional<ResourceRecordSet<?>>, Optional<ResourceRecordSet<?>>> {
+    }
+
+    private static interface RRSetsChange extends Function<List<ResourceRecordSet<?>>, List<ResourceRecordSet<?>>> {
+    }
+
+    private static final class Zone {
+        // name -> type -> record sets
+        private final ConcurrentNavigableMap<String, ImmutableSortedMap<String, ImmutableList<ResourceRecordSet<?>>>> names =
+                new ConcurrentSkipListMap<String, ImmutableSortedMap<String, ImmutableList<ResourceRecordSet<?>>>>();
+        private final Striped<Lock> locks = Striped.lock(STRIPES_PER_ZONE);
+
+        private void update(String name, String type, RRSetsChange change) {
+            Lock lock = locks.get(name);
+            lock.lock();
+            try {
+                ImmutableSortedMap<String, ImmutableList<ResourceRecordSet<?>>> types = names.get(name);
+                if (types == null)
+                    types = ImmutableSortedMap.of();
+                List<ResourceRecordSet<?>> current = types.containsKey(type) ? types.get(type) : ImmutableList
+                        .<ResourceRecordSet<?>> of();
+                ImmutableList<ResourceRecordSet<?>> updated = usingToString().immutableSortedCopy(
+                        change.apply(current));
+
+                ImmutableSortedMap.Builder<String, ImmutableList<ResourceRecordSet<?>>> builder = ImmutableSortedMap
+                        .naturalOrder();
+                for (Entry<String, ImmutableList<ResourceRecordSet<?>>> entry : types.entrySet()) {
+                    if (!entry.getKey().equals(type))
+                        builder.put(entry);
+                }
+                if (!updated.isEmpty())
+                    builder.put(type, updated);
+                ImmutableSortedMap<String, ImmutableList<ResourceRecordSet<?>>> replacement = builder.build();
+                if (replacement.isEmpty()) {
+                    names.remove(name);
+                } else {
+                    names.put(name, replacement);
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private static final Function<Map<String, ImmutableList<ResourceRecordSet<?>>>, Iterator<ResourceRecordSet<?>>> flatten =
+            new Function<Map<String, ImmutableList<ResourceRecordSet<?>>>, Iterator<ResourceRecordSet<?>>>() {
+                @Override
+                public Iterator<ResourceRecordSet<?>> apply(Map<String, ImmutableList<ResourceRecordSet<?>>> byType) {
+                    return Iterables.concat(byType.values()).iterator();
+                }
+            };
+}
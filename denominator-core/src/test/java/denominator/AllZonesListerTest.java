@@ -0,0 +1,136 @@
+package denominator;
+
+import static dagger.Provides.Type.SET;
+import static denominator.model.ResourceRecordSets.a;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+import java.util.Iterator;
+import java.util.Map.Entry;
+import java.util.concurrent.Executors;
+
+import javax.inject.Singleton;
+
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.LinkedListMultimap;
+import com.google.common.collect.ListMultimap;
+import com.google.common.collect.Multimap;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+
+import dagger.Module;
+import dagger.Provides;
+import denominator.mock.MockProvider;
+import denominator.model.ResourceRecordSet;
+
+@Test
+public class AllZonesListerTest {
+
+    public void listsEachZoneInOrder() {
+        DNSApiManager mgr = Denominator.create(new MockProvider(), new ThreeZones());
+        ListMultimap<String, ResourceRecordSet<?>> listed = LinkedListMultimap.create();
+        for (Iterator<Entry<String, ResourceRecordSet<?>>> i = AllZonesLister.builder()
+                                                                             .concurrency(2)
+                                                                             .bufferSize(1)
+                                                                             .build().list(mgr.getApi()); i.hasNext();) {
+            Entry<String, ResourceRecordSet<?>> next = i.next();
+            listed.put(next.getKey(), next.getValue());
+        }
+
+        assertEquals(listed.keySet().size(), 3);
+        for (String zone : ImmutableList.of("a.", "b.", "c.")) {
+            assertEquals(listed.get(zone),
+                    ImmutableList.copyOf(mgr.getApi().getResourceRecordSetApiForZone(zone).list()));
+        }
+    }
+
+    @Test(expectedExceptions = IllegalStateException.class, expectedExceptionsMessageRegExp = "b. is unavailable")
+    public void throwsFailureListingAZone() {
+        DNSApiManager mgr = Denominator.create(new MockProvider(), new ThreeZones(), new ZoneBIsUnavailable());
+        for (Iterator<?> i = AllZonesLister.builder().build().list(mgr.getApi()); i.hasNext();) {
+            i.next();
+        }
+    }
+
+    public void closeStopsListing() throws InterruptedException {
+        DNSApiManager mgr = Denominator.create(new MockProvider(), new ThreeZones());
+        ListeningExecutorService executor = MoreExecutors.listeningDecorator(Executors.newFixedThreadPool(3));
+        AllZonesLister.Listing listing = AllZonesLister.builder()
+                                                       .concurrency(3)
+                                                       .bufferSize(1)
+                                                       .executor(executor)
+                                                       .build().list(mgr.getApi());
+        listing.next();
+        listing.close();
+
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(1, SECONDS));
+    }
+
+    @Test(timeOut = 10000)
+    public void throwsWhenSharedExecutorIsShutDown() {
+        DNSApiManager mgr = Denominator.create(new MockProvider(), new ThreeZones());
+        ListeningExecutorService executor = MoreExecutors.listeningDecorator(Executors.newFixedThreadPool(3));
+        AllZonesLister.Listing listing = AllZonesLister.builder()
+                                                       .concurrency(3)
+                                                       .bufferSize(1)
+                                                       .executor(executor)
+                                                       .build().list(mgr.getApi());
+        listing.next();
+        executor.shutdownNow();
+
+        try {
+            while (listing.hasNext())
+                listing.next();
+            fail();
+        } catch (RuntimeException e) {
+            assertTrue(e.getCause() instanceof InterruptedException, e.toString());
+        }
+    }
+
+    @Module(injects = DNSApiManager.class, complete = false, library = true, overrides = true)
+    static final class ThreeZones {
+        // wildcard types are not currently injectable in dagger
+        @SuppressWarnings("rawtypes")
+        @Provides
+        @Singleton
+        Multimap<String, ResourceRecordSet> provideRecords() {
+            Multimap<String, ResourceRecordSet> records = LinkedListMultimap.create();
+            for (String zone : ImmutableList.of("a.", "b.", "c.")) {
+                for (int i = 0; i < 10; i++) {
+                    records.put(zone, a("www" + i + "." + zone, "192.0.2." + i));
+                }
+            }
+            return records;
+        }
+    }
+
+    @Module(injects = DNSApiManager.class, complete = false, library = true)
+    static final class ZoneBIsUnavailable {
+        @Provides(type = SET)
+        ApiDecorator provideDecorator() {
+            return new ApiDecorator() {
+                @Override
+                public ResourceRecordSetApi decorate(String zoneName, final ResourceRecordSetApi api) {
+                    if (!"b.".equals(zoneName))
+                        return api;
+                    return new ForwardingResourceRecordSetApi() {
+                        @Override
+                        protected ResourceRecordSetApi delegate() {
+                            return api;
+                        }
+
+                        @Override
+                        public Iterator<ResourceRecordSet<?>> list() {
+                            throw new IllegalStateException("b. is unavailable");
+                        }
+                    };
+                }
+            };
+        }
+    }
+}
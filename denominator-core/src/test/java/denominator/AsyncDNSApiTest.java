@@ -0,0 +1,55 @@
+package denominator;
+
+import static com.google.common.util.concurrent.MoreExecutors.sameThreadExecutor;
+import static denominator.Denominator.create;
+import static denominator.ExecutorConfiguration.executor;
+import static denominator.ExecutorConfiguration.threads;
+import static denominator.model.ResourceRecordSets.a;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import java.util.concurrent.ExecutionException;
+
+import org.testng.annotations.Test;
+
+import com.google.common.util.concurrent.ListenableFuture;
+
+public class AsyncDNSApiTest {
+
+    @Test
+    public void testListZones() throws InterruptedException, ExecutionException {
+        assertEquals(create("mock").getAsyncApi().listZones().get().get(0), "denominator.io.");
+    }
+
+    @Test
+    public void testWriteThenRead() throws InterruptedException, ExecutionException {
+        AsyncResourceRecordSetApi api = create("mock", threads(2, 10)).getAsyncApi()
+                .getResourceRecordSetApiForZone("denominator.io.");
+
+        api.add(a("www3.denominator.io.", 3600, "192.0.2.3")).get();
+        assertEquals(api.getByNameAndType("www3.denominator.io.", "A").get().get(),
+                a("www3.denominator.io.", 3600, "192.0.2.3"));
+
+        api.deleteByNameAndType("www3.denominator.io.", "A").get();
+        assertFalse(api.getByNameAndType("www3.denominator.io.", "A").get().isPresent());
+    }
+
+    @Test
+    public void testSuppliedExecutor() {
+        ListenableFuture<?> list = create("mock", executor(sameThreadExecutor())).getAsyncApi()
+                .getResourceRecordSetApiForZone("denominator.io.").list();
+        // same thread executor completes before returning
+        assertTrue(list.isDone());
+    }
+
+    @Test(expectedExceptions = ExecutionException.class, expectedExceptionsMessageRegExp = ".*IllegalArgumentException.*")
+    public void testZoneNotFoundFailsFuture() throws InterruptedException, ExecutionException {
+        create("mock").getAsyncApi().getResourceRecordSetApiForZone("notfound.io.").list().get();
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class, expectedExceptionsMessageRegExp = "threads must be positive, but was 0")
+    public void testThreadsMustBePositive() {
+        threads(0, 10);
+    }
+}
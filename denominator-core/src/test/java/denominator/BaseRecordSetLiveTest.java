@@ -11,6 +11,7 @@ import static java.lang.String.format;
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertFalse;
 import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
 
 import java.util.Iterator;
 import java.util.List;
@@ -197,6 +198,51 @@ public abstract class BaseRecordSetLiveTest extends BaseProviderLiveTest {
                         zoneName));
     }
 
+    @Test(dataProvider = "simpleRecords")
+    private void replaceExpectedRRSConflictsWhenStale(ResourceRecordSet<?> recordSet) {
+        skipIfNoCredentials();
+        String zoneName = skipIfNoMutableZone();
+        String recordName = recordSet.getName().replace("." + zoneName, "-cas." + zoneName);
+
+        skipIfRRSetExists(zoneName, recordName, recordSet.getType());
+
+        rrsApi(zoneName).add(ResourceRecordSet.<Map<String, Object>> builder()
+                                              .name(recordName)
+                                              .type(recordSet.getType())
+                                              .ttl(1800)
+                                              .add(recordSet.get(0)).build());
+
+        Optional<ResourceRecordSet<?>> stale = rrsApi(zoneName).getByNameAndType(recordName, recordSet.getType());
+
+        assertPresent(stale, zoneName, recordName, recordSet.getType());
+
+        ResourceRecordSet<Map<String, Object>> desired = ResourceRecordSet.<Map<String, Object>> builder()
+                                                                          .name(recordName)
+                                                                          .type(recordSet.getType())
+                                                                          .ttl(1800)
+                                                                          .add(recordSet.get(1)).build();
+        try {
+            rrsApi(zoneName).replace(stale.get(), desired);
+
+            Optional<ResourceRecordSet<?>> rrs = rrsApi(zoneName).getByNameAndType(recordName, recordSet.getType());
+
+            assertPresent(rrs, zoneName, recordName, recordSet.getType());
+            assertEquals(rrs.get().size(), 1);
+            assertEquals(rrs.get().get(0), recordSet.get(1));
+
+            try {
+                rrsApi(zoneName).replace(stale.get(), stale.get());
+                fail(format("replaced stale recordset(%s, %s) in zone(%s)", recordName, recordSet.getType(),
+                        zoneName));
+            } catch (ResourceRecordSetConflictException e) {
+            }
+            assertEquals(rrsApi(zoneName).getByNameAndType(recordName, recordSet.getType()).get().get(0),
+                    recordSet.get(1));
+        } finally {
+            rrsApi(zoneName).deleteByNameAndType(recordName, recordSet.getType());
+        }
+    }
+
     @Test(dataProvider = "simpleRecords")
     private void deleteRRS(ResourceRecordSet<?> recordSet) {
         skipIfNoCredentials();
@@ -11,7 +11,7 @@ import denominator.mock.MockProvider;
 
 public class DenominatorTest {
 
-    @Test(expectedExceptions = IllegalArgumentException.class, expectedExceptionsMessageRegExp = "provider foo not in set of configured providers: \\[mock\\]")
+    @Test(expectedExceptions = IllegalArgumentException.class, expectedExceptionsMessageRegExp = "provider foo not in set of configured providers: \\[mock, local\\]")
     public void niceMessageWhenProviderNotFound() {
         Denominator.create("foo");
     }
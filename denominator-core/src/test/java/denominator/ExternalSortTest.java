@@ -0,0 +1,128 @@
+package denominator;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import java.io.Closeable;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Ordering;
+import com.google.common.io.Files;
+
+import denominator.ExternalSort.Codec;
+
+public class ExternalSortTest {
+
+    static final class StringCodec implements Codec<String> {
+        final AtomicInteger written = new AtomicInteger();
+
+        @Override
+        public void write(String record, DataOutput out) throws IOException {
+            written.incrementAndGet();
+            ExternalSort.writeString(out, record);
+        }
+
+        @Override
+        public String read(DataInput in) throws IOException {
+            return ExternalSort.readString(in);
+        }
+    }
+
+    @Test
+    public void testFitsInMemoryDoesntSpill() {
+        StringCodec codec = new StringCodec();
+        Iterator<String> sorted = ExternalSort.sort(ImmutableList.of("c", "a", "b").iterator(),
+                Ordering.natural(), codec, 3);
+
+        assertEquals(ImmutableList.copyOf(sorted), ImmutableList.of("a", "b", "c"));
+        assertEquals(codec.written.get(), 0);
+    }
+
+    @Test
+    public void testMergesSpilledRuns() {
+        List<String> records = Lists.newArrayList();
+        Random random = new Random(1);
+        for (int i = 0; i < 1000; i++) {
+            records.add(Integer.toString(random.nextInt(100)));
+        }
+        // nulls and long strings survive being spilled
+        records.add(null);
+        records.add(new String(new char[70000]).replace('\0', 'x'));
+        StringCodec codec = new StringCodec();
+        Ordering<String> ordering = Ordering.natural().nullsFirst();
+
+        Iterator<String> sorted = ExternalSort.sort(records.iterator(), ordering, codec, 100);
+
+        List<String> expected = Lists.newArrayList(records);
+        Collections.sort(expected, ordering);
+        assertEquals(Lists.newArrayList(sorted), expected);
+        // the last 2 records are kept in memory
+        assertEquals(codec.written.get(), 1000);
+    }
+
+    @Test
+    public void testDeletesRunsWhenExhausted() {
+        File directory = Files.createTempDir();
+        try {
+            Iterator<String> sorted = ExternalSort.sort(ImmutableList.of("c", "b", "a", "d", "e").iterator(),
+                    Ordering.natural(), new StringCodec(), 2, directory);
+            assertEquals(runs(directory), 2);
+
+            assertTrue(sorted.hasNext());
+            ImmutableList.copyOf(sorted);
+            assertFalse(sorted.hasNext());
+            assertEquals(runs(directory), 0);
+        } finally {
+            for (File run : directory.listFiles()) {
+                run.delete();
+            }
+            directory.delete();
+        }
+    }
+
+    @Test
+    public void testDeletesRunsWhenClosed() throws IOException {
+        File directory = Files.createTempDir();
+        try {
+            Iterator<String> sorted = ExternalSort.sort(ImmutableList.of("c", "b", "a", "d", "e").iterator(),
+                    Ordering.natural(), new StringCodec(), 2, directory);
+            assertEquals(sorted.next(), "a");
+
+            Closeable.class.cast(sorted).close();
+            assertFalse(sorted.hasNext());
+            assertEquals(runs(directory), 0);
+        } finally {
+            for (File run : directory.listFiles()) {
+                run.delete();
+            }
+            directory.delete();
+        }
+    }
+
+    private static int runs(File directory) {
+        int count = 0;
+        for (String name : directory.list()) {
+            if (name.startsWith("denominator-sort") && name.endsWith(".run"))
+                count++;
+        }
+        return count;
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class, expectedExceptionsMessageRegExp = "maxInMemory must be positive, but was 0")
+    public void testMaxInMemoryMustBePositive() {
+        ExternalSort.sort(ImmutableList.of("a").iterator(), Ordering.natural(), new StringCodec(), 0);
+    }
+}
@@ -0,0 +1,108 @@
+package denominator;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.fail;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.testng.annotations.Test;
+
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterators;
+import com.google.common.util.concurrent.MoreExecutors;
+
+import denominator.ListingConfiguration.Prefetch;
+
+public class PrefetchingIteratorTest {
+
+    @Test
+    public void testNothingToPrefetchReturnsSource() {
+        Iterator<String> source = Iterators.forArray("a", "b");
+        assertSame(PrefetchingIterator.prefetch(source, new Prefetch(0), MoreExecutors.sameThreadExecutor()),
+                source);
+    }
+
+    @Test
+    public void testConcatPreservesOrder() {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            @SuppressWarnings("unchecked")
+            Iterator<List<String>> pages = Iterators.forArray(Arrays.asList("a", "b"), Arrays.<String> asList(),
+                    Arrays.asList("c"));
+            assertEquals(ImmutableList.copyOf(PrefetchingIterator.concat(pages, new Prefetch(2), executor)),
+                    ImmutableList.of("a", "b", "c"));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testReadsAtMostPagesAhead() {
+        CountingIterator source = new CountingIterator(10);
+        Iterator<Integer> prefetched = PrefetchingIterator.prefetch(source, new Prefetch(2),
+                MoreExecutors.sameThreadExecutor());
+
+        assertEquals(prefetched.next(), Integer.valueOf(0));
+        // the one returned, plus two waiting
+        assertEquals(source.reads.get(), 3);
+    }
+
+    @Test
+    public void testCallerReadsWhenExecutorRejects() {
+        Executor rejecting = new Executor() {
+            public void execute(Runnable command) {
+                throw new RejectedExecutionException();
+            }
+        };
+        assertEquals(ImmutableList.copyOf(PrefetchingIterator.prefetch(new CountingIterator(3), new Prefetch(1),
+                rejecting)), ImmutableList.of(0, 1, 2));
+    }
+
+    @Test
+    public void testFailuresAreThrownInPosition() {
+        final AtomicInteger reads = new AtomicInteger();
+        Iterator<String> failing = new AbstractIterator<String>() {
+            protected String computeNext() {
+                if (reads.incrementAndGet() == 2)
+                    throw new IllegalStateException("HTTP/1.1 500 Internal Server Error");
+                return "a";
+            }
+        };
+        Iterator<String> prefetched = PrefetchingIterator.prefetch(failing, new Prefetch(2),
+                MoreExecutors.sameThreadExecutor());
+
+        assertEquals(prefetched.next(), "a");
+        try {
+            prefetched.next();
+            fail();
+        } catch (IllegalStateException e) {
+        }
+        assertEquals(reads.get(), 2);
+    }
+
+    static final class CountingIterator extends AbstractIterator<Integer> {
+        final AtomicInteger reads = new AtomicInteger();
+        private final int size;
+
+        CountingIterator(int size) {
+            this.size = size;
+        }
+
+        @Override
+        protected Integer computeNext() {
+            int next = reads.getAndIncrement();
+            if (next < size)
+                return next;
+            return endOfData();
+        }
+    }
+}
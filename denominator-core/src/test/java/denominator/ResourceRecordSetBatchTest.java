@@ -0,0 +1,56 @@
+package denominator;
+
+import static denominator.Denominator.create;
+import static denominator.model.ResourceRecordSets.a;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+
+import org.testng.annotations.Test;
+
+import com.google.common.base.Optional;
+
+import denominator.ResourceRecordSetBatch.Action;
+import denominator.model.ResourceRecordSet;
+
+public class ResourceRecordSetBatchTest {
+
+    @Test
+    public void testBuilderRetainsOrder() {
+        ResourceRecordSetBatch batch = ResourceRecordSetBatch.builder()
+                                                             .replace(a("www1.denominator.io.", 3600, "192.0.2.1"))
+                                                             .add(a("www2.denominator.io.", 3600, "198.51.100.1"))
+                                                             .deleteByNameAndType("www3.denominator.io.", "A").build();
+
+        assertEquals(batch.size(), 3);
+        assertEquals(batch.get(0).getAction(), Action.REPLACE);
+        assertEquals(batch.get(0).getName(), "www1.denominator.io.");
+        assertEquals(batch.get(1).getAction(), Action.ADD);
+        assertEquals(batch.get(2).getAction(), Action.DELETE);
+        assertEquals(batch.get(2).getType(), "A");
+        assertEquals(batch.get(2).getRRSet(), Optional.absent());
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class, expectedExceptionsMessageRegExp = "only one change is permitted for rrset www.denominator.io. A")
+    public void testOnlyOneChangePerNameAndType() {
+        ResourceRecordSetBatch.builder()
+                              .add(a("www.denominator.io.", 3600, "192.0.2.1"))
+                              .deleteByNameAndType("www.denominator.io.", "A");
+    }
+
+    @Test
+    public void testApplySequentially() {
+        ResourceRecordSetApi api = create("mock").getApi().getResourceRecordSetApiForZone("denominator.io.");
+        api.add(a("www3.denominator.io.", 3600, "192.0.2.3"));
+
+        api.apply(ResourceRecordSetBatch.builder()
+                                        .add(a("www4.denominator.io.", 3600, "192.0.2.4"))
+                                        .replace(a("www2.denominator.io.", 3600, "198.51.100.2"))
+                                        .deleteByNameAndType("www3.denominator.io.", "A").build());
+
+        assertEquals(api.getByNameAndType("www4.denominator.io.", "A").get(), a("www4.denominator.io.", 3600, "192.0.2.4"));
+        assertEquals(api.getByNameAndType("www2.denominator.io.", "A").get(),
+                a("www2.denominator.io.", 3600, "198.51.100.2"));
+        Optional<ResourceRecordSet<?>> deleted = api.getByNameAndType("www3.denominator.io.", "A");
+        assertFalse(deleted.isPresent());
+    }
+}
@@ -0,0 +1,124 @@
+package denominator;
+
+import static denominator.Denominator.create;
+import static denominator.model.ResourceRecordSets.a;
+import static denominator.model.ResourceRecordSets.cname;
+import static denominator.model.ResourceRecordSets.txt;
+import static org.testng.Assert.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.channels.Channels;
+
+import org.testng.annotations.Test;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Joiner;
+import com.google.common.base.Strings;
+import com.google.common.collect.ImmutableList;
+
+import denominator.model.ResourceRecordSet;
+import denominator.model.rdata.MXData;
+import denominator.model.rdata.TXTData;
+
+public class ZoneFileExporterTest {
+
+    @Test
+    public void testExportsZone() throws IOException {
+        DNSApi api = create("mock").getApi();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        long count = ZoneFileExporter.export("denominator.io.",
+                api.getResourceRecordSetApiForZone("denominator.io.").list(), Channels.newChannel(out));
+
+        assertEquals(count, 6);
+        assertEquals(out.toString("UTF-8"), Joiner.on('\n').join(
+                "$ORIGIN denominator.io.",
+                "denominator.io.\t86400\tIN\tNS\tns1.denominator.io.",
+                "denominator.io.\t3600\tIN\tSOA\tns1.denominator.io. admin.denominator.io. 1 3600 600 604800 60",
+                "www.denominator.io.\t3600\tIN\tCNAME\twww1.denominator.io.",
+                "www1.denominator.io.\t3600\tIN\tA\t192.0.2.1",
+                "www1.denominator.io.\t3600\tIN\tA\t192.0.2.2",
+                "www2.denominator.io.\t3600\tIN\tA\t198.51.100.1", ""));
+    }
+
+    @Test
+    public void testExportsProfilesAsComments() throws IOException {
+        DNSApi api = create("mock").getApi();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        ZoneFileExporter.export("denominator.io.",
+                api.getGeoResourceRecordSetApiForZone("denominator.io.").get().listByName("www2.geo.denominator.io."),
+                Channels.newChannel(out));
+
+        assertEquals(out.toString("UTF-8"), Joiner.on('\n').join(
+                "$ORIGIN denominator.io.",
+                "www2.geo.denominator.io.\t300\tIN\tA\t192.0.2.1 ; {type=geo, group=alazona, regions={United States (US)=[Alaska, Arizona]}}",
+                ""));
+    }
+
+    @Test
+    public void testQuotesAndSplitsCharacterStrings() throws IOException {
+        String longText = Strings.repeat("a", 300);
+        ImmutableList<ResourceRecordSet<?>> rrsets = ImmutableList.<ResourceRecordSet<?>> of(
+                ResourceRecordSet.<TXTData> builder().name("txt.denominator.io.").type("TXT")
+                        .add(TXTData.create("say \"hi\"")).add(TXTData.create(longText)).build(),
+                ResourceRecordSet.<MXData> builder().name("denominator.io.").type("MX")
+                        .add(MXData.create(10, "mail.denominator.io.")).build());
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        ZoneFileExporter.export("denominator.io.", rrsets.iterator(), Channels.newChannel(out));
+
+        assertEquals(out.toString("UTF-8"), Joiner.on('\n').join(
+                "$ORIGIN denominator.io.",
+                "txt.denominator.io.\tIN\tTXT\t\"say \\\"hi\\\"\"",
+                "txt.denominator.io.\tIN\tTXT\t\"" + longText.substring(0, 255) + "\" \"" + longText.substring(255) + "\"",
+                "denominator.io.\tIN\tMX\t10 mail.denominator.io.", ""));
+    }
+
+    @Test
+    public void testSplitsCharacterStringsOnOctets() throws IOException {
+        // two octets each in UTF-8
+        String longText = Strings.repeat("\u00fc", 200);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        ZoneFileExporter.export("denominator.io.", ImmutableList.of(txt("txt.denominator.io.", longText)).iterator(),
+                Channels.newChannel(out));
+
+        assertEquals(out.toString("UTF-8"), Joiner.on('\n').join(
+                "$ORIGIN denominator.io.",
+                "txt.denominator.io.\tIN\tTXT\t\"" + longText.substring(0, 127) + "\" \"" + longText.substring(127) + "\"",
+                ""));
+    }
+
+    @Test
+    public void testWritesAbsoluteNamesWhenProviderOmitsTrailingDot() throws IOException {
+        ImmutableList<ResourceRecordSet<?>> rrsets = ImmutableList.<ResourceRecordSet<?>> of(
+                cname("www.denominator.io", 3600, "www1.denominator.io"),
+                ResourceRecordSet.<MXData> builder().name("denominator.io").type("MX")
+                        .add(MXData.create(10, "mail.denominator.io")).build());
+        StringWriter out = new StringWriter();
+
+        ZoneFileExporter.export("denominator.io", rrsets.iterator(), out);
+
+        assertEquals(out.toString(), Joiner.on('\n').join(
+                "$ORIGIN denominator.io.",
+                "www.denominator.io.\t3600\tIN\tCNAME\twww1.denominator.io.",
+                "denominator.io.\tIN\tMX\t10 mail.denominator.io.", ""));
+    }
+
+    @Test
+    public void testLinesLongerThanBuffer() throws IOException {
+        ResourceRecordSet<?> rrset = a("www.denominator.io.", 3600, "192.0.2.1");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        ZoneFileExporter.export("denominator.io.", ImmutableList.of(rrset, rrset).iterator(),
+                Channels.newChannel(out), 16);
+
+        assertEquals(new String(out.toByteArray(), Charsets.UTF_8), Joiner.on('\n').join(
+                "$ORIGIN denominator.io.",
+                "www.denominator.io.\t3600\tIN\tA\t192.0.2.1",
+                "www.denominator.io.\t3600\tIN\tA\t192.0.2.1", ""));
+    }
+}
@@ -0,0 +1,237 @@
+package denominator;
+
+import static com.google.common.util.concurrent.MoreExecutors.listeningDecorator;
+import static denominator.Denominator.create;
+import static denominator.model.ResourceRecordSets.a;
+import static denominator.model.ResourceRecordSets.cname;
+import static denominator.model.ResourceRecordSets.ns;
+import static denominator.model.ResourceRecordSets.txt;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.channels.Channels;
+import java.util.List;
+import java.util.concurrent.Executors;
+
+import org.testng.annotations.Test;
+
+import com.google.common.base.Joiner;
+import com.google.common.base.Strings;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ListeningExecutorService;
+
+import denominator.model.ResourceRecordSet;
+import denominator.model.rdata.MXData;
+import denominator.model.rdata.SOAData;
+
+public class ZoneFileImporterTest {
+
+    @Test
+    public void testParse() {
+        String zoneFile = Joiner.on('\n').join(
+                "$TTL 1h",
+                "@ IN SOA ns1 admin (",
+                "      1 ; serial",
+                "      3600 600 1w 60 )",
+                "  86400 IN NS ns1",
+                "www1 A 192.0.2.1",
+                "     A 192.0.2.2 ; {type=geo} comments are ignored",
+                "",
+                "www IN 300 CNAME www1",
+                "$ORIGIN mail.denominator.io.",
+                "@ MX 10 mx1",
+                "txt TXT \"say \\\"hi\\\"\" \"; not a comment\"");
+
+        List<ResourceRecordSet<?>> rrsets = ImmutableList.copyOf(ZoneFileImporter.parse("denominator.io.",
+                new StringReader(zoneFile)));
+
+        assertEquals(rrsets, ImmutableList.of(
+                ResourceRecordSet.<SOAData> builder().name("denominator.io.").type("SOA").ttl(3600)
+                        .add(SOAData.builder().mname("ns1.denominator.io.").rname("admin.denominator.io.").serial(1)
+                                .refresh(3600).retry(600).expire(604800).minimum(60).build()).build(),
+                ns("denominator.io.", 86400, "ns1.denominator.io."),
+                a("www1.denominator.io.", 3600, ImmutableList.of("192.0.2.1", "192.0.2.2")),
+                cname("www.denominator.io.", 300, "www1.denominator.io."),
+                ResourceRecordSet.<MXData> builder().name("mail.denominator.io.").type("MX").ttl(3600)
+                        .add(MXData.create(10, "mx1.mail.denominator.io.")).build(),
+                txt("txt.mail.denominator.io.", 3600, "say \"hi\"; not a comment")));
+    }
+
+    @Test
+    public void testParseNamesWithoutTrailingDotWhenZoneHasNone() {
+        String zoneFile = Joiner.on('\n').join(
+                "$TTL 1h",
+                "www1 A 192.0.2.1",
+                "www IN 300 CNAME www1",
+                "www2.denominator.io. CNAME www1.denominator.io.",
+                "$ORIGIN mail.denominator.io.",
+                "@ MX 10 mx1",
+                "other CNAME www.denominator.net.");
+
+        List<ResourceRecordSet<?>> rrsets = ImmutableList.copyOf(ZoneFileImporter.parse("denominator.io",
+                new StringReader(zoneFile)));
+
+        assertEquals(rrsets, ImmutableList.of(
+                a("www1.denominator.io", 3600, "192.0.2.1"),
+                cname("www.denominator.io", 300, "www1.denominator.io"),
+                cname("www2.denominator.io", 3600, "www1.denominator.io"),
+                ResourceRecordSet.<MXData> builder().name("mail.denominator.io").type("MX").ttl(3600)
+                        .add(MXData.create(10, "mx1.mail.denominator.io")).build(),
+                cname("other.mail.denominator.io", 3600, "www.denominator.net")));
+    }
+
+    @Test
+    public void testImportMatchesExistingNamesWithoutTrailingDot() {
+        ResourceRecordSetApi api = create("mock").getApi().getResourceRecordSetApiForZone("denominator.io.");
+        api.add(a("www.denominator.io", 3600, "192.0.2.1"));
+
+        ZoneFileImporter.builder().build().apply(api, ZoneFileImporter.parse("denominator.io",
+                new StringReader("www 3600 A 192.0.2.2")));
+
+        assertEquals(api.getByNameAndType("www.denominator.io", "A").get(), a("www.denominator.io", 3600, "192.0.2.2"));
+        assertFalse(api.getByNameAndType("www.denominator.io.", "A").isPresent());
+    }
+
+    @Test
+    public void testRoundTripsExport() throws IOException {
+        ResourceRecordSet<?> longTxt = txt("txt.denominator.io.", Strings.repeat("a", 300));
+        ResourceRecordSetApi source = create("mock").getApi().getResourceRecordSetApiForZone("denominator.io.");
+        source.add(longTxt);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ZoneFileExporter.export("denominator.io.", source.list(), Channels.newChannel(out));
+
+        List<ResourceRecordSet<?>> parsed = ImmutableList.copyOf(ZoneFileImporter.parse("denominator.io.",
+                new StringReader(out.toString("UTF-8"))));
+
+        assertEquals(parsed, ImmutableList.copyOf(source.list()));
+        assertTrue(parsed.contains(longTxt));
+    }
+
+    @Test
+    public void testRoundTripsExportWithoutTrailingDots() throws IOException {
+        List<ResourceRecordSet<?>> rrsets = ImmutableList.<ResourceRecordSet<?>> of(
+                ns("denominator.io", 86400, "ns1.denominator.io"),
+                cname("www.denominator.io", 3600, "www1.denominator.io"),
+                a("www1.denominator.io", 3600, "192.0.2.1"));
+        StringWriter out = new StringWriter();
+        ZoneFileExporter.export("denominator.io", rrsets.iterator(), out);
+
+        assertEquals(ImmutableList.copyOf(ZoneFileImporter.parse("denominator.io", new StringReader(out.toString()))),
+                rrsets);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class, expectedExceptionsMessageRegExp = "rrset www1.denominator.io. A is not contiguous on line 3")
+    public void testRRSetsMustBeContiguous() {
+        ImmutableList.copyOf(ZoneFileImporter.parse("denominator.io.",
+                new StringReader("www1 A 192.0.2.1\nwww2 A 192.0.2.2\nwww1 A 192.0.2.3")));
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class, expectedExceptionsMessageRegExp = "invalid rrset www.denominator.io. MX on line 1: expected preference and exchange")
+    public void testInvalidRData() {
+        ImmutableList.copyOf(ZoneFileImporter.parse("denominator.io.", new StringReader("www MX mx1")));
+    }
+
+    @Test
+    public void testApplyReportsProgress() {
+        ResourceRecordSetApi api = create("mock").getApi().getResourceRecordSetApiForZone("denominator.io.");
+        final List<Long> progress = Lists.newArrayList();
+        ZoneFileImporter importer = ZoneFileImporter.builder().batchSize(2).progress(new ZoneFileImporter.Progress() {
+            public void applied(long rrsets) {
+                progress.add(rrsets);
+            }
+        }).build();
+
+        long applied = importer.apply(api, ZoneFileImporter.parse("denominator.io.", new StringReader(
+                "www3 3600 A 192.0.2.3\nwww4 3600 A 192.0.2.4\nwww5 3600 A 192.0.2.5")));
+
+        assertEquals(applied, 3);
+        assertEquals(progress, ImmutableList.of(2L, 3L));
+        assertEquals(api.getByNameAndType("www5.denominator.io.", "A").get(), a("www5.denominator.io.", 3600,
+                "192.0.2.5"));
+    }
+
+    @Test
+    public void testApplyResumesAfterSkipped() {
+        ResourceRecordSetApi api = create("mock").getApi().getResourceRecordSetApiForZone("denominator.io.");
+
+        long applied = ZoneFileImporter.builder().skip(1).build().apply(api, ZoneFileImporter.parse(
+                "denominator.io.", new StringReader("www3 A 192.0.2.3\nwww4 A 192.0.2.4")));
+
+        assertEquals(applied, 1);
+        assertFalse(api.getByNameAndType("www3.denominator.io.", "A").isPresent());
+        assertTrue(api.getByNameAndType("www4.denominator.io.", "A").isPresent());
+    }
+
+    @Test
+    public void testApplyWithConcurrentWriters() {
+        // the mock isn't safe for concurrent writes
+        ResourceRecordSetApi api = new ForwardingResourceRecordSetApi() {
+            ResourceRecordSetApi delegate = create("mock").getApi().getResourceRecordSetApiForZone("denominator.io.");
+
+            @Override
+            protected ResourceRecordSetApi delegate() {
+                return delegate;
+            }
+
+            @Override
+            public synchronized void apply(ResourceRecordSetBatch batch) {
+                super.apply(batch);
+            }
+        };
+        StringBuilder zoneFile = new StringBuilder();
+        for (int i = 0; i < 50; i++) {
+            zoneFile.append("host").append(i).append(" 3600 A 192.0.2.").append(i).append('\n');
+        }
+        ListeningExecutorService executor = listeningDecorator(Executors.newFixedThreadPool(4));
+        try {
+            long applied = ZoneFileImporter.builder().batchSize(5).writers(4).executor(executor).build()
+                    .apply(api, ZoneFileImporter.parse("denominator.io.", new StringReader(zoneFile.toString())));
+            assertEquals(applied, 50);
+        } finally {
+            executor.shutdownNow();
+        }
+        assertTrue(api.getByNameAndType("host49.denominator.io.", "A").isPresent());
+    }
+
+    @Test
+    public void testApplyStopsOnFailure() {
+        ResourceRecordSetApi failing = new ForwardingResourceRecordSetApi() {
+            ResourceRecordSetApi delegate = create("mock").getApi().getResourceRecordSetApiForZone("denominator.io.");
+
+            @Override
+            protected ResourceRecordSetApi delegate() {
+                return delegate;
+            }
+
+            @Override
+            public void apply(ResourceRecordSetBatch batch) {
+                if (batch.get(0).getName().startsWith("www4"))
+                    throw new IllegalStateException("throttled");
+                super.apply(batch);
+            }
+        };
+        final List<Long> progress = Lists.newArrayList();
+        ZoneFileImporter importer = ZoneFileImporter.builder().batchSize(1).progress(new ZoneFileImporter.Progress() {
+            public void applied(long rrsets) {
+                progress.add(rrsets);
+            }
+        }).build();
+
+        try {
+            importer.apply(failing, ZoneFileImporter.parse("denominator.io.", new StringReader(
+                    "www3 A 192.0.2.3\nwww4 A 192.0.2.4\nwww5 A 192.0.2.5")));
+            fail();
+        } catch (IllegalStateException e) {
+            assertEquals(e.getMessage(), "throttled");
+        }
+        assertEquals(progress, ImmutableList.of(1L));
+        assertFalse(failing.getByNameAndType("www5.denominator.io.", "A").isPresent());
+    }
+}
@@ -0,0 +1,91 @@
+package denominator;
+
+import static java.util.concurrent.TimeUnit.MINUTES;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.testng.annotations.Test;
+
+import com.google.common.base.Supplier;
+import com.google.common.base.Ticker;
+import com.google.common.collect.ImmutableMap;
+
+public class ZoneIdCacheTest {
+
+    static final class FakeTicker extends Ticker {
+        final AtomicLong nanos = new AtomicLong();
+
+        @Override
+        public long read() {
+            return nanos.get();
+        }
+    }
+
+    static final class CountingListing implements Supplier<Map<String, String>> {
+        final AtomicInteger calls = new AtomicInteger();
+        volatile Map<String, String> zones = ImmutableMap.of("denominator.io.", "Z1");
+
+        @Override
+        public Map<String, String> get() {
+            calls.incrementAndGet();
+            return zones;
+        }
+    }
+
+    @Test
+    public void testListsOnceWithinTTL() {
+        CountingListing listing = new CountingListing();
+        ZoneIdCache cache = new ZoneIdCache(listing, 1, MINUTES, new FakeTicker());
+
+        assertEquals(cache.getId("denominator.io.").get(), "Z1");
+        assertEquals(cache.getId("denominator.io.").get(), "Z1");
+
+        assertEquals(listing.calls.get(), 1);
+        assertEquals(cache.getMissCount(), 1);
+        assertEquals(cache.getHitCount(), 1);
+    }
+
+    @Test
+    public void testReloadsAfterTTL() {
+        CountingListing listing = new CountingListing();
+        FakeTicker ticker = new FakeTicker();
+        ZoneIdCache cache = new ZoneIdCache(listing, 1, MINUTES, ticker);
+
+        cache.getId("denominator.io.");
+        listing.zones = ImmutableMap.of("denominator.io.", "Z2");
+        ticker.nanos.addAndGet(MINUTES.toNanos(1));
+
+        assertEquals(cache.getId("denominator.io.").get(), "Z2");
+        assertEquals(listing.calls.get(), 2);
+    }
+
+    @Test
+    public void testReloadsOnMiss() {
+        CountingListing listing = new CountingListing();
+        ZoneIdCache cache = new ZoneIdCache(listing, 1, MINUTES, new FakeTicker());
+
+        cache.getId("denominator.io.");
+        listing.zones = ImmutableMap.of("denominator.io.", "Z1", "other.io.", "Z3");
+
+        assertEquals(cache.getId("other.io.").get(), "Z3");
+        assertFalse(cache.getId("absent.io.").isPresent());
+        assertEquals(listing.calls.get(), 3);
+        assertEquals(cache.getMissCount(), 3);
+    }
+
+    @Test
+    public void testInvalidate() {
+        CountingListing listing = new CountingListing();
+        ZoneIdCache cache = new ZoneIdCache(listing, 1, MINUTES, new FakeTicker());
+
+        cache.getId("denominator.io.");
+        cache.invalidate();
+        cache.getId("denominator.io.");
+
+        assertEquals(listing.calls.get(), 2);
+    }
+}
@@ -0,0 +1,87 @@
+package denominator;
+
+import static com.google.common.base.Predicates.alwaysFalse;
+import static com.google.common.util.concurrent.MoreExecutors.sameThreadExecutor;
+import static denominator.Denominator.create;
+import static denominator.model.ResourceRecordSets.a;
+import static denominator.model.ResourceRecordSets.nameEqualTo;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+
+import denominator.ResourceRecordSetBatch.Action;
+import denominator.model.ResourceRecordSet;
+
+public class ZoneReconcilerTest {
+    ResourceRecordSet<?> www1 = a("www1.denominator.io.", 3600, ImmutableSet.of("192.0.2.2", "192.0.2.1"));
+    ResourceRecordSet<?> www3 = a("www3.denominator.io.", 3600, "192.0.2.3");
+
+    @Test
+    public void testNoChangesWhenRDataOrderDiffers() {
+        ResourceRecordSetApi api = create("mock").getApi().getResourceRecordSetApiForZone("denominator.io.");
+
+        assertTrue(ZoneReconciler.diff(ImmutableList.of(www1), api.list(), alwaysFalse()).isEmpty());
+    }
+
+    @Test
+    public void testDiff() {
+        ResourceRecordSetApi api = create("mock").getApi().getResourceRecordSetApiForZone("denominator.io.");
+
+        ResourceRecordSetBatch changes = ZoneReconciler.diff(
+                ImmutableList.of(www1, a("www2.denominator.io.", 300, "198.51.100.1"), www3), api.list(),
+                nameEqualTo("www.denominator.io."));
+
+        assertEquals(changes.size(), 3);
+        assertEquals(changes.get(0).getAction(), Action.REPLACE);
+        assertEquals(changes.get(0).getName(), "www2.denominator.io.");
+        assertEquals(changes.get(1).getAction(), Action.REPLACE);
+        assertEquals(changes.get(1).getRRSet().get(), www3);
+        assertEquals(changes.get(2).getAction(), Action.DELETE);
+        assertEquals(changes.get(2).getName(), "www.denominator.io.");
+        assertEquals(changes.get(2).getType(), "CNAME");
+    }
+
+    @Test
+    public void testDuplicateActualRecordSets() {
+        ResourceRecordSet<?> changed = a("www1.denominator.io.", 3600, "192.0.2.3");
+        ResourceRecordSet<?> deleted = a("www2.denominator.io.", 3600, "198.51.100.1");
+        // ex. weighted record sets, listed once per identifier
+        ImmutableList<ResourceRecordSet<?>> actual = ImmutableList.of(changed, www1, deleted,
+                a("www2.denominator.io.", 3600, "198.51.100.2"));
+
+        ResourceRecordSetBatch changes = ZoneReconciler.diff(ImmutableList.of(www1), actual.iterator(),
+                nameEqualTo("www2.denominator.io."));
+
+        assertEquals(changes.size(), 2);
+        assertEquals(changes.get(0).getAction(), Action.REPLACE);
+        assertEquals(changes.get(0).getRRSet().get(), www1);
+        assertEquals(changes.get(1).getAction(), Action.DELETE);
+        assertEquals(changes.get(1).getName(), "www2.denominator.io.");
+    }
+
+    @Test
+    public void testReconcile() {
+        ResourceRecordSetApi api = create("mock").getApi().getResourceRecordSetApiForZone("denominator.io.");
+
+        ResourceRecordSetBatch applied = ZoneReconciler.reconcile(api, ImmutableList.of(www1, www3),
+                nameEqualTo("www2.denominator.io."), sameThreadExecutor(), 2);
+
+        assertEquals(applied.size(), 2);
+        assertEquals(api.getByNameAndType("www3.denominator.io.", "A").get(), www3);
+        assertFalse(api.getByNameAndType("www2.denominator.io.", "A").isPresent());
+
+        assertTrue(ZoneReconciler.reconcile(api, ImmutableList.of(www1, www3), nameEqualTo("www2.denominator.io."),
+                sameThreadExecutor(), 2).isEmpty());
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class, expectedExceptionsMessageRegExp = "only one desired rrset is permitted for www3.denominator.io. A")
+    public void testDuplicateDesired() {
+        ZoneReconciler.diff(ImmutableList.of(www3, www3), ImmutableList.<ResourceRecordSet<?>> of().iterator(),
+                alwaysFalse());
+    }
+}
@@ -0,0 +1,124 @@
+package denominator.config;
+
+import static denominator.Denominator.create;
+import static denominator.model.ResourceRecordSets.a;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.testng.annotations.Test;
+
+import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableList;
+
+import denominator.ForwardingResourceRecordSetApi;
+import denominator.ResourceRecordSetApi;
+import denominator.ResourceRecordSetBatch;
+import denominator.model.ResourceRecordSet;
+
+public class CacheResourceRecordSetsTest {
+
+    static class CountingReads extends ForwardingResourceRecordSetApi {
+        final ResourceRecordSetApi delegate = create("mock").getApi()
+                .getResourceRecordSetApiForZone("denominator.io.");
+        final AtomicInteger reads = new AtomicInteger();
+
+        @Override
+        protected ResourceRecordSetApi delegate() {
+            return delegate;
+        }
+
+        @Override
+        public Iterator<ResourceRecordSet<?>> listByName(String name) {
+            reads.incrementAndGet();
+            return super.listByName(name);
+        }
+
+        @Override
+        public Optional<ResourceRecordSet<?>> getByNameAndType(String name, String type) {
+            reads.incrementAndGet();
+            return super.getByNameAndType(name, type);
+        }
+    }
+
+    @Test
+    public void testReadsAreCached() {
+        CountingReads counting = new CountingReads();
+        ResourceRecordSetApi api = new CacheResourceRecordSets().provideDecorator().decorate("denominator.io.",
+                counting);
+
+        assertEquals(api.getByNameAndType("www2.denominator.io.", "A"), api.getByNameAndType("www2.denominator.io.",
+                "A"));
+        assertEquals(ImmutableList.copyOf(api.listByName("www2.denominator.io.")),
+                ImmutableList.copyOf(api.listByName("www2.denominator.io.")));
+        assertFalse(api.getByNameAndType("www3.denominator.io.", "A").isPresent());
+        assertFalse(api.getByNameAndType("www3.denominator.io.", "A").isPresent());
+
+        assertEquals(counting.reads.get(), 3);
+    }
+
+    @Test
+    public void testWritesInvalidate() {
+        CountingReads counting = new CountingReads();
+        ResourceRecordSetApi api = new CacheResourceRecordSets().provideDecorator().decorate("denominator.io.",
+                counting);
+
+        assertFalse(api.getByNameAndType("www3.denominator.io.", "A").isPresent());
+        assertFalse(api.listByName("www3.denominator.io.").hasNext());
+
+        api.add(a("www3.denominator.io.", 3600, "192.0.2.3"));
+        assertTrue(api.getByNameAndType("www3.denominator.io.", "A").isPresent());
+        assertTrue(api.listByName("www3.denominator.io.").hasNext());
+
+        api.apply(ResourceRecordSetBatch.builder().deleteByNameAndType("www3.denominator.io.", "A").build());
+        assertFalse(api.getByNameAndType("www3.denominator.io.", "A").isPresent());
+
+        assertEquals(counting.reads.get(), 5);
+    }
+
+    @Test
+    public void testReadInFlightDuringWriteIsntCached() {
+        final AtomicReference<ResourceRecordSetApi> api = new AtomicReference<ResourceRecordSetApi>();
+        CountingReads counting = new CountingReads() {
+            @Override
+            public Optional<ResourceRecordSet<?>> getByNameAndType(String name, String type) {
+                Optional<ResourceRecordSet<?>> result = super.getByNameAndType(name, type);
+                // another thread writes after this read, but before it is cached
+                if (reads.get() == 1)
+                    api.get().add(a("www3.denominator.io.", 3600, "192.0.2.3"));
+                return result;
+            }
+        };
+        api.set(new CacheResourceRecordSets().provideDecorator().decorate("denominator.io.", counting));
+
+        assertFalse(api.get().getByNameAndType("www3.denominator.io.", "A").isPresent());
+        assertTrue(api.get().getByNameAndType("www3.denominator.io.", "A").isPresent());
+
+        assertEquals(counting.reads.get(), 2);
+    }
+
+    @Test
+    public void testExpiredEntriesAreReloaded() {
+        CountingReads counting = new CountingReads();
+        ResourceRecordSetApi api = new CacheResourceRecordSets(100, 0, SECONDS)
+                .provideDecorator().decorate("denominator.io.", counting);
+
+        api.getByNameAndType("www2.denominator.io.", "A");
+        api.getByNameAndType("www2.denominator.io.", "A");
+
+        assertEquals(counting.reads.get(), 2);
+    }
+
+    @Test
+    public void testConfiguredViaModule() {
+        ResourceRecordSetApi api = create("mock", new CacheResourceRecordSets()).getApi()
+                .getResourceRecordSetApiForZone("denominator.io.");
+
+        assertEquals(api.getClass().getSimpleName(), "CachingResourceRecordSetApi");
+    }
+}
@@ -0,0 +1,98 @@
+package denominator.config;
+
+import static denominator.Denominator.create;
+import static denominator.model.ResourceRecordSets.a;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.fail;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableList;
+
+import denominator.DNSApi;
+import denominator.ResourceRecordSetApi;
+import denominator.metrics.InMemoryMetrics;
+import denominator.metrics.InMemoryMetrics.Histogram;
+import denominator.metrics.Metrics;
+import denominator.model.ResourceRecordSet;
+
+public class MeasureOperationsTest {
+
+    @Test
+    public void testRecordsCountsAndFailuresPerOperation() {
+        InMemoryMetrics metrics = new InMemoryMetrics();
+        ResourceRecordSetApi api = create("mock", new MeasureOperations(metrics)).getApi()
+                .getResourceRecordSetApiForZone("denominator.io.");
+
+        api.getByNameAndType("www2.denominator.io.", "A");
+        api.getByNameAndType("www3.denominator.io.", "A");
+        api.add(a("www3.denominator.io.", 3600, "192.0.2.3"));
+        try {
+            api.applyTTLToNameAndType(300, null, "A");
+            fail();
+        } catch (NullPointerException e) {
+        }
+
+        Histogram getByNameAndType = metrics.get("mock", "denominator.io.", "ResourceRecordSetApi.getByNameAndType")
+                .get();
+        assertEquals(getByNameAndType.getCount(), 2);
+        assertEquals(getByNameAndType.getFailureCount(), 0);
+        assertEquals(metrics.get("mock", "denominator.io.", "ResourceRecordSetApi.add").get().getCount(), 1);
+        Histogram applyTTL = metrics.get("mock", "denominator.io.", "ResourceRecordSetApi.applyTTLToNameAndType")
+                .get();
+        assertEquals(applyTTL.getCount(), 1);
+        assertEquals(applyTTL.getFailureCount(), 1);
+    }
+
+    @Test
+    public void testIteratorsAreRecordedWhenExhausted() {
+        InMemoryMetrics metrics = new InMemoryMetrics();
+        DNSApi api = create("mock", new MeasureOperations(metrics)).getApi();
+
+        Iterator<ResourceRecordSet<?>> list = api.getResourceRecordSetApiForZone("denominator.io.").list();
+        Histogram histogram = metrics.get("mock", "denominator.io.", "ResourceRecordSetApi.list").get();
+        assertEquals(histogram.getCount(), 0);
+
+        ImmutableList.copyOf(list);
+        assertEquals(histogram.getCount(), 1);
+        assertFalse(list.hasNext());
+        assertEquals(histogram.getCount(), 1);
+
+        ImmutableList.copyOf(api.getZoneApi().list());
+        assertEquals(metrics.get("mock", null, "ZoneApi.list").get().getCount(), 1);
+
+        ImmutableList.copyOf(api.getGeoResourceRecordSetApiForZone("denominator.io.").get()
+                .listByName("www.geo.denominator.io."));
+        assertEquals(metrics.get("mock", "denominator.io.", "GeoResourceRecordSetApi.listByName").get().getCount(),
+                1);
+    }
+
+    @Test
+    public void testNextPastTheEndIsntAFailure() {
+        InMemoryMetrics metrics = new InMemoryMetrics();
+        Iterator<String> zones = create("mock", new MeasureOperations(metrics)).getApi().getZoneApi().list();
+
+        zones.next();
+        try {
+            zones.next();
+            fail();
+        } catch (NoSuchElementException e) {
+        }
+
+        Histogram list = metrics.get("mock", null, "ZoneApi.list").get();
+        assertEquals(list.getCount(), 1);
+        assertEquals(list.getFailureCount(), 0);
+    }
+
+    @Test
+    public void testNoneDoesntDecorate() {
+        ResourceRecordSetApi api = create("mock", new MeasureOperations(Metrics.NONE)).getApi()
+                .getResourceRecordSetApiForZone("denominator.io.");
+
+        assertEquals(api.getClass().getSimpleName(), "MockResourceRecordSetApi");
+    }
+}
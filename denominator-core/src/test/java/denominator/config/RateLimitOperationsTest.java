@@ -0,0 +1,199 @@
+package denominator.config;
+
+import static denominator.Denominator.create;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.inject.Singleton;
+
+import org.testng.annotations.Test;
+
+import com.google.common.base.Predicate;
+import com.google.common.base.Ticker;
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.Iterators;
+
+import dagger.Module;
+import dagger.Provides;
+import denominator.DNSApiManager;
+import denominator.RequestLimiter;
+import denominator.ZoneApi;
+import denominator.metrics.InMemoryMetrics;
+import denominator.metrics.Metrics.Gauge;
+
+public class RateLimitOperationsTest {
+
+    @Test
+    public void testBucketAllowsBurstThenSpacesPermits() {
+        FakeTicker ticker = new FakeTicker();
+        TokenBucket bucket = new TokenBucket(2, ticker);
+
+        assertEquals(bucket.reserve(), 0);
+        assertEquals(bucket.reserve(), 0);
+        // callers queue behind each other
+        assertEquals(bucket.reserve(), MILLISECONDS.toNanos(500));
+        assertEquals(bucket.reserve(), MILLISECONDS.toNanos(1000));
+
+        ticker.advance(MILLISECONDS.toNanos(1000));
+        assertEquals(bucket.reserve(), MILLISECONDS.toNanos(500));
+    }
+
+    @Test
+    public void testThrottlingHalvesRateOncePerSecondThenRecovers() {
+        FakeTicker ticker = new FakeTicker();
+        TokenBucket bucket = new TokenBucket(10, ticker);
+
+        bucket.throttled();
+        bucket.throttled();
+        assertEquals(bucket.permitsPerSecond(), 5.0);
+        // burst permits are dropped
+        assertEquals(bucket.reserve(), MILLISECONDS.toNanos(200));
+
+        for (int i = 0; i < 10; i++) {
+            ticker.advance(MILLISECONDS.toNanos(1000));
+            bucket.throttled();
+        }
+        // the rate recovers a little between each second of throttling
+        assertEquals(bucket.permitsPerSecond(), 1.0, 0.01);
+
+        ticker.advance(MILLISECONDS.toNanos(5000));
+        assertEquals(bucket.permitsPerSecond(), 6.0, 0.01);
+        ticker.advance(MILLISECONDS.toNanos(5000));
+        assertEquals(bucket.permitsPerSecond(), 10.0);
+    }
+
+    @Test
+    public void testRequestsOfAManagerShareTheRate() {
+        InMemoryMetrics metrics = new InMemoryMetrics();
+        FakeTicker ticker = new FakeTicker();
+        PagedZoneApi zones = new PagedZoneApi();
+        DNSApiManager mgr = create("mock", RateLimitOperations.builder()
+                                                              .permitsPerSecond(10)
+                                                              .metrics(metrics)
+                                                              .ticker(ticker).build(), zones);
+        // each listing requests a page per zone
+        zones.pages = 5;
+        assertEquals(Iterators.size(mgr.getApi().getZoneApi().list()), 5);
+        assertEquals(Iterators.size(mgr.getApi().getZoneApi().list()), 5);
+
+        // the burst is spent, and time is frozen, so the next permit is 100ms away
+        Iterator<String> zonesList = mgr.getApi().getZoneApi().list();
+        long start = System.nanoTime();
+        zonesList.next();
+        assertTrue(System.nanoTime() - start >= MILLISECONDS.toNanos(100));
+
+        Gauge rate = metrics.getGauge("mock", "RateLimit.permitsPerSecond").get();
+        assertEquals(rate.value(), 10.0);
+        assertEquals(metrics.getGauge("mock", "RateLimit.queueDepth").get().value(), 0.0);
+
+        zones.failure = new IllegalStateException(
+                "command: GET http://localhost/zones HTTP/1.1 failed with response: HTTP/1.1 429 Too Many Requests");
+        try {
+            zonesList.next();
+            fail();
+        } catch (IllegalStateException e) {
+        }
+        assertEquals(rate.value(), 5.0);
+    }
+
+    @Test
+    public void testOtherFailuresDontChangeRate() {
+        InMemoryMetrics metrics = new InMemoryMetrics();
+        PagedZoneApi zones = new PagedZoneApi();
+        zones.failure = new IllegalStateException(
+                "command: GET http://localhost/zones HTTP/1.1 failed with response: HTTP/1.1 404 Not Found");
+        DNSApiManager mgr = create("mock", RateLimitOperations.builder()
+                                                              .permitsPerSecond(10)
+                                                              .metrics(metrics)
+                                                              .ticker(new FakeTicker()).build(), zones);
+        try {
+            mgr.getApi().getZoneApi().list().next();
+            fail();
+        } catch (IllegalStateException e) {
+        }
+        assertEquals(metrics.getGauge("mock", "RateLimit.permitsPerSecond").get().value(), 10.0);
+    }
+
+    @Test
+    public void testThrottlingIsDetectedByStatusAndErrorCode() {
+        Predicate<Throwable> throttled = RateLimitOperations.ThrottlingResponse.INSTANCE;
+        assertTrue(throttled.apply(new IllegalStateException(
+                "command: GET https://api2.dynect.net/REST/Zone HTTP/1.1 failed with response: HTTP/1.1 429 Too Many Requests")));
+        assertTrue(throttled.apply(new IllegalStateException("Rate exceeded", new IllegalStateException(
+                "request POST https://route53.amazonaws.com/2012-02-29/hostedzone/Z1PA6795UKMFR9/rrset HTTP/1.1 "
+                        + "failed with code 400, error: AWSError{requestId='b4b8b6c1', requestToken='null', "
+                        + "code='Throttling', message='Rate exceeded', context='{Type=Sender}'}"))));
+        assertTrue(throttled.apply(new IllegalStateException(
+                "command: GET https://dns.api.rackspacecloud.com/v1.0/123/domains HTTP/1.1 failed with response: "
+                        + "HTTP/1.1 413 Request Entity Too Large; content: [{\"overLimit\":{\"code\":413}}]")));
+
+        // phrases in other errors aren't throttling
+        assertFalse(throttled.apply(new IllegalArgumentException("zone throttling.denominator.io. not found")));
+        assertFalse(throttled.apply(new IllegalStateException(
+                "command: GET https://api2.dynect.net/REST/Zone HTTP/1.1 failed with response: HTTP/1.1 503 Service Unavailable")));
+    }
+
+    @Test
+    public void testProvidersWithoutDefaultsArentLimited() {
+        InMemoryMetrics metrics = new InMemoryMetrics();
+        PagedZoneApi zones = new PagedZoneApi();
+        create("mock", RateLimitOperations.builder().metrics(metrics).build(), zones).getApi().getZoneApi().list();
+
+        assertSame(zones.limiter, RequestLimiter.NONE);
+        assertFalse(metrics.getGauge("mock", "RateLimit.permitsPerSecond").isPresent());
+    }
+
+    /**
+     * lists a zone per page, taking a permit for each page, as providers do
+     * for each http request.
+     */
+    @Module(injects = DNSApiManager.class, complete = false, library = true, overrides = true)
+    static final class PagedZoneApi {
+        RequestLimiter limiter;
+        int pages = Integer.MAX_VALUE;
+        RuntimeException failure;
+
+        @Provides
+        @Singleton
+        ZoneApi provideZoneApi(RequestLimiter limiter) {
+            this.limiter = limiter;
+            return new ZoneApi() {
+                public Iterator<String> list() {
+                    return new AbstractIterator<String>() {
+                        int page;
+
+                        @Override
+                        protected String computeNext() {
+                            if (page == pages)
+                                return endOfData();
+                            PagedZoneApi.this.limiter.acquire();
+                            if (failure != null)
+                                throw PagedZoneApi.this.limiter.failed(failure);
+                            return "zone" + page++ + ".denominator.io.";
+                        }
+                    };
+                }
+            };
+        }
+    }
+
+    static final class FakeTicker extends Ticker {
+        private final AtomicLong nanos = new AtomicLong();
+
+        void advance(long nanos) {
+            this.nanos.addAndGet(nanos);
+        }
+
+        @Override
+        public long read() {
+            return nanos.get();
+        }
+    }
+}
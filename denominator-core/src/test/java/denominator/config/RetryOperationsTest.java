@@ -0,0 +1,210 @@
+package denominator.config;
+
+import static denominator.Denominator.create;
+import static denominator.model.ResourceRecordSets.a;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+import java.lang.reflect.Method;
+import java.net.SocketException;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.inject.Singleton;
+
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterators;
+import com.google.common.collect.Sets;
+
+import dagger.Module;
+import dagger.Provides;
+import denominator.DNSApiManager;
+import denominator.ForwardingResourceRecordSetApi;
+import denominator.ResourceRecordSetApi;
+import denominator.ResourceRecordSetBatch;
+import denominator.ZoneApi;
+import denominator.config.RateLimitOperationsTest.FakeTicker;
+
+public class RetryOperationsTest {
+
+    @Test
+    public void testRetriesTransientFailures() {
+        FlakyZoneApi zones = new FlakyZoneApi(2, new IllegalStateException("connection failed",
+                new SocketException("Connection reset")));
+        DNSApiManager mgr = create("mock", RetryOperations.builder()
+                                                          .initialBackoff(1, MILLISECONDS).build(), zones);
+
+        assertEquals(ImmutableList.copyOf(mgr.getApi().getZoneApi().list()), ImmutableList.of("denominator.io."));
+        assertEquals(zones.calls.get(), 3);
+    }
+
+    @Test
+    public void testStopsAfterMaxAttempts() {
+        IllegalStateException unavailable = new IllegalStateException(
+                "command: GET /zones failed with response: HTTP/1.1 503 Service Unavailable");
+        FlakyZoneApi zones = new FlakyZoneApi(5, unavailable);
+        DNSApiManager mgr = create("mock", RetryOperations.builder()
+                                                          .maxAttempts(3)
+                                                          .initialBackoff(1, MILLISECONDS).build(), zones);
+        try {
+            mgr.getApi().getZoneApi().list();
+            fail();
+        } catch (IllegalStateException e) {
+            assertEquals(e, unavailable);
+        }
+        assertEquals(zones.calls.get(), 3);
+    }
+
+    @Test
+    public void testDoesntRetryOtherFailures() {
+        FlakyZoneApi zones = new FlakyZoneApi(1, new IllegalArgumentException("zone not found"));
+        DNSApiManager mgr = create("mock", RetryOperations.builder()
+                                                          .initialBackoff(1, MILLISECONDS).build(), zones);
+        try {
+            mgr.getApi().getZoneApi().list();
+            fail();
+        } catch (IllegalArgumentException e) {
+        }
+        assertEquals(zones.calls.get(), 1);
+    }
+
+    @Test
+    public void testDoesntRetryPastDeadline() {
+        FakeTicker ticker = new FakeTicker();
+        FlakyZoneApi zones = new FlakyZoneApi(5, new IllegalStateException("Read timed out"));
+        zones.ticker = ticker;
+        DNSApiManager mgr = create("mock", RetryOperations.builder()
+                                                          .initialBackoff(1, MILLISECONDS)
+                                                          .deadline(3, SECONDS)
+                                                          .ticker(ticker).build(), zones);
+        try {
+            mgr.getApi().getZoneApi().list();
+            fail();
+        } catch (IllegalStateException e) {
+        }
+        // the third attempt would end after three seconds
+        assertEquals(zones.calls.get(), 2);
+    }
+
+    @Test
+    public void testOnlyRetriesIdempotentOperations() {
+        FailingRecordSets failing = new FailingRecordSets();
+        final ResourceRecordSetApi api = create("mock", RetryOperations.builder()
+                                                                       .maxAttempts(2)
+                                                                       .initialBackoff(1, MILLISECONDS)
+                                                                       .notIdempotent("ResourceRecordSetApi.remove")
+                                                                       .build(),
+                failing).getApi().getResourceRecordSetApiForZone("denominator.io.");
+
+        assertAttempts(failing, 2, new Runnable() {
+            public void run() {
+                api.replace(a("www.denominator.io.", "192.0.2.1"));
+            }
+        });
+        assertAttempts(failing, 2, new Runnable() {
+            public void run() {
+                api.deleteByNameAndType("www.denominator.io.", "A");
+            }
+        });
+        assertAttempts(failing, 2, new Runnable() {
+            public void run() {
+                api.add(a("www.denominator.io.", "192.0.2.1"));
+            }
+        });
+        assertAttempts(failing, 1, new Runnable() {
+            public void run() {
+                api.remove(a("www.denominator.io.", "192.0.2.1"));
+            }
+        });
+        assertAttempts(failing, 1, new Runnable() {
+            public void run() {
+                api.replace(a("www.denominator.io.", "192.0.2.1"), a("www.denominator.io.", "192.0.2.2"));
+            }
+        });
+        assertAttempts(failing, 1, new Runnable() {
+            public void run() {
+                api.apply(ResourceRecordSetBatch.builder().deleteByNameAndType("www.denominator.io.", "A").build());
+            }
+        });
+    }
+
+    @Test
+    public void testUltraDNSAddIsntIdempotent() {
+        assertTrue(RetryOperations.NOT_IDEMPOTENT_BY_PROVIDER.containsEntry("ultradns", "ResourceRecordSetApi.add"));
+    }
+
+    @Test
+    public void testNotIdempotentNamesOperations() {
+        Set<String> operations = Sets.newLinkedHashSet();
+        for (Method method : ResourceRecordSetApi.class.getMethods())
+            operations.add(Operations.name(ResourceRecordSetApi.class, method));
+        assertTrue(operations.containsAll(RetryOperations.NOT_IDEMPOTENT), operations.toString());
+        assertTrue(operations.containsAll(RetryOperations.NOT_IDEMPOTENT_BY_PROVIDER.values()), operations.toString());
+    }
+
+    private static void assertAttempts(FailingRecordSets failing, int expected, Runnable operation) {
+        failing.calls.set(0);
+        try {
+            operation.run();
+            fail();
+        } catch (IllegalStateException e) {
+        }
+        assertEquals(failing.calls.get(), expected);
+    }
+
+    @Module(injects = DNSApiManager.class, complete = false, library = true, overrides = true)
+    static final class FlakyZoneApi implements ZoneApi {
+        final AtomicInteger calls = new AtomicInteger();
+        // each call takes a second when present
+        FakeTicker ticker;
+        private final int failures;
+        private final RuntimeException failure;
+
+        FlakyZoneApi(int failures, RuntimeException failure) {
+            this.failures = failures;
+            this.failure = failure;
+        }
+
+        @Provides
+        @Singleton
+        ZoneApi provideZoneApi() {
+            return this;
+        }
+
+        @Override
+        public Iterator<String> list() {
+            if (ticker != null)
+                ticker.advance(SECONDS.toNanos(1));
+            if (calls.incrementAndGet() <= failures)
+                throw failure;
+            return Iterators.forArray("denominator.io.");
+        }
+    }
+
+    @Module(injects = DNSApiManager.class, complete = false, library = true, overrides = true)
+    static final class FailingRecordSets {
+        final AtomicInteger calls = new AtomicInteger();
+
+        @Provides
+        ResourceRecordSetApi.Factory provideResourceRecordSetApiFactory() {
+            return new ResourceRecordSetApi.Factory() {
+                @Override
+                public ResourceRecordSetApi create(String zoneName) {
+                    return new ForwardingResourceRecordSetApi() {
+                        @Override
+                        protected ResourceRecordSetApi delegate() {
+                            calls.incrementAndGet();
+                            throw new IllegalStateException("HTTP/1.1 502 Bad Gateway");
+                        }
+                    };
+                }
+            };
+        }
+    }
+}
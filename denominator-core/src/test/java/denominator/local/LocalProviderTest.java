@@ -0,0 +1,128 @@
+package denominator.local;
+
+import static denominator.Denominator.create;
+import static denominator.model.ResourceRecordSets.a;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.List;
+import java.util.Map;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Maps;
+import com.google.common.io.Files;
+
+import denominator.DNSApiManager;
+import denominator.ResourceRecordSetApi;
+import denominator.model.ResourceRecordSet;
+
+public class LocalProviderTest {
+    File directory;
+    File zone;
+
+    @BeforeMethod
+    public void createZone() {
+        directory = Files.createTempDir();
+        zone = new File(directory, "denominator.io.");
+        zone.mkdir();
+    }
+
+    DNSApiManager open() {
+        return create(new LocalProvider("file:" + directory.getPath()));
+    }
+
+    @Test
+    public void testNewZoneHasSOAAndNS() throws IOException {
+        DNSApiManager manager = open();
+        try {
+            assertEquals(ImmutableList.copyOf(manager.getApi().getZoneApi().list()),
+                    ImmutableList.of("denominator.io."));
+            List<ResourceRecordSet<?>> rrsets = ImmutableList.copyOf(manager.getApi()
+                    .getResourceRecordSetApiForZone("denominator.io.").list());
+            assertEquals(rrsets.size(), 2);
+            assertEquals(rrsets.get(0).getType(), "NS");
+            assertEquals(rrsets.get(1).getType(), "SOA");
+        } finally {
+            manager.close();
+        }
+    }
+
+    @Test
+    public void testChangesSurviveRestart() throws IOException {
+        DNSApiManager manager = open();
+        try {
+            ResourceRecordSetApi api = manager.getApi().getResourceRecordSetApiForZone("denominator.io.");
+            api.add(a("www.denominator.io.", 3600, "192.0.2.1"));
+            api.add(a("www.denominator.io.", 3600, "192.0.2.2"));
+            api.add(a("www2.denominator.io.", 3600, "192.0.2.3"));
+            api.deleteByNameAndType("www2.denominator.io.", "A");
+            api.applyTTLToNameAndType(300, "www.denominator.io.", "A");
+        } finally {
+            manager.close();
+        }
+
+        manager = open();
+        try {
+            ResourceRecordSetApi api = manager.getApi().getResourceRecordSetApiForZone("denominator.io.");
+            assertEquals(api.getByNameAndType("www.denominator.io.", "A").get(),
+                    a("www.denominator.io.", 300, ImmutableList.of("192.0.2.1", "192.0.2.2")));
+            assertFalse(api.getByNameAndType("www2.denominator.io.", "A").isPresent());
+        } finally {
+            manager.close();
+        }
+    }
+
+    @Test
+    public void testCompactsAfterJournalIsLong() throws IOException {
+        DNSApiManager manager = open();
+        try {
+            ResourceRecordSetApi api = manager.getApi().getResourceRecordSetApiForZone("denominator.io.");
+            for (int i = 0; i < 3; i++) {
+                api.add(a("www" + i + ".denominator.io.", 3600, "192.0.2.1"));
+            }
+        } finally {
+            manager.close();
+        }
+        File journal = new File(zone, "journal");
+        assertTrue(journal.length() > 0);
+
+        // the next load replays past the threshold, so writes a new snapshot
+        LocalZones zones = new LocalZones(directory, 2);
+        try {
+            assertEquals(zones.load().get("denominator.io.").size(), 5);
+            assertEquals(journal.length(), 0);
+        } finally {
+            zones.close();
+        }
+        assertEquals(Snapshot.read(new File(zone, "snapshot")).size(), 5);
+    }
+
+    @Test
+    public void testReplayDropsIncompleteEntry() throws IOException {
+        File file = new File(zone, "journal");
+        Journal journal = new Journal(file, 0);
+        journal.put("www.denominator.io.", "A",
+                Optional.<ResourceRecordSet<?>> of(a("www.denominator.io.", 3600, "192.0.2.1")));
+        journal.put("www2.denominator.io.", "A",
+                Optional.<ResourceRecordSet<?>> of(a("www2.denominator.io.", 3600, "192.0.2.2")));
+        journal.close();
+        long complete = file.length();
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        raf.setLength(complete - 3);
+        raf.close();
+
+        Map<List<String>, ResourceRecordSet<?>> rrsets = Maps.newLinkedHashMap();
+        assertEquals(Journal.replay(file, rrsets), 1);
+        assertEquals(rrsets.keySet(), ImmutableSet.of(ImmutableList.of("www.denominator.io.", "A")));
+        assertTrue(file.length() < complete - 3);
+    }
+}
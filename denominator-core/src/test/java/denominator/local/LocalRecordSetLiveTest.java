@@ -0,0 +1,22 @@
+package denominator.local;
+
+import java.io.File;
+
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.google.common.io.Files;
+
+import denominator.BaseRecordSetLiveTest;
+import denominator.Denominator;
+
+@Test
+public class LocalRecordSetLiveTest extends BaseRecordSetLiveTest {
+    @BeforeClass
+    private void setUp() {
+        File directory = Files.createTempDir();
+        new File(directory, "denominator.io.").mkdir();
+        manager = Denominator.create(new LocalProvider("file:" + directory.getPath()));
+        mutableZone = "denominator.io.";
+    }
+}
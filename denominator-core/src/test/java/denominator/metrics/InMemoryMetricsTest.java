@@ -0,0 +1,67 @@
+package denominator.metrics;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertSame;
+
+import org.testng.annotations.Test;
+
+import denominator.metrics.InMemoryMetrics.Histogram;
+import denominator.metrics.Metrics.Gauge;
+
+public class InMemoryMetricsTest {
+
+    @Test
+    public void testTimersAreSharedByTags() {
+        InMemoryMetrics metrics = new InMemoryMetrics();
+
+        assertSame(metrics.timer("mock", "denominator.io.", "ZoneApi.list"),
+                metrics.timer("mock", "denominator.io.", "ZoneApi.list"));
+        assertFalse(metrics.get("mock", "denominator.io.", "ResourceRecordSetApi.list").isPresent());
+        assertEquals(metrics.asMap().keySet().iterator().next().toString(),
+                "{provider=mock, zone=denominator.io., operation=ZoneApi.list}");
+    }
+
+    @Test
+    public void testGaugesAreReplacedByName() {
+        InMemoryMetrics metrics = new InMemoryMetrics();
+        metrics.gauge("mock", "RateLimit.queueDepth", new Gauge() {
+            @Override
+            public double value() {
+                return 1;
+            }
+        });
+        metrics.gauge("mock", "RateLimit.queueDepth", new Gauge() {
+            @Override
+            public double value() {
+                return 2;
+            }
+        });
+
+        assertEquals(metrics.getGauge("mock", "RateLimit.queueDepth").get().value(), 2.0);
+        assertFalse(metrics.getGauge("mock", "RateLimit.permitsPerSecond").isPresent());
+        assertFalse(metrics.getGauge("route53", "RateLimit.queueDepth").isPresent());
+    }
+
+    @Test
+    public void testHistogram() {
+        Histogram histogram = new InMemoryMetrics().timer("mock", null, "ZoneApi.list");
+        assertEquals(histogram.getQuantileNanos(0.5), 0);
+
+        for (int i = 0; i < 98; i++) {
+            histogram.record(1000, false);
+        }
+        histogram.record(1000000, true);
+        histogram.record(5000000, false);
+
+        assertEquals(histogram.getCount(), 100);
+        assertEquals(histogram.getFailureCount(), 1);
+        assertEquals(histogram.getTotalNanos(), 98 * 1000 + 1000000 + 5000000);
+        assertEquals(histogram.getMaxNanos(), 5000000);
+        // 1000 is in the bucket [512, 1024)
+        assertEquals(histogram.getQuantileNanos(0.5), 1023);
+        // 1000000 is in the bucket [524288, 1048576)
+        assertEquals(histogram.getQuantileNanos(0.99), 1048575);
+        assertEquals(histogram.getQuantileNanos(1), 5000000);
+    }
+}
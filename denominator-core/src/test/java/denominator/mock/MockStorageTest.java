@@ -0,0 +1,120 @@
+package denominator.mock;
+
+import static com.google.common.collect.Iterators.filter;
+import static denominator.Denominator.create;
+import static denominator.model.ResourceRecordSets.a;
+import static denominator.model.ResourceRecordSets.cname;
+import static denominator.model.ResourceRecordSets.ns;
+import static denominator.model.ResourceRecordSets.typeEqualTo;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableListMultimap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Ordering;
+
+import denominator.DNSApi;
+import denominator.ResourceRecordSetApi;
+import denominator.model.ResourceRecordSet;
+
+public class MockStorageTest {
+
+    @SuppressWarnings("rawtypes")
+    static MockStorage storage(ResourceRecordSet<?>... records) {
+        ImmutableListMultimap.Builder<String, ResourceRecordSet> builder = ImmutableListMultimap.builder();
+        for (ResourceRecordSet<?> rrset : records) {
+            builder.put("denominator.io.", rrset);
+        }
+        return new MockStorage(builder.build());
+    }
+
+    @Test
+    public void testListsInOrderOfNameAndType() {
+        MockStorage storage = storage(a("www2.denominator.io.", 3600, "192.0.2.2"),
+                cname("www.denominator.io.", 3600, "www1.denominator.io."),
+                a("www.denominator.io.", 3600, "192.0.2.1"));
+
+        assertEquals(ImmutableList.copyOf(storage.list("denominator.io.")), ImmutableList.of(
+                a("www.denominator.io.", 3600, "192.0.2.1"),
+                cname("www.denominator.io.", 3600, "www1.denominator.io."),
+                a("www2.denominator.io.", 3600, "192.0.2.2")));
+        assertEquals(ImmutableList.copyOf(storage.listByName("denominator.io.", "www.denominator.io.")).size(), 2);
+        assertEquals(storage.getByNameAndType("denominator.io.", "www.denominator.io.", "A"),
+                ImmutableList.of(a("www.denominator.io.", 3600, "192.0.2.1")));
+        assertTrue(storage.getByNameAndType("denominator.io.", "www.denominator.io.", "AAAA").isEmpty());
+    }
+
+    @Test
+    public void testRemovingLastRecordSetRemovesName() {
+        ResourceRecordSetApi api = new MockResourceRecordSetApi(
+                storage(a("www.denominator.io.", 3600, "192.0.2.1")), "denominator.io.");
+
+        api.deleteByNameAndType("www.denominator.io.", "A");
+
+        assertFalse(api.list().hasNext());
+        assertFalse(api.listByName("www.denominator.io.").hasNext());
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class, expectedExceptionsMessageRegExp = "zone foo.io. not found")
+    public void testZoneNotFound() {
+        storage().list("foo.io.");
+    }
+
+    @Test
+    public void testConcurrentAddsToSameAndDifferentNames() throws Exception {
+        final ResourceRecordSetApi api = new MockResourceRecordSetApi(
+                storage(ns("denominator.io.", 86400, "ns1.denominator.io.")), "denominator.io.");
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = Lists.newArrayList();
+            for (int i = 0; i < 8; i++) {
+                final int thread = i;
+                futures.add(executor.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() {
+                        for (int j = 0; j < 100; j++) {
+                            api.add(a("host" + j + ".denominator.io.", 3600, "192.0.2." + thread));
+                        }
+                        return null;
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        List<ResourceRecordSet<?>> rrsets = ImmutableList.copyOf(filter(api.list(), typeEqualTo("A")));
+        assertEquals(rrsets.size(), 100);
+        for (ResourceRecordSet<?> rrset : rrsets) {
+            assertEquals(rrset.size(), 8);
+        }
+        List<String> names = Lists.newArrayList();
+        for (ResourceRecordSet<?> rrset : rrsets) {
+            names.add(rrset.getName());
+        }
+        assertTrue(Ordering.natural().isStrictlyOrdered(names));
+    }
+
+    @Test
+    public void testApisShareStorage() {
+        DNSApi api = create(new MockProvider()).getApi();
+
+        api.getResourceRecordSetApiForZone("denominator.io.").add(a("www3.denominator.io.", 3600, "192.0.2.3"));
+
+        assertTrue(api.getAllProfileResourceRecordSetApiForZone("denominator.io.")
+                .listByNameAndType("www3.denominator.io.", "A").hasNext());
+    }
+}
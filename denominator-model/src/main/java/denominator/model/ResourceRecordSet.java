@@ -12,6 +12,8 @@ import com.google.common.base.Objects;
 import com.google.common.base.Optional;
 import com.google.common.collect.ForwardingList;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
 import com.google.common.primitives.UnsignedInteger;
 
 /**
@@ -27,21 +29,36 @@ import com.google.common.primitives.UnsignedInteger;
  */
 public class ResourceRecordSet<D extends Map<String, Object>> extends ForwardingList<D> {
 
+    /**
+     * types are few, so each is held once no matter how many record sets
+     * there are. Weak, as types are arbitrary input, and those no longer in
+     * use shouldn't be held.
+     */
+    private static final Interner<String> TYPES = Interners.newWeakInterner();
+
+    /**
+     * ttls are 0-2147483647 per RFC 2181, so a negative value can mean absent.
+     */
+    private static final int NO_TTL = -1;
+
     private final String name;
     private final String type;
-    private final Optional<Integer> ttl;
+    private final int ttl;
     private final ImmutableList<D> rdata;
     private final ImmutableList<Map<String, Object>> profiles;
+    // record sets are immutable, so their hash code is computed at most once
+    private transient int hashCode;
 
     @ConstructorProperties({ "name", "type", "ttl", "rdata", "profiles" })
     ResourceRecordSet(String name, String type, Optional<Integer> ttl, ImmutableList<D> rdata,
             ImmutableList<Map<String, Object>> profiles) {
         this.name = checkNotNull(name, "name");
         checkArgument(name.length() <= 255, "Name must be limited to 255 characters"); 
-        this.type = checkNotNull(type, "type of %s", name);
-        this.ttl = ttl != null ? ttl : Optional.<Integer> absent(); //temporary until jcloud 1.6.0-rc.2
-        checkArgument(UnsignedInteger.fromIntBits(this.ttl.or(0)).longValue() <= 0x7FFFFFFFL, // Per RFC 2181 
-                "Invalid ttl value: %s, must be 0-2147483647", this.ttl);
+        this.type = TYPES.intern(checkNotNull(type, "type of %s", name));
+        ttl = ttl != null ? ttl : Optional.<Integer> absent(); //temporary until jcloud 1.6.0-rc.2
+        checkArgument(UnsignedInteger.fromIntBits(ttl.or(0)).longValue() <= 0x7FFFFFFFL, // Per RFC 2181 
+                "Invalid ttl value: %s, must be 0-2147483647", ttl);
+        this.ttl = ttl.or(NO_TTL);
         this.rdata = checkNotNull(rdata, "rdata of %s", name);
         this.profiles = checkNotNull(profiles, "profiles of %s", name);
     }
@@ -66,7 +83,7 @@ public class ResourceRecordSet<D extends Map<String, Object>> extends Forwarding
      * is not cached. Absent means default for the zone.
      */
     public Optional<Integer> getTTL() {
-        return ttl;
+        return ttl != NO_TTL ? Optional.of(ttl) : Optional.<Integer> absent();
     }
 
     /**
@@ -91,7 +108,11 @@ public class ResourceRecordSet<D extends Map<String, Object>> extends Forwarding
 
     @Override
     public int hashCode() {
-        return Objects.hashCode(name, type, rdata, profiles);
+        int result = hashCode;
+        if (result == 0) {
+            result = hashCode = Objects.hashCode(name, type, rdata, profiles);
+        }
+        return result;
     }
 
     @Override
@@ -101,6 +122,8 @@ public class ResourceRecordSet<D extends Map<String, Object>> extends Forwarding
         if (obj == null || !(obj instanceof ResourceRecordSet))
             return false;
         ResourceRecordSet<?> that = ResourceRecordSet.class.cast(obj);
+        if (this.hashCode != 0 && that.hashCode != 0 && this.hashCode != that.hashCode)
+            return false;
         return equal(this.name, that.name) && equal(this.type, that.type) && equal(this.rdata, that.rdata)
                 && equal(this.profiles, that.profiles);
     }
@@ -110,7 +133,7 @@ public class ResourceRecordSet<D extends Map<String, Object>> extends Forwarding
         return toStringHelper(this).omitNullValues()
                                    .add("name", name)
                                    .add("type", type)
-                                   .add("ttl", ttl.orNull())
+                                   .add("ttl", getTTL().orNull())
                                    .add("rdata", rdata.isEmpty() ? null : rdata)
                                    .add("profiles", profiles.isEmpty() ? null : profiles).toString();
     }
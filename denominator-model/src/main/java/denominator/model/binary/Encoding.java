@@ -0,0 +1,368 @@
+package denominator.model.binary;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.io.ByteArrayOutputStream;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableListMultimap;
+import com.google.common.collect.Maps;
+import com.google.common.net.InetAddresses;
+
+import denominator.model.ResourceRecordSet;
+import denominator.model.profile.Geo;
+import denominator.model.rdata.AAAAData;
+import denominator.model.rdata.AData;
+import denominator.model.rdata.CNAMEData;
+import denominator.model.rdata.MXData;
+import denominator.model.rdata.NSData;
+import denominator.model.rdata.PTRData;
+import denominator.model.rdata.SOAData;
+import denominator.model.rdata.SPFData;
+import denominator.model.rdata.SRVData;
+import denominator.model.rdata.SSHFPData;
+import denominator.model.rdata.TXTData;
+
+/**
+ * Encodes and decodes records as described in {@code package-info.java}.
+ */
+final class Encoding {
+    static final int MAGIC = 0x444e5252; // DNRR
+    static final byte VERSION = 1;
+    static final byte INDEXED = 1;
+    static final int HEADER_LENGTH = 6;
+
+    // rdata and profile tags
+    private static final byte MAP = 0;
+    private static final byte A = 1;
+    private static final byte AAAA = 2;
+    private static final byte CNAME = 3;
+    private static final byte MX = 4;
+    private static final byte NS = 5;
+    private static final byte PTR = 6;
+    private static final byte SOA = 7;
+    private static final byte SPF = 8;
+    private static final byte SRV = 9;
+    private static final byte SSHFP = 10;
+    private static final byte TXT = 11;
+    private static final byte GEO = 1;
+
+    // map value tags
+    private static final byte STRING = 0;
+    private static final byte INTEGER = 1;
+    private static final byte LONG = 2;
+
+    private Encoding() {
+    }
+
+    /**
+     * bytes of a record, before they are written with their length.
+     */
+    static final class Sink extends ByteArrayOutputStream {
+
+        void writeByte(int value) {
+            write(value);
+        }
+
+        void writeVarint(long value) {
+            while ((value & ~0x7FL) != 0) {
+                write((int) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            write((int) value);
+        }
+
+        void writeUnsigned(int value) {
+            writeVarint(value & 0xFFFFFFFFL);
+        }
+
+        void writeString(String value) {
+            byte[] bytes = value.getBytes(Charsets.UTF_8);
+            writeVarint(bytes.length);
+            write(bytes, 0, bytes.length);
+        }
+
+        void writeLong(long value) {
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                write((int) (value >>> shift));
+            }
+        }
+    }
+
+    static void writeRecord(ResourceRecordSet<?> rrset, Sink out) {
+        out.writeString(rrset.getName());
+        out.writeString(rrset.getType());
+        out.writeVarint(rrset.getTTL().isPresent() ? rrset.getTTL().get() + 1L : 0);
+        out.writeVarint(rrset.size());
+        for (Map<String, Object> rdata : rrset) {
+            writeRData(rdata, out);
+        }
+        out.writeVarint(rrset.getProfiles().size());
+        for (Map<String, Object> profile : rrset.getProfiles()) {
+            if (profile instanceof Geo) {
+                out.writeByte(GEO);
+                writeGeo(Geo.class.cast(profile), out);
+            } else {
+                out.writeByte(MAP);
+                writeMap(profile, out);
+            }
+        }
+    }
+
+    private static void writeRData(Map<String, Object> rdata, Sink out) {
+        if (rdata instanceof AData) {
+            writeAddress(A, AData.class.cast(rdata).getAddress(), rdata, out);
+        } else if (rdata instanceof AAAAData) {
+            writeAddress(AAAA, AAAAData.class.cast(rdata).getAddress(), rdata, out);
+        } else if (rdata instanceof CNAMEData) {
+            out.writeByte(CNAME);
+            out.writeString(CNAMEData.class.cast(rdata).getCname());
+        } else if (rdata instanceof MXData) {
+            MXData mx = MXData.class.cast(rdata);
+            out.writeByte(MX);
+            out.writeUnsigned(mx.getPreference());
+            out.writeString(mx.getExchange());
+        } else if (rdata instanceof NSData) {
+            out.writeByte(NS);
+            out.writeString(NSData.class.cast(rdata).getNsdname());
+        } else if (rdata instanceof PTRData) {
+            out.writeByte(PTR);
+            out.writeString(PTRData.class.cast(rdata).getPtrdname());
+        } else if (rdata instanceof SOAData) {
+            SOAData soa = SOAData.class.cast(rdata);
+            out.writeByte(SOA);
+            out.writeString(soa.getMname());
+            out.writeString(soa.getRname());
+            out.writeUnsigned(soa.getSerial());
+            out.writeUnsigned(soa.getRefresh());
+            out.writeUnsigned(soa.getRetry());
+            out.writeUnsigned(soa.getExpire());
+            out.writeUnsigned(soa.getMinimum());
+        } else if (rdata instanceof SPFData) {
+            out.writeByte(SPF);
+            out.writeString(SPFData.class.cast(rdata).getTxtdata());
+        } else if (rdata instanceof SRVData) {
+            SRVData srv = SRVData.class.cast(rdata);
+            out.writeByte(SRV);
+            out.writeUnsigned(srv.getPriority());
+            out.writeUnsigned(srv.getWeight());
+            out.writeUnsigned(srv.getPort());
+            out.writeString(srv.getTarget());
+        } else if (rdata instanceof SSHFPData) {
+            SSHFPData sshfp = SSHFPData.class.cast(rdata);
+            out.writeByte(SSHFP);
+            out.writeUnsigned(sshfp.getAlgorithm());
+            out.writeUnsigned(sshfp.getType());
+            out.writeString(sshfp.getFingerprint());
+        } else if (rdata instanceof TXTData) {
+            out.writeByte(TXT);
+            out.writeString(TXTData.class.cast(rdata).getTxtdata());
+        } else {
+            out.writeByte(MAP);
+            writeMap(rdata, out);
+        }
+    }
+
+    /**
+     * writes the address as bytes, unless that would lose its text format, for
+     * example leading zeros in ipv6.
+     */
+    private static void writeAddress(byte tag, String address, Map<String, Object> rdata, Sink out) {
+        byte[] bytes = InetAddresses.forString(address).getAddress();
+        if (address.equals(address(bytes))) {
+            out.writeByte(tag);
+            out.write(bytes, 0, bytes.length);
+        } else {
+            out.writeByte(MAP);
+            writeMap(rdata, out);
+        }
+    }
+
+    private static void writeGeo(Geo geo, Sink out) {
+        out.writeString(geo.getGroup());
+        Map<String, Collection<String>> regions = geo.getRegions().asMap();
+        out.writeVarint(regions.size());
+        for (Entry<String, Collection<String>> region : regions.entrySet()) {
+            out.writeString(region.getKey());
+            out.writeVarint(region.getValue().size());
+            for (String territory : region.getValue()) {
+                out.writeString(territory);
+            }
+        }
+    }
+
+    private static void writeMap(Map<String, Object> map, Sink out) {
+        out.writeVarint(map.size());
+        for (Entry<String, Object> entry : map.entrySet()) {
+            out.writeString(entry.getKey());
+            Object value = entry.getValue();
+            if (value instanceof String) {
+                out.writeByte(STRING);
+                out.writeString(value.toString());
+            } else if (value instanceof Integer) {
+                out.writeByte(INTEGER);
+                out.writeUnsigned(Integer.class.cast(value));
+            } else if (value instanceof Long) {
+                out.writeByte(LONG);
+                out.writeLong(Long.class.cast(value));
+            } else {
+                throw new IllegalArgumentException("unsupported value for " + entry.getKey() + ": " + value);
+            }
+        }
+    }
+
+    /**
+     * decodes the record at the buffer's position, advancing it past the
+     * record.
+     */
+    static ResourceRecordSet<?> readRecord(ByteBuffer in) {
+        ResourceRecordSet.Builder<Map<String, Object>> builder = ResourceRecordSet.<Map<String, Object>> builder()
+                                                                                  .name(readString(in))
+                                                                                  .type(readString(in));
+        long ttl = readVarint(in);
+        if (ttl != 0)
+            builder.ttl((int) (ttl - 1));
+        for (long i = readVarint(in); i > 0; i--) {
+            builder.add(readRData(in));
+        }
+        for (long i = readVarint(in); i > 0; i--) {
+            byte tag = in.get();
+            switch (tag) {
+            case GEO:
+                builder.addProfile(readGeo(in));
+                break;
+            case MAP:
+                builder.addProfile(readMap(in));
+                break;
+            default:
+                throw new IllegalArgumentException("unknown profile tag " + tag);
+            }
+        }
+        return builder.build();
+    }
+
+    private static Map<String, Object> readRData(ByteBuffer in) {
+        byte tag = in.get();
+        switch (tag) {
+        case MAP:
+            return readMap(in);
+        case A:
+            return AData.create(address(readBytes(in, 4)));
+        case AAAA:
+            return AAAAData.create(address(readBytes(in, 16)));
+        case CNAME:
+            return CNAMEData.create(readString(in));
+        case MX:
+            return MXData.create(readUnsigned(in), readString(in));
+        case NS:
+            return NSData.create(readString(in));
+        case PTR:
+            return PTRData.create(readString(in));
+        case SOA:
+            return SOAData.builder().mname(readString(in)).rname(readString(in)).serial(readUnsigned(in))
+                    .refresh(readUnsigned(in)).retry(readUnsigned(in)).expire(readUnsigned(in))
+                    .minimum(readUnsigned(in)).build();
+        case SPF:
+            return SPFData.create(readString(in));
+        case SRV:
+            return SRVData.builder().priority(readUnsigned(in)).weight(readUnsigned(in)).port(readUnsigned(in))
+                    .target(readString(in)).build();
+        case SSHFP:
+            return SSHFPData.builder().algorithm(readUnsigned(in)).fptype(readUnsigned(in))
+                    .fingerprint(readString(in)).build();
+        case TXT:
+            return TXTData.create(readString(in));
+        default:
+            throw new IllegalArgumentException("unknown rdata tag " + tag);
+        }
+    }
+
+    private static Geo readGeo(ByteBuffer in) {
+        String group = readString(in);
+        ImmutableListMultimap.Builder<String, String> regions = ImmutableListMultimap.builder();
+        for (long i = readVarint(in); i > 0; i--) {
+            String region = readString(in);
+            for (long j = readVarint(in); j > 0; j--) {
+                regions.put(region, readString(in));
+            }
+        }
+        return Geo.create(group, regions.build());
+    }
+
+    private static Map<String, Object> readMap(ByteBuffer in) {
+        long size = readVarint(in);
+        Map<String, Object> map = Maps.newLinkedHashMap();
+        for (long i = 0; i < size; i++) {
+            String key = readString(in);
+            byte tag = in.get();
+            switch (tag) {
+            case STRING:
+                map.put(key, readString(in));
+                break;
+            case INTEGER:
+                map.put(key, readUnsigned(in));
+                break;
+            case LONG:
+                map.put(key, in.getLong());
+                break;
+            default:
+                throw new IllegalArgumentException("unknown value tag " + tag + " for " + key);
+            }
+        }
+        return map;
+    }
+
+    static long readVarint(ByteBuffer in) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0)
+                return value;
+        }
+        throw new IllegalArgumentException("malformed varint");
+    }
+
+    private static int readUnsigned(ByteBuffer in) {
+        return (int) readVarint(in);
+    }
+
+    /**
+     * decodes a string directly from the buffer, without copying its bytes.
+     */
+    static String readString(ByteBuffer in) {
+        long length = readVarint(in);
+        checkArgument(length <= in.remaining(), "string of length %s exceeds remaining %s", length, in.remaining());
+        int end = in.position() + (int) length;
+        String value;
+        if (in.hasArray()) {
+            value = new String(in.array(), in.arrayOffset() + in.position(), (int) length, Charsets.UTF_8);
+        } else {
+            ByteBuffer slice = in.duplicate();
+            slice.limit(end);
+            value = Charsets.UTF_8.decode(slice).toString();
+        }
+        in.position(end);
+        return value;
+    }
+
+    private static byte[] readBytes(ByteBuffer in, int length) {
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return bytes;
+    }
+
+    private static String address(byte[] bytes) {
+        try {
+            return InetAddresses.toAddrString(InetAddress.getByAddress(bytes));
+        } catch (UnknownHostException e) {
+            throw new IllegalArgumentException("invalid address length " + bytes.length, e);
+        }
+    }
+}
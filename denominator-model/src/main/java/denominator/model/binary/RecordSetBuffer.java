@@ -0,0 +1,178 @@
+package denominator.model.binary;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.List;
+
+import com.google.common.base.Optional;
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.ImmutableList;
+
+import denominator.model.ResourceRecordSet;
+
+/**
+ * Reads record sets written by {@link RecordSetOutput} from a buffer, such as
+ * a memory-mapped file. Strings are decoded directly from the buffer, and
+ * record sets are decoded only when iterated or looked up, so opening a large
+ * zone is cheap.
+ *
+ * <p/>
+ * Lookups by name binary search the index of indexed streams, without
+ * decoding it. Otherwise, they skip through the records, decoding only their
+ * names until one matches.
+ *
+ * <p/>
+ * This is safe for use by multiple threads, as reads don't change the
+ * position of the buffer passed in.
+ *
+ * <h4>Example</h4>
+ *
+ * <pre>
+ * FileChannel channel = new RandomAccessFile(file, &quot;r&quot;).getChannel();
+ * RecordSetBuffer zone = RecordSetBuffer.wrap(channel.map(MapMode.READ_ONLY, 0, channel.size()));
+ * Optional&lt;ResourceRecordSet&lt;?&gt;&gt; www = zone.getByNameAndType(&quot;www.denominator.io.&quot;, &quot;A&quot;);
+ * </pre>
+ */
+public final class RecordSetBuffer implements Iterable<ResourceRecordSet<?>> {
+
+    /**
+     * @param buffer
+     *            holds a stream from its position to its limit.
+     * @throws IllegalArgumentException
+     *             if {@code buffer} isn't a record set stream, or its version
+     *             is newer than this reader.
+     */
+    public static RecordSetBuffer wrap(ByteBuffer buffer) {
+        return new RecordSetBuffer(checkNotNull(buffer, "buffer").slice());
+    }
+
+    private final ByteBuffer buffer;
+    private final boolean indexed;
+
+    private RecordSetBuffer(ByteBuffer buffer) {
+        this.buffer = buffer;
+        checkArgument(buffer.remaining() >= Encoding.HEADER_LENGTH && buffer.getInt(0) == Encoding.MAGIC,
+                "not a record set stream");
+        byte version = buffer.get(4);
+        checkArgument(version <= Encoding.VERSION, "unsupported version %s", version);
+        this.indexed = (buffer.get(5) & Encoding.INDEXED) != 0;
+    }
+
+    /**
+     * true if the stream has an index, which speeds up lookups by name.
+     */
+    public boolean isIndexed() {
+        return indexed;
+    }
+
+    /**
+     * iterates over all record sets, in the order they were written.
+     */
+    @Override
+    public Iterator<ResourceRecordSet<?>> iterator() {
+        final ByteBuffer in = buffer.duplicate();
+        in.position(Encoding.HEADER_LENGTH);
+        return new AbstractIterator<ResourceRecordSet<?>>() {
+            @Override
+            protected ResourceRecordSet<?> computeNext() {
+                int length = (int) Encoding.readVarint(in);
+                if (length == 0)
+                    return endOfData();
+                int next = in.position() + length;
+                ResourceRecordSet<?> rrset = Encoding.readRecord(in);
+                in.position(next);
+                return rrset;
+            }
+        };
+    }
+
+    /**
+     * @return record sets named {@code name}, in the order they were
+     *         written.
+     */
+    public List<ResourceRecordSet<?>> listByName(String name) {
+        checkNotNull(name, "name");
+        ImmutableList.Builder<ResourceRecordSet<?>> rrsets = ImmutableList.builder();
+        for (int offset : offsetsOf(name)) {
+            ByteBuffer in = buffer.duplicate();
+            in.position(offset);
+            Encoding.readVarint(in);
+            rrsets.add(Encoding.readRecord(in));
+        }
+        return rrsets.build();
+    }
+
+    /**
+     * @return the record set named {@code name} of type {@code type}, if
+     *         present.
+     */
+    public Optional<ResourceRecordSet<?>> getByNameAndType(String name, String type) {
+        checkNotNull(type, "type");
+        for (ResourceRecordSet<?> rrset : listByName(name)) {
+            if (type.equals(rrset.getType()))
+                return Optional.<ResourceRecordSet<?>> of(rrset);
+        }
+        return Optional.absent();
+    }
+
+    private List<Integer> offsetsOf(String name) {
+        return indexed ? search(name) : scan(name);
+    }
+
+    /**
+     * binary searches the table of index entries at the end of the stream.
+     */
+    private List<Integer> search(String name) {
+        ByteBuffer in = buffer.duplicate();
+        in.position(position(in.getLong(in.limit() - 8)));
+        int count = (int) Encoding.readVarint(in);
+        int table = in.position();
+        int low = 0;
+        int high = count - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            in.position(position(in.getLong(table + middle * 8)));
+            int comparison = Encoding.readString(in).compareTo(name);
+            if (comparison < 0) {
+                low = middle + 1;
+            } else if (comparison > 0) {
+                high = middle - 1;
+            } else {
+                ImmutableList.Builder<Integer> offsets = ImmutableList.builder();
+                for (long i = Encoding.readVarint(in); i > 0; i--) {
+                    offsets.add(position(Encoding.readVarint(in)));
+                }
+                return offsets.build();
+            }
+        }
+        return ImmutableList.of();
+    }
+
+    /**
+     * skips through records, decoding only their names.
+     */
+    private List<Integer> scan(String name) {
+        ByteBuffer in = buffer.duplicate();
+        in.position(Encoding.HEADER_LENGTH);
+        ImmutableList.Builder<Integer> offsets = ImmutableList.builder();
+        while (true) {
+            int offset = in.position();
+            int length = (int) Encoding.readVarint(in);
+            if (length == 0)
+                break;
+            int next = in.position() + length;
+            if (name.equals(Encoding.readString(in)))
+                offsets.add(offset);
+            in.position(next);
+        }
+        return offsets.build();
+    }
+
+    private int position(long offset) {
+        checkArgument(offset >= 0 && offset < buffer.limit(), "offset %s is outside the buffer", offset);
+        return (int) offset;
+    }
+}
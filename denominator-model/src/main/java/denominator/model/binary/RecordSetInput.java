@@ -0,0 +1,87 @@
+package denominator.model.binary;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+import denominator.model.ResourceRecordSet;
+
+/**
+ * Reads record sets from a stream written by {@link RecordSetOutput}, one at
+ * a time. The index of an indexed stream is ignored. To look up record sets
+ * by name, use {@link RecordSetBuffer}.
+ *
+ * <h4>Example</h4>
+ *
+ * <pre>
+ * RecordSetInput in = new RecordSetInput(new FileInputStream(file));
+ * try {
+ *     for (ResourceRecordSet&lt;?&gt; rrset = in.read(); rrset != null; rrset = in.read())
+ *         api.add(rrset);
+ * } finally {
+ *     in.close();
+ * }
+ * </pre>
+ */
+public final class RecordSetInput implements Closeable {
+    private final DataInputStream in;
+    private byte[] record = new byte[256];
+    private boolean ended;
+
+    /**
+     * reads the header of a stream from {@code in}.
+     *
+     * @throws IllegalArgumentException
+     *             if {@code in} isn't a record set stream, or its version is
+     *             newer than this reader.
+     */
+    public RecordSetInput(InputStream in) throws IOException {
+        this.in = new DataInputStream(checkNotNull(in, "in"));
+        checkArgument(this.in.readInt() == Encoding.MAGIC, "not a record set stream");
+        byte version = this.in.readByte();
+        checkArgument(version <= Encoding.VERSION, "unsupported version %s", version);
+        this.in.readByte(); // flags only affect what follows the last record
+    }
+
+    /**
+     * @return the next record set, or null if there are no more.
+     * @throws EOFException
+     *             if the stream ends before its last record set.
+     */
+    public ResourceRecordSet<?> read() throws IOException {
+        if (ended)
+            return null;
+        long length = readVarint();
+        if (length == 0) {
+            ended = true;
+            return null;
+        }
+        checkArgument(length <= Integer.MAX_VALUE, "record of length %s is too long", length);
+        if (length > record.length)
+            record = new byte[Math.max((int) length, record.length * 2)];
+        in.readFully(record, 0, (int) length);
+        return Encoding.readRecord(ByteBuffer.wrap(record, 0, (int) length));
+    }
+
+    private long readVarint() throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.readByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0)
+                return value;
+        }
+        throw new IllegalArgumentException("malformed varint");
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
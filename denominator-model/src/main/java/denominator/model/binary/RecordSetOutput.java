@@ -0,0 +1,148 @@
+package denominator.model.binary;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.SortedMap;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.io.CountingOutputStream;
+
+import denominator.model.ResourceRecordSet;
+import denominator.model.binary.Encoding.Sink;
+
+/**
+ * Writes record sets to a stream in the format described in
+ * {@link denominator.model.binary}. Record sets are encoded one at a time,
+ * so a zone needn't fit in memory, unless the stream is indexed, in which
+ * case the names and offsets of its records are kept until it is closed.
+ *
+ * <h4>Example</h4>
+ *
+ * <pre>
+ * RecordSetOutput out = new RecordSetOutput(new FileOutputStream(file), true);
+ * try {
+ *     for (Iterator&lt;ResourceRecordSet&lt;?&gt;&gt; i = api.list(); i.hasNext();)
+ *         out.write(i.next());
+ * } finally {
+ *     out.close();
+ * }
+ * </pre>
+ */
+public final class RecordSetOutput implements Closeable, Flushable {
+    private final CountingOutputStream out;
+    private final Sink record = new Sink();
+    private final SortedMap<String, List<Long>> index;
+    private boolean closed;
+
+    /**
+     * same as {@code new RecordSetOutput(out, false)}
+     */
+    public RecordSetOutput(OutputStream out) throws IOException {
+        this(out, false);
+    }
+
+    /**
+     * writes the header of a stream to {@code out}.
+     *
+     * @param indexed
+     *            if true, {@link #close()} writes an index, which allows
+     *            {@link RecordSetBuffer} to look up record sets by name.
+     */
+    public RecordSetOutput(OutputStream out, boolean indexed) throws IOException {
+        this.out = new CountingOutputStream(checkNotNull(out, "out"));
+        this.index = indexed ? Maps.<String, List<Long>> newTreeMap() : null;
+        Sink header = new Sink();
+        header.write(Encoding.MAGIC >>> 24);
+        header.write(Encoding.MAGIC >>> 16);
+        header.write(Encoding.MAGIC >>> 8);
+        header.write(Encoding.MAGIC);
+        header.writeByte(Encoding.VERSION);
+        header.writeByte(indexed ? Encoding.INDEXED : 0);
+        header.writeTo(this.out);
+    }
+
+    /**
+     * @throws IllegalArgumentException
+     *             if rdata or profiles hold values other than
+     *             {@code String}, {@code Integer} or {@code Long}, and
+     *             aren't types in {@code denominator.model}.
+     */
+    public RecordSetOutput write(ResourceRecordSet<?> rrset) throws IOException {
+        checkState(!closed, "closed");
+        checkNotNull(rrset, "rrset");
+        record.reset();
+        Encoding.writeRecord(rrset, record);
+        if (index != null) {
+            List<Long> offsets = index.get(rrset.getName());
+            if (offsets == null)
+                index.put(rrset.getName(), offsets = Lists.newArrayListWithCapacity(1));
+            offsets.add(out.getCount());
+        }
+        Sink length = new Sink();
+        length.writeVarint(record.size());
+        length.writeTo(out);
+        record.writeTo(out);
+        return this;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    /**
+     * ends the stream, writing its index, if any, then closes the underlying
+     * stream.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed)
+            return;
+        closed = true;
+        try {
+            Sink end = new Sink();
+            end.writeVarint(0);
+            if (index != null) {
+                writeIndex(end);
+            }
+            end.writeTo(out);
+            out.flush();
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * writes each name and its offsets, followed by a table of offsets of
+     * each name, so that readers can binary search names without decoding
+     * the index.
+     */
+    private void writeIndex(Sink end) throws IOException {
+        long position = out.getCount() + end.size();
+        List<Long> entries = Lists.newArrayListWithCapacity(index.size());
+        Sink entry = new Sink();
+        for (Entry<String, List<Long>> name : index.entrySet()) {
+            entries.add(position + entry.size());
+            entry.writeString(name.getKey());
+            entry.writeVarint(name.getValue().size());
+            for (Long offset : name.getValue()) {
+                entry.writeVarint(offset);
+            }
+        }
+        long table = position + entry.size();
+        entry.writeTo(end);
+        end.writeVarint(entries.size());
+        for (Long offset : entries) {
+            end.writeLong(offset);
+        }
+        end.writeLong(table);
+    }
+}
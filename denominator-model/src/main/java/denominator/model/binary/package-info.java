@@ -0,0 +1,42 @@
+/**
+ * A compact, versioned binary encoding of record sets, their rdata and
+ * profiles, for caching zones on disk or sending them between processes.
+ * {@link denominator.model.binary.RecordSetOutput} writes a stream,
+ * {@link denominator.model.binary.RecordSetInput} reads it back, and
+ * {@link denominator.model.binary.RecordSetBuffer} reads it from a
+ * {@link java.nio.ByteBuffer}, such as a memory-mapped file, including by name
+ * when the stream has an index.
+ *
+ * <h4>Format</h4>
+ * Integers marked {@code varint} are unsigned
+ * <a href="https://developers.google.com/protocol-buffers/docs/encoding#varints">base 128 varints</a>.
+ * Strings are a {@code varint} count of bytes followed by UTF-8.
+ *
+ * <pre>
+ * stream  = magic:int32 ('DNRR') version:byte flags:byte record* end [index]
+ * record  = length:varint name:string type:string ttl:varint
+ *           rdataCount:varint rdata* profileCount:varint profile*
+ * end     = length:varint (0)
+ * index   = entry* entryCount:varint entryOffset:int64* tableOffset:int64
+ * entry   = name:string offsetCount:varint recordOffset:varint*
+ * </pre>
+ *
+ * <ul>
+ * <li>{@code ttl} is one more than the ttl, or zero when absent.</li>
+ * <li>{@code rdata} and {@code profile} start with a tag byte. Rdata types in
+ * {@code denominator.model.rdata} and the {@code Geo} profile are written as
+ * their fields, for example {@code A} as four bytes. Other maps are written
+ * as a count of entries, each a key and a tagged {@code String},
+ * {@code Integer} or {@code Long} value.</li>
+ * <li>{@code index} is present when the {@code INDEXED} flag is set. It has
+ * an entry per name, in order, with the offsets of its records. Offsets are
+ * from the start of the stream. The entries are followed by a table of their
+ * offsets, so that readers can binary search names. {@code tableOffset} is the
+ * offset of {@code entryCount}, and is always the last eight bytes.</li>
+ * </ul>
+ *
+ * Readers reject versions newer than theirs. As each record is prefixed by
+ * its length, a reader can skip a record without decoding it.
+ */
+package denominator.model.binary;
+
@@ -41,7 +41,7 @@ public class Geo extends ForwardingMap<String, Object> {
         this.delegate = ImmutableMap.<String, Object> builder()
                                     .put("type", type)
                                     .put("group", group)
-                                    .put("regions", regions).build();
+                                    .put("regions", this.regions).build();
     }
 
     /**
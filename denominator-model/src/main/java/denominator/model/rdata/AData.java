@@ -1,14 +1,13 @@
 package denominator.model.rdata;
 
 import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkElementIndex;
 import static com.google.common.base.Preconditions.checkNotNull;
 
 import java.beans.ConstructorProperties;
 import java.net.Inet4Address;
-import java.util.Map;
 
-import com.google.common.collect.ForwardingMap;
-import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableList;
 import com.google.common.net.InetAddresses;
 
 /**
@@ -22,7 +21,7 @@ import com.google.common.net.InetAddresses;
  * 
  * @see <a href="http://www.ietf.org/rfc/rfc1035.txt">RFC 1035</a>
  */
-public class AData extends ForwardingMap<String, Object> {
+public class AData extends FieldMap {
 
     /**
      * 
@@ -43,7 +42,6 @@ public class AData extends ForwardingMap<String, Object> {
         checkArgument(InetAddresses.forString(checkNotNull(ipv4address, "address")) instanceof Inet4Address,
                 "%s should be a ipv4 address", ipv4address);
         this.address = ipv4address;
-        this.delegate = ImmutableMap.<String, Object> of("address", ipv4address);
     }
 
     /**
@@ -53,11 +51,16 @@ public class AData extends ForwardingMap<String, Object> {
         return address;
     }
 
-    // transient to avoid serializing by default, for example in json
-    private final transient ImmutableMap<String, Object> delegate;
+    private static final ImmutableList<String> KEYS = ImmutableList.of("address");
 
     @Override
-    protected Map<String, Object> delegate() {
-        return delegate;
+    ImmutableList<String> keys() {
+        return KEYS;
+    }
+
+    @Override
+    Object value(int index) {
+        checkElementIndex(index, 1);
+        return address;
     }
 }
@@ -1,12 +1,11 @@
 package denominator.model.rdata;
 
+import static com.google.common.base.Preconditions.checkElementIndex;
 import static com.google.common.base.Preconditions.checkNotNull;
 
 import java.beans.ConstructorProperties;
-import java.util.Map;
 
-import com.google.common.collect.ForwardingMap;
-import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableList;
 
 /**
  * Corresponds to the binary representation of the {@code CNAME} (Canonical
@@ -20,7 +19,7 @@ import com.google.common.collect.ImmutableMap;
  * 
  * @see <a href="http://www.ietf.org/rfc/rfc1035.txt">RFC 1035</a>
  */
-public class CNAMEData extends ForwardingMap<String, Object> {
+public class CNAMEData extends FieldMap {
 
     public static CNAMEData create(String cname) {
         return new CNAMEData(cname);
@@ -31,7 +30,6 @@ public class CNAMEData extends ForwardingMap<String, Object> {
     @ConstructorProperties("cname")
     private CNAMEData(String cname) {
         this.cname = checkNotNull(cname, "cname");
-        this.delegate = ImmutableMap.<String, Object> of("cname", cname);
     }
 
     /**
@@ -42,11 +40,16 @@ public class CNAMEData extends ForwardingMap<String, Object> {
         return cname;
     }
 
-    // transient to avoid serializing by default, for example in json
-    private final transient ImmutableMap<String, Object> delegate;
-    
+    private static final ImmutableList<String> KEYS = ImmutableList.of("cname");
+
     @Override
-    protected Map<String, Object> delegate() {
-        return delegate;
+    ImmutableList<String> keys() {
+        return KEYS;
+    }
+
+    @Override
+    Object value(int index) {
+        checkElementIndex(index, 1);
+        return cname;
     }
 }
@@ -0,0 +1,124 @@
+package denominator.model.rdata;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import com.google.common.collect.ForwardingMap;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Maps;
+import com.google.common.collect.UnmodifiableIterator;
+
+/**
+ * Base of rdata types, which are immutable {@code Map} views of their typed
+ * fields, in the order of {@link #keys()}. Instances hold only their fields,
+ * and keys are shared by all instances of a type.
+ *
+ * Lookups, {@code equals} and {@code hashCode} read the fields directly.
+ * Iteration, which is less frequent, goes through a view created on demand.
+ */
+abstract class FieldMap extends ForwardingMap<String, Object> {
+
+    /**
+     * keys of this type, one per field.
+     */
+    abstract ImmutableList<String> keys();
+
+    /**
+     * value of the field at {@code index} in {@link #keys()}, never null.
+     */
+    abstract Object value(int index);
+
+    @Override
+    public int size() {
+        return keys().size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return false;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return keys().contains(key);
+    }
+
+    @Override
+    public Object get(Object key) {
+        int index = keys().indexOf(key);
+        return index != -1 ? value(index) : null;
+    }
+
+    @Override
+    public int hashCode() {
+        ImmutableList<String> keys = keys();
+        int hashCode = 0;
+        for (int i = 0; i < keys.size(); i++)
+            hashCode += keys.get(i).hashCode() ^ value(i).hashCode();
+        return hashCode;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj)
+            return true;
+        if (!(obj instanceof Map))
+            return false;
+        Map<?, ?> that = Map.class.cast(obj);
+        ImmutableList<String> keys = keys();
+        if (that.size() != keys.size())
+            return false;
+        for (int i = 0; i < keys.size(); i++) {
+            if (!value(i).equals(that.get(keys.get(i))))
+                return false;
+        }
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return standardToString();
+    }
+
+    @Override
+    protected Map<String, Object> delegate() {
+        return new AbstractMap<String, Object>() {
+            @Override
+            public Set<Entry<String, Object>> entrySet() {
+                return new EntrySet();
+            }
+        };
+    }
+
+    private final class EntrySet extends AbstractSet<Entry<String, Object>> {
+        @Override
+        public int size() {
+            return keys().size();
+        }
+
+        @Override
+        public Iterator<Entry<String, Object>> iterator() {
+            return new UnmodifiableIterator<Entry<String, Object>>() {
+                int index = 0;
+
+                @Override
+                public boolean hasNext() {
+                    return index < size();
+                }
+
+                @Override
+                public Entry<String, Object> next() {
+                    if (!hasNext())
+                        throw new NoSuchElementException();
+                    Entry<String, Object> entry = Maps.immutableEntry(keys().get(index), value(index));
+                    index++;
+                    return entry;
+                }
+            };
+        }
+    }
+}
@@ -4,10 +4,8 @@ import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 
 import java.beans.ConstructorProperties;
-import java.util.Map;
 
-import com.google.common.collect.ForwardingMap;
-import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableList;
 
 /**
  * Corresponds to the binary representation of the {@code MX} (Mail Exchange)
@@ -21,7 +19,7 @@ import com.google.common.collect.ImmutableMap;
  * 
  * @see <a href="http://www.ietf.org/rfc/rfc1035.txt">RFC 1035</a>
  */
-public class MXData extends ForwardingMap<String, Object> {
+public class MXData extends FieldMap {
 
     public static MXData create(int preference, String exchange) {
         return new MXData(preference, exchange);
@@ -35,9 +33,6 @@ public class MXData extends ForwardingMap<String, Object> {
         checkArgument(preference <= 0xFFFF, "preference must be 65535 or less");
         this.preference = preference;
         this.exchange = checkNotNull(exchange, "exchange");
-        this.delegate = ImmutableMap.<String, Object> builder()
-                                    .put("preference", preference)
-                                    .put("exchange", exchange).build();
     }
 
     /**
@@ -56,11 +51,22 @@ public class MXData extends ForwardingMap<String, Object> {
         return exchange;
     }
 
-    // transient to avoid serializing by default, for example in json
-    private final transient ImmutableMap<String, Object> delegate;
-    
+    private static final ImmutableList<String> KEYS = ImmutableList.of("preference", "exchange");
+
+    @Override
+    ImmutableList<String> keys() {
+        return KEYS;
+    }
+
     @Override
-    protected Map<String, Object> delegate() {
-        return delegate;
+    Object value(int index) {
+        switch (index) {
+        case 0:
+            return preference;
+        case 1:
+            return exchange;
+        default:
+            throw new IndexOutOfBoundsException(String.valueOf(index));
+        }
     }
 }
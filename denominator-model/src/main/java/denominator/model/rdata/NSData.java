@@ -1,12 +1,11 @@
 package denominator.model.rdata;
 
+import static com.google.common.base.Preconditions.checkElementIndex;
 import static com.google.common.base.Preconditions.checkNotNull;
 
 import java.beans.ConstructorProperties;
-import java.util.Map;
 
-import com.google.common.collect.ForwardingMap;
-import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableList;
 
 /**
  * Corresponds to the binary representation of the {@code NS} (Name Server)
@@ -20,7 +19,7 @@ import com.google.common.collect.ImmutableMap;
  * 
  * @see <a href="http://www.ietf.org/rfc/rfc1035.txt">RFC 1035</a>
  */
-public class NSData extends ForwardingMap<String, Object> {
+public class NSData extends FieldMap {
 
     public static NSData create(String nsdname) {
         return new NSData(nsdname);
@@ -31,7 +30,6 @@ public class NSData extends ForwardingMap<String, Object> {
     @ConstructorProperties("nsdname")
     private NSData(String nsdname) {
         this.nsdname = checkNotNull(nsdname, "nsdname");
-        this.delegate = ImmutableMap.<String, Object> of("nsdname", nsdname);
     }
 
     /**
@@ -42,11 +40,16 @@ public class NSData extends ForwardingMap<String, Object> {
         return nsdname;
     }
 
-    // transient to avoid serializing by default, for example in json
-    private final transient ImmutableMap<String, Object> delegate;
-    
+    private static final ImmutableList<String> KEYS = ImmutableList.of("nsdname");
+
     @Override
-    protected Map<String, Object> delegate() {
-        return delegate;
+    ImmutableList<String> keys() {
+        return KEYS;
+    }
+
+    @Override
+    Object value(int index) {
+        checkElementIndex(index, 1);
+        return nsdname;
     }
 }
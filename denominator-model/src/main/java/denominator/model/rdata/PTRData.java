@@ -1,12 +1,11 @@
 package denominator.model.rdata;
 
+import static com.google.common.base.Preconditions.checkElementIndex;
 import static com.google.common.base.Preconditions.checkNotNull;
 
 import java.beans.ConstructorProperties;
-import java.util.Map;
 
-import com.google.common.collect.ForwardingMap;
-import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableList;
 
 /**
  * Corresponds to the binary representation of the {@code PTR} (Pointer) RData
@@ -19,7 +18,7 @@ import com.google.common.collect.ImmutableMap;
  * 
  * @see <a href="http://www.ietf.org/rfc/rfc1035.txt">RFC 1035</a>
  */
-public class PTRData extends ForwardingMap<String, Object> {
+public class PTRData extends FieldMap {
 
     public static PTRData create(String ptrdname) {
         return new PTRData(ptrdname);
@@ -30,7 +29,6 @@ public class PTRData extends ForwardingMap<String, Object> {
     @ConstructorProperties("ptrdname")
     private PTRData(String ptrdname) {
         this.ptrdname = checkNotNull(ptrdname, "ptrdname");
-        this.delegate = ImmutableMap.<String, Object> of("ptrdname", ptrdname);
     }
 
     /**
@@ -40,11 +38,16 @@ public class PTRData extends ForwardingMap<String, Object> {
         return ptrdname;
     }
 
-    // transient to avoid serializing by default, for example in json
-    private final transient ImmutableMap<String, Object> delegate;
-    
+    private static final ImmutableList<String> KEYS = ImmutableList.of("ptrdname");
+
     @Override
-    protected Map<String, Object> delegate() {
-        return delegate;
+    ImmutableList<String> keys() {
+        return KEYS;
+    }
+
+    @Override
+    Object value(int index) {
+        checkElementIndex(index, 1);
+        return ptrdname;
     }
 }
@@ -4,10 +4,8 @@ import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 
 import java.beans.ConstructorProperties;
-import java.util.Map;
 
-import com.google.common.collect.ForwardingMap;
-import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableList;
 
 /**
  * Corresponds to the binary representation of the {@code SOA} (Start of
@@ -28,7 +26,7 @@ import com.google.common.collect.ImmutableMap;
  * 
  * @see <a href="http://www.ietf.org/rfc/rfc1035.txt">RFC 1035</a>
  */
-public class SOAData extends ForwardingMap<String, Object> {
+public class SOAData extends FieldMap {
 
     private final String mname;
     private final String rname;
@@ -53,14 +51,6 @@ public class SOAData extends ForwardingMap<String, Object> {
         this.expire = expire;
         checkArgument(minimum >= 0, "minimum of %s must be unsigned", mname);
         this.minimum = minimum;
-        this.delegate = ImmutableMap.<String, Object> builder()
-                                    .put("mname", mname)
-                                    .put("rname", rname)
-                                    .put("serial", serial)
-                                    .put("refresh", refresh)
-                                    .put("retry", retry)
-                                    .put("expire", expire)
-                                    .put("minimum", minimum).build();
     }
 
     /**
@@ -199,11 +189,32 @@ public class SOAData extends ForwardingMap<String, Object> {
         return new Builder();
     }
 
-    // transient to avoid serializing by default, for example in json
-    private final transient ImmutableMap<String, Object> delegate;
-    
+    private static final ImmutableList<String> KEYS = ImmutableList.of("mname", "rname", "serial", "refresh", "retry", "expire", "minimum");
+
     @Override
-    protected Map<String, Object> delegate() {
-        return delegate;
+    ImmutableList<String> keys() {
+        return KEYS;
+    }
+
+    @Override
+    Object value(int index) {
+        switch (index) {
+        case 0:
+            return mname;
+        case 1:
+            return rname;
+        case 2:
+            return serial;
+        case 3:
+            return refresh;
+        case 4:
+            return retry;
+        case 5:
+            return expire;
+        case 6:
+            return minimum;
+        default:
+            throw new IndexOutOfBoundsException(String.valueOf(index));
+        }
     }
 }
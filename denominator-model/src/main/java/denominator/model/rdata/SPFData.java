@@ -1,12 +1,11 @@
 package denominator.model.rdata;
 
+import static com.google.common.base.Preconditions.checkElementIndex;
 import static com.google.common.base.Preconditions.checkNotNull;
 
 import java.beans.ConstructorProperties;
-import java.util.Map;
 
-import com.google.common.collect.ForwardingMap;
-import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableList;
 
 /**
  * Corresponds to the binary representation of the {@code SPF} (Sender Policy Framework) RData
@@ -21,7 +20,7 @@ import com.google.common.collect.ImmutableMap;
  * 
  * @see <a href="http://tools.ietf.org/html/rfc4408#section-3.1.1">RFC 4408</a>
  */
-public class SPFData extends ForwardingMap<String, Object> {
+public class SPFData extends FieldMap {
 
     public static SPFData create(String txtdata) {
         return new SPFData(txtdata);
@@ -32,7 +31,6 @@ public class SPFData extends ForwardingMap<String, Object> {
     @ConstructorProperties("txtdata")
     private SPFData(String txtdata) {
         this.txtdata = checkNotNull(txtdata, "txtdata");
-        this.delegate = ImmutableMap.<String, Object> of("txtdata", txtdata);
     }
 
     /**
@@ -42,11 +40,16 @@ public class SPFData extends ForwardingMap<String, Object> {
         return txtdata;
     }
 
-    // transient to avoid serializing by default, for example in json
-    private final transient ImmutableMap<String, Object> delegate;
-    
+    private static final ImmutableList<String> KEYS = ImmutableList.of("txtdata");
+
     @Override
-    protected Map<String, Object> delegate() {
-        return delegate;
+    ImmutableList<String> keys() {
+        return KEYS;
+    }
+
+    @Override
+    Object value(int index) {
+        checkElementIndex(index, 1);
+        return txtdata;
     }
 }
@@ -4,10 +4,8 @@ import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 
 import java.beans.ConstructorProperties;
-import java.util.Map;
 
-import com.google.common.collect.ForwardingMap;
-import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableList;
 
 /**
  * Corresponds to the binary representation of the {@code SRV} (Service) RData
@@ -24,7 +22,7 @@ import com.google.common.collect.ImmutableMap;
  * 
  * @see <a href="http://www.ietf.org/rfc/rfc2782.txt">RFC 2782</a>
  */
-public class SRVData extends ForwardingMap<String, Object> {
+public class SRVData extends FieldMap {
 
     private final int priority;
     private final int weight;
@@ -40,11 +38,6 @@ public class SRVData extends ForwardingMap<String, Object> {
         this.weight = weight;
         this.port = port;
         this.target = checkNotNull(target, "target");
-        this.delegate = ImmutableMap.<String, Object> builder()
-                                    .put("priority", priority)
-                                    .put("weight", weight)
-                                    .put("port", port)
-                                    .put("target", target).build();
     }
 
     /**
@@ -136,11 +129,26 @@ public class SRVData extends ForwardingMap<String, Object> {
         return new Builder();
     }
 
-    // transient to avoid serializing by default, for example in json
-    private final transient ImmutableMap<String, Object> delegate;
-    
+    private static final ImmutableList<String> KEYS = ImmutableList.of("priority", "weight", "port", "target");
+
     @Override
-    protected Map<String, Object> delegate() {
-        return delegate;
+    ImmutableList<String> keys() {
+        return KEYS;
+    }
+
+    @Override
+    Object value(int index) {
+        switch (index) {
+        case 0:
+            return priority;
+        case 1:
+            return weight;
+        case 2:
+            return port;
+        case 3:
+            return target;
+        default:
+            throw new IndexOutOfBoundsException(String.valueOf(index));
+        }
     }
 }
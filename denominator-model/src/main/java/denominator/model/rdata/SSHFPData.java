@@ -4,10 +4,8 @@ import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 
 import java.beans.ConstructorProperties;
-import java.util.Map;
 
-import com.google.common.collect.ForwardingMap;
-import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableList;
 
 /**
  * Corresponds to the binary representation of the {@code SSHFP} (SSH Fingerprint) RData
@@ -25,7 +23,7 @@ import com.google.common.collect.ImmutableMap;
  * 
  * @see <a href="http://www.rfc-editor.org/rfc/rfc4255.txt">RFC 4255</a>
  */
-public class SSHFPData extends ForwardingMap<String, Object> {
+public class SSHFPData extends FieldMap {
 
     /**
      * @param fingerprint {@code DSA} {@code SHA-1} fingerprint 
@@ -52,10 +50,6 @@ public class SSHFPData extends ForwardingMap<String, Object> {
         checkArgument(fptype >= 0, "fptype of %s must be unsigned", fingerprint);
         this.fptype = fptype;
         this.fingerprint = checkNotNull(fingerprint, "fingerprint");
-        this.delegate = ImmutableMap.<String, Object> builder()
-                                    .put("algorithm", algorithm)
-                                    .put("fptype", fptype)
-                                    .put("fingerprint", fingerprint).build();
     }
 
     /**
@@ -121,11 +115,24 @@ public class SSHFPData extends ForwardingMap<String, Object> {
         return new Builder();
     }
 
-    // transient to avoid serializing by default, for example in json
-    private final transient ImmutableMap<String, Object> delegate;
-    
+    private static final ImmutableList<String> KEYS = ImmutableList.of("algorithm", "fptype", "fingerprint");
+
     @Override
-    protected Map<String, Object> delegate() {
-        return delegate;
+    ImmutableList<String> keys() {
+        return KEYS;
+    }
+
+    @Override
+    Object value(int index) {
+        switch (index) {
+        case 0:
+            return algorithm;
+        case 1:
+            return fptype;
+        case 2:
+            return fingerprint;
+        default:
+            throw new IndexOutOfBoundsException(String.valueOf(index));
+        }
     }
 }
@@ -1,13 +1,12 @@
 package denominator.model.rdata;
 
 import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkElementIndex;
 import static com.google.common.base.Preconditions.checkNotNull;
 
 import java.beans.ConstructorProperties;
-import java.util.Map;
 
-import com.google.common.collect.ForwardingMap;
-import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableList;
 
 /**
  * Corresponds to the binary representation of the {@code TXT} (Text) RData
@@ -20,7 +19,7 @@ import com.google.common.collect.ImmutableMap;
  * 
  * @see <a href="http://www.ietf.org/rfc/rfc1035.txt">RFC 1035</a>
  */
-public class TXTData extends ForwardingMap<String, Object> {
+public class TXTData extends FieldMap {
 
     public static TXTData create(String txtdata) {
         return new TXTData(txtdata);
@@ -32,7 +31,6 @@ public class TXTData extends ForwardingMap<String, Object> {
     private TXTData(String txtdata) {
         checkArgument(checkNotNull(txtdata, "txtdata").length() <= 65535 , "txt data is limited to 65535");
         this.txtdata = txtdata;
-        this.delegate = ImmutableMap.<String, Object> of("txtdata", txtdata);
     }
 
     /**
@@ -42,11 +40,16 @@ public class TXTData extends ForwardingMap<String, Object> {
         return txtdata;
     }
 
-    // transient to avoid serializing by default, for example in json
-    private final transient ImmutableMap<String, Object> delegate;
-    
+    private static final ImmutableList<String> KEYS = ImmutableList.of("txtdata");
+
     @Override
-    protected Map<String, Object> delegate() {
-        return delegate;
+    ImmutableList<String> keys() {
+        return KEYS;
+    }
+
+    @Override
+    Object value(int index) {
+        checkElementIndex(index, 1);
+        return txtdata;
     }
 }
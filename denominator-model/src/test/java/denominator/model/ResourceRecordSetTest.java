@@ -1,9 +1,12 @@
 package denominator.model;
 
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertSame;
 
 import org.testng.annotations.Test;
 
+import com.google.common.base.Optional;
 
 import denominator.model.rdata.AData;
 
@@ -36,4 +39,35 @@ public class ResourceRecordSetTest {
             .ttl(0xFFFFFFFF)
             .add(AData.create("192.0.2.1")).build();
     }
+
+    public void absentTTL() {
+        ResourceRecordSet<AData> record = ResourceRecordSet.<AData> builder()
+                                                           .name("www.denominator.io.")
+                                                           .type("A")
+                                                           .add(AData.create("192.0.2.1")).build();
+
+        assertEquals(record.getTTL(), Optional.absent());
+        assertFalse(record.toString().contains("ttl"));
+    }
+
+    public void typesAreInterned() {
+        ResourceRecordSet<AData> record = ResourceRecordSet.<AData> builder()
+                                                           .name("www.denominator.io.")
+                                                           .type(new String("A"))
+                                                           .add(AData.create("192.0.2.1")).build();
+
+        assertSame(record.getType(), ResourceRecordSets.a("www.denominator.io.", "192.0.2.1").getType());
+    }
+
+    public void hashCodeIsStable() {
+        ResourceRecordSet<AData> record = ResourceRecordSets.a("www.denominator.io.", 3600, "192.0.2.1");
+        ResourceRecordSet<AData> equal = ResourceRecordSets.a("www.denominator.io.", 3600, "192.0.2.1");
+        ResourceRecordSet<AData> different = ResourceRecordSets.a("www.denominator.io.", 3600, "192.0.2.2");
+
+        assertEquals(record.hashCode(), record.hashCode());
+        assertEquals(record.hashCode(), equal.hashCode());
+        assertEquals(record, equal);
+        different.hashCode();
+        assertFalse(record.equals(different));
+    }
 }
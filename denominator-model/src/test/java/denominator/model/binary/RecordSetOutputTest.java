@@ -0,0 +1,182 @@
+package denominator.model.binary;
+
+import static denominator.model.ResourceRecordSets.a;
+import static denominator.model.ResourceRecordSets.aaaa;
+import static denominator.model.ResourceRecordSets.cname;
+import static denominator.model.ResourceRecordSets.ns;
+import static denominator.model.ResourceRecordSets.ptr;
+import static denominator.model.ResourceRecordSets.spf;
+import static denominator.model.ResourceRecordSets.txt;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Map;
+
+import org.testng.annotations.Test;
+
+import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.LinkedHashMultimap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Multimap;
+
+import denominator.model.ResourceRecordSet;
+import denominator.model.profile.Geo;
+import denominator.model.rdata.MXData;
+import denominator.model.rdata.SOAData;
+import denominator.model.rdata.SRVData;
+import denominator.model.rdata.SSHFPData;
+
+@Test
+public class RecordSetOutputTest {
+
+    static final List<ResourceRecordSet<?>> ZONE = ImmutableList.<ResourceRecordSet<?>> builder()
+            .add(ResourceRecordSet.<SOAData> builder()
+                                  .name("denominator.io.")
+                                  .type("SOA")
+                                  .ttl(3600)
+                                  .add(SOAData.builder().mname("ns1.denominator.io.")
+                                                        .rname("admin.denominator.io.").serial(1)
+                                                        .refresh(3600).retry(600).expire(604800)
+                                                        .minimum(60).build()).build())
+            .add(ns("denominator.io.", 86400, "ns1.denominator.io."))
+            .add(a("www.denominator.io.", 3600, ImmutableList.of("192.0.2.1", "192.0.2.2")))
+            .add(aaaa("www.denominator.io.", 3600, "2001:db8::1"))
+            .add(cname("www1.denominator.io.", 3600, "www.denominator.io."))
+            .add(ResourceRecordSet.<MXData> builder().name("denominator.io.").type("MX").ttl(3600)
+                                 .add(MXData.create(1, "mx1.denominator.io.")).build())
+            .add(ptr("1.2.0.192.in-addr.arpa.", "www.denominator.io."))
+            .add(spf("denominator.io.", 3600, "v=spf1 a mx -all"))
+            .add(txt("txt.denominator.io.", 3600, "\u00fcn\u00efc\u00f6d\u00e9"))
+            .add(ResourceRecordSet.<SRVData> builder().name("_http._tcp.denominator.io.").type("SRV").ttl(3600)
+                                 .add(SRVData.builder().priority(0).weight(1).port(80)
+                                                       .target("www.denominator.io.").build()).build())
+            .add(ResourceRecordSet.<SSHFPData> builder().name("www.denominator.io.").type("SSHFP").ttl(3600)
+                                 .add(SSHFPData.createRSA("123456789abcdef67890123456789abcdef67890")).build())
+            .build();
+
+    static byte[] write(boolean indexed, Iterable<ResourceRecordSet<?>> rrsets) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        RecordSetOutput out = new RecordSetOutput(bytes, indexed);
+        for (ResourceRecordSet<?> rrset : rrsets) {
+            out.write(rrset);
+        }
+        out.close();
+        return bytes.toByteArray();
+    }
+
+    static List<ResourceRecordSet<?>> read(byte[] bytes) throws IOException {
+        RecordSetInput in = new RecordSetInput(new ByteArrayInputStream(bytes));
+        List<ResourceRecordSet<?>> rrsets = Lists.newArrayList();
+        for (ResourceRecordSet<?> rrset = in.read(); rrset != null; rrset = in.read()) {
+            rrsets.add(rrset);
+        }
+        assertNull(in.read());
+        in.close();
+        return rrsets;
+    }
+
+    public void roundTripsEachRDataType() throws IOException {
+        assertEquals(read(write(false, ZONE)), ZONE);
+        assertEquals(read(write(true, ZONE)), ZONE);
+    }
+
+    public void decodesTypedRData() throws IOException {
+        for (ResourceRecordSet<?> rrset : read(write(false, ZONE))) {
+            assertTrue(rrset.get(0).getClass().getPackage().getName().equals("denominator.model.rdata"),
+                    rrset.toString());
+        }
+    }
+
+    public void roundTripsTTLAndProfiles() throws IOException {
+        Multimap<String, String> regions = LinkedHashMultimap.create();
+        regions.put("United States (US)", "Maryland");
+        regions.put("United States (US)", "Alaska");
+        ResourceRecordSet<?> geo = ResourceRecordSet.<Map<String, Object>> builder()
+                                                    .name("www.denominator.io.")
+                                                    .type("A")
+                                                    .add(ImmutableMap.<String, Object> of("address", "192.0.2.1"))
+                                                    .addProfile(Geo.create("us-east", regions))
+                                                    .addProfile(ImmutableMap.<String, Object> of(
+                                                            "type", "weighted", "weight", 2, "id", 1L << 40))
+                                                    .build();
+
+        ResourceRecordSet<?> read = read(write(false, ImmutableList.<ResourceRecordSet<?>> of(geo))).get(0);
+
+        assertEquals(read, geo);
+        assertEquals(read.getTTL(), Optional.absent());
+        assertEquals(Geo.class.cast(read.getProfiles().get(0)).getRegions(),
+                Geo.class.cast(geo.getProfiles().get(0)).getRegions());
+    }
+
+    public void keepsTextFormatOfAddresses() throws IOException {
+        List<ResourceRecordSet<?>> rrsets = ImmutableList.<ResourceRecordSet<?>> of(aaaa("www.denominator.io.",
+                "2001:0db8:0:0::1"));
+
+        assertEquals(read(write(false, rrsets)), rrsets);
+    }
+
+    public void isSmallerThanText() throws IOException {
+        assertTrue(write(false, ZONE).length < ZONE.toString().getBytes("UTF-8").length / 2);
+    }
+
+    public void bufferIteratesHeapAndDirect() throws IOException {
+        byte[] bytes = write(true, ZONE);
+        ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length + 3);
+        direct.put(new byte[3]).put(bytes).flip();
+        direct.position(3);
+
+        assertEquals(ImmutableList.copyOf(RecordSetBuffer.wrap(ByteBuffer.wrap(bytes))), ZONE);
+        assertEquals(ImmutableList.copyOf(RecordSetBuffer.wrap(direct)), ZONE);
+        assertEquals(direct.position(), 3);
+    }
+
+    public void bufferLooksUpByNameWithAndWithoutIndex() throws IOException {
+        for (boolean indexed : new boolean[] { true, false }) {
+            RecordSetBuffer buffer = RecordSetBuffer.wrap(ByteBuffer.wrap(write(indexed, ZONE)));
+            assertEquals(buffer.isIndexed(), indexed);
+
+            assertEquals(buffer.listByName("www.denominator.io."),
+                    ImmutableList.of(ZONE.get(2), ZONE.get(3), ZONE.get(10)));
+            assertEquals(buffer.getByNameAndType("denominator.io.", "MX").get(), ZONE.get(5));
+            assertEquals(buffer.getByNameAndType("denominator.io.", "SOA").get(), ZONE.get(0));
+            assertFalse(buffer.getByNameAndType("www.denominator.io.", "CNAME").isPresent());
+            assertTrue(buffer.listByName("aaa.denominator.io.").isEmpty());
+            assertTrue(buffer.listByName("zzz.denominator.io.").isEmpty());
+        }
+    }
+
+    public void emptyStream() throws IOException {
+        List<ResourceRecordSet<?>> none = ImmutableList.of();
+
+        assertTrue(read(write(true, none)).isEmpty());
+        assertTrue(RecordSetBuffer.wrap(ByteBuffer.wrap(write(true, none))).listByName("denominator.io.").isEmpty());
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class, expectedExceptionsMessageRegExp = "unsupported version 2")
+    public void rejectsNewerVersions() throws IOException {
+        byte[] bytes = write(false, ZONE);
+        bytes[4] = 2;
+        RecordSetBuffer.wrap(ByteBuffer.wrap(bytes));
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class, expectedExceptionsMessageRegExp = "not a record set stream")
+    public void rejectsOtherStreams() throws IOException {
+        new RecordSetInput(new ByteArrayInputStream("{\"name\":\"denominator.io.\"}".getBytes("UTF-8")));
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class, expectedExceptionsMessageRegExp = "unsupported value for weight: 1.5")
+    public void rejectsUnsupportedValues() throws IOException {
+        write(false, ImmutableList.<ResourceRecordSet<?>> of(ResourceRecordSet.<Map<String, Object>> builder()
+                .name("www.denominator.io.").type("A").add(ImmutableMap.<String, Object> of("address", "192.0.2.1"))
+                .addProfile(ImmutableMap.<String, Object> of("type", "weighted", "weight", 1.5)).build()));
+    }
+}
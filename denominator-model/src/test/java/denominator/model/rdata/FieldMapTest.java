@@ -0,0 +1,53 @@
+package denominator.model.rdata;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+@Test
+public class FieldMapTest {
+
+    public void equalToImmutableMapInBothDirections() {
+        MXData mx = MXData.create(1, "mx1.denominator.io.");
+        ImmutableMap<String, Object> map = ImmutableMap.<String, Object> of("preference", 1, "exchange",
+                "mx1.denominator.io.");
+
+        assertEquals(mx, map);
+        assertEquals(map, mx);
+        assertEquals(mx.hashCode(), map.hashCode());
+        assertEquals(mx.toString(), map.toString());
+        assertEquals(ImmutableList.copyOf(mx.keySet()), ImmutableList.of("preference", "exchange"));
+    }
+
+    public void notEqualToMapWithOtherValuesOrKeys() {
+        MXData mx = MXData.create(1, "mx1.denominator.io.");
+
+        assertFalse(mx.equals(ImmutableMap.<String, Object> of("preference", 2, "exchange", "mx1.denominator.io.")));
+        assertFalse(mx.equals(ImmutableMap.<String, Object> of("preference", 1, "target", "mx1.denominator.io.")));
+        assertFalse(mx.equals(ImmutableMap.<String, Object> of("preference", 1, "exchange", "mx1.denominator.io.",
+                "ttl", 3600)));
+        assertFalse(mx.equals(MXData.create(1, "mx2.denominator.io.")));
+    }
+
+    public void getsByKey() {
+        SOAData soa = SOAData.builder().mname("ns1.denominator.io.").rname("admin.denominator.io.").serial(1)
+                .refresh(3600).retry(600).expire(604800).minimum(60).build();
+
+        assertEquals(soa.size(), 7);
+        assertEquals(soa.get("minimum"), 60);
+        assertTrue(soa.containsKey("rname"));
+        assertFalse(soa.containsKey("ttl"));
+        assertNull(soa.get("ttl"));
+    }
+
+    @Test(expectedExceptions = UnsupportedOperationException.class)
+    public void immutable() {
+        AData.create("192.0.2.1").clear();
+    }
+}
@@ -25,17 +25,22 @@ import com.google.common.base.Supplier;
 import com.google.common.collect.ImmutableMultimap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Multimap;
+import com.google.common.util.concurrent.ListeningExecutorService;
 
 import dagger.Provides;
 import denominator.BasicProvider;
 import denominator.Credentials;
 import denominator.Credentials.ListCredentials;
 import denominator.DNSApiManager;
+import denominator.ListingConfiguration.Prefetch;
 import denominator.Provider;
+import denominator.RequestLimiter;
 import denominator.ResourceRecordSetApi;
 import denominator.ZoneApi;
+import denominator.ZoneIdCache;
 import denominator.config.GeoUnsupported;
 import denominator.config.OnlyNormalResourceRecordSets;
+import denominator.jclouds.LimitHttpRequests;
 
 public class CloudDNSProvider extends BasicProvider {
     private final String url;
@@ -63,7 +68,7 @@ public class CloudDNSProvider extends BasicProvider {
         return ImmutableMultimap.<String, String> builder().putAll("apiKey", "username", "apiKey").build();
     }
 
-    @dagger.Module(injects = DNSApiManager.class,
+    @dagger.Module(injects = { DNSApiManager.class, ZoneIdCache.class },
                    complete = false, // denominator.Provider and denominator.Credentials
                    includes = { GeoUnsupported.class, 
                                 OnlyNormalResourceRecordSets.class } )
@@ -71,20 +76,28 @@ public class CloudDNSProvider extends BasicProvider {
 
         @Provides
         @Singleton
-        ZoneApi provideZoneApi(CloudDNSApi api) {
-            return new CloudDNSZoneApi(api);
+        ZoneApi provideZoneApi(CloudDNSApi api, Prefetch prefetch, ListeningExecutorService executor) {
+            return new CloudDNSZoneApi(api, prefetch, executor);
         }
 
         @Provides
         @Singleton
-        ResourceRecordSetApi.Factory provideResourceRecordSetApiFactory(CloudDNSApi api) {
-            return new CloudDNSResourceRecordSetApi.Factory(api);
+        ResourceRecordSetApi.Factory provideResourceRecordSetApiFactory(CloudDNSApi api, ZoneIdCache domainIds,
+                Prefetch prefetch, ListeningExecutorService executor) {
+            return new CloudDNSResourceRecordSetApi.Factory(api, domainIds, prefetch, executor);
+        }
+
+        @Provides
+        @Singleton
+        ZoneIdCache provideZoneIdCache(CloudDNSApi api, Prefetch prefetch, ListeningExecutorService executor) {
+            return new ZoneIdCache(CloudDNSResourceRecordSetApi.domainNameToId(api, prefetch, executor));
         }
 
         @Provides
         @Singleton
         // Dynamic name updates are not currently possible in jclouds.
-        CloudDNSApi provideCloudDNSApi(ConvertToJcloudsCredentials credentials, final Provider provider) {
+        CloudDNSApi provideCloudDNSApi(ConvertToJcloudsCredentials credentials, final Provider provider,
+                RequestLimiter limiter) {
             Properties overrides = new Properties();
             // disable url caching
             overrides.setProperty(PROPERTY_SESSION_INTERVAL, "0");
@@ -94,6 +107,7 @@ public class CloudDNSProvider extends BasicProvider {
                                  .overrides(overrides)
                                  .modules(ImmutableSet.<com.google.inject.Module> builder()
                                                       .add(new SLF4JLoggingModule())
+                                                      .add(new LimitHttpRequests(limiter))
                                                       .add(new ExecutorServiceModule(sameThreadExecutor(),
                                                                                      sameThreadExecutor()))
                                                       .add(new com.google.inject.AbstractModule() {
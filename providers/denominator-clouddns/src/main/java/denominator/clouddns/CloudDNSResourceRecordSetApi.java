@@ -2,41 +2,102 @@ package denominator.clouddns;
 
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
-import static denominator.model.ResourceRecordSets.nameEqualTo;
+import static com.google.common.collect.Iterators.concat;
+import static com.google.common.collect.Iterators.transform;
 
 import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
 
 import javax.inject.Inject;
 
 import org.jclouds.rackspace.clouddns.v1.CloudDNSApi;
 import org.jclouds.rackspace.clouddns.v1.domain.Domain;
+import org.jclouds.rackspace.clouddns.v1.domain.RecordDetail;
 import org.jclouds.rackspace.clouddns.v1.features.RecordApi;
 
+import com.google.common.base.Function;
 import com.google.common.base.Optional;
-import com.google.common.base.Predicate;
-import com.google.common.collect.Iterators;
-
+import com.google.common.base.Supplier;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.ListeningExecutorService;
+
+import denominator.ListingConfiguration.Prefetch;
+import denominator.PrefetchingIterator;
 import denominator.ResourceRecordSetApi;
+import denominator.ResourceRecordSetBatch;
+import denominator.ZoneIdCache;
 import denominator.model.ResourceRecordSet;
 
 public final class CloudDNSResourceRecordSetApi implements denominator.ResourceRecordSetApi {
 
     private final RecordApi api;
+    private final Prefetch prefetch;
+    private final Executor executor;
 
-    CloudDNSResourceRecordSetApi(RecordApi recordApi) {
+    CloudDNSResourceRecordSetApi(RecordApi recordApi, Prefetch prefetch, Executor executor) {
         this.api = recordApi;
+        this.prefetch = prefetch;
+        this.executor = executor;
     }
 
+    /**
+     * Rackspace doesn't list records in name order, so records of the same
+     * name and type may not be adjacent. The domain is read in one paged
+     * listing, with pages requested ahead according to {@link Prefetch}, and
+     * its records are grouped by name and type in the order listed. As a
+     * record may belong to any set already listed, all records of the domain
+     * are held in memory before the first record set is returned.
+     */
     @Override
     public Iterator<ResourceRecordSet<?>> list() {
-        // assumes these are sorted, which might be bad
-        return new GroupByRecordNameAndTypeIterator(api.list().concat().iterator());
+        return groupByNameAndType(PrefetchingIterator.concat(api.list().iterator(), prefetch, executor));
     }
 
+    /**
+     * Rackspace only filters records by name when the type is also specified,
+     * so this sends a request for each of {@link #TYPES}, rather than one. The
+     * cost depends on the count of types and matching records, not the size
+     * of the domain.
+     */
     @Override
-    public Iterator<ResourceRecordSet<?>> listByName(String name) {
+    public Iterator<ResourceRecordSet<?>> listByName(final String name) {
         checkNotNull(name, "name was null");
-        return Iterators.filter(list(), nameEqualTo(name));
+        return concat(transform(TYPES.iterator(), new Function<String, Iterator<ResourceRecordSet<?>>>() {
+            @Override
+            public Iterator<ResourceRecordSet<?>> apply(String type) {
+                return getByNameAndType(name, type).asSet().iterator();
+            }
+        }));
+    }
+
+    /**
+     * types of records which can be created in Rackspace Cloud DNS.
+     */
+    static final List<String> TYPES = ImmutableList.of("A", "AAAA", "CNAME", "MX", "NS", "PTR", "SRV", "TXT");
+
+    private static Iterator<ResourceRecordSet<?>> groupByNameAndType(Iterator<RecordDetail> records) {
+        Map<List<String>, List<RecordDetail>> byNameAndType = Maps.newLinkedHashMap();
+        while (records.hasNext()) {
+            RecordDetail record = records.next();
+            // it is possible that the record was deleted between the list and the get
+            if (record == null)
+                continue;
+            List<String> key = ImmutableList.of(record.getName(), record.getType());
+            List<RecordDetail> group = byNameAndType.get(key);
+            if (group == null)
+                byNameAndType.put(key, group = Lists.newArrayList());
+            group.add(record);
+        }
+        return transform(byNameAndType.values().iterator(), new Function<List<RecordDetail>, ResourceRecordSet<?>>() {
+            @Override
+            public ResourceRecordSet<?> apply(List<RecordDetail> group) {
+                return new GroupByRecordNameAndTypeIterator(group.iterator()).next();
+            }
+        });
     }
 
     @Override
@@ -48,32 +109,56 @@ public final class CloudDNSResourceRecordSetApi implements denominator.ResourceR
         return it.hasNext() ? Optional.<ResourceRecordSet<?>> of(it.next()) : Optional.<ResourceRecordSet<?>> absent();
     }
 
+    /**
+     * Rackspace answers requests for the records of a deleted domain with
+     * {@code 404}, which reads as no records, so a cached id isn't known to be
+     * stale until the {@link ZoneIdCache} expires.
+     */
     static final class Factory implements denominator.ResourceRecordSetApi.Factory {
 
         private final CloudDNSApi api;
+        private final ZoneIdCache domainIds;
+        private final Prefetch prefetch;
+        private final ListeningExecutorService executor;
 
         @Inject
-        Factory(CloudDNSApi api) {
+        Factory(CloudDNSApi api, ZoneIdCache domainIds, Prefetch prefetch, ListeningExecutorService executor) {
             this.api = api;
+            this.domainIds = domainIds;
+            this.prefetch = prefetch;
+            this.executor = executor;
         }
 
         @Override
         public ResourceRecordSetApi create(final String domainName) {
-            Optional<Domain> domain = api.getDomainApi().list().concat().firstMatch(domainNameEquals(domainName));
-            checkArgument(domain.isPresent(), "domain %s not found", domainName);
-            return new CloudDNSResourceRecordSetApi(api.getRecordApiForDomain(domain.get().getId()));
+            Optional<String> domainId = domainIds.getId(domainName);
+            checkArgument(domainId.isPresent(), "domain %s not found", domainName);
+            return new CloudDNSResourceRecordSetApi(api.getRecordApiForDomain(Integer.parseInt(domainId.get())),
+                    prefetch, executor);
         }
     }
 
     /**
      * Rackspace domains are addressed by id, not by name.
      */
-    private static final Predicate<Domain> domainNameEquals(final String domainName) {
-        checkNotNull(domainName, "domainName");
-        return new Predicate<Domain>() {
+    static Supplier<Map<String, String>> domainNameToId(final CloudDNSApi api, final Prefetch prefetch,
+            final Executor executor) {
+        return new Supplier<Map<String, String>>() {
             @Override
-            public boolean apply(Domain input) {
-                return input.getName().equals(domainName);
+            public Map<String, String> get() {
+                Map<String, String> domainNameToId = Maps.newLinkedHashMap();
+                for (Iterator<Domain> domains = PrefetchingIterator.concat(api.getDomainApi().list().iterator(),
+                        prefetch, executor); domains.hasNext();) {
+                    Domain domain = domains.next();
+                    if (!domainNameToId.containsKey(domain.getName()))
+                        domainNameToId.put(domain.getName(), String.valueOf(domain.getId()));
+                }
+                return domainNameToId;
+            }
+
+            @Override
+            public String toString() {
+                return "DomainNameToId(" + api + ")";
             }
         };
     }
@@ -93,6 +178,11 @@ public final class CloudDNSResourceRecordSetApi implements denominator.ResourceR
         throw new UnsupportedOperationException();
     }
 
+    @Override
+    public void replace(ResourceRecordSet<?> expected, ResourceRecordSet<?> desired) {
+        throw new UnsupportedOperationException();
+    }
+
     @Override
     public void remove(ResourceRecordSet<?> rrset) {
         throw new UnsupportedOperationException();
@@ -102,4 +192,9 @@ public final class CloudDNSResourceRecordSetApi implements denominator.ResourceR
     public void deleteByNameAndType(String name, String type) {
         throw new UnsupportedOperationException();
     }
+
+    @Override
+    public void apply(ResourceRecordSetBatch batch) {
+        throw new UnsupportedOperationException();
+    }
 }
@@ -8,17 +8,27 @@ import org.jclouds.rackspace.clouddns.v1.CloudDNSApi;
 import org.jclouds.rackspace.clouddns.v1.domain.Domain;
 
 import com.google.common.base.Function;
+import com.google.common.collect.Iterators;
+import com.google.common.util.concurrent.ListeningExecutorService;
+
+import denominator.ListingConfiguration.Prefetch;
+import denominator.PrefetchingIterator;
 
 public final class CloudDNSZoneApi implements denominator.ZoneApi {
     private final CloudDNSApi api;
+    private final Prefetch prefetch;
+    private final ListeningExecutorService executor;
 
     @Inject
-    CloudDNSZoneApi(CloudDNSApi api) {
+    CloudDNSZoneApi(CloudDNSApi api, Prefetch prefetch, ListeningExecutorService executor) {
         this.api = api;
+        this.prefetch = prefetch;
+        this.executor = executor;
     }
 
     public Iterator<String> list() {
-        return api.getDomainApi().list().concat().transform(DomainName.INSTANCE).iterator();
+        return Iterators.transform(PrefetchingIterator.concat(api.getDomainApi().list().iterator(), prefetch,
+                executor), DomainName.INSTANCE);
     }
 
     private static enum DomainName implements Function<Domain, String> {
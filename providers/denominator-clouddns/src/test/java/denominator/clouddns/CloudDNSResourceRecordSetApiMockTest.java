@@ -2,14 +2,16 @@ package denominator.clouddns;
 
 import static denominator.CredentialsConfiguration.credentials;
 import static denominator.model.ResourceRecordSets.a;
+import static denominator.model.ResourceRecordSets.ns;
 import static javax.ws.rs.core.Response.Status.NOT_FOUND;
 import static javax.ws.rs.core.Response.Status.OK;
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.fail;
 
 import java.io.IOException;
 import java.net.URL;
-import java.util.Iterator;
+import java.util.Map;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.LinkedBlockingQueue;
 
@@ -17,11 +19,14 @@ import org.testng.annotations.Test;
 
 import com.google.common.base.Optional;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.mockwebserver.Dispatcher;
 import com.google.mockwebserver.MockResponse;
 import com.google.mockwebserver.MockWebServer;
 import com.google.mockwebserver.QueueDispatcher;
 import com.google.mockwebserver.RecordedRequest;
 
+import denominator.DNSApi;
 import denominator.Denominator;
 import denominator.ResourceRecordSetApi;
 import denominator.model.ResourceRecordSet;
@@ -31,30 +36,33 @@ public class CloudDNSResourceRecordSetApiMockTest {
 
     String session = "{\"access\":{\"token\":{\"id\":\"b84f4a37-5126-4603-9521-ccd0665fbde1\",\"expires\":\"2013-04-13T16:49:57.000-05:00\",\"tenant\":{\"id\":\"123123\",\"name\":\"123123\"}},\"serviceCatalog\":[{\"endpoints\":[{\"tenantId\":\"123123\",\"publicURL\":\"URL/v1.0/123123\"}],\"name\":\"cloudMonitoring\",\"type\":\"rax:monitor\"},{\"endpoints\":[{\"region\":\"DFW\",\"tenantId\":\"MossoCloudFS_5bcf396e-39dd-45ff-93a1-712b9aba90a9\",\"publicURL\":\"URL/v1/MossoCloudFS_5bcf396e-39dd-45ff-93a1-712b9aba90a9\"},{\"region\":\"ORD\",\"tenantId\":\"MossoCloudFS_5bcf396e-39dd-45ff-93a1-712b9aba90a9\",\"publicURL\":\"URL/v1/MossoCloudFS_5bcf396e-39dd-45ff-93a1-712b9aba90a9\"}],\"name\":\"cloudFilesCDN\",\"type\":\"rax:object-cdn\"},{\"endpoints\":[{\"region\":\"ORD\",\"tenantId\":\"123123\",\"publicURL\":\"URL/v1.0/123123\"},{\"region\":\"DFW\",\"tenantId\":\"123123\",\"publicURL\":\"URL/v1.0/123123\"}],\"name\":\"cloudLoadBalancers\",\"type\":\"rax:load-balancer\"},{\"endpoints\":[{\"region\":\"DFW\",\"tenantId\":\"123123\",\"publicURL\":\"URL/v1.0/123123\"},{\"region\":\"ORD\",\"tenantId\":\"123123\",\"publicURL\":\"URL/v1.0/123123\"}],\"name\":\"cloudDatabases\",\"type\":\"rax:database\"},{\"endpoints\":[{\"region\":\"DFW\",\"tenantId\":\"MossoCloudFS_5bcf396e-39dd-45ff-93a1-712b9aba90a9\",\"publicURL\":\"URL/v1/MossoCloudFS_5bcf396e-39dd-45ff-93a1-712b9aba90a9\",\"internalURL\":\"URL/v1/MossoCloudFS_5bcf396e-39dd-45ff-93a1-712b9aba90a9\"},{\"region\":\"ORD\",\"tenantId\":\"MossoCloudFS_5bcf396e-39dd-45ff-93a1-712b9aba90a9\",\"publicURL\":\"URL/v1/MossoCloudFS_5bcf396e-39dd-45ff-93a1-712b9aba90a9\",\"internalURL\":\"URL/v1/MossoCloudFS_5bcf396e-39dd-45ff-93a1-712b9aba90a9\"}],\"name\":\"cloudFiles\",\"type\":\"object-store\"},{\"endpoints\":[{\"tenantId\":\"123123\",\"publicURL\":\"URL/v1.0/123123\",\"versionInfo\":\"URL/v1.0\",\"versionList\":\"URL/\",\"versionId\":\"1.0\"}],\"name\":\"cloudServers\",\"type\":\"compute\"},{\"endpoints\":[{\"region\":\"DFW\",\"tenantId\":\"123123\",\"publicURL\":\"URL/v2/123123\",\"versionInfo\":\"URL/v2\",\"versionList\":\"URL/\",\"versionId\":\"2\"},{\"region\":\"ORD\",\"tenantId\":\"123123\",\"publicURL\":\"URL/v2/123123\",\"versionInfo\":\"URL/v2\",\"versionList\":\"URL/\",\"versionId\":\"2\"}],\"name\":\"cloudServersOpenStack\",\"type\":\"compute\"},{\"endpoints\":[{\"tenantId\":\"123123\",\"publicURL\":\"URL/v1.0/123123\"}],\"name\":\"cloudDNS\",\"type\":\"rax:dns\"},{\"endpoints\":[{\"tenantId\":\"123123\",\"publicURL\":\"URL/v1.0/123123\"}],\"name\":\"cloudBackup\",\"type\":\"rax:backup\"},{\"endpoints\":[{\"region\":\"DFW\",\"tenantId\":\"123123\",\"publicURL\":\"URL/v1/123123\"},{\"region\":\"ORD\",\"tenantId\":\"123123\",\"publicURL\":\"URL/v1/123123\"}],\"name\":\"cloudBlockStorage\",\"type\":\"volume\"}],\"user\":{\"id\":\"1234\",\"roles\":[{\"id\":\"3\",\"description\":\"User Admin Role.\",\"name\":\"identity:user-admin\"}],\"name\":\"jclouds-joe\",\"RAX-AUTH:defaultRegion\":\"DFW\"}}}";
     String domains = "{\"domains\": [{\"name\": \"denominator.io\",\"id\": 1234,\"comment\": \"Hello dev subdomain\",\"accountId\": 123123,\"emailAddress\": \"contact@denominator.io\",\"updated\": \"2013-03-22T03:04:15.000+0000\",\"created\": \"2013-03-22T03:04:15.000+0000\"}]}";
-    String records = "{\"records\":[{\"name\":\"www.denominator.io\",\"id\":\"A-9872761\",\"type\":\"A\",\"data\":\"1.2.3.4\",\"ttl\":600000,\"updated\":\"2013-04-13T14:42:00.000+0000\",\"created\":\"2013-04-13T14:42:00.000+0000\"},{\"name\":\"www.denominator.io\",\"id\":\"NS-8703385\",\"type\":\"NS\",\"data\":\"dns1.stabletransit.com\",\"ttl\":600000,\"updated\":\"2013-04-13T14:42:00.000+0000\",\"created\":\"2013-04-13T14:42:00.000+0000\"},{\"name\":\"www.denominator.io\",\"id\":\"NS-8703386\",\"type\":\"NS\",\"data\":\"dns2.stabletransit.com\",\"ttl\":600000,\"updated\":\"2013-04-13T14:42:00.000+0000\",\"created\":\"2013-04-13T14:42:00.000+0000\"}],\"totalEntries\":3}";
+
+    String nsRecords = "{\"records\":[{\"name\":\"www.denominator.io\",\"id\":\"NS-8703385\",\"type\":\"NS\",\"data\":\"dns1.stabletransit.com\",\"ttl\":600000,\"updated\":\"2013-04-13T14:42:00.000+0000\",\"created\":\"2013-04-13T14:42:00.000+0000\"},{\"name\":\"www.denominator.io\",\"id\":\"NS-8703386\",\"type\":\"NS\",\"data\":\"dns2.stabletransit.com\",\"ttl\":600000,\"updated\":\"2013-04-13T14:42:00.000+0000\",\"created\":\"2013-04-13T14:42:00.000+0000\"}],\"totalEntries\":2}";
+
+    String records = "{\"records\":[{\"name\":\"www.denominator.io\",\"id\":\"A-9872761\",\"type\":\"A\",\"data\":\"1.2.3.4\",\"ttl\":600000,\"updated\":\"2013-04-13T14:42:00.000+0000\",\"created\":\"2013-04-13T14:42:00.000+0000\"},{\"name\":\"www.denominator.io\",\"id\":\"NS-8703385\",\"type\":\"NS\",\"data\":\"dns1.stabletransit.com\",\"ttl\":600000,\"updated\":\"2013-04-13T14:42:00.000+0000\",\"created\":\"2013-04-13T14:42:00.000+0000\"},{\"name\":\"www2.denominator.io\",\"id\":\"A-9872762\",\"type\":\"A\",\"data\":\"1.2.3.5\",\"ttl\":600000,\"updated\":\"2013-04-13T14:42:00.000+0000\",\"created\":\"2013-04-13T14:42:00.000+0000\"},{\"name\":\"www.denominator.io\",\"id\":\"A-9883329\",\"type\":\"A\",\"data\":\"5.6.7.8\",\"ttl\":600000,\"updated\":\"2013-04-16T22:09:09.000+0000\",\"created\":\"2013-04-16T22:09:09.000+0000\"},{\"name\":\"www.denominator.io\",\"id\":\"NS-8703386\",\"type\":\"NS\",\"data\":\"dns2.stabletransit.com\",\"ttl\":600000,\"updated\":\"2013-04-13T14:42:00.000+0000\",\"created\":\"2013-04-13T14:42:00.000+0000\"},{\"name\":\"www.denominator.io\",\"id\":\"SPF-8703387\",\"type\":\"SPF\",\"data\":\"v=spf1 -all\",\"ttl\":600000,\"updated\":\"2013-04-13T14:42:00.000+0000\",\"created\":\"2013-04-13T14:42:00.000+0000\"}],\"totalEntries\":6}";
 
     @Test
-    public void listWhenPresent() throws IOException, InterruptedException {
+    public void listGroupsRecordsByNameAndType() throws IOException, InterruptedException {
         MockWebServer server = new MockWebServer();
         server.play();
 
         URL url = server.getUrl("/");
-        server.setDispatcher(getURLReplacingQueueDispatcher(url));
-
-        server.enqueue(new MockResponse().setResponseCode(OK.getStatusCode()).setBody(session));
-        server.enqueue(new MockResponse().setResponseCode(OK.getStatusCode()).setBody(domains));
-        server.enqueue(new MockResponse().setResponseCode(OK.getStatusCode()).setBody(records));
+        server.setDispatcher(getURLReplacingPathDispatcher(url, ImmutableMap.of(
+                "/domains/1234/records", records)));
 
         try {
             ResourceRecordSetApi api = mockApi(url);
-            Iterator<ResourceRecordSet<?>> records = api.list();
-            
-            while (records.hasNext()) {
-                ResourceRecordSet<?> record = records.next();
-                
-                assertEquals(record.getName(), "www.denominator.io");
-                assertEquals(record.getTTL().get().intValue(), 600000);
-            }
+
+            assertEquals(ImmutableList.copyOf(api.list()), ImmutableList.of(
+                    a("www.denominator.io", 600000, ImmutableList.of("1.2.3.4", "5.6.7.8")),
+                    ns("www.denominator.io", 600000, ImmutableList.of("dns1.stabletransit.com", "dns2.stabletransit.com")),
+                    a("www2.denominator.io", 600000, "1.2.3.5"),
+                    // types not in TYPES aren't dropped
+                    ResourceRecordSet.<Map<String, Object>> builder()
+                                     .name("www.denominator.io")
+                                     .type("SPF")
+                                     .ttl(600000)
+                                     .add(ImmutableMap.<String, Object> of("rdata", "v=spf1 -all")).build()));
 
             assertEquals(server.getRequestCount(), 3);
             assertEquals(server.takeRequest().getRequestLine(), "POST /tokens HTTP/1.1");
@@ -71,91 +79,66 @@ public class CloudDNSResourceRecordSetApiMockTest {
         server.play();
 
         URL url = server.getUrl("/");
-        server.setDispatcher(getURLReplacingQueueDispatcher(url));
-
-        server.enqueue(new MockResponse().setResponseCode(OK.getStatusCode()).setBody(session));
-        server.enqueue(new MockResponse().setResponseCode(OK.getStatusCode()).setBody(domains));
-        server.enqueue(new MockResponse().setResponseCode(NOT_FOUND.getStatusCode())); // no existing records
+        server.setDispatcher(getURLReplacingPathDispatcher(url, ImmutableMap.<String, String> of()));
 
         try {
             ResourceRecordSetApi api = mockApi(url);
-            
+
             assertFalse(api.list().hasNext());
             assertEquals(server.getRequestCount(), 3);
-            assertEquals(server.takeRequest().getRequestLine(), "POST /tokens HTTP/1.1");
-            assertEquals(server.takeRequest().getRequestLine(), "GET /domains HTTP/1.1");
-            assertEquals(server.takeRequest().getRequestLine(), "GET /domains/1234/records HTTP/1.1");
         } finally {
             server.shutdown();
         }
     }
-    
-    String recordsPage1 = "{\"records\":[{\"name\":\"www.denominator.io\",\"id\":\"A-9872761\",\"type\":\"A\",\"data\":\"1.2.3.4\",\"ttl\":600000,\"updated\":\"2013-04-13T14:42:00.000+0000\",\"created\":\"2013-04-13T14:42:00.000+0000\"},{\"name\":\"www.denominator.io\",\"id\":\"NS-8703385\",\"type\":\"NS\",\"data\":\"dns1.stabletransit.com\",\"ttl\":600000,\"updated\":\"2013-04-13T14:42:00.000+0000\",\"created\":\"2013-04-13T14:42:00.000+0000\"},{\"name\":\"www.denominator.io\",\"id\":\"NS-8703386\",\"type\":\"NS\",\"data\":\"dns2.stabletransit.com\",\"ttl\":600000,\"updated\":\"2013-04-13T14:42:00.000+0000\",\"created\":\"2013-04-13T14:42:00.000+0000\"}],\"totalEntries\":3,\"links\":[{\"href\":\"https://dns.api.rackspacecloud.com/v1.0/123123/domains/1234/records?limit=3&offset=3\",\"rel\":\"next\"}]}";
-    String recordsPage2 = "{\"records\":[{\"name\":\"www.denominator.io\",\"id\":\"A-9872761\",\"type\":\"A\",\"data\":\"1.2.3.4\",\"ttl\":600000,\"updated\":\"2013-04-13T14:42:00.000+0000\",\"created\":\"2013-04-13T14:42:00.000+0000\"},{\"name\":\"www.denominator.io\",\"id\":\"NS-8703385\",\"type\":\"NS\",\"data\":\"dns1.stabletransit.com\",\"ttl\":600000,\"updated\":\"2013-04-13T14:42:00.000+0000\",\"created\":\"2013-04-13T14:42:00.000+0000\"},{\"name\":\"www.denominator.io\",\"id\":\"NS-8703386\",\"type\":\"NS\",\"data\":\"dns2.stabletransit.com\",\"ttl\":600000,\"updated\":\"2013-04-13T14:42:00.000+0000\",\"created\":\"2013-04-13T14:42:00.000+0000\"}],\"totalEntries\":3,\"links\":[{\"href\":\"https://dns.api.rackspacecloud.com/v1.0/123123/domains/1234/records?limit=3&offset=0\",\"rel\":\"previous\"}]}";
+
+    String recordsPage1 = "{\"records\":[{\"name\":\"www.denominator.io\",\"id\":\"A-9872761\",\"type\":\"A\",\"data\":\"1.2.3.4\",\"ttl\":600000,\"updated\":\"2013-04-13T14:42:00.000+0000\",\"created\":\"2013-04-13T14:42:00.000+0000\"}],\"totalEntries\":2,\"links\":[{\"href\":\"URL/v1.0/123123/domains/1234/records?limit=1&offset=1\",\"rel\":\"next\"}]}";
+    String recordsPage2 = "{\"records\":[{\"name\":\"www.denominator.io\",\"id\":\"A-9883329\",\"type\":\"A\",\"data\":\"5.6.7.8\",\"ttl\":600000,\"updated\":\"2013-04-16T22:09:09.000+0000\",\"created\":\"2013-04-16T22:09:09.000+0000\"}],\"totalEntries\":2,\"links\":[{\"href\":\"URL/v1.0/123123/domains/1234/records?limit=1&offset=0\",\"rel\":\"previous\"}]}";
 
     @Test
-    public void listPagesWhenPresent() throws IOException, InterruptedException {
+    public void listGroupsAcrossPages() throws IOException, InterruptedException {
         MockWebServer server = new MockWebServer();
         server.play();
 
         URL url = server.getUrl("/");
-        server.setDispatcher(getURLReplacingQueueDispatcher(url));
-
-        server.enqueue(new MockResponse().setResponseCode(OK.getStatusCode()).setBody(session));
-        server.enqueue(new MockResponse().setResponseCode(OK.getStatusCode()).setBody(domains));
-        server.enqueue(new MockResponse().setResponseCode(OK.getStatusCode()).setBody(recordsPage1));
-        server.enqueue(new MockResponse().setResponseCode(OK.getStatusCode()).setBody(recordsPage2));
+        server.setDispatcher(getURLReplacingPathDispatcher(url, ImmutableMap.of(
+                "/domains/1234/records", recordsPage1,
+                "/domains/1234/records?limit=1&offset=1", recordsPage2)));
 
         try {
             ResourceRecordSetApi api = mockApi(url);
-            Iterator<ResourceRecordSet<?>> records = api.list();
-            
-            while (records.hasNext()) {
-                ResourceRecordSet<?> record = records.next();
-                
-                assertEquals(record.getName(), "www.denominator.io");
-                assertEquals(record.getTTL().get().intValue(), 600000);
-            }
 
+            assertEquals(ImmutableList.copyOf(api.list()), ImmutableList.of(
+                    a("www.denominator.io", 600000, ImmutableList.of("1.2.3.4", "5.6.7.8"))));
             assertEquals(server.getRequestCount(), 4);
-            assertEquals(server.takeRequest().getRequestLine(), "POST /tokens HTTP/1.1");
-            assertEquals(server.takeRequest().getRequestLine(), "GET /domains HTTP/1.1");
-            assertEquals(server.takeRequest().getRequestLine(), "GET /domains/1234/records HTTP/1.1");
-            assertEquals(server.takeRequest().getRequestLine(), "GET /domains/1234/records?limit=3&offset=3 HTTP/1.1");
         } finally {
             server.shutdown();
         }
     }
-    
-    String recordsByName = "{\"records\":[{\"name\":\"www.denominator.io\",\"id\":\"A-9872761\",\"type\":\"A\",\"data\":\"1.2.3.4\",\"ttl\":600000,\"updated\":\"2013-04-13T14:42:00.000+0000\",\"created\":\"2013-04-13T14:42:00.000+0000\"},{\"name\":\"www.denominator.io\",\"id\":\"NS-8703385\",\"type\":\"NS\",\"data\":\"dns1.stabletransit.com\",\"ttl\":600000,\"updated\":\"2013-04-13T14:42:00.000+0000\",\"created\":\"2013-04-13T14:42:00.000+0000\"},{\"name\":\"www.denominator.io\",\"id\":\"NS-8703386\",\"type\":\"NS\",\"data\":\"dns2.stabletransit.com\",\"ttl\":600000,\"updated\":\"2013-04-13T14:42:00.000+0000\",\"created\":\"2013-04-13T14:42:00.000+0000\"}],\"totalEntries\":3}";
 
     @Test
-    public void listByNameWhenPresent() throws IOException, InterruptedException {
+    public void listByNameQueriesEachType() throws IOException, InterruptedException {
         MockWebServer server = new MockWebServer();
         server.play();
 
         URL url = server.getUrl("/");
-        server.setDispatcher(getURLReplacingQueueDispatcher(url));
-
-        server.enqueue(new MockResponse().setResponseCode(OK.getStatusCode()).setBody(session));
-        server.enqueue(new MockResponse().setResponseCode(OK.getStatusCode()).setBody(domains));
-        server.enqueue(new MockResponse().setResponseCode(OK.getStatusCode()).setBody(recordsByName));
+        server.setDispatcher(getURLReplacingPathDispatcher(url, ImmutableMap.of(
+                "/domains/1234/records?name=www.denominator.io&type=A", recordsByNameAndType,
+                "/domains/1234/records?name=www.denominator.io&type=NS", nsRecords)));
 
         try {
             ResourceRecordSetApi api = mockApi(url);
-            Iterator<ResourceRecordSet<?>> records = api.listByName("www.denominator.io");
-            
-            while (records.hasNext()) {
-            	ResourceRecordSet<?> record = records.next();
-            	
-            	assertEquals(record.getName(), "www.denominator.io");
-            	assertEquals(record.getTTL().get().intValue(), 600000);
-            }
 
-            assertEquals(server.getRequestCount(), 3);
+            assertEquals(ImmutableList.copyOf(api.listByName("www.denominator.io")), ImmutableList.of(
+                    a("www.denominator.io", 600000, ImmutableList.of("1.2.3.4", "5.6.7.8")),
+                    ns("www.denominator.io", 600000, ImmutableList.of("dns1.stabletransit.com", "dns2.stabletransit.com"))));
+
+            assertEquals(server.getRequestCount(), 2 + CloudDNSResourceRecordSetApi.TYPES.size());
             assertEquals(server.takeRequest().getRequestLine(), "POST /tokens HTTP/1.1");
             assertEquals(server.takeRequest().getRequestLine(), "GET /domains HTTP/1.1");
-            assertEquals(server.takeRequest().getRequestLine(), "GET /domains/1234/records HTTP/1.1");
+            for (String type : CloudDNSResourceRecordSetApi.TYPES) {
+                assertEquals(server.takeRequest().getRequestLine(),
+                        "GET /domains/1234/records?name=www.denominator.io&type=" + type + " HTTP/1.1");
+            }
         } finally {
             server.shutdown();
         }
@@ -167,20 +150,13 @@ public class CloudDNSResourceRecordSetApiMockTest {
         server.play();
 
         URL url = server.getUrl("/");
-        server.setDispatcher(getURLReplacingQueueDispatcher(url));
-
-        server.enqueue(new MockResponse().setResponseCode(OK.getStatusCode()).setBody(session));
-        server.enqueue(new MockResponse().setResponseCode(OK.getStatusCode()).setBody(domains));
-        server.enqueue(new MockResponse().setResponseCode(NOT_FOUND.getStatusCode())); // no existing records
+        server.setDispatcher(getURLReplacingPathDispatcher(url, ImmutableMap.<String, String> of()));
 
         try {
             ResourceRecordSetApi api = mockApi(url);
             assertFalse(api.listByName("www.denominator.io").hasNext());
 
-            assertEquals(server.getRequestCount(), 3);
-            assertEquals(server.takeRequest().getRequestLine(), "POST /tokens HTTP/1.1");
-            assertEquals(server.takeRequest().getRequestLine(), "GET /domains HTTP/1.1");
-            assertEquals(server.takeRequest().getRequestLine(), "GET /domains/1234/records HTTP/1.1");
+            assertEquals(server.getRequestCount(), 2 + CloudDNSResourceRecordSetApi.TYPES.size());
         } finally {
             server.shutdown();
         }
@@ -239,6 +215,43 @@ public class CloudDNSResourceRecordSetApiMockTest {
         }
     }
 
+    String noDomains = "{\"domains\":[]}";
+
+    @Test
+    public void domainCreatedAfterFirstLookupIsFound() throws IOException, InterruptedException {
+        MockWebServer server = new MockWebServer();
+        server.play();
+
+        URL url = server.getUrl("/");
+        server.setDispatcher(getURLReplacingQueueDispatcher(url));
+
+        server.enqueue(new MockResponse().setResponseCode(OK.getStatusCode()).setBody(session));
+        server.enqueue(new MockResponse().setResponseCode(OK.getStatusCode()).setBody(noDomains));
+        server.enqueue(new MockResponse().setResponseCode(OK.getStatusCode()).setBody(domains));
+        server.enqueue(new MockResponse().setResponseCode(OK.getStatusCode()).setBody(recordsByNameAndType));
+
+        try {
+            DNSApi api = mockDNSApi(url);
+            try {
+                api.getResourceRecordSetApiForZone("denominator.io");
+                fail();
+            } catch (IllegalArgumentException e) {
+                assertEquals(e.getMessage(), "domain denominator.io not found");
+            }
+            // a miss reloads the listing
+            assertEquals(api.getResourceRecordSetApiForZone("denominator.io").getByNameAndType("www.denominator.io", "A").get(),
+                    a("www.denominator.io", 600000, ImmutableList.of("1.2.3.4", "5.6.7.8")));
+
+            assertEquals(server.getRequestCount(), 4);
+            assertEquals(server.takeRequest().getRequestLine(), "POST /tokens HTTP/1.1");
+            assertEquals(server.takeRequest().getRequestLine(), "GET /domains HTTP/1.1");
+            assertEquals(server.takeRequest().getRequestLine(), "GET /domains HTTP/1.1");
+            assertEquals(server.takeRequest().getRequestLine(), "GET /domains/1234/records?name=www.denominator.io&type=A HTTP/1.1");
+        } finally {
+            server.shutdown();
+        }
+    }
+
     /**
      * there's no built-in way to defer evaluation of a response header, hence this
      * method, which allows us to send back links to the mock server.
@@ -266,12 +279,40 @@ public class CloudDNSResourceRecordSetApiMockTest {
        return dispatcher;
     }
     
+    /**
+     * answers the session and domain list, then responds by request path,
+     * or {@code 404} if the path isn't mapped.
+     */
+    private Dispatcher getURLReplacingPathDispatcher(final URL url, final Map<String, String> pathToBody) {
+        return new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                String body;
+                if (request.getPath().equals("/tokens")) {
+                    body = session;
+                } else if (request.getPath().equals("/domains")) {
+                    body = domains;
+                } else if (pathToBody.containsKey(request.getPath())) {
+                    body = pathToBody.get(request.getPath());
+                } else {
+                    return new MockResponse().setResponseCode(NOT_FOUND.getStatusCode());
+                }
+                return new MockResponse().setResponseCode(OK.getStatusCode()).setBody(
+                        body.replace("URL", url.toString()));
+            }
+        };
+    }
+
     private static ResourceRecordSetApi mockApi(final URL url) {
+        return mockDNSApi(url).getResourceRecordSetApiForZone("denominator.io");
+    }
+
+    private static DNSApi mockDNSApi(final URL url) {
         return Denominator.create(new CloudDNSProvider() {
             @Override
             public String getUrl() {
                 return url.toString();
             }
-        }, credentials("jclouds-joe", "letmein")).getApi().getResourceRecordSetApiForZone("denominator.io");
+        }, credentials("jclouds-joe", "letmein")).getApi();
     }
  }
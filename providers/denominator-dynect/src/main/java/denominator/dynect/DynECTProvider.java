@@ -48,10 +48,14 @@ import denominator.BasicProvider;
 import denominator.Credentials;
 import denominator.Credentials.ListCredentials;
 import denominator.DNSApiManager;
+import denominator.ListingConfiguration.Order;
+import denominator.ListingConfiguration.SortBuffer;
 import denominator.Provider;
+import denominator.RequestLimiter;
 import denominator.ResourceRecordSetApi;
 import denominator.ZoneApi;
 import denominator.config.ConcatNormalAndGeoResourceRecordSets;
+import denominator.jclouds.LimitHttpRequests;
 
 public class DynECTProvider extends BasicProvider {
     private final String url;
@@ -94,14 +98,16 @@ public class DynECTProvider extends BasicProvider {
 
         @Provides
         @Singleton
-        ResourceRecordSetApi.Factory provideResourceRecordSetApiFactory(DynECTApi api, ReadOnlyApi roApi) {
-            return new DynECTResourceRecordSetApi.Factory(api, roApi);
+        ResourceRecordSetApi.Factory provideResourceRecordSetApiFactory(DynECTApi api, ReadOnlyApi roApi,
+                Order order, SortBuffer sortBuffer) {
+            return new DynECTResourceRecordSetApi.Factory(api, roApi, order, sortBuffer);
         }
 
         @Provides
         @Singleton
         // Dynamic name updates are not currently possible in jclouds.
-        Injector provideInjector(ConvertToJcloudsCredentials credentials, final Provider provider) {
+        Injector provideInjector(ConvertToJcloudsCredentials credentials, final Provider provider,
+                RequestLimiter limiter) {
             Properties overrides = new Properties();
             // disable url caching
             overrides.setProperty(PROPERTY_SESSION_INTERVAL, "0");
@@ -111,6 +117,7 @@ public class DynECTProvider extends BasicProvider {
                                  .overrides(overrides)
                                  .modules(ImmutableSet.<com.google.inject.Module> builder()
                                                       .add(new SLF4JLoggingModule())
+                                                      .add(new LimitHttpRequests(limiter))
                                                       .add(new ExecutorServiceModule(sameThreadExecutor(),
                                                                                      sameThreadExecutor()))
                                                       .add(new com.google.inject.AbstractModule() {
@@ -2,7 +2,9 @@ package denominator.dynect;
 
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
-import static com.google.common.collect.Ordering.usingToString;
+import static com.google.common.collect.Iterators.transform;
+import static denominator.ResourceRecordSetConflictException.checkCurrent;
+import static denominator.ResourceRecordSetConflictException.checkSameNameAndType;
 
 import java.util.Iterator;
 import java.util.List;
@@ -15,12 +17,20 @@ import org.jclouds.dynect.v3.domain.CreateRecord;
 import org.jclouds.dynect.v3.domain.Record;
 import org.jclouds.dynect.v3.domain.RecordId;
 
+import com.google.common.base.Function;
 import com.google.common.base.Optional;
+import com.google.common.collect.ComparisonChain;
 import com.google.common.collect.FluentIterable;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Ordering;
 
+import denominator.ExternalSort;
+import denominator.ListingConfiguration.Order;
+import denominator.ListingConfiguration.SortBuffer;
 import denominator.ResourceRecordSetApi;
+import denominator.ResourceRecordSetBatch;
 import denominator.dynect.DynECTProvider.ReadOnlyApi;
 import denominator.model.ResourceRecordSet;
 import denominator.model.ResourceRecordSet.Builder;
@@ -29,28 +39,37 @@ public final class DynECTResourceRecordSetApi implements denominator.ResourceRec
     static final class Factory implements denominator.ResourceRecordSetApi.Factory {
         private final DynECTApi api;
         private final ReadOnlyApi roApi;
+        private final Order order;
+        private final SortBuffer sortBuffer;
 
         @Inject
-        Factory(DynECTApi api, ReadOnlyApi roApi) {
+        Factory(DynECTApi api, ReadOnlyApi roApi, Order order, SortBuffer sortBuffer) {
             this.api = api;
             this.roApi = roApi;
+            this.order = order;
+            this.sortBuffer = sortBuffer;
         }
 
         @Override
         public ResourceRecordSetApi create(String zoneName) {
             checkNotNull(zoneName, "zoneName was null");
-            return new DynECTResourceRecordSetApi(api, roApi, zoneName);
+            return new DynECTResourceRecordSetApi(api, roApi, zoneName, order, sortBuffer);
         }
     }
 
     private final DynECTApi api;
     private final ReadOnlyApi roApi;
     private final String zoneFQDN;
+    private final Order order;
+    private final SortBuffer sortBuffer;
 
-    DynECTResourceRecordSetApi(DynECTApi api, ReadOnlyApi roApi, String zoneFQDN) {
+    DynECTResourceRecordSetApi(DynECTApi api, ReadOnlyApi roApi, String zoneFQDN, Order order,
+            SortBuffer sortBuffer) {
         this.api = api;
         this.roApi = roApi;
         this.zoneFQDN = zoneFQDN;
+        this.order = order;
+        this.sortBuffer = sortBuffer;
     }
 
     @Override
@@ -66,7 +85,10 @@ public final class DynECTResourceRecordSetApi implements denominator.ResourceRec
 
     @Override
     public Optional<ResourceRecordSet<?>> getByNameAndType(String name, String type) {
-        List<Record<?>> existingRecords = existing(name, type);
+        return toRRSet(name, type, existing(name, type));
+    }
+
+    private static Optional<ResourceRecordSet<?>> toRRSet(String name, String type, List<Record<?>> existingRecords) {
         if (existingRecords.isEmpty())
             return Optional.absent();
         
@@ -85,6 +107,11 @@ public final class DynECTResourceRecordSetApi implements denominator.ResourceRec
 
     @Override
     public void add(ResourceRecordSet<?> rrset) {
+        if (scheduleAdd(rrset))
+            publish();
+    }
+
+    private boolean scheduleAdd(ResourceRecordSet<?> rrset) {
         checkNotNull(rrset, "rrset was null");
         checkArgument(!rrset.isEmpty(), "rrset was empty %s", rrset);
 
@@ -117,8 +144,9 @@ public final class DynECTResourceRecordSetApi implements denominator.ResourceRec
             for (Map<String, Object> record : recordsLeftToCreate) {
                 api.getRecordApiForZone(zoneFQDN).scheduleCreate(builder.rdata(record).build());
             }
-            api.getZoneApi().publish(zoneFQDN);
+            return true;
         }
+        return false;
     }
 
     @Override
@@ -147,17 +175,39 @@ public final class DynECTResourceRecordSetApi implements denominator.ResourceRec
             for (Record<?> record : recordsToRecreate) {
                 api.getRecordApiForZone(zoneFQDN).scheduleCreate(builder.rdata(record.getRData()).build());
             }
-            api.getZoneApi().publish(zoneFQDN);
+            publish();
         }
     }
 
     @Override
     public void replace(ResourceRecordSet<?> rrset) {
+        if (scheduleReplace(rrset))
+            publish();
+    }
+
+    private boolean scheduleReplace(ResourceRecordSet<?> rrset) {
         checkNotNull(rrset, "rrset was null");
         checkArgument(!rrset.isEmpty(), "rrset was empty %s", rrset);
-        int ttlToApply = rrset.getTTL().or(0);
+        return scheduleReplace(rrset, existing(rrset.getName(), rrset.getType()));
+    }
 
-        List<Record<?>> existingRecords = existing(rrset.getName(), rrset.getType());
+    /**
+     * DynECT can't compare on the server, so this compares against the
+     * records read to make the change, which isn't atomic, but costs no more
+     * round trips than {@link #replace(ResourceRecordSet)}.
+     */
+    @Override
+    public void replace(ResourceRecordSet<?> expected, ResourceRecordSet<?> desired) {
+        checkSameNameAndType(expected, desired);
+        checkArgument(!desired.isEmpty(), "desired was empty %s", desired);
+        List<Record<?>> existingRecords = existing(desired.getName(), desired.getType());
+        checkCurrent(expected, toRRSet(desired.getName(), desired.getType(), existingRecords));
+        if (scheduleReplace(desired, existingRecords))
+            publish();
+    }
+
+    private boolean scheduleReplace(ResourceRecordSet<?> rrset, List<Record<?>> existingRecords) {
+        int ttlToApply = rrset.getTTL().or(0);
 
         List<Map<String, Object>> recordsLeftToCreate = Lists.newArrayList(rrset);
 
@@ -178,18 +228,22 @@ public final class DynECTResourceRecordSetApi implements denominator.ResourceRec
             for (Map<String, Object> record : recordsLeftToCreate) {
                 api.getRecordApiForZone(zoneFQDN).scheduleCreate(builder.rdata(record).build());
             }
-            api.getZoneApi().publish(zoneFQDN);
+            return true;
         }
+        return false;
     }
 
     @Override
     public void remove(ResourceRecordSet<?> rrset) {
+        if (scheduleRemove(rrset))
+            publish();
+    }
+
+    private boolean scheduleRemove(ResourceRecordSet<?> rrset) {
         checkNotNull(rrset, "rrset was null");
         checkArgument(!rrset.isEmpty(), "rrset was empty %s", rrset);
 
         List<Record<?>> existingRecords = existing(rrset.getName(), rrset.getType());
-        if (existingRecords.isEmpty())
-            return;
         boolean shouldPublish = false;
         for (Record<? extends Map<String, Object>> toEvaluate : existingRecords) {
             if (toEvaluate != null && rrset.contains(toEvaluate.getRData())) {
@@ -197,8 +251,7 @@ public final class DynECTResourceRecordSetApi implements denominator.ResourceRec
                 api.getRecordApiForZone(zoneFQDN).scheduleDelete(toEvaluate);
             }
         }
-        if (shouldPublish)
-            api.getZoneApi().publish(zoneFQDN);
+        return shouldPublish;
     }
 
     ImmutableList<Record<? extends Map<String, Object>>> existing(String name, String type) {
@@ -207,20 +260,94 @@ public final class DynECTResourceRecordSetApi implements denominator.ResourceRec
 
     @Override
     public void deleteByNameAndType(String name, String type) {
+        if (scheduleDelete(name, type))
+            publish();
+    }
+
+    private boolean scheduleDelete(String name, String type) {
         List<Record<?>> existingRecords = existing(name, type);
-        if (existingRecords.isEmpty())
-            return;
         boolean shouldPublish = false;
         for (RecordId key : existingRecords) {
             shouldPublish = true;
             api.getRecordApiForZone(zoneFQDN).scheduleDelete(key);
         }
+        return shouldPublish;
+    }
+
+    /**
+     * schedules all changes in the {@code batch}, then publishes the zone once.
+     */
+    @Override
+    public void apply(ResourceRecordSetBatch batch) {
+        checkNotNull(batch, "batch was null");
+        boolean shouldPublish = false;
+        for (ResourceRecordSetBatch.Change change : batch) {
+            switch (change.getAction()) {
+            case ADD:
+                shouldPublish |= scheduleAdd(change.getRRSet().get());
+                break;
+            case REPLACE:
+                shouldPublish |= scheduleReplace(change.getRRSet().get());
+                break;
+            case REMOVE:
+                shouldPublish |= scheduleRemove(change.getRRSet().get());
+                break;
+            case DELETE:
+                shouldPublish |= scheduleDelete(change.getName(), change.getType());
+                break;
+            }
+        }
         if (shouldPublish)
-            api.getZoneApi().publish(zoneFQDN);
+            publish();
+    }
+
+    private void publish() {
+        api.getZoneApi().publish(zoneFQDN);
     }
 
     private Iterator<ResourceRecordSet<?>> groupByRecordNameAndType(FluentIterable<Record<?>> records) {
-        Iterator<Record<?>> ordered = records.toSortedList(usingToString()).iterator();
-        return new GroupByRecordNameAndTypeIterator(ordered);
+        if (order == Order.SORTED)
+            return new GroupByRecordNameAndTypeIterator(ExternalSort.sort(records.iterator(), byFQDNTypeAndId,
+                    RecordCodec.INSTANCE, sortBuffer.maxRecords()));
+        Map<List<String>, List<Record<?>>> byFQDNAndType = Maps.newLinkedHashMap();
+        for (Record<?> record : records) {
+            // it is possible that the record was deleted between the list and the get
+            if (record == null)
+                continue;
+            List<String> fqdnAndType = ImmutableList.of(record.getFQDN(), record.getType());
+            List<Record<?>> group = byFQDNAndType.get(fqdnAndType);
+            if (group == null)
+                byFQDNAndType.put(fqdnAndType, group = Lists.newArrayListWithCapacity(1));
+            group.add(record);
+        }
+        return transform(byFQDNAndType.values().iterator(), groupToRRSet);
     }
+
+    /**
+     * groups are small, so sorting them keeps rdata in the same order as
+     * {@link Order#SORTED} at little cost.
+     */
+    private static final Function<List<Record<?>>, ResourceRecordSet<?>> groupToRRSet =
+            new Function<List<Record<?>>, ResourceRecordSet<?>>() {
+                @Override
+                public ResourceRecordSet<?> apply(List<Record<?>> group) {
+                    return new GroupByRecordNameAndTypeIterator(byFQDNTypeAndId.sortedCopy(group).iterator()).next();
+                }
+            };
+
+    /**
+     * ids increase as records are created, so this lists rdata in the order
+     * they were added.
+     */
+    private static final Ordering<Record<?>> byFQDNTypeAndId = new Ordering<Record<?>>() {
+
+        @Override
+        public int compare(Record<?> left, Record<?> right) {
+            return ComparisonChain.start()
+                                  .compare(left.getFQDN(), right.getFQDN())
+                                  .compare(left.getType(), right.getType())
+                                  .compare(left.getId(), right.getId())
+                                  .result();
+        }
+    };
 }
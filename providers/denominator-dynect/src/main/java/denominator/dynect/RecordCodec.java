@@ -0,0 +1,93 @@
+package denominator.dynect;
+
+import static denominator.ExternalSort.readString;
+import static denominator.ExternalSort.writeString;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.jclouds.dynect.v3.domain.Record;
+
+import com.google.common.collect.Maps;
+
+import denominator.ExternalSort;
+
+/**
+ * writes the fields {@link DynECTResourceRecordSetApi} sorts and groups
+ * records by, so that they can be sorted in runs on disk. Rdata values are
+ * either strings or numbers.
+ */
+enum RecordCodec implements ExternalSort.Codec<Record<?>> {
+    INSTANCE;
+
+    private static final byte STRING = 0;
+    private static final byte INTEGER = 1;
+    private static final byte LONG = 2;
+    private static final byte DOUBLE = 3;
+
+    @Override
+    public void write(Record<?> record, DataOutput out) throws IOException {
+        writeString(out, record.getZone());
+        writeString(out, record.getFQDN());
+        writeString(out, record.getType());
+        out.writeLong(record.getId());
+        out.writeInt(record.getTTL());
+        Map<String, Object> rdata = record.getRData();
+        out.writeInt(rdata.size());
+        for (Entry<String, Object> entry : rdata.entrySet()) {
+            writeString(out, entry.getKey());
+            Object value = entry.getValue();
+            if (value instanceof String) {
+                out.writeByte(STRING);
+                writeString(out, value.toString());
+            } else if (value instanceof Integer) {
+                out.writeByte(INTEGER);
+                out.writeInt(Integer.class.cast(value));
+            } else if (value instanceof Long) {
+                out.writeByte(LONG);
+                out.writeLong(Long.class.cast(value));
+            } else if (value instanceof Double) {
+                out.writeByte(DOUBLE);
+                out.writeDouble(Double.class.cast(value));
+            } else {
+                throw new IllegalArgumentException("unsupported value in rdata of " + record + ": " + entry);
+            }
+        }
+    }
+
+    @Override
+    public Record<?> read(DataInput in) throws IOException {
+        Record.Builder<Map<String, Object>, ?> builder = Record.<Map<String, Object>> builder()
+                                                               .zone(readString(in))
+                                                               .fqdn(readString(in))
+                                                               .type(readString(in))
+                                                               .id(in.readLong())
+                                                               .ttl(in.readInt());
+        int size = in.readInt();
+        Map<String, Object> rdata = Maps.newLinkedHashMap();
+        for (int i = 0; i < size; i++) {
+            String key = readString(in);
+            byte tag = in.readByte();
+            switch (tag) {
+            case STRING:
+                rdata.put(key, readString(in));
+                break;
+            case INTEGER:
+                rdata.put(key, in.readInt());
+                break;
+            case LONG:
+                rdata.put(key, in.readLong());
+                break;
+            case DOUBLE:
+                rdata.put(key, in.readDouble());
+                break;
+            default:
+                throw new IOException("unknown value tag " + tag + " for " + key);
+            }
+        }
+        return builder.rdata(rdata).build();
+    }
+}
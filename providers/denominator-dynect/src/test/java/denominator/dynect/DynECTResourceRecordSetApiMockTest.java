@@ -2,26 +2,33 @@ package denominator.dynect;
 
 import static com.google.common.io.Resources.getResource;
 import static denominator.CredentialsConfiguration.credentials;
+import static denominator.ListingConfiguration.spillAfter;
+import static denominator.ListingConfiguration.unsorted;
 import static denominator.model.ResourceRecordSets.a;
 import static org.jclouds.util.Strings2.toStringAndClose;
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.fail;
 
 import java.io.IOException;
 import java.net.URL;
 import java.util.Iterator;
+import java.util.List;
 
 import org.testng.annotations.Test;
 
 import com.google.common.base.Optional;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.ObjectArrays;
 import com.google.mockwebserver.MockResponse;
 import com.google.mockwebserver.MockWebServer;
 import com.google.mockwebserver.RecordedRequest;
 
 import denominator.Denominator;
 import denominator.ResourceRecordSetApi;
+import denominator.ResourceRecordSetBatch;
+import denominator.ResourceRecordSetConflictException;
 import denominator.model.ResourceRecordSet;
 
 @Test(singleThreaded = true)
@@ -313,6 +320,50 @@ public class DynECTResourceRecordSetApiMockTest {
         }
     }
 
+    @Test
+    public void listSpillingToDiskIsSorted() throws IOException, InterruptedException {
+        MockWebServer server = new MockWebServer();
+        server.enqueue(new MockResponse().setResponseCode(200).setBody(session));
+        server.enqueue(new MockResponse().setResponseCode(200).setBody(records));
+        server.enqueue(new MockResponse().setResponseCode(200).setBody(session));
+        server.enqueue(new MockResponse().setResponseCode(200).setBody(records));
+        server.play();
+
+        try {
+            List<ResourceRecordSet<?>> inMemory = ImmutableList.copyOf(mockApi(server.getUrl("/")).list());
+            List<ResourceRecordSet<?>> spilled = ImmutableList.copyOf(mockApi(server.getUrl("/"), spillAfter(2))
+                    .list());
+
+            assertEquals(spilled, inMemory);
+            assertEquals(server.getRequestCount(), 4);
+        } finally {
+            server.shutdown();
+        }
+    }
+
+    @Test
+    public void listUnsortedGroupsInOrderReturned() throws IOException, InterruptedException {
+        MockWebServer server = new MockWebServer();
+        server.enqueue(new MockResponse().setResponseCode(200).setBody(session));
+        server.enqueue(new MockResponse().setResponseCode(200).setBody(records));
+        server.play();
+
+        try {
+            ResourceRecordSetApi api = mockApi(server.getUrl("/"), unsorted());
+            List<ResourceRecordSet<?>> rrsets = ImmutableList.copyOf(api.list());
+
+            assertEquals(rrsets.size(), 3);
+            assertEquals(rrsets.get(0).getType(), "SOA");
+            assertEquals(rrsets.get(1).getType(), "NS");
+            assertEquals(rrsets.get(1).size(), 4);
+            assertEquals(rrsets.get(2), a("www.denominator.io", 3600, ImmutableList.of("192.0.2.1", "198.51.100.1")));
+
+            assertEquals(server.getRequestCount(), 2);
+        } finally {
+            server.shutdown();
+        }
+    }
+
     @Test
     public void listWhenAbsent() throws IOException, InterruptedException {
         MockWebServer server = new MockWebServer();
@@ -465,6 +516,68 @@ public class DynECTResourceRecordSetApiMockTest {
         }
     }
 
+    @Test
+    public void replaceExpectedRecordSetPostsAndPublishes() throws IOException, InterruptedException {
+        MockWebServer server = new MockWebServer();
+        server.enqueue(new MockResponse().setResponseCode(200).setBody(session));
+        server.enqueue(new MockResponse().setResponseCode(200).setBody(records1));
+        server.enqueue(new MockResponse().setResponseCode(200).setBody(success));
+        server.enqueue(new MockResponse().setResponseCode(200).setBody(success));
+        server.enqueue(new MockResponse().setResponseCode(200).setBody(success));
+        server.enqueue(new MockResponse().setResponseCode(200).setBody(success));
+        server.play();
+
+        try {
+            ResourceRecordSetApi api = mockApi(server.getUrl("/"));
+            api.replace(a("www.denominator.io", 3600, "192.0.2.1"),
+                    a("www.denominator.io", 10000000, ImmutableSet.of("192.0.2.1", "198.51.100.1")));
+
+            assertEquals(server.getRequestCount(), 6);
+            assertEquals(server.takeRequest().getRequestLine(), "POST /Session HTTP/1.1");
+            assertEquals(server.takeRequest().getRequestLine(), "GET /ARecord/denominator.io/www.denominator.io?detail=Y HTTP/1.1");
+            assertEquals(server.takeRequest().getRequestLine(), "DELETE /ARecord/denominator.io/www.denominator.io/1 HTTP/1.1");
+
+            RecordedRequest postRecord1 = server.takeRequest();
+            assertEquals(postRecord1.getRequestLine(), "POST /ARecord/denominator.io/www.denominator.io HTTP/1.1");
+            assertEquals(new String(postRecord1.getBody()), createRecord1OverriddenTTL);
+
+            RecordedRequest postRecord2 = server.takeRequest();
+            assertEquals(postRecord2.getRequestLine(), "POST /ARecord/denominator.io/www.denominator.io HTTP/1.1");
+            assertEquals(new String(postRecord2.getBody()), createRecord2OverriddenTTL);
+
+            RecordedRequest publish = server.takeRequest();
+            assertEquals(publish.getRequestLine(), "PUT /Zone/denominator.io HTTP/1.1");
+            assertEquals(new String(publish.getBody()), "{\"publish\":true}");
+        } finally {
+            server.shutdown();
+        }
+    }
+
+    @Test
+    public void replaceExpectedRecordSetConflictsWhenStale() throws IOException, InterruptedException {
+        MockWebServer server = new MockWebServer();
+        server.enqueue(new MockResponse().setResponseCode(200).setBody(session));
+        server.enqueue(new MockResponse().setResponseCode(200).setBody(records1));
+        server.play();
+
+        ResourceRecordSet<?> expected = a("www.denominator.io", 3600, "198.51.100.1");
+        try {
+            ResourceRecordSetApi api = mockApi(server.getUrl("/"));
+            api.replace(expected, a("www.denominator.io", 3600, "198.51.100.2"));
+            fail();
+        } catch (ResourceRecordSetConflictException e) {
+            assertEquals(e.getExpected(), expected);
+            assertEquals(e.getCurrent().get(), a("www.denominator.io", 3600, "192.0.2.1"));
+
+            // nothing is scheduled or published
+            assertEquals(server.getRequestCount(), 2);
+            assertEquals(server.takeRequest().getRequestLine(), "POST /Session HTTP/1.1");
+            assertEquals(server.takeRequest().getRequestLine(), "GET /ARecord/denominator.io/www.denominator.io?detail=Y HTTP/1.1");
+        } finally {
+            server.shutdown();
+        }
+    }
+
     @Test
     public void removeAbsentRecordDoesNothing() throws IOException, InterruptedException {
         MockWebServer server = new MockWebServer();
@@ -531,12 +644,51 @@ public class DynECTResourceRecordSetApiMockTest {
         }
     }
 
-    private static ResourceRecordSetApi mockApi(final URL url) {
+    @Test
+    public void applyBatchPublishesOnce() throws IOException, InterruptedException {
+        MockWebServer server = new MockWebServer();
+        server.enqueue(new MockResponse().setResponseCode(200).setBody(session));
+        server.enqueue(new MockResponse().setResponseCode(404)); // no existing records
+        server.enqueue(new MockResponse().setResponseCode(200).setBody(success));
+        server.enqueue(new MockResponse().setResponseCode(200).setBody(records1And2));
+        server.enqueue(new MockResponse().setResponseCode(200).setBody(success));
+        server.enqueue(new MockResponse().setResponseCode(200).setBody(success));
+        server.enqueue(new MockResponse().setResponseCode(200).setBody(success));
+        server.play();
+
+        try {
+            ResourceRecordSetApi api = mockApi(server.getUrl("/"));
+            api.apply(ResourceRecordSetBatch.builder()
+                                            .add(a("www1.denominator.io", 3600, "192.0.2.1"))
+                                            .deleteByNameAndType("www.denominator.io", "A").build());
+
+            assertEquals(server.getRequestCount(), 7);
+            assertEquals(server.takeRequest().getRequestLine(), "POST /Session HTTP/1.1");
+            assertEquals(server.takeRequest().getRequestLine(), "GET /ARecord/denominator.io/www1.denominator.io?detail=Y HTTP/1.1");
+
+            RecordedRequest postRecord1 = server.takeRequest();
+            assertEquals(postRecord1.getRequestLine(), "POST /ARecord/denominator.io/www1.denominator.io HTTP/1.1");
+            assertEquals(new String(postRecord1.getBody()), createRecord1);
+
+            assertEquals(server.takeRequest().getRequestLine(), "GET /ARecord/denominator.io/www.denominator.io?detail=Y HTTP/1.1");
+            assertEquals(server.takeRequest().getRequestLine(), "DELETE /ARecord/denominator.io/www.denominator.io/1 HTTP/1.1");
+            assertEquals(server.takeRequest().getRequestLine(), "DELETE /ARecord/denominator.io/www.denominator.io/2 HTTP/1.1");
+
+            RecordedRequest publish = server.takeRequest();
+            assertEquals(publish.getRequestLine(), "PUT /Zone/denominator.io HTTP/1.1");
+            assertEquals(new String(publish.getBody()), "{\"publish\":true}");
+        } finally {
+            server.shutdown();
+        }
+    }
+
+    private static ResourceRecordSetApi mockApi(final URL url, Object... modules) {
         return Denominator.create(new DynECTProvider() {
             @Override
             public String getUrl() {
                 return url.toString();
             }
-        }, credentials("jclouds", "joe", "letmein")).getApi().getResourceRecordSetApiForZone("denominator.io");
+        }, ObjectArrays.concat(credentials("jclouds", "joe", "letmein"), modules)).getApi()
+                .getResourceRecordSetApiForZone("denominator.io");
     }
 }
@@ -0,0 +1,114 @@
+package denominator.jclouds;
+
+import javax.inject.Provider;
+import javax.inject.Singleton;
+
+import org.jclouds.http.HttpCommand;
+import org.jclouds.http.HttpCommandExecutorService;
+import org.jclouds.http.HttpResponse;
+import org.jclouds.http.config.ConfiguresHttpCommandExecutorService;
+import org.jclouds.http.config.JavaUrlHttpCommandExecutorServiceModule;
+import org.jclouds.http.internal.JavaUrlHttpCommandExecutorService;
+
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.inject.AbstractModule;
+import com.google.inject.Provides;
+import com.google.inject.util.Modules;
+
+import denominator.RequestLimiter;
+
+/**
+ * Installs jclouds' default http client, taking a permit from the
+ * {@link RequestLimiter} before each request, so that rate limits hold per
+ * request instead of per api call. Failed requests, including those
+ * submitted asynchronously, are reported to the limiter.
+ *
+ * ex. in a provider's jclouds modules
+ *
+ * <pre>
+ * ImmutableSet.&lt;Module&gt; builder().add(new LimitHttpRequests(limiter))
+ * </pre>
+ */
+@ConfiguresHttpCommandExecutorService
+public final class LimitHttpRequests extends AbstractModule {
+    private final RequestLimiter limiter;
+
+    public LimitHttpRequests(RequestLimiter limiter) {
+        this.limiter = limiter;
+    }
+
+    @Override
+    protected void configure() {
+        install(Modules.override(new JavaUrlHttpCommandExecutorServiceModule()).with(new AbstractModule() {
+
+            @Override
+            protected void configure() {
+            }
+
+            // jclouds' http client depends on apis which use this, so look it up lazily
+            @Provides
+            @Singleton
+            HttpCommandExecutorService provideHttp(final Provider<JavaUrlHttpCommandExecutorService> http) {
+                return new LimitedHttpCommandExecutorService(limiter, Suppliers.memoize(
+                        new Supplier<HttpCommandExecutorService>() {
+                            @Override
+                            public HttpCommandExecutorService get() {
+                                return http.get();
+                            }
+                        }));
+            }
+        }));
+    }
+
+    @Override
+    public String toString() {
+        return "LimitHttpRequests(" + limiter + ")";
+    }
+
+    private static final class LimitedHttpCommandExecutorService implements HttpCommandExecutorService {
+        private final RequestLimiter limiter;
+        private final Supplier<HttpCommandExecutorService> delegate;
+
+        private LimitedHttpCommandExecutorService(RequestLimiter limiter,
+                Supplier<HttpCommandExecutorService> delegate) {
+            this.limiter = limiter;
+            this.delegate = delegate;
+        }
+
+        @Override
+        public HttpResponse invoke(HttpCommand command) {
+            limiter.acquire();
+            try {
+                return delegate.get().invoke(command);
+            } catch (RuntimeException e) {
+                throw limiter.failed(e);
+            }
+        }
+
+        @Override
+        public ListenableFuture<HttpResponse> submit(HttpCommand command) {
+            limiter.acquire();
+            ListenableFuture<HttpResponse> response;
+            try {
+                response = delegate.get().submit(command);
+            } catch (RuntimeException e) {
+                throw limiter.failed(e);
+            }
+            Futures.addCallback(response, new FutureCallback<HttpResponse>() {
+                @Override
+                public void onSuccess(HttpResponse result) {
+                }
+
+                @Override
+                public void onFailure(Throwable t) {
+                    limiter.failed(t instanceof RuntimeException ? (RuntimeException) t : new RuntimeException(t));
+                }
+            });
+            return response;
+        }
+    }
+}
@@ -24,17 +24,22 @@ import com.google.common.base.Supplier;
 import com.google.common.collect.ImmutableMultimap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Multimap;
+import com.google.common.util.concurrent.ListeningExecutorService;
 
 import dagger.Provides;
 import denominator.BasicProvider;
 import denominator.Credentials;
 import denominator.Credentials.ListCredentials;
 import denominator.DNSApiManager;
+import denominator.ListingConfiguration.Prefetch;
 import denominator.Provider;
+import denominator.RequestLimiter;
 import denominator.ResourceRecordSetApi;
 import denominator.ZoneApi;
+import denominator.ZoneIdCache;
 import denominator.config.GeoUnsupported;
 import denominator.config.OnlyNormalResourceRecordSets;
+import denominator.jclouds.LimitHttpRequests;
 
 public class Route53Provider extends BasicProvider {
     private final String url;
@@ -64,7 +69,7 @@ public class Route53Provider extends BasicProvider {
                 .putAll("session", "accessKey", "secretKey", "sessionToken").build();
     }
 
-    @dagger.Module(injects = DNSApiManager.class,
+    @dagger.Module(injects = { DNSApiManager.class, ZoneIdCache.class },
                    complete = false, // denominator.Provider
                    includes = { GeoUnsupported.class, 
                                 OnlyNormalResourceRecordSets.class,
@@ -74,7 +79,8 @@ public class Route53Provider extends BasicProvider {
         @Provides
         @Singleton
         // Dynamic name updates are not currently possible in jclouds.
-        Route53Api provideApi(ConvertToJcloudsCredentials credentials, final Provider provider) {
+        Route53Api provideApi(ConvertToJcloudsCredentials credentials, final Provider provider,
+                RequestLimiter limiter) {
             Properties overrides = new Properties();
             // disable url caching
             overrides.setProperty(PROPERTY_SESSION_INTERVAL, "0");
@@ -84,6 +90,7 @@ public class Route53Provider extends BasicProvider {
                                  .overrides(overrides)
                                  .modules(ImmutableSet.<com.google.inject.Module> builder()
                                                       .add(new SLF4JLoggingModule())
+                                                      .add(new LimitHttpRequests(limiter))
                                                       .add(new ExecutorServiceModule(sameThreadExecutor(),
                                                                                      sameThreadExecutor()))
                                                       .add(new com.google.inject.AbstractModule() {
@@ -110,14 +117,21 @@ public class Route53Provider extends BasicProvider {
 
         @Provides
         @Singleton
-        ZoneApi provideZoneApi(Route53Api api) {
-            return new Route53ZoneApi(api);
+        ZoneApi provideZoneApi(Route53Api api, Prefetch prefetch, ListeningExecutorService executor) {
+            return new Route53ZoneApi(api, prefetch, executor);
         }
 
         @Provides
         @Singleton
-        ResourceRecordSetApi.Factory provideResourceRecordSetApiFactory(Route53Api api) {
-            return new Route53ResourceRecordSetApi.Factory(api);
+        ResourceRecordSetApi.Factory provideResourceRecordSetApiFactory(Route53Api api, ZoneIdCache zoneIds,
+                Prefetch prefetch, ListeningExecutorService executor) {
+            return new Route53ResourceRecordSetApi.Factory(api, zoneIds, prefetch, executor);
+        }
+
+        @Provides
+        @Singleton
+        ZoneIdCache provideZoneIdCache(Route53Api api, Prefetch prefetch, ListeningExecutorService executor) {
+            return new ZoneIdCache(Route53ResourceRecordSetApi.hostedZoneNameToId(api, prefetch, executor));
         }
 
         @Provides
@@ -5,45 +5,67 @@ import static com.google.common.base.Predicates.and;
 import static com.google.common.base.Predicates.in;
 import static com.google.common.base.Predicates.not;
 import static com.google.common.collect.Iterables.filter;
+import static denominator.ResourceRecordSetConflictException.checkSameNameAndType;
 import static denominator.route53.ToDenominatorResourceRecordSet.isAlias;
 import static denominator.route53.ToRoute53ResourceRecordSet.toTextFormat;
 
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
 
 import javax.inject.Inject;
 
+import org.jclouds.route53.InvalidChangeBatchException;
 import org.jclouds.route53.Route53Api;
 import org.jclouds.route53.domain.ChangeBatch;
+import org.jclouds.route53.domain.ChangeBatch.ActionOnResourceRecordSet;
 import org.jclouds.route53.domain.HostedZone;
+import org.jclouds.route53.domain.ResourceRecordSetIterable;
 import org.jclouds.route53.domain.ResourceRecordSetIterable.NextRecord;
 
 import com.google.common.base.Optional;
 import com.google.common.base.Predicate;
+import com.google.common.base.Supplier;
+import com.google.common.collect.AbstractIterator;
 import com.google.common.collect.FluentIterable;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableList.Builder;
+import com.google.common.collect.Iterators;
+import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.ListeningExecutorService;
 
+import denominator.ListingConfiguration.Prefetch;
+import denominator.PrefetchingIterator;
 import denominator.ResourceRecordSetApi;
+import denominator.ResourceRecordSetBatch;
+import denominator.ResourceRecordSetConflictException;
+import denominator.ZoneIdCache;
 import denominator.model.ResourceRecordSet;
 
 final class Route53ResourceRecordSetApi implements denominator.ResourceRecordSetApi {
 
     private final org.jclouds.route53.features.ResourceRecordSetApi route53RRsetApi;
+    private final Prefetch prefetch;
+    private final Executor executor;
 
-    Route53ResourceRecordSetApi(org.jclouds.route53.features.ResourceRecordSetApi route53RRsetApi) {
+    Route53ResourceRecordSetApi(org.jclouds.route53.features.ResourceRecordSetApi route53RRsetApi,
+            Prefetch prefetch, Executor executor) {
         this.route53RRsetApi = route53RRsetApi;
+        this.prefetch = prefetch;
+        this.executor = executor;
     }
 
     /**
-     * lists and lazily transforms all record sets who are not aliases into denominator format.
+     * lists and lazily transforms all record sets who are not aliases into
+     * denominator format. Pages are requested ahead according to
+     * {@link Prefetch}.
      */
     @Override
     public Iterator<ResourceRecordSet<?>> list() {
-        Iterator<ResourceRecordSet<?>> iterator = route53RRsetApi.list().concat()
-                                                                 .filter(not(isAlias()))
-                                                                 .transform(ToDenominatorResourceRecordSet.INSTANCE)
-                                                                 .iterator();
+        Iterator<ResourceRecordSet<?>> iterator = Iterators.transform(
+                Iterators.filter(PrefetchingIterator.concat(route53RRsetApi.list().iterator(), prefetch, executor),
+                        not(isAlias())), ToDenominatorResourceRecordSet.INSTANCE);
         return new GroupByRecordNameAndTypeIterator(iterator);
     }
 
@@ -54,10 +76,10 @@ final class Route53ResourceRecordSetApi implements denominator.ResourceRecordSet
      */
     @Override
     public Iterator<ResourceRecordSet<?>> listByName(String name) {
-        Iterator<ResourceRecordSet<?>> iterator = route53RRsetApi.listAt(NextRecord.name(name))
-                                                                 .filter(and(not(isAlias()), nameEqualTo(name)))
-                                                                 .transform(ToDenominatorResourceRecordSet.INSTANCE)
-                                                                 .iterator();
+        Iterator<ResourceRecordSet<?>> iterator = scan(NextRecord.name(name), nameEqualTo(name))
+                                                      .filter(not(isAlias()))
+                                                      .transform(ToDenominatorResourceRecordSet.INSTANCE)
+                                                      .iterator();
         return new GroupByRecordNameAndTypeIterator(iterator);
     }
 
@@ -78,10 +100,41 @@ final class Route53ResourceRecordSetApi implements denominator.ResourceRecordSet
      * for efficiency, starts the list at the specified {@code name} and
      * {@code type}.
      */
-    @SuppressWarnings("unchecked")
     FluentIterable<org.jclouds.route53.domain.ResourceRecordSet> filterRoute53RRSByNameAndType(String name, String type) {
-        return route53RRsetApi.listAt(NextRecord.nameAndType(name, type)).filter(
-                and(not(isAlias()), nameEqualTo(name), typeEqualTo(type)));
+        return scan(NextRecord.nameAndType(name, type), and(nameEqualTo(name), typeEqualTo(type)))
+                .filter(not(isAlias()));
+    }
+
+    /**
+     * Route53 lists record sets in order, so those matching a name, or name
+     * and type, are adjacent. This lists from {@code start}, following pages
+     * until a record set doesn't match. A miss costs one page, regardless of
+     * the size of the zone.
+     */
+    private FluentIterable<org.jclouds.route53.domain.ResourceRecordSet> scan(final NextRecord start,
+            final Predicate<org.jclouds.route53.domain.ResourceRecordSet> matches) {
+        return new FluentIterable<org.jclouds.route53.domain.ResourceRecordSet>() {
+            @Override
+            public Iterator<org.jclouds.route53.domain.ResourceRecordSet> iterator() {
+                return new AbstractIterator<org.jclouds.route53.domain.ResourceRecordSet>() {
+                    Optional<NextRecord> nextRecord = Optional.of(start);
+                    Iterator<org.jclouds.route53.domain.ResourceRecordSet> page = Iterators.emptyIterator();
+
+                    @Override
+                    protected org.jclouds.route53.domain.ResourceRecordSet computeNext() {
+                        while (!page.hasNext()) {
+                            if (!nextRecord.isPresent())
+                                return endOfData();
+                            ResourceRecordSetIterable nextPage = route53RRsetApi.listAt(nextRecord.get());
+                            page = nextPage.iterator();
+                            nextRecord = nextPage.nextRecord();
+                        }
+                        org.jclouds.route53.domain.ResourceRecordSet rrs = page.next();
+                        return matches.apply(rrs) ? rrs : endOfData();
+                    }
+                };
+            }
+        };
     }
 
     /**
@@ -92,6 +145,10 @@ final class Route53ResourceRecordSetApi implements denominator.ResourceRecordSet
      */
     @Override
     public void add(ResourceRecordSet<?> rrset) {
+        applyIfPresent(changesToAdd(rrset));
+    }
+
+    private Optional<ChangeBatch> changesToAdd(ResourceRecordSet<?> rrset) {
         Optional<Integer> ttlToApply = rrset.getTTL();
 
         ChangeBatch.Builder changes = ChangeBatch.builder();
@@ -113,7 +170,7 @@ final class Route53ResourceRecordSetApi implements denominator.ResourceRecordSet
                         .ttl(ttlToApply.or(300))
                         .addAll(values.build()).build());
 
-        route53RRsetApi.apply(changes.build());
+        return Optional.of(changes.build());
     }
 
     @Override
@@ -134,6 +191,10 @@ final class Route53ResourceRecordSetApi implements denominator.ResourceRecordSet
 
     @Override
     public void replace(ResourceRecordSet<?> rrset) {
+        applyIfPresent(changesToReplace(rrset));
+    }
+
+    private Optional<ChangeBatch> changesToReplace(ResourceRecordSet<?> rrset) {
         ChangeBatch.Builder changes = ChangeBatch.builder();
 
         org.jclouds.route53.domain.ResourceRecordSet replacement = ToRoute53ResourceRecordSet.INSTANCE.apply(rrset);
@@ -143,13 +204,41 @@ final class Route53ResourceRecordSetApi implements denominator.ResourceRecordSet
         if (oldRRS.isPresent()) {
             if (oldRRS.get().getTTL().equals(replacement.getTTL())
                     && oldRRS.get().getValues().equals(replacement.getValues()))
-                return;
+                return Optional.absent();
             changes.delete(oldRRS.get());
         }
 
         changes.create(replacement);
 
-        route53RRsetApi.apply(changes.build());
+        return Optional.of(changes.build());
+    }
+
+    /**
+     * sends the delete of {@code expected} and create of {@code desired} as
+     * one change batch, without reading first. Route53 rejects the whole batch
+     * unless the delete matches the record set in the zone exactly.
+     */
+    @Override
+    public void replace(ResourceRecordSet<?> expected, ResourceRecordSet<?> desired) {
+        checkSameNameAndType(expected, desired);
+        checkArgument(expected.getTTL().isPresent(), "Route53 needs the ttl of expected %s to delete it", expected);
+        ChangeBatch changes = ChangeBatch.builder()
+                                         .delete(ToRoute53ResourceRecordSet.INSTANCE.apply(expected))
+                                         .create(ToRoute53ResourceRecordSet.INSTANCE.apply(desired)).build();
+        try {
+            route53RRsetApi.apply(changes);
+        } catch (InvalidChangeBatchException e) {
+            for (String message : e.getMessages()) {
+                // ex. Tried to delete resource record set [name='www.denominator.io.', type='A'] but it was not found
+                if (message.startsWith("Tried to delete")) {
+                    ResourceRecordSetConflictException conflict = new ResourceRecordSetConflictException(expected,
+                            Optional.<ResourceRecordSet<?>> absent());
+                    conflict.initCause(e);
+                    throw conflict;
+                }
+            }
+            throw e;
+        }
     }
 
     /**
@@ -159,67 +248,154 @@ final class Route53ResourceRecordSetApi implements denominator.ResourceRecordSet
      */
     @Override
     public void remove(ResourceRecordSet<?> rrset) {
+        applyIfPresent(changesToRemove(rrset));
+    }
+
+    private Optional<ChangeBatch> changesToRemove(ResourceRecordSet<?> rrset) {
         Optional<org.jclouds.route53.domain.ResourceRecordSet> oldRRS = filterRoute53RRSByNameAndType(rrset.getName(),
                 rrset.getType()).first();
         if (!oldRRS.isPresent())
-            return;
+            return Optional.absent();
 
         List<String> valuesToRemove = ImmutableList.copyOf(filter(oldRRS.get().getValues(), in(toTextFormat(rrset))));
         if (valuesToRemove.size() == 0)
-            return;
-
-        List<String> valuesToRetain = ImmutableList.copyOf(filter(oldRRS.get().getValues(), not(in(valuesToRemove))));
-        if (valuesToRetain.size() == 0) {
-            route53RRsetApi.delete(oldRRS.get());
-            return;
-        }
+            return Optional.absent();
 
         ChangeBatch.Builder changes = ChangeBatch.builder();
         changes.delete(oldRRS.get());
+
+        List<String> valuesToRetain = ImmutableList.copyOf(filter(oldRRS.get().getValues(), not(in(valuesToRemove))));
+        if (valuesToRetain.size() == 0)
+            return Optional.of(changes.build());
+
         changes.create(org.jclouds.route53.domain.ResourceRecordSet.builder()
                         .name(rrset.getName())
                         .type(rrset.getType())
                         .ttl(oldRRS.get().getTTL().get())
                         .addAll(valuesToRetain)
                         .build());
-        route53RRsetApi.apply(changes.build());
+        return Optional.of(changes.build());
     }
 
     @Override
     public void deleteByNameAndType(String name, String type) {
+        applyIfPresent(changesToDelete(name, type));
+    }
+
+    private Optional<ChangeBatch> changesToDelete(String name, String type) {
         Optional<org.jclouds.route53.domain.ResourceRecordSet> oldRRS = filterRoute53RRSByNameAndType(name, type)
                 .first();
         if (!oldRRS.isPresent())
-            return;
-        route53RRsetApi.delete(oldRRS.get());
+            return Optional.absent();
+        return Optional.of(ChangeBatch.builder().delete(oldRRS.get()).build());
+    }
+
+    /**
+     * Route53 rejects change batches with more than 100 changes.
+     */
+    static final int MAX_CHANGES_PER_BATCH = 100;
+
+    /**
+     * collects the changes for each rrset in the {@code batch} into as few
+     * {@link ChangeBatch change batches} as possible. Changes to the same rrset
+     * are never split across change batches.
+     */
+    @Override
+    public void apply(ResourceRecordSetBatch batch) {
+        checkNotNull(batch, "batch was null");
+        ChangeBatch.Builder changes = ChangeBatch.builder();
+        int changeCount = 0;
+        for (ResourceRecordSetBatch.Change change : batch) {
+            Optional<ChangeBatch> changesToRRSet = changesFor(change);
+            if (!changesToRRSet.isPresent())
+                continue;
+            if (changeCount + changesToRRSet.get().size() > MAX_CHANGES_PER_BATCH) {
+                route53RRsetApi.apply(changes.build());
+                changes = ChangeBatch.builder();
+                changeCount = 0;
+            }
+            for (ActionOnResourceRecordSet action : changesToRRSet.get()) {
+                if (action.getAction() == ChangeBatch.Action.DELETE) {
+                    changes.delete(action.getRRS());
+                } else {
+                    changes.create(action.getRRS());
+                }
+            }
+            changeCount += changesToRRSet.get().size();
+        }
+        if (changeCount > 0)
+            route53RRsetApi.apply(changes.build());
+    }
+
+    private Optional<ChangeBatch> changesFor(ResourceRecordSetBatch.Change change) {
+        switch (change.getAction()) {
+        case ADD:
+            return changesToAdd(change.getRRSet().get());
+        case REPLACE:
+            return changesToReplace(change.getRRSet().get());
+        case REMOVE:
+            return changesToRemove(change.getRRSet().get());
+        case DELETE:
+            return changesToDelete(change.getName(), change.getType());
+        }
+        throw new UnsupportedOperationException("unsupported action: " + change.getAction());
+    }
+
+    private void applyIfPresent(Optional<ChangeBatch> changes) {
+        if (changes.isPresent())
+            route53RRsetApi.apply(changes.get());
     }
 
     static final class Factory implements denominator.ResourceRecordSetApi.Factory {
 
         private final Route53Api api;
+        private final ZoneIdCache zoneIds;
+        private final Prefetch prefetch;
+        private final ListeningExecutorService executor;
 
         @Inject
-        Factory(Route53Api api) {
+        Factory(Route53Api api, ZoneIdCache zoneIds, Prefetch prefetch, ListeningExecutorService executor) {
             this.api = api;
+            this.zoneIds = zoneIds;
+            this.prefetch = prefetch;
+            this.executor = executor;
         }
 
         @Override
         public ResourceRecordSetApi create(final String zoneName) {
-            Optional<HostedZone> zone = api.getHostedZoneApi().list().concat().firstMatch(zoneNameEquals(zoneName));
-            checkArgument(zone.isPresent(), "zone %s not found", zoneName);
-            return new Route53ResourceRecordSetApi(api.getResourceRecordSetApiForHostedZone(zone.get().getId()));
+            Optional<String> zoneId = zoneIds.getId(zoneName);
+            checkArgument(zoneId.isPresent(), "zone %s not found", zoneName);
+            return new ZoneIdReloadingResourceRecordSetApi(this, zoneIds, zoneName, zoneId.get());
+        }
+
+        Route53ResourceRecordSetApi forZoneId(String zoneId) {
+            return new Route53ResourceRecordSetApi(api.getResourceRecordSetApiForHostedZone(zoneId), prefetch,
+                    executor);
         }
     }
 
     /**
-     * Amazon Hosted Zones are addressed by id, not by name.
+     * Amazon Hosted Zones are addressed by id, not by name. When more than one
+     * hosted zone has the same name, the first listed wins.
      */
-    private static final Predicate<HostedZone> zoneNameEquals(final String zoneName) {
-        checkNotNull(zoneName, "zoneName");
-        return new Predicate<HostedZone>() {
+    static Supplier<Map<String, String>> hostedZoneNameToId(final Route53Api api, final Prefetch prefetch,
+            final Executor executor) {
+        return new Supplier<Map<String, String>>() {
+            @Override
+            public Map<String, String> get() {
+                Map<String, String> zoneNameToId = Maps.newLinkedHashMap();
+                for (Iterator<HostedZone> zones = PrefetchingIterator.concat(api.getHostedZoneApi().list().iterator(),
+                        prefetch, executor); zones.hasNext();) {
+                    HostedZone zone = zones.next();
+                    if (!zoneNameToId.containsKey(zone.getName()))
+                        zoneNameToId.put(zone.getName(), zone.getId());
+                }
+                return zoneNameToId;
+            }
+
             @Override
-            public boolean apply(HostedZone input) {
-                return input.getName().equals(zoneName);
+            public String toString() {
+                return "HostedZoneNameToId(" + api + ")";
             }
         };
     }
@@ -8,18 +8,28 @@ import org.jclouds.route53.Route53Api;
 import org.jclouds.route53.domain.HostedZone;
 
 import com.google.common.base.Function;
+import com.google.common.collect.Iterators;
+import com.google.common.util.concurrent.ListeningExecutorService;
+
+import denominator.ListingConfiguration.Prefetch;
+import denominator.PrefetchingIterator;
 
 public final class Route53ZoneApi implements denominator.ZoneApi {
     private final Route53Api api;
+    private final Prefetch prefetch;
+    private final ListeningExecutorService executor;
 
     @Inject
-    Route53ZoneApi(Route53Api api) {
+    Route53ZoneApi(Route53Api api, Prefetch prefetch, ListeningExecutorService executor) {
         this.api = api;
+        this.prefetch = prefetch;
+        this.executor = executor;
     }
 
     @Override
     public Iterator<String> list() {
-        return api.getHostedZoneApi().list().concat().transform(ZoneName.INSTANCE).iterator();
+        return Iterators.transform(PrefetchingIterator.concat(api.getHostedZoneApi().list().iterator(), prefetch,
+                executor), ZoneName.INSTANCE);
     }
 
     private static enum ZoneName implements Function<HostedZone, String> {
@@ -0,0 +1,168 @@
+package denominator.route53;
+
+import static java.lang.String.format;
+
+import java.util.Iterator;
+
+import org.jclouds.aws.AWSResponseException;
+
+import com.google.common.base.Optional;
+import com.google.common.base.Throwables;
+
+import denominator.ForwardingResourceRecordSetApi;
+import denominator.ResourceRecordSetApi;
+import denominator.ResourceRecordSetBatch;
+import denominator.ZoneIdCache;
+import denominator.model.ResourceRecordSet;
+
+/**
+ * The id of a hosted zone is cached, so after the zone is deleted, requests
+ * fail with {@code NoSuchHostedZone}. When they do, this reloads the cache
+ * once. If the zone was recreated under the same name, the call is retried
+ * with its new id. Otherwise, it fails as the zone isn't found.
+ */
+final class ZoneIdReloadingResourceRecordSetApi extends ForwardingResourceRecordSetApi {
+    private final Route53ResourceRecordSetApi.Factory factory;
+    private final ZoneIdCache zoneIds;
+    private final String zoneName;
+    private volatile String zoneId;
+    private volatile ResourceRecordSetApi delegate;
+
+    ZoneIdReloadingResourceRecordSetApi(Route53ResourceRecordSetApi.Factory factory, ZoneIdCache zoneIds,
+            String zoneName, String zoneId) {
+        this.factory = factory;
+        this.zoneIds = zoneIds;
+        this.zoneName = zoneName;
+        this.zoneId = zoneId;
+        this.delegate = factory.forZoneId(zoneId);
+    }
+
+    @Override
+    protected ResourceRecordSetApi delegate() {
+        return delegate;
+    }
+
+    @Override
+    public Iterator<ResourceRecordSet<?>> list() {
+        try {
+            return super.list();
+        } catch (RuntimeException e) {
+            reloadOrPropagate(e);
+            return super.list();
+        }
+    }
+
+    @Override
+    public Iterator<ResourceRecordSet<?>> listByName(String name) {
+        try {
+            return super.listByName(name);
+        } catch (RuntimeException e) {
+            reloadOrPropagate(e);
+            return super.listByName(name);
+        }
+    }
+
+    @Override
+    public Optional<ResourceRecordSet<?>> getByNameAndType(String name, String type) {
+        try {
+            return super.getByNameAndType(name, type);
+        } catch (RuntimeException e) {
+            reloadOrPropagate(e);
+            return super.getByNameAndType(name, type);
+        }
+    }
+
+    @Override
+    public void add(ResourceRecordSet<?> rrset) {
+        try {
+            super.add(rrset);
+        } catch (RuntimeException e) {
+            reloadOrPropagate(e);
+            super.add(rrset);
+        }
+    }
+
+    @Override
+    public void applyTTLToNameAndType(int ttl, String name, String type) {
+        try {
+            super.applyTTLToNameAndType(ttl, name, type);
+        } catch (RuntimeException e) {
+            reloadOrPropagate(e);
+            super.applyTTLToNameAndType(ttl, name, type);
+        }
+    }
+
+    @Override
+    public void replace(ResourceRecordSet<?> rrset) {
+        try {
+            super.replace(rrset);
+        } catch (RuntimeException e) {
+            reloadOrPropagate(e);
+            super.replace(rrset);
+        }
+    }
+
+    @Override
+    public void replace(ResourceRecordSet<?> expected, ResourceRecordSet<?> desired) {
+        try {
+            super.replace(expected, desired);
+        } catch (RuntimeException e) {
+            reloadOrPropagate(e);
+            super.replace(expected, desired);
+        }
+    }
+
+    @Override
+    public void remove(ResourceRecordSet<?> rrset) {
+        try {
+            super.remove(rrset);
+        } catch (RuntimeException e) {
+            reloadOrPropagate(e);
+            super.remove(rrset);
+        }
+    }
+
+    @Override
+    public void deleteByNameAndType(String name, String type) {
+        try {
+            super.deleteByNameAndType(name, type);
+        } catch (RuntimeException e) {
+            reloadOrPropagate(e);
+            super.deleteByNameAndType(name, type);
+        }
+    }
+
+    @Override
+    public void apply(ResourceRecordSetBatch batch) {
+        try {
+            super.apply(batch);
+        } catch (RuntimeException e) {
+            reloadOrPropagate(e);
+            super.apply(batch);
+        }
+    }
+
+    /**
+     * returns normally if the zone has a new id, so the caller can retry.
+     * The failed request wasn't applied, so retrying a write is safe.
+     */
+    private void reloadOrPropagate(RuntimeException e) {
+        if (!noSuchHostedZone(e))
+            throw e;
+        zoneIds.invalidate();
+        Optional<String> reloaded = zoneIds.getId(zoneName);
+        if (!reloaded.isPresent() || reloaded.get().equals(zoneId))
+            throw new IllegalArgumentException(format("zone %s not found", zoneName), e);
+        zoneId = reloaded.get();
+        delegate = factory.forZoneId(zoneId);
+    }
+
+    private static boolean noSuchHostedZone(RuntimeException e) {
+        for (Throwable cause : Throwables.getCausalChain(e)) {
+            if (cause instanceof AWSResponseException
+                    && "NoSuchHostedZone".equals(AWSResponseException.class.cast(cause).getError().getCode()))
+                return true;
+        }
+        return false;
+    }
+}
@@ -3,23 +3,40 @@ package denominator.route53;
 import static denominator.CredentialsConfiguration.credentials;
 import static denominator.model.ResourceRecordSets.a;
 import static denominator.model.ResourceRecordSets.cname;
+import static denominator.model.ResourceRecordSets.txt;
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.fail;
 
 import java.io.IOException;
 import java.net.URL;
+import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.testng.annotations.Test;
 
 import com.google.common.base.Optional;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Iterators;
+import com.google.common.collect.ObjectArrays;
 import com.google.mockwebserver.MockResponse;
 import com.google.mockwebserver.MockWebServer;
 import com.google.mockwebserver.RecordedRequest;
 
+import dagger.Module;
+import dagger.Provides;
+import denominator.DNSApi;
+import denominator.DNSApiManager;
 import denominator.Denominator;
+import denominator.ListingConfiguration;
+import denominator.RequestLimiter;
 import denominator.ResourceRecordSetApi;
+import denominator.ResourceRecordSetBatch;
+import denominator.ResourceRecordSetConflictException;
+import denominator.config.RateLimitOperations;
+import denominator.metrics.InMemoryMetrics;
+import denominator.model.ResourceRecordSet;
 
 @Test(singleThreaded = true)
 public class Route53ResourceRecordSetApiMockTest {
@@ -51,6 +68,95 @@ public class Route53ResourceRecordSetApiMockTest {
         }
     }
 
+    String firstPage = "<ListResourceRecordSetsResponse><ResourceRecordSets><ResourceRecordSet><Name>www1.denominator.io.</Name><Type>A</Type><TTL>3600</TTL><ResourceRecords><ResourceRecord><Value>192.0.2.1</Value></ResourceRecord></ResourceRecords></ResourceRecordSet></ResourceRecordSets><IsTruncated>true</IsTruncated><NextRecordName>www2.denominator.io.</NextRecordName><NextRecordType>A</NextRecordType><MaxItems>1</MaxItems></ListResourceRecordSetsResponse>";
+    String secondPage = "<ListResourceRecordSetsResponse><ResourceRecordSets><ResourceRecordSet><Name>www2.denominator.io.</Name><Type>A</Type><TTL>3600</TTL><ResourceRecords><ResourceRecord><Value>192.0.2.2</Value></ResourceRecord></ResourceRecords></ResourceRecordSet></ResourceRecordSets><IsTruncated>false</IsTruncated><MaxItems>1</MaxItems></ListResourceRecordSetsResponse>";
+
+    String pageOfTwo = "<ListResourceRecordSetsResponse><ResourceRecordSets><ResourceRecordSet><Name>www1.denominator.io.</Name><Type>A</Type><TTL>3600</TTL><ResourceRecords><ResourceRecord><Value>192.0.2.1</Value></ResourceRecord></ResourceRecords></ResourceRecordSet><ResourceRecordSet><Name>www2.denominator.io.</Name><Type>A</Type><TTL>3600</TTL><ResourceRecords><ResourceRecord><Value>192.0.2.2</Value></ResourceRecord></ResourceRecords></ResourceRecordSet></ResourceRecordSets><IsTruncated>true</IsTruncated><NextRecordName>www3.denominator.io.</NextRecordName><NextRecordType>A</NextRecordType><MaxItems>2</MaxItems></ListResourceRecordSetsResponse>";
+    String lastPage = "<ListResourceRecordSetsResponse><ResourceRecordSets><ResourceRecordSet><Name>www3.denominator.io.</Name><Type>A</Type><TTL>3600</TTL><ResourceRecords><ResourceRecord><Value>192.0.2.3</Value></ResourceRecord></ResourceRecords></ResourceRecordSet></ResourceRecordSets><IsTruncated>false</IsTruncated><MaxItems>2</MaxItems></ListResourceRecordSetsResponse>";
+
+    /**
+     * The first page holds two record sets, so grouping the first doesn't need
+     * the second page. Only prefetching requests it before the consumer
+     * continues; without, {@code takeRequest} would block until the timeout.
+     */
+    @Test(timeOut = 10000)
+    public void listPrefetchesNextPage() throws IOException, InterruptedException {
+        MockWebServer server = new MockWebServer();
+        server.enqueue(new MockResponse().setResponseCode(200).setBody(hostedZones));
+        server.enqueue(new MockResponse().setResponseCode(200).setBody(pageOfTwo));
+        server.enqueue(new MockResponse().setResponseCode(200).setBody(lastPage));
+        server.play();
+
+        try {
+            ResourceRecordSetApi api = mockDNSApi(server.getUrl("/"), ListingConfiguration.prefetch(1))
+                    .getResourceRecordSetApiForZone("denominator.io.");
+            Iterator<ResourceRecordSet<?>> list = api.list();
+            assertEquals(list.next(), a("www1.denominator.io.", 3600, "192.0.2.1"));
+
+            // the consumer is blocked here, yet the next page was requested
+            server.takeRequest();
+            assertEquals(server.takeRequest().getRequestLine(),
+                    "GET /2012-02-29/hostedzone/Z1PA6795UKMFR9/rrset HTTP/1.1");
+            assertEquals(server.takeRequest().getRequestLine(),
+                    "GET /2012-02-29/hostedzone/Z1PA6795UKMFR9/rrset?name=www3.denominator.io.&type=A HTTP/1.1");
+
+            assertEquals(ImmutableList.copyOf(list),
+                    ImmutableList.of(a("www2.denominator.io.", 3600, "192.0.2.2"),
+                            a("www3.denominator.io.", 3600, "192.0.2.3")));
+            assertEquals(server.getRequestCount(), 3);
+        } finally {
+            server.shutdown();
+        }
+    }
+
+    @Test
+    public void listTakesAPermitPerRequest() throws IOException, InterruptedException {
+        MockWebServer server = new MockWebServer();
+        server.enqueue(new MockResponse().setResponseCode(200).setBody(hostedZones));
+        server.enqueue(new MockResponse().setResponseCode(200).setBody(firstPage));
+        server.enqueue(new MockResponse().setResponseCode(200).setBody(secondPage));
+        server.play();
+
+        try {
+            CountRequests requests = new CountRequests();
+            ResourceRecordSetApi api = mockDNSApi(server.getUrl("/"), requests)
+                    .getResourceRecordSetApiForZone("denominator.io.");
+            assertEquals(Iterators.size(api.list()), 2);
+
+            assertEquals(server.getRequestCount(), 3);
+            assertEquals(requests.count.get(), 3);
+        } finally {
+            server.shutdown();
+        }
+    }
+
+    String throttled = "<ErrorResponse xmlns=\"https://route53.amazonaws.com/doc/2012-02-29/\"><Error><Type>Sender</Type><Code>Throttling</Code><Message>Rate exceeded</Message></Error><RequestId>b4b8b6c1-8d6a-11e2-b3a5-7d4f5fe9a4c1</RequestId></ErrorResponse>";
+
+    @Test
+    public void throttlingSlowsRequests() throws IOException, InterruptedException {
+        MockWebServer server = new MockWebServer();
+        server.enqueue(new MockResponse().setResponseCode(200).setBody(hostedZones));
+        server.enqueue(new MockResponse().setResponseCode(400).setBody(throttled));
+        server.play();
+
+        try {
+            InMemoryMetrics metrics = new InMemoryMetrics();
+            ResourceRecordSetApi api = Denominator.create(new Route53Provider(server.getUrl("/").toString()),
+                    credentials("accessKey", "secretKey"),
+                    RateLimitOperations.builder().permitsPerSecond(10).metrics(metrics).build()).getApi()
+                    .getResourceRecordSetApiForZone("denominator.io.");
+            try {
+                api.list().next();
+                fail();
+            } catch (RuntimeException e) {
+            }
+            // recovering from 5.0 a tenth each second
+            assertEquals(metrics.getGauge("route53", "RateLimit.permitsPerSecond").get().value(), 5.0, 0.1);
+        } finally {
+            server.shutdown();
+        }
+    }
+
     @Test
     public void listByNameWeightedRecordSubsetsAggregateOnNameAndType() throws IOException, InterruptedException {
         MockWebServer server = new MockWebServer();
@@ -101,6 +207,109 @@ public class Route53ResourceRecordSetApiMockTest {
         }
     }
 
+    @Test
+    public void hostedZoneIdIsCachedAcrossApis() throws IOException, InterruptedException {
+        MockWebServer server = new MockWebServer();
+        server.enqueue(new MockResponse().setResponseCode(200).setBody(hostedZones));
+        server.enqueue(new MockResponse().setResponseCode(200).setBody(weightedRecords));
+        server.enqueue(new MockResponse().setResponseCode(200).setBody(weightedRecords));
+        server.play();
+
+        try {
+            DNSApi api = mockDNSApi(server.getUrl("/"));
+            api.getResourceRecordSetApiForZone("denominator.io.").list().next();
+            api.getResourceRecordSetApiForZone("denominator.io.").list().next();
+
+            assertEquals(server.getRequestCount(), 3);
+
+            RecordedRequest listHostedZones = server.takeRequest();
+            assertEquals(listHostedZones.getRequestLine(), "GET /2012-02-29/hostedzone HTTP/1.1");
+            assertEquals(server.takeRequest().getRequestLine(), "GET /2012-02-29/hostedzone/Z1PA6795UKMFR9/rrset HTTP/1.1");
+            assertEquals(server.takeRequest().getRequestLine(), "GET /2012-02-29/hostedzone/Z1PA6795UKMFR9/rrset HTTP/1.1");
+        } finally {
+            server.shutdown();
+        }
+    }
+
+    String noHostedZones = "<ListHostedZonesResponse><HostedZones></HostedZones></ListHostedZonesResponse>";
+
+    @Test
+    public void hostedZoneCreatedAfterFirstLookupIsFound() throws IOException, InterruptedException {
+        MockWebServer server = new MockWebServer();
+        server.enqueue(new MockResponse().setResponseCode(200).setBody(noHostedZones));
+        server.enqueue(new MockResponse().setResponseCode(200).setBody(hostedZones));
+        server.enqueue(new MockResponse().setResponseCode(200).setBody(weightedRecords));
+        server.play();
+
+        try {
+            DNSApi api = mockDNSApi(server.getUrl("/"));
+            try {
+                api.getResourceRecordSetApiForZone("denominator.io.");
+                fail();
+            } catch (IllegalArgumentException e) {
+                assertEquals(e.getMessage(), "zone denominator.io. not found");
+            }
+            // a miss reloads the listing
+            api.getResourceRecordSetApiForZone("denominator.io.").list().next();
+
+            assertEquals(server.getRequestCount(), 3);
+            assertEquals(server.takeRequest().getRequestLine(), "GET /2012-02-29/hostedzone HTTP/1.1");
+            assertEquals(server.takeRequest().getRequestLine(), "GET /2012-02-29/hostedzone HTTP/1.1");
+            assertEquals(server.takeRequest().getRequestLine(), "GET /2012-02-29/hostedzone/Z1PA6795UKMFR9/rrset HTTP/1.1");
+        } finally {
+            server.shutdown();
+        }
+    }
+
+    String noSuchHostedZone = "<ErrorResponse xmlns=\"https://route53.amazonaws.com/doc/2012-02-29/\"><Error><Type>Sender</Type><Code>NoSuchHostedZone</Code><Message>No hosted zone found with ID: Z1PA6795UKMFR9</Message></Error><RequestId>9ba6d8d0-ee6c-11e2-8d0a-5b4bd1e2bcd6</RequestId></ErrorResponse>";
+    String recreatedHostedZones = "<ListHostedZonesResponse><HostedZones><HostedZone><Id>/hostedzone/Z2RECREATED</Id><Name>denominator.io.</Name><CallerReference>denomination2</CallerReference><Config><Comment>no comment</Comment></Config><ResourceRecordSetCount>2</ResourceRecordSetCount></HostedZone></HostedZones></ListHostedZonesResponse>";
+
+    @Test
+    public void deletedHostedZoneReloadsIdAndRetries() throws IOException, InterruptedException {
+        MockWebServer server = new MockWebServer();
+        server.enqueue(new MockResponse().setResponseCode(200).setBody(hostedZones));
+        server.enqueue(new MockResponse().setResponseCode(404).setBody(noSuchHostedZone));
+        server.enqueue(new MockResponse().setResponseCode(200).setBody(recreatedHostedZones));
+        server.enqueue(new MockResponse().setResponseCode(200).setBody(weightedRecords));
+        server.play();
+
+        try {
+            ResourceRecordSetApi api = mockApi(server.getUrl("/"));
+            assertEquals(api.list().next().getName(), "www.denominator.io.");
+
+            assertEquals(server.getRequestCount(), 4);
+            assertEquals(server.takeRequest().getRequestLine(), "GET /2012-02-29/hostedzone HTTP/1.1");
+            assertEquals(server.takeRequest().getRequestLine(), "GET /2012-02-29/hostedzone/Z1PA6795UKMFR9/rrset HTTP/1.1");
+            assertEquals(server.takeRequest().getRequestLine(), "GET /2012-02-29/hostedzone HTTP/1.1");
+            assertEquals(server.takeRequest().getRequestLine(), "GET /2012-02-29/hostedzone/Z2RECREATED/rrset HTTP/1.1");
+        } finally {
+            server.shutdown();
+        }
+    }
+
+    @Test
+    public void deletedHostedZoneIsNotFound() throws IOException, InterruptedException {
+        MockWebServer server = new MockWebServer();
+        server.enqueue(new MockResponse().setResponseCode(200).setBody(hostedZones));
+        server.enqueue(new MockResponse().setResponseCode(404).setBody(noSuchHostedZone));
+        server.enqueue(new MockResponse().setResponseCode(200).setBody(noHostedZones));
+        server.play();
+
+        try {
+            ResourceRecordSetApi api = mockApi(server.getUrl("/"));
+            try {
+                api.list();
+                fail();
+            } catch (IllegalArgumentException e) {
+                assertEquals(e.getMessage(), "zone denominator.io. not found");
+            }
+
+            assertEquals(server.getRequestCount(), 3);
+        } finally {
+            server.shutdown();
+        }
+    }
+
     String noRecords = "<ListResourceRecordSetsResponse><ResourceRecordSets></ResourceRecordSets></ListResourceRecordSetsResponse>";
     String createARecordSet = "<ChangeResourceRecordSetsRequest xmlns=\"https://route53.amazonaws.com/doc/2012-02-29/\"><ChangeBatch><Changes><Change><Action>CREATE</Action><ResourceRecordSet><Name>www.denominator.io.</Name><Type>A</Type><TTL>3600</TTL><ResourceRecords><ResourceRecord><Value>192.0.2.1</Value></ResourceRecord></ResourceRecords></ResourceRecordSet></Change></Changes></ChangeBatch></ChangeResourceRecordSetsRequest>";
     String changeSynced = "<GetChangeResponse><ChangeInfo><Id>/change/C2682N5HXP0BZ4</Id><Status>INSYNC</Status><SubmittedAt>2011-09-10T01:36:41.958Z</SubmittedAt></ChangeInfo></GetChangeResponse>";
@@ -388,6 +597,51 @@ public class Route53ResourceRecordSetApiMockTest {
         }
     }
 
+    String aRecordThenTruncated = "<ListResourceRecordSetsResponse><ResourceRecordSets><ResourceRecordSet><Name>www.denominator.io.</Name><Type>A</Type><TTL>3600</TTL><ResourceRecords><ResourceRecord><Value>192.0.2.1</Value></ResourceRecord></ResourceRecords></ResourceRecordSet></ResourceRecordSets><IsTruncated>true</IsTruncated><NextRecordName>www.denominator.io.</NextRecordName><NextRecordType>TXT</NextRecordType><MaxItems>1</MaxItems></ListResourceRecordSetsResponse>";
+    String txtRecordThenNextName = "<ListResourceRecordSetsResponse><ResourceRecordSets><ResourceRecordSet><Name>www.denominator.io.</Name><Type>TXT</Type><TTL>3600</TTL><ResourceRecords><ResourceRecord><Value>\"hello\"</Value></ResourceRecord></ResourceRecords></ResourceRecordSet><ResourceRecordSet><Name>www1.denominator.io.</Name><Type>A</Type><TTL>3600</TTL><ResourceRecords><ResourceRecord><Value>192.0.2.1</Value></ResourceRecord></ResourceRecords></ResourceRecordSet></ResourceRecordSets><IsTruncated>true</IsTruncated><NextRecordName>www2.denominator.io.</NextRecordName><NextRecordType>A</NextRecordType><MaxItems>2</MaxItems></ListResourceRecordSetsResponse>";
+
+    @Test
+    public void listByNameFollowsPagesUntilNameChanges() throws IOException, InterruptedException {
+        MockWebServer server = new MockWebServer();
+        server.enqueue(new MockResponse().setResponseCode(200).setBody(hostedZones));
+        server.enqueue(new MockResponse().setResponseCode(200).setBody(aRecordThenTruncated));
+        server.enqueue(new MockResponse().setResponseCode(200).setBody(txtRecordThenNextName));
+        server.play();
+
+        try {
+            ResourceRecordSetApi api = mockApi(server.getUrl("/"));
+            assertEquals(ImmutableList.copyOf(api.listByName("www.denominator.io.")), ImmutableList.of(
+                    a("www.denominator.io.", 3600, "192.0.2.1"), txt("www.denominator.io.", 3600, "hello")));
+
+            assertEquals(server.getRequestCount(), 3);
+
+            server.takeRequest();
+            assertEquals(server.takeRequest().getRequestLine(),
+                    "GET /2012-02-29/hostedzone/Z1PA6795UKMFR9/rrset?name=www.denominator.io. HTTP/1.1");
+            assertEquals(server.takeRequest().getRequestLine(),
+                    "GET /2012-02-29/hostedzone/Z1PA6795UKMFR9/rrset?name=www.denominator.io.&type=TXT HTTP/1.1");
+        } finally {
+            server.shutdown();
+        }
+    }
+
+    @Test
+    public void getByNameAndTypeWhenAbsentDoesntFollowPages() throws IOException, InterruptedException {
+        MockWebServer server = new MockWebServer();
+        server.enqueue(new MockResponse().setResponseCode(200).setBody(hostedZones));
+        server.enqueue(new MockResponse().setResponseCode(200).setBody(txtRecordThenNextName));
+        server.play();
+
+        try {
+            ResourceRecordSetApi api = mockApi(server.getUrl("/"));
+            assertEquals(api.getByNameAndType("www.denominator.io.", "SRV"), Optional.absent());
+
+            assertEquals(server.getRequestCount(), 2);
+        } finally {
+            server.shutdown();
+        }
+    }
+
     @Test
     public void getByNameAndTypeWhenPresent() throws IOException, InterruptedException {
         MockWebServer server = new MockWebServer();
@@ -490,6 +744,53 @@ public class Route53ResourceRecordSetApiMockTest {
         }
     }
 
+    @Test
+    public void replaceExpectedRecordSetDoesntReadFirst() throws IOException, InterruptedException {
+        MockWebServer server = new MockWebServer();
+        server.enqueue(new MockResponse().setResponseCode(200).setBody(hostedZones));
+        server.enqueue(new MockResponse().setResponseCode(200).setBody(changeSynced));
+        server.play();
+
+        try {
+            ResourceRecordSetApi api = mockApi(server.getUrl("/"));
+            api.replace(a("www.denominator.io.", 3600, "192.0.2.1"),
+                    a("www.denominator.io.", 10000000, ImmutableSet.of("192.0.2.1", "198.51.100.1")));
+
+            assertEquals(server.getRequestCount(), 2);
+
+            RecordedRequest listHostedZones = server.takeRequest();
+            assertEquals(listHostedZones.getRequestLine(), "GET /2012-02-29/hostedzone HTTP/1.1");
+
+            RecordedRequest createRRSet = server.takeRequest();
+            assertEquals(createRRSet.getRequestLine(), "POST /2012-02-29/hostedzone/Z1PA6795UKMFR9/rrset HTTP/1.1");
+            assertEquals(new String(createRRSet.getBody()), replaceWith2ElementRecordSetOverridingTTL);
+        } finally {
+            server.shutdown();
+        }
+    }
+
+    String deleteDoesntMatch = "<InvalidChangeBatch xmlns=\"https://route53.amazonaws.com/doc/2012-02-29/\"><Messages><Message>Tried to delete resource record set [name='www.denominator.io.', type='A'] but the values provided do not match the current values</Message></Messages></InvalidChangeBatch>";
+
+    @Test
+    public void replaceExpectedRecordSetConflictsWhenStale() throws IOException, InterruptedException {
+        MockWebServer server = new MockWebServer();
+        server.enqueue(new MockResponse().setResponseCode(200).setBody(hostedZones));
+        server.enqueue(new MockResponse().setResponseCode(400).setBody(deleteDoesntMatch));
+        server.play();
+
+        ResourceRecordSet<?> expected = a("www.denominator.io.", 3600, "192.0.2.1");
+        try {
+            ResourceRecordSetApi api = mockApi(server.getUrl("/"));
+            api.replace(expected, a("www.denominator.io.", 10000000, ImmutableSet.of("192.0.2.1", "198.51.100.1")));
+            fail();
+        } catch (ResourceRecordSetConflictException e) {
+            assertEquals(e.getExpected(), expected);
+            assertFalse(e.getCurrent().isPresent());
+        } finally {
+            server.shutdown();
+        }
+    }
+
     @Test
     public void removeAbsentRecordDoesNothing() throws IOException, InterruptedException {
         MockWebServer server = new MockWebServer();
@@ -569,12 +870,86 @@ public class Route53ResourceRecordSetApiMockTest {
         }
     }
 
+    String createAndDeleteInOneChangeBatch = "<ChangeResourceRecordSetsRequest xmlns=\"https://route53.amazonaws.com/doc/2012-02-29/\"><ChangeBatch><Changes><Change><Action>CREATE</Action><ResourceRecordSet><Name>www2.denominator.io.</Name><Type>A</Type><TTL>3600</TTL><ResourceRecords><ResourceRecord><Value>192.0.2.1</Value></ResourceRecord></ResourceRecords></ResourceRecordSet></Change><Change><Action>DELETE</Action><ResourceRecordSet><Name>www.denominator.io.</Name><Type>A</Type><TTL>3600</TTL><ResourceRecords><ResourceRecord><Value>192.0.2.1</Value></ResourceRecord><ResourceRecord><Value>198.51.100.1</Value></ResourceRecord></ResourceRecords></ResourceRecordSet></Change></Changes></ChangeBatch></ChangeResourceRecordSetsRequest>";
+
+    @Test
+    public void applyBatchSendsOneChangeBatch() throws IOException, InterruptedException {
+        MockWebServer server = new MockWebServer();
+        server.enqueue(new MockResponse().setResponseCode(200).setBody(hostedZones));
+        server.enqueue(new MockResponse().setResponseCode(200).setBody(noRecords));
+        server.enqueue(new MockResponse().setResponseCode(200).setBody(twoRecords));
+        server.enqueue(new MockResponse().setResponseCode(200).setBody(changeSynced));
+        server.play();
+
+        try {
+            ResourceRecordSetApi api = mockApi(server.getUrl("/"));
+            api.apply(ResourceRecordSetBatch.builder()
+                                            .add(a("www2.denominator.io.", 3600, "192.0.2.1"))
+                                            .deleteByNameAndType("www.denominator.io.", "A").build());
+
+            assertEquals(server.getRequestCount(), 4);
+
+            RecordedRequest listHostedZones = server.takeRequest();
+            assertEquals(listHostedZones.getRequestLine(), "GET /2012-02-29/hostedzone HTTP/1.1");
+
+            RecordedRequest listNameAndType = server.takeRequest();
+            assertEquals(listNameAndType.getRequestLine(),
+                    "GET /2012-02-29/hostedzone/Z1PA6795UKMFR9/rrset?name=www2.denominator.io.&type=A HTTP/1.1");
+
+            listNameAndType = server.takeRequest();
+            assertEquals(listNameAndType.getRequestLine(),
+                    "GET /2012-02-29/hostedzone/Z1PA6795UKMFR9/rrset?name=www.denominator.io.&type=A HTTP/1.1");
+
+            RecordedRequest changeRRSets = server.takeRequest();
+            assertEquals(changeRRSets.getRequestLine(), "POST /2012-02-29/hostedzone/Z1PA6795UKMFR9/rrset HTTP/1.1");
+            assertEquals(new String(changeRRSets.getBody()), createAndDeleteInOneChangeBatch);
+        } finally {
+            server.shutdown();
+        }
+    }
+
+    @Test
+    public void applyBatchWithNoChangesDoesNothing() throws IOException, InterruptedException {
+        MockWebServer server = new MockWebServer();
+        server.enqueue(new MockResponse().setResponseCode(200).setBody(hostedZones));
+        server.enqueue(new MockResponse().setResponseCode(200).setBody(oneRecord));
+        server.play();
+
+        try {
+            ResourceRecordSetApi api = mockApi(server.getUrl("/"));
+            api.apply(ResourceRecordSetBatch.builder().deleteByNameAndType("www1.denominator.io.", "A").build());
+
+            assertEquals(server.getRequestCount(), 2);
+        } finally {
+            server.shutdown();
+        }
+    }
+
+    @Module(injects = DNSApiManager.class, complete = false, library = true, overrides = true)
+    static final class CountRequests {
+        final AtomicInteger count = new AtomicInteger();
+
+        @Provides
+        RequestLimiter provideRequestLimiter() {
+            return new RequestLimiter() {
+                @Override
+                public void acquire() {
+                    count.incrementAndGet();
+                }
+            };
+        }
+    }
+
     private static ResourceRecordSetApi mockApi(final URL url) {
+        return mockDNSApi(url).getResourceRecordSetApiForZone("denominator.io.");
+    }
+
+    private static DNSApi mockDNSApi(final URL url, Object... modules) {
         return Denominator.create(new Route53Provider() {
             @Override
             public String getUrl() {
                 return url.toString();
             }
-        }, credentials("accessKey", "secretKey")).getApi().getResourceRecordSetApiForZone("denominator.io.");
+        }, ObjectArrays.concat(credentials("accessKey", "secretKey"), modules)).getApi();
     }
 }
@@ -0,0 +1,73 @@
+package denominator.ultradns;
+
+import static denominator.ExternalSort.readString;
+import static denominator.ExternalSort.writeString;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Date;
+import java.util.List;
+
+import org.jclouds.ultradns.ws.domain.ResourceRecord;
+import org.jclouds.ultradns.ws.domain.ResourceRecordDetail;
+
+import com.google.common.collect.Lists;
+
+import denominator.ExternalSort;
+
+/**
+ * writes the fields {@link UltraDNSResourceRecordSetApi} sorts and groups
+ * records by, so that they can be sorted in runs on disk.
+ */
+enum ResourceRecordDetailCodec implements ExternalSort.Codec<ResourceRecordDetail> {
+    INSTANCE;
+
+    @Override
+    public void write(ResourceRecordDetail record, DataOutput out) throws IOException {
+        writeString(out, record.getZoneId());
+        writeString(out, record.getZoneName());
+        writeString(out, record.getGuid());
+        writeDate(out, record.getCreated());
+        writeDate(out, record.getModified());
+        ResourceRecord rr = record.getRecord();
+        writeString(out, rr.getName());
+        out.writeInt(rr.getType());
+        out.writeInt(rr.getTTL());
+        List<String> rdata = rr.getRData();
+        out.writeInt(rdata.size());
+        for (String part : rdata) {
+            writeString(out, part);
+        }
+    }
+
+    @Override
+    public ResourceRecordDetail read(DataInput in) throws IOException {
+        ResourceRecordDetail.Builder builder = ResourceRecordDetail.builder()
+                                                                   .zoneId(readString(in))
+                                                                   .zoneName(readString(in))
+                                                                   .guid(readString(in))
+                                                                   .created(readDate(in))
+                                                                   .modified(readDate(in));
+        ResourceRecord.Builder rr = ResourceRecord.rrBuilder()
+                                                  .name(readString(in))
+                                                  .type(in.readInt())
+                                                  .ttl(in.readInt());
+        int size = in.readInt();
+        List<String> rdata = Lists.newArrayListWithCapacity(size);
+        for (int i = 0; i < size; i++) {
+            rdata.add(readString(in));
+        }
+        return builder.record(rr.rdata(rdata)).build();
+    }
+
+    private static void writeDate(DataOutput out, Date date) throws IOException {
+        out.writeBoolean(date != null);
+        if (date != null)
+            out.writeLong(date.getTime());
+    }
+
+    private static Date readDate(DataInput in) throws IOException {
+        return in.readBoolean() ? new Date(in.readLong()) : null;
+    }
+}
@@ -34,10 +34,14 @@ import denominator.BasicProvider;
 import denominator.Credentials;
 import denominator.Credentials.ListCredentials;
 import denominator.DNSApiManager;
+import denominator.ListingConfiguration.Order;
+import denominator.ListingConfiguration.SortBuffer;
 import denominator.Provider;
+import denominator.RequestLimiter;
 import denominator.ResourceRecordSetApi;
 import denominator.ZoneApi;
 import denominator.config.ConcatNormalAndGeoResourceRecordSets;
+import denominator.jclouds.LimitHttpRequests;
 
 public class UltraDNSProvider extends BasicProvider {
     private final String url;
@@ -74,7 +78,8 @@ public class UltraDNSProvider extends BasicProvider {
         @Provides
         @Singleton
         // Dynamic name updates are not currently possible in jclouds.
-        UltraDNSWSApi provideApi(ConvertToJcloudsCredentials credentials, final Provider provider) {
+        UltraDNSWSApi provideApi(ConvertToJcloudsCredentials credentials, final Provider provider,
+                RequestLimiter limiter) {
             Properties overrides = new Properties();
             // disable url caching
             overrides.setProperty(PROPERTY_SESSION_INTERVAL, "0");
@@ -84,6 +89,7 @@ public class UltraDNSProvider extends BasicProvider {
                                  .overrides(overrides)
                                  .modules(ImmutableSet.<com.google.inject.Module> builder()
                                                       .add(new SLF4JLoggingModule())
+                                                      .add(new LimitHttpRequests(limiter))
                                                       .add(new ExecutorServiceModule(sameThreadExecutor(),
                                                                                      sameThreadExecutor()))
                                                       .add(new com.google.inject.AbstractModule() {
@@ -150,8 +156,9 @@ public class UltraDNSProvider extends BasicProvider {
 
         @Provides
         @Singleton
-        ResourceRecordSetApi.Factory provideResourceRecordSetApiFactory(UltraDNSWSApi api) {
-            return new UltraDNSResourceRecordSetApi.Factory(api);
+        ResourceRecordSetApi.Factory provideResourceRecordSetApiFactory(UltraDNSWSApi api, Order order,
+                SortBuffer sortBuffer) {
+            return new UltraDNSResourceRecordSetApi.Factory(api, order, sortBuffer);
         }
 
         @Provides
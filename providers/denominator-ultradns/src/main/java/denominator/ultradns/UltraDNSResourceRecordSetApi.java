@@ -2,7 +2,10 @@ package denominator.ultradns;
 
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.collect.Iterators.transform;
 import static com.google.common.collect.Lists.newArrayList;
+import static denominator.ResourceRecordSetConflictException.checkCurrent;
+import static denominator.ResourceRecordSetConflictException.checkSameNameAndType;
 import static denominator.ultradns.UltraDNSFunctions.toRdataMap;
 
 import java.util.Iterator;
@@ -16,11 +19,19 @@ import org.jclouds.ultradns.ws.domain.ResourceRecord;
 import org.jclouds.ultradns.ws.domain.ResourceRecordDetail;
 import org.jclouds.ultradns.ws.features.ResourceRecordApi;
 
+import com.google.common.base.Function;
 import com.google.common.base.Optional;
 import com.google.common.collect.ComparisonChain;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import com.google.common.collect.Ordering;
 
+import denominator.ExternalSort;
+import denominator.ListingConfiguration.Order;
+import denominator.ListingConfiguration.SortBuffer;
 import denominator.ResourceRecordSetApi;
+import denominator.ResourceRecordSetBatch;
 import denominator.ResourceTypeToValue;
 import denominator.model.ResourceRecordSet;
 
@@ -28,33 +39,67 @@ public final class UltraDNSResourceRecordSetApi implements denominator.ResourceR
 
     private final ResourceRecordApi api;
     private final UltraDNSRoundRobinPoolApi roundRobinPoolApi;
+    private final Order order;
+    private final SortBuffer sortBuffer;
 
-    UltraDNSResourceRecordSetApi(ResourceRecordApi api, UltraDNSRoundRobinPoolApi roundRobinPoolApi) {
+    UltraDNSResourceRecordSetApi(ResourceRecordApi api, UltraDNSRoundRobinPoolApi roundRobinPoolApi, Order order,
+            SortBuffer sortBuffer) {
         this.api = api;
         this.roundRobinPoolApi = roundRobinPoolApi;
+        this.order = order;
+        this.sortBuffer = sortBuffer;
     }
 
     @Override
     public Iterator<ResourceRecordSet<?>> list() {
         // this will list all normal or RR pool records.
-        Iterator<ResourceRecordDetail> orderedRecords = api.list().toSortedList(byNameTypeAndCreateDate).iterator();
-        return new GroupByRecordNameAndTypeIterator(orderedRecords);
+        return groupByRecordNameAndType(api.list());
     }
 
     @Override
     public Iterator<ResourceRecordSet<?>> listByName(String name) {
         checkNotNull(name, "name");
-        Iterator<ResourceRecordDetail> orderedRecords = api.listByName(name)
-                .toSortedList(byNameTypeAndCreateDate).iterator();
-        return new GroupByRecordNameAndTypeIterator(orderedRecords);
+        return groupByRecordNameAndType(api.listByName(name));
     }
 
+    private Iterator<ResourceRecordSet<?>> groupByRecordNameAndType(Iterable<ResourceRecordDetail> records) {
+        if (order == Order.SORTED)
+            return new GroupByRecordNameAndTypeIterator(ExternalSort.sort(records.iterator(), byNameTypeAndCreateDate,
+                    ResourceRecordDetailCodec.INSTANCE, sortBuffer.maxRecords()));
+        Map<List<Object>, List<ResourceRecordDetail>> byNameAndType = Maps.newLinkedHashMap();
+        for (ResourceRecordDetail record : records) {
+            List<Object> nameAndType = ImmutableList.<Object> of(record.getRecord().getName(),
+                    record.getRecord().getType());
+            List<ResourceRecordDetail> group = byNameAndType.get(nameAndType);
+            if (group == null)
+                byNameAndType.put(nameAndType, group = Lists.newArrayListWithCapacity(1));
+            group.add(record);
+        }
+        return transform(byNameAndType.values().iterator(), groupToRRSet);
+    }
+
+    /**
+     * groups are small, so sorting them keeps rdata in the same order as
+     * {@link Order#SORTED} at little cost.
+     */
+    private static final Function<List<ResourceRecordDetail>, ResourceRecordSet<?>> groupToRRSet =
+            new Function<List<ResourceRecordDetail>, ResourceRecordSet<?>>() {
+                @Override
+                public ResourceRecordSet<?> apply(List<ResourceRecordDetail> group) {
+                    return new GroupByRecordNameAndTypeIterator(byNameTypeAndCreateDate.sortedCopy(group).iterator())
+                            .next();
+                }
+            };
+
     @Override
     public Optional<ResourceRecordSet<?>> getByNameAndType(String name, String type) {
         checkNotNull(name, "name");
         checkNotNull(type, "type");
-        Iterator<ResourceRecordDetail> orderedRecords = referencesByNameAndType(name, type).iterator();
-        Iterator<ResourceRecordSet<?>> rrset = new GroupByRecordNameAndTypeIterator(orderedRecords);
+        return toRRSet(referencesByNameAndType(name, type));
+    }
+
+    private static Optional<ResourceRecordSet<?>> toRRSet(List<ResourceRecordDetail> orderedRecords) {
+        Iterator<ResourceRecordSet<?>> rrset = new GroupByRecordNameAndTypeIterator(orderedRecords.iterator());
         if (rrset.hasNext())
             return Optional.<ResourceRecordSet<?>> of(rrset.next());
         return Optional.<ResourceRecordSet<?>> absent();
@@ -122,9 +167,25 @@ public final class UltraDNSResourceRecordSetApi implements denominator.ResourceR
     public void replace(ResourceRecordSet<?> rrset) {
         checkNotNull(rrset, "rrset was null");
         checkArgument(!rrset.isEmpty(), "rrset was empty %s", rrset);
-        int ttlToApply = rrset.getTTL().or(defaultTTL);
+        replace(rrset, referencesByNameAndType(rrset.getName(), rrset.getType()));
+    }
 
-        List<ResourceRecordDetail> references = referencesByNameAndType(rrset.getName(), rrset.getType());
+    /**
+     * UltraDNS can't compare on the server, so this compares against the
+     * records read to make the change, which isn't atomic, but costs no more
+     * round trips than {@link #replace(ResourceRecordSet)}.
+     */
+    @Override
+    public void replace(ResourceRecordSet<?> expected, ResourceRecordSet<?> desired) {
+        checkSameNameAndType(expected, desired);
+        checkArgument(!desired.isEmpty(), "desired was empty %s", desired);
+        List<ResourceRecordDetail> references = referencesByNameAndType(desired.getName(), desired.getType());
+        checkCurrent(expected, toRRSet(references));
+        replace(desired, references);
+    }
+
+    private void replace(ResourceRecordSet<?> rrset, List<ResourceRecordDetail> references) {
+        int ttlToApply = rrset.getTTL().or(defaultTTL);
 
         List<Map<String, Object>> recordsLeftToCreate = newArrayList(rrset);
 
@@ -194,6 +255,17 @@ public final class UltraDNSResourceRecordSetApi implements denominator.ResourceR
         }
     }
 
+    /**
+     * no native batching, so changes apply sequentially.
+     */
+    @Override
+    public void apply(ResourceRecordSetBatch batch) {
+        checkNotNull(batch, "batch was null");
+        batch.applySequentially(this);
+    }
+
+    private static final Ordering<Iterable<String>> byRData = Ordering.<String> natural().lexicographical();
+
     private static final Ordering<ResourceRecordDetail> byNameTypeAndCreateDate = new Ordering<ResourceRecordDetail>() {
 
         @Override
@@ -206,8 +278,7 @@ public final class UltraDNSResourceRecordSetApi implements denominator.ResourceR
                                   // UMP-5803 the order returned in getResourceRecordsOfZoneResponse 
                                   // is different than getResourceRecordsOfDNameByTypeResponse.
                                   // We fallback to ordering by rdata to ensure consistent ordering.
-                                  .compare(left.getRecord().getRData().toString(),
-                                          right.getRecord().getRData().toString())
+                                  .compare(left.getRecord().getRData(), right.getRecord().getRData(), byRData)
                                   .result();
         }
 
@@ -216,16 +287,20 @@ public final class UltraDNSResourceRecordSetApi implements denominator.ResourceR
     static final class Factory implements denominator.ResourceRecordSetApi.Factory {
 
         private final UltraDNSWSApi api;
+        private final Order order;
+        private final SortBuffer sortBuffer;
 
         @Inject
-        Factory(UltraDNSWSApi api) {
+        Factory(UltraDNSWSApi api, Order order, SortBuffer sortBuffer) {
             this.api = api;
+            this.order = order;
+            this.sortBuffer = sortBuffer;
         }
 
         @Override
         public ResourceRecordSetApi create(final String zoneName) {
             return new UltraDNSResourceRecordSetApi(api.getResourceRecordApiForZone(zoneName),
-                    new UltraDNSRoundRobinPoolApi(api.getRoundRobinPoolApiForZone(zoneName)));
+                    new UltraDNSRoundRobinPoolApi(api.getRoundRobinPoolApiForZone(zoneName)), order, sortBuffer);
         }
     }
 }
@@ -1,11 +1,14 @@
 package denominator.ultradns;
 
 import static denominator.CredentialsConfiguration.credentials;
+import static denominator.ListingConfiguration.spillAfter;
+import static denominator.ListingConfiguration.unsorted;
 import static denominator.model.ResourceRecordSets.a;
 import static denominator.model.ResourceRecordSets.aaaa;
 import static java.lang.String.format;
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.fail;
 
 import java.io.IOException;
 import java.net.URL;
@@ -14,12 +17,15 @@ import org.testng.annotations.Test;
 
 import com.google.common.base.Optional;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ObjectArrays;
 import com.google.mockwebserver.MockResponse;
 import com.google.mockwebserver.MockWebServer;
 import com.google.mockwebserver.RecordedRequest;
 
 import denominator.Denominator;
 import denominator.ResourceRecordSetApi;
+import denominator.ResourceRecordSetConflictException;
+import denominator.model.ResourceRecordSet;
 
 @Test(singleThreaded = true)
 public class UltraDNSResourceRecordSetApiMockTest {
@@ -105,6 +111,48 @@ public class UltraDNSResourceRecordSetApiMockTest {
         }
     }
 
+    private String www2ThenRecords2And1 = new StringBuilder(getResourceRecordsOfZoneResponseHeader)
+            .append(format(aRecordTTLGuidAddressTemplate, 3600, "CCCCCCCCCCCC", "192.0.2.2").replace("www.", "www2."))
+            .append(format(aRecordTTLGuidAddressTemplate, 3600, "BBBBBBBBBBBB", "198.51.100.1"))
+            .append(format(aRecordTTLGuidAddressTemplate, 3600, "AAAAAAAAAAAA", "192.0.2.1"))
+            .append(getResourceRecordsOfZoneResponseFooter).toString();
+
+    @Test
+    public void listUnsortedGroupsInOrderReturned() throws IOException, InterruptedException {
+        MockWebServer server = new MockWebServer();
+        server.enqueue(new MockResponse().setResponseCode(200).setBody(www2ThenRecords2And1));
+        server.play();
+
+        try {
+            ResourceRecordSetApi api = mockApi(server.getUrl("/"), unsorted());
+            assertEquals(ImmutableList.copyOf(api.list()), ImmutableList.of(
+                    a("www2.denominator.io.", 3600, "192.0.2.2"),
+                    a("www.denominator.io.", 3600, ImmutableList.of("192.0.2.1", "198.51.100.1"))));
+
+            assertEquals(server.getRequestCount(), 1);
+        } finally {
+            server.shutdown();
+        }
+    }
+
+    @Test
+    public void listSpillingToDiskIsSorted() throws IOException, InterruptedException {
+        MockWebServer server = new MockWebServer();
+        server.enqueue(new MockResponse().setResponseCode(200).setBody(www2ThenRecords2And1));
+        server.play();
+
+        try {
+            ResourceRecordSetApi api = mockApi(server.getUrl("/"), spillAfter(1));
+            assertEquals(ImmutableList.copyOf(api.list()), ImmutableList.of(
+                    a("www.denominator.io.", 3600, ImmutableList.of("192.0.2.1", "198.51.100.1")),
+                    a("www2.denominator.io.", 3600, "192.0.2.2")));
+
+            assertEquals(server.getRequestCount(), 1);
+        } finally {
+            server.shutdown();
+        }
+    }
+
     @Test
     public void getByNameAndTypeWhenAbsent() throws IOException, InterruptedException {
         MockWebServer server = new MockWebServer();
@@ -330,6 +378,63 @@ public class UltraDNSResourceRecordSetApiMockTest {
         }
     }
 
+    @Test
+    public void replaceExpectedRecordSetAddsRecordToExistingPool() throws IOException, InterruptedException {
+        MockWebServer server = new MockWebServer();
+        server.enqueue(new MockResponse().setResponseCode(200).setBody(record1));
+        server.enqueue(new MockResponse().setResponseCode(200).setBody(poolsForAandAAAA));
+        server.enqueue(new MockResponse().setResponseCode(200).setBody(
+                format(addRecordToRRPoolResponseTemplate, "BBBBBBBBBBBB")));
+        server.play();
+
+        try {
+            ResourceRecordSetApi api = mockApi(server.getUrl("/"));
+            api.replace(a("www.denominator.io.", 3600, "192.0.2.1"),
+                    a("www.denominator.io.", 3600, ImmutableList.of("192.0.2.1", "198.51.100.1")));
+
+            assertEquals(server.getRequestCount(), 3);
+
+            RecordedRequest getResourceRecordsOfZone = server.takeRequest();
+            assertEquals(getResourceRecordsOfZone.getRequestLine(), "POST / HTTP/1.1");
+            assertEquals(new String(getResourceRecordsOfZone.getBody()), this.getResourceRecordsOfDNameByTypeA);
+
+            RecordedRequest getLoadBalancingPoolsByZone = server.takeRequest();
+            assertEquals(getLoadBalancingPoolsByZone.getRequestLine(), "POST / HTTP/1.1");
+            assertEquals(new String(getLoadBalancingPoolsByZone.getBody()), this.getLoadBalancingPoolsByZone);
+
+            RecordedRequest addRecord2 = server.takeRequest();
+            assertEquals(addRecord2.getRequestLine(), "POST / HTTP/1.1");
+            assertEquals(new String(addRecord2.getBody()),
+                    format(addRecordToRRPoolTemplate, "POOLA", "198.51.100.1", "1", 3600));
+        } finally {
+            server.shutdown();
+        }
+    }
+
+    @Test
+    public void replaceExpectedRecordSetConflictsWhenStale() throws IOException, InterruptedException {
+        MockWebServer server = new MockWebServer();
+        server.enqueue(new MockResponse().setResponseCode(200).setBody(record1));
+        server.play();
+
+        ResourceRecordSet<?> expected = a("www.denominator.io.", 3600, "198.51.100.1");
+        try {
+            ResourceRecordSetApi api = mockApi(server.getUrl("/"));
+            api.replace(expected, a("www.denominator.io.", 3600, "198.51.100.2"));
+            fail();
+        } catch (ResourceRecordSetConflictException e) {
+            assertEquals(e.getExpected(), expected);
+            assertEquals(e.getCurrent().get(), a("www.denominator.io.", 3600, "192.0.2.1"));
+
+            // nothing is written
+            assertEquals(server.getRequestCount(), 1);
+            RecordedRequest getResourceRecordsOfZone = server.takeRequest();
+            assertEquals(new String(getResourceRecordsOfZone.getBody()), this.getResourceRecordsOfDNameByTypeA);
+        } finally {
+            server.shutdown();
+        }
+    }
+
     private String getResourceRecordsOfDNameByTypeAAAA = format(getResourceRecordsOfDNameByTypeTemplate,
             "www.denominator.io.", 28);
 
@@ -406,13 +511,14 @@ public class UltraDNSResourceRecordSetApiMockTest {
         }
     }
 
-    private static ResourceRecordSetApi mockApi(final URL url) {
+    private static ResourceRecordSetApi mockApi(final URL url, Object... modules) {
         return Denominator.create(new UltraDNSProvider() {
             @Override
             public String getUrl() {
                 return url.toString();
             }
-        }, credentials("joe", "letmein")).getApi().getResourceRecordSetApiForZone("denominator.io.");
+        }, ObjectArrays.concat(credentials("joe", "letmein"), modules)).getApi()
+                .getResourceRecordSetApiForZone("denominator.io.");
     }
 
     private static final String SOAP_TEMPLATE = "<soapenv:Envelope xmlns:soapenv=\"http://schemas.xmlsoap.org/soap/envelope/\" xmlns:v01=\"http://webservice.api.ultra.neustar.com/v01/\"><soapenv:Header><wsse:Security soapenv:mustUnderstand=\"1\" xmlns:wsse=\"http://docs.oasis-open.org/wss/2004/01/oasis-200401-wss-wssecurity-secext-1.0.xsd\"><wsse:UsernameToken><wsse:Username>joe</wsse:Username><wsse:Password Type=\"http://docs.oasis-open.org/wss/2004/01/oasis-200401-wss-username-token-profile-1.0#PasswordText\">letmein</wsse:Password></wsse:UsernameToken></wsse:Security></soapenv:Header><soapenv:Body>%s</soapenv:Body></soapenv:Envelope>";